@@ -22,6 +22,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.FactoryBean;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.beans.factory.config.PropertiesFactoryBean;
 import org.springframework.beans.factory.config.PropertyPlaceholderConfigurer;
 import org.springframework.context.MessageSource;
@@ -50,16 +51,23 @@ import psiprobe.beans.ContainerListenerBean;
 import psiprobe.beans.ContainerWrapperBean;
 import psiprobe.beans.JBossResourceResolverBean;
 import psiprobe.beans.JvmMemoryInfoAccessorBean;
+import psiprobe.beans.LogArchiverBean;
+import psiprobe.beans.LogFollowerBean;
 import psiprobe.beans.LogResolverBean;
 import psiprobe.beans.ResourceResolver;
 import psiprobe.beans.ResourceResolverBean;
 import psiprobe.beans.RuntimeInfoAccessorBean;
+import psiprobe.beans.SessionSizeEstimatorBean;
+import psiprobe.beans.stats.collectors.AbstractStatsCollectorBean;
 import psiprobe.beans.stats.collectors.AppStatsCollectorBean;
 import psiprobe.beans.stats.collectors.ClusterStatsCollectorBean;
 import psiprobe.beans.stats.collectors.ConnectorStatsCollectorBean;
 import psiprobe.beans.stats.collectors.DatasourceStatsCollectorBean;
 import psiprobe.beans.stats.collectors.JvmMemoryStatsCollectorBean;
+import psiprobe.beans.stats.collectors.LogMetricsCollectorBean;
 import psiprobe.beans.stats.collectors.RuntimeStatsCollectorBean;
+import psiprobe.beans.stats.collectors.SessionStatsCollectorBean;
+import psiprobe.beans.stats.collectors.StatsCollectorExecutor;
 import psiprobe.beans.stats.listeners.MemoryPoolMailingListener;
 import psiprobe.beans.stats.listeners.StatsCollectionListener;
 import psiprobe.beans.stats.providers.ConnectorSeriesProvider;
@@ -70,15 +78,19 @@ import psiprobe.scheduler.jobs.AppStatsJobDetail;
 import psiprobe.scheduler.jobs.ClusterStatsJobDetail;
 import psiprobe.scheduler.jobs.ConnectorStatsJobDetail;
 import psiprobe.scheduler.jobs.DatasourceStatsJobDetail;
+import psiprobe.scheduler.jobs.LogMetricsJobDetail;
 import psiprobe.scheduler.jobs.MemoryStatsJobDetail;
 import psiprobe.scheduler.jobs.RuntimeStatsJobDetail;
+import psiprobe.scheduler.jobs.SessionStatsJobDetail;
 import psiprobe.scheduler.jobs.StatsSerializerJobDetail;
 import psiprobe.scheduler.triggers.AppStatsTrigger;
 import psiprobe.scheduler.triggers.ClusterStatsTrigger;
 import psiprobe.scheduler.triggers.ConnectorStatsTrigger;
 import psiprobe.scheduler.triggers.DatasourceStatsTrigger;
+import psiprobe.scheduler.triggers.LogMetricsTrigger;
 import psiprobe.scheduler.triggers.MemoryStatsTrigger;
 import psiprobe.scheduler.triggers.RuntimeStatsTrigger;
+import psiprobe.scheduler.triggers.SessionStatsTrigger;
 import psiprobe.scheduler.triggers.StatsSerializerTrigger;
 import psiprobe.tools.Mailer;
 
@@ -263,6 +275,39 @@ public class ProbeConfig implements WebMvcConfigurer {
     return new LogResolverBean();
   }
 
+  /**
+   * Gets the log follower bean.
+   *
+   * @return the log follower bean
+   */
+  @Bean(name = "logFollower")
+  public LogFollowerBean getLogFollowerBean() {
+    logger.debug("Instantiated logFollower");
+    return new LogFollowerBean();
+  }
+
+  /**
+   * Gets the log archiver bean.
+   *
+   * @return the log archiver bean
+   */
+  @Bean(name = "logArchiver")
+  public LogArchiverBean getLogArchiverBean() {
+    logger.debug("Instantiated logArchiver");
+    return new LogArchiverBean();
+  }
+
+  /**
+   * Gets the session size estimator bean.
+   *
+   * @return the session size estimator bean
+   */
+  @Bean(name = "sessionSizeEstimator")
+  public SessionSizeEstimatorBean getSessionSizeEstimatorBean() {
+    logger.debug("Instantiated sessionSizeEstimator");
+    return new SessionSizeEstimatorBean();
+  }
+
   /**
    * Gets the stats collection.
    *
@@ -274,70 +319,135 @@ public class ProbeConfig implements WebMvcConfigurer {
     return new StatsCollection();
   }
 
+  /**
+   * Gets the stats collector executor.
+   *
+   * @return the stats collector executor
+   */
+  @Bean(name = "statsCollectorExecutor")
+  public StatsCollectorExecutor getStatsCollectorExecutor() {
+    logger.debug("Instantiated statsCollectorExecutor");
+    return new StatsCollectorExecutor();
+  }
+
   /**
    * Gets the connector stats collector bean.
    *
+   * @param period the collection period expression
    * @return the connector stats collector bean
    */
   @Bean(name = "connectorStatsCollector")
-  public ConnectorStatsCollectorBean getConnectorStatsCollectorBean() {
+  public ConnectorStatsCollectorBean getConnectorStatsCollectorBean(
+      @Value("${psiprobe.beans.stats.collectors.connector.period}") String period) {
     logger.debug("Instantiated connectorStatsCollector");
-    return new ConnectorStatsCollectorBean();
+    ConnectorStatsCollectorBean collector = new ConnectorStatsCollectorBean();
+    collector.setPeriodExpression(period);
+    return collector;
   }
 
   /**
    * Gets the cluster stats collector bean.
    *
+   * @param period the collection period expression
    * @return the cluster stats collector bean
    */
   @Bean(name = "clusterStatsCollector")
-  public ClusterStatsCollectorBean getClusterStatsCollectorBean() {
+  public ClusterStatsCollectorBean getClusterStatsCollectorBean(
+      @Value("${psiprobe.beans.stats.collectors.cluster.period}") String period) {
     logger.debug("Instantiated clusterStatsCollector");
-    return new ClusterStatsCollectorBean();
+    ClusterStatsCollectorBean collector = new ClusterStatsCollectorBean();
+    collector.setPeriodExpression(period);
+    return collector;
   }
 
   /**
    * Gets the runtime stats collector bean.
    *
+   * @param period the collection period expression
    * @return the runtime stats collector bean
    */
   @Bean(name = "runtimeStatsCollector")
-  public RuntimeStatsCollectorBean getRuntimeStatsCollectorBean() {
+  public RuntimeStatsCollectorBean getRuntimeStatsCollectorBean(
+      @Value("${psiprobe.beans.stats.collectors.runtime.period}") String period) {
     logger.debug("Instantiated runtimeStatsCollector");
-    return new RuntimeStatsCollectorBean();
+    RuntimeStatsCollectorBean collector = new RuntimeStatsCollectorBean();
+    collector.setPeriodExpression(period);
+    return collector;
   }
 
   /**
    * Gets the app stats collector bean.
    *
+   * @param period the collection period expression
    * @return the app stats collector bean
    */
   @Bean(name = "appStatsCollector")
-  public AppStatsCollectorBean getAppStatsCollectorBean() {
+  public AppStatsCollectorBean getAppStatsCollectorBean(
+      @Value("${psiprobe.beans.stats.collectors.app.period}") String period) {
     logger.debug("Instantiated appStatsCollector");
-    return new AppStatsCollectorBean();
+    AppStatsCollectorBean collector = new AppStatsCollectorBean();
+    collector.setPeriodExpression(period);
+    return collector;
   }
 
   /**
    * Gets the jvm memory stats collector bean.
    *
+   * @param period the collection period expression
    * @return the jvm memory stats collector bean
    */
   @Bean(name = "memoryStatsCollector")
-  public JvmMemoryStatsCollectorBean getJvmMemoryStatsCollectorBean() {
+  public JvmMemoryStatsCollectorBean getJvmMemoryStatsCollectorBean(
+      @Value("${psiprobe.beans.stats.collectors.memory.period}") String period) {
     logger.debug("Instantiated memoryStatsCollector");
-    return new JvmMemoryStatsCollectorBean();
+    JvmMemoryStatsCollectorBean collector = new JvmMemoryStatsCollectorBean();
+    collector.setPeriodExpression(period);
+    return collector;
   }
 
   /**
    * Gets the datasource stats collector bean.
    *
+   * @param period the collection period expression
    * @return the datasource stats collector bean
    */
   @Bean(name = "datasourceStatsCollector")
-  public DatasourceStatsCollectorBean getDatasourceStatsCollectorBean() {
+  public DatasourceStatsCollectorBean getDatasourceStatsCollectorBean(
+      @Value("${psiprobe.beans.stats.collectors.datasource.period}") String period) {
     logger.debug("Instantiated datasourceStatsCollector");
-    return new DatasourceStatsCollectorBean();
+    DatasourceStatsCollectorBean collector = new DatasourceStatsCollectorBean();
+    collector.setPeriodExpression(period);
+    return collector;
+  }
+
+  /**
+   * Gets the log metrics collector bean.
+   *
+   * @param period the collection period expression
+   * @return the log metrics collector bean
+   */
+  @Bean(name = "logMetricsCollector")
+  public LogMetricsCollectorBean getLogMetricsCollectorBean(
+      @Value("${psiprobe.beans.stats.collectors.log.period}") String period) {
+    logger.debug("Instantiated logMetricsCollector");
+    LogMetricsCollectorBean collector = new LogMetricsCollectorBean();
+    collector.setPeriodExpression(period);
+    return collector;
+  }
+
+  /**
+   * Gets the session stats collector bean.
+   *
+   * @param period the collection period expression
+   * @return the session stats collector bean
+   */
+  @Bean(name = "sessionStatsCollector")
+  public SessionStatsCollectorBean getSessionStatsCollectorBean(
+      @Value("${psiprobe.beans.stats.collectors.sessions.period}") String period) {
+    logger.debug("Instantiated sessionStatsCollector");
+    SessionStatsCollectorBean collector = new SessionStatsCollectorBean();
+    collector.setPeriodExpression(period);
+    return collector;
   }
 
   /**
@@ -743,6 +853,155 @@ public class ProbeConfig implements WebMvcConfigurer {
     return provider;
   }
 
+  /**
+   * Gets the app log, the series of the log lines of an application matching each rule.
+   *
+   * @param logMetricsCollector the log metrics collector
+   * @return the app log
+   */
+  @Bean(name = "app_log")
+  public StandardSeriesProvider getAppLog(
+      @Autowired LogMetricsCollectorBean logMetricsCollector) {
+    logger.debug("Instantiated app_log");
+    List<String> list = new ArrayList<>();
+    List<String> labels = new ArrayList<>();
+    for (String rule : logMetricsCollector.getRuleNames()) {
+      list.add("log." + rule + ".{0}");
+      labels.add(rule);
+    }
+
+    StandardSeriesProvider provider = new StandardSeriesProvider();
+    provider.setStatNames(list);
+    provider.setSeriesLabels(labels);
+    return provider;
+  }
+
+  /**
+   * Gets the total log, the series of the log lines of all files matching each rule.
+   *
+   * @param logMetricsCollector the log metrics collector
+   * @return the total log
+   */
+  @Bean(name = "total_log")
+  public StandardSeriesProvider getTotalLog(
+      @Autowired LogMetricsCollectorBean logMetricsCollector) {
+    logger.debug("Instantiated total_log");
+    List<String> list = new ArrayList<>();
+    List<String> labels = new ArrayList<>();
+    for (String rule : logMetricsCollector.getRuleNames()) {
+      list.add("total.log." + rule);
+      labels.add(rule);
+    }
+
+    StandardSeriesProvider provider = new StandardSeriesProvider();
+    provider.setStatNames(list);
+    provider.setSeriesLabels(labels);
+    return provider;
+  }
+
+  /**
+   * Gets the app sessions, the series of the active, created and expired sessions of an
+   * application.
+   *
+   * @return the app sessions
+   */
+  @Bean(name = "app_sessions")
+  public StandardSeriesProvider getAppSessions() {
+    logger.debug("Instantiated app_sessions");
+    List<String> list = new ArrayList<>();
+    list.add("app.sessions.active.{0}");
+    list.add("app.sessions.created.{0}");
+    list.add("app.sessions.expired.{0}");
+
+    StandardSeriesProvider provider = new StandardSeriesProvider();
+    provider.setStatNames(list);
+    return provider;
+  }
+
+  /**
+   * Gets the app session idle, the series of the sessions of an application in each bucket of
+   * idle time.
+   *
+   * @param sessionStatsCollector the session stats collector
+   * @return the app session idle
+   */
+  @Bean(name = "app_session_idle")
+  public StandardSeriesProvider getAppSessionIdle(
+      @Autowired SessionStatsCollectorBean sessionStatsCollector) {
+    logger.debug("Instantiated app_session_idle");
+    List<String> list = new ArrayList<>();
+    for (String bucket : sessionStatsCollector.getIdleBucketNames()) {
+      list.add("app.sessions.idle." + bucket + ".{0}");
+    }
+
+    StandardSeriesProvider provider = new StandardSeriesProvider();
+    provider.setStatNames(list);
+    provider.setSeriesLabels(sessionStatsCollector.getIdleBucketLabels());
+    return provider;
+  }
+
+  /**
+   * Gets the app session age, the series of the sessions of an application in each bucket of age.
+   *
+   * @param sessionStatsCollector the session stats collector
+   * @return the app session age
+   */
+  @Bean(name = "app_session_age")
+  public StandardSeriesProvider getAppSessionAge(
+      @Autowired SessionStatsCollectorBean sessionStatsCollector) {
+    logger.debug("Instantiated app_session_age");
+    List<String> list = new ArrayList<>();
+    for (String bucket : sessionStatsCollector.getAgeBucketNames()) {
+      list.add("app.sessions.age." + bucket + ".{0}");
+    }
+
+    StandardSeriesProvider provider = new StandardSeriesProvider();
+    provider.setStatNames(list);
+    provider.setSeriesLabels(sessionStatsCollector.getAgeBucketLabels());
+    return provider;
+  }
+
+  /**
+   * Gets the app session size, the series of the estimated sessions of an application in each
+   * bucket of size.
+   *
+   * @param sessionStatsCollector the session stats collector
+   * @return the app session size
+   */
+  @Bean(name = "app_session_size")
+  public StandardSeriesProvider getAppSessionSize(
+      @Autowired SessionStatsCollectorBean sessionStatsCollector) {
+    logger.debug("Instantiated app_session_size");
+    List<String> list = new ArrayList<>();
+    for (String bucket : sessionStatsCollector.getSizeBucketNames()) {
+      list.add("app.sessions.size." + bucket + ".{0}");
+    }
+
+    StandardSeriesProvider provider = new StandardSeriesProvider();
+    provider.setStatNames(list);
+    provider.setSeriesLabels(sessionStatsCollector.getSizeBucketLabels());
+    return provider;
+  }
+
+  /**
+   * Gets the total sessions, the series of the active, created and expired sessions of all
+   * applications.
+   *
+   * @return the total sessions
+   */
+  @Bean(name = "total_sessions")
+  public StandardSeriesProvider getTotalSessions() {
+    logger.debug("Instantiated total_sessions");
+    List<String> list = new ArrayList<>();
+    list.add("total.sessions.active");
+    list.add("total.sessions.created");
+    list.add("total.sessions.expired");
+
+    StandardSeriesProvider provider = new StandardSeriesProvider();
+    provider.setStatNames(list);
+    return provider;
+  }
+
   /**
    * Gets the datasource usage.
    *
@@ -790,6 +1049,19 @@ public class ProbeConfig implements WebMvcConfigurer {
     return provider;
   }
 
+  /**
+   * Gets the collector times.
+   *
+   * @return the collector times
+   */
+  @Bean(name = "collector_time")
+  public MultipleSeriesProvider getCollectorTime() {
+    logger.debug("Instantiated collector_time");
+    MultipleSeriesProvider provider = new MultipleSeriesProvider();
+    provider.setStatNamePrefix(AbstractStatsCollectorBean.OVERHEAD_PREFIX + "time.");
+    return provider;
+  }
+
   /**
    * Gets the connector stats job detail.
    *
@@ -856,6 +1128,28 @@ public class ProbeConfig implements WebMvcConfigurer {
     return new DatasourceStatsJobDetail();
   }
 
+  /**
+   * Gets the log metrics job detail.
+   *
+   * @return the log metrics job detail
+   */
+  @Bean(name = "logMetricsJobDetail")
+  public LogMetricsJobDetail getLogMetricsJobDetail() {
+    logger.debug("Instantiated logMetricsJobDetail");
+    return new LogMetricsJobDetail();
+  }
+
+  /**
+   * Gets the session stats job detail.
+   *
+   * @return the session stats job detail
+   */
+  @Bean(name = "sessionStatsJobDetail")
+  public SessionStatsJobDetail getSessionStatsJobDetail() {
+    logger.debug("Instantiated sessionStatsJobDetail");
+    return new SessionStatsJobDetail();
+  }
+
   /**
    * Gets the stats serializer job detail.
    *
@@ -945,6 +1239,32 @@ public class ProbeConfig implements WebMvcConfigurer {
     return trigger;
   }
 
+  /**
+   * Gets the log metrics trigger.
+   *
+   * @return the log metrics trigger
+   */
+  @Bean(name = "logMetricsTrigger")
+  public LogMetricsTrigger getLogMetricsTrigger() {
+    logger.debug("Instantiated logMetricsTrigger");
+    LogMetricsTrigger trigger = new LogMetricsTrigger();
+    trigger.setJobDetail(getLogMetricsJobDetail().getObject());
+    return trigger;
+  }
+
+  /**
+   * Gets the session stats trigger.
+   *
+   * @return the session stats trigger
+   */
+  @Bean(name = "sessionStatsTrigger")
+  public SessionStatsTrigger getSessionStatsTrigger() {
+    logger.debug("Instantiated sessionStatsTrigger");
+    SessionStatsTrigger trigger = new SessionStatsTrigger();
+    trigger.setJobDetail(getSessionStatsJobDetail().getObject());
+    return trigger;
+  }
+
   /**
    * Gets the stats serializer trigger.
    *
@@ -965,8 +1285,10 @@ public class ProbeConfig implements WebMvcConfigurer {
    * @param clusterStatsTrigger the cluster stats trigger
    * @param connectorStatsTrigger the connector stats trigger
    * @param datasourceStatsTrigger the datasource stats trigger
+   * @param logMetricsTrigger the log metrics trigger
    * @param memoryStatsTrigger the memory stats trigger
    * @param runtimeStatsTrigger the runtime stats trigger
+   * @param sessionStatsTrigger the session stats trigger
    * @param statsSerializerTrigger the stats serializer trigger
    * @return the scheduler factory bean
    */
@@ -975,8 +1297,10 @@ public class ProbeConfig implements WebMvcConfigurer {
       @Autowired ClusterStatsTrigger clusterStatsTrigger,
       @Autowired ConnectorStatsTrigger connectorStatsTrigger,
       @Autowired DatasourceStatsTrigger datasourceStatsTrigger,
+      @Autowired LogMetricsTrigger logMetricsTrigger,
       @Autowired MemoryStatsTrigger memoryStatsTrigger,
       @Autowired RuntimeStatsTrigger runtimeStatsTrigger,
+      @Autowired SessionStatsTrigger sessionStatsTrigger,
       @Autowired StatsSerializerTrigger statsSerializerTrigger) {
 
     logger.debug("Instantiated scheduler");
@@ -985,7 +1309,8 @@ public class ProbeConfig implements WebMvcConfigurer {
     // Add Triggers
     bean.setTriggers(appStatsTrigger.getObject(), clusterStatsTrigger.getObject(),
         connectorStatsTrigger.getObject(), datasourceStatsTrigger.getObject(),
-        memoryStatsTrigger.getObject(), runtimeStatsTrigger.getObject(),
+        logMetricsTrigger.getObject(), memoryStatsTrigger.getObject(),
+        runtimeStatsTrigger.getObject(), sessionStatsTrigger.getObject(),
         statsSerializerTrigger.getObject());
 
     // Add Properties
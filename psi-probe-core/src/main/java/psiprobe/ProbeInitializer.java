@@ -56,14 +56,17 @@ public class ProbeInitializer implements WebApplicationInitializer {
     probe.setInitParameters(initParameters);
 
     probe.setLoadOnStartup(0);
+    probe.setAsyncSupported(true);
     probe.addMapping("*.htm");
     probe.addMapping("*.ajax");
     probe.addMapping("/logs/*");
     probe.addMapping("/chart.png");
+    probe.addMapping("/rest/*");
 
     // Set sitemesh filter
     FilterRegistration.Dynamic sitemesh =
         servletContext.addFilter("sitemesh", SiteMeshFilter.class);
+    sitemesh.setAsyncSupported(true);
     sitemesh.addMappingForUrlPatterns(
         EnumSet.of(DispatcherType.FORWARD, DispatcherType.REQUEST, DispatcherType.ERROR), false,
         "/*");
@@ -71,6 +74,7 @@ public class ProbeInitializer implements WebApplicationInitializer {
     // Set security filter
     FilterRegistration.Dynamic security =
         servletContext.addFilter("filterChainProxy", DelegatingFilterProxy.class);
+    security.setAsyncSupported(true);
     security.addMappingForUrlPatterns(
         EnumSet.of(DispatcherType.FORWARD, DispatcherType.REQUEST, DispatcherType.ERROR), false,
         "/*");
@@ -23,12 +23,15 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.OutputStream;
-import java.io.RandomAccessFile;
 import java.io.Reader;
 import java.lang.management.ManagementFactory;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Locale;
@@ -60,6 +63,15 @@ public final class Utils {
   /** The Constant logger. */
   private static final Logger logger = LoggerFactory.getLogger(Utils.class);
 
+  /** The content type of downloaded files. */
+  private static final String DOWNLOAD_CONTENT_TYPE = "application/x-download";
+
+  /** The maximum number of ranges of a request, requests for more get the whole file. */
+  private static final int MAX_RANGES = 32;
+
+  /** The size from which the container is asked to send a file itself. */
+  private static final long SENDFILE_MIN_SIZE = 48 * 1024L;
+
   /**
    * Prevent Instantiation.
    */
@@ -302,7 +314,11 @@ public final class Utils {
   }
 
   /**
-   * Send file.
+   * Sends a file as a download, honoring single and multiple byte ranges, "If-None-Match",
+   * "If-Modified-Since" and "If-Range". The whole file or a single range of it is handed over to
+   * the container for sendfile when it supports it and the range is large enough, the one case the
+   * content is not copied through the heap. Otherwise it is transferred from its channel to the
+   * response stream, through a buffer.
    *
    * @param request the request
    * @param response the response
@@ -312,77 +328,245 @@ public final class Utils {
   public static void sendFile(HttpServletRequest request, HttpServletResponse response, File file)
       throws IOException {
 
-    try (OutputStream out = response.getOutputStream();
-        RandomAccessFile raf = new RandomAccessFile(file, "r")) {
-      long fileSize = raf.length();
-      long rangeStart = 0;
-      long rangeFinish = fileSize - 1;
+    try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+      long fileSize = channel.size();
+      long lastModified = file.lastModified();
+      String etag =
+          "\"" + Long.toHexString(fileSize) + "-" + Long.toHexString(lastModified) + "\"";
 
-      // accept attempts to resume download (if any)
+      response.setContentType(DOWNLOAD_CONTENT_TYPE);
+      response.setHeader("Content-Disposition", "attachment; filename=" + file.getName());
+      response.setHeader("Accept-Ranges", "bytes");
+      response.setHeader("ETag", etag);
+      response.setDateHeader("Last-Modified", lastModified);
+
+      // If-Modified-Since is only looked at without If-None-Match, and both before the range
+      String ifNoneMatch = request.getHeader("If-None-Match");
+      if (ifNoneMatch != null ? matchesEtag(ifNoneMatch, etag)
+          : isNotModifiedSince(request, "If-Modified-Since", lastModified)) {
+        response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+        return;
+      }
       String range = request.getHeader("Range");
-      if (range != null && range.startsWith("bytes=")) {
-        String pureRange = range.replace("bytes=", "");
-        int rangeSep = pureRange.indexOf('-');
-
-        try {
-          rangeStart = Long.parseLong(pureRange.substring(0, rangeSep));
-          if (rangeStart > fileSize || rangeStart < 0) {
-            rangeStart = 0;
+      // a range of a file which changed since is not wanted, the whole file is sent instead;
+      // a date only validates the range if it is the exact last modification date
+      String ifRange = request.getHeader("If-Range");
+      boolean sameFile = ifRange == null || ifRange.trim().equals(etag)
+          || !ifRange.trim().startsWith("\"") && !ifRange.trim().startsWith("W/")
+              && isLastModified(request, "If-Range", lastModified);
+      List<long[]> ranges = sameFile ? parseRanges(range, fileSize) : null;
+      boolean head = "HEAD".equals(request.getMethod());
+
+      if (ranges == null) {
+        response.setHeader("Content-Length", Long.toString(fileSize));
+        if (!head) {
+          sendRange(request, response, channel, file, 0, fileSize, true);
+        }
+      } else if (ranges.isEmpty()) {
+        response.setHeader("Content-Range", "bytes */" + fileSize);
+        response.sendError(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+      } else if (ranges.size() == 1) {
+        long[] single = ranges.get(0);
+        response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+        response.setHeader("Content-Range",
+            "bytes " + single[0] + "-" + (single[1] - 1) + "/" + fileSize);
+        response.setHeader("Content-Length", Long.toString(single[1] - single[0]));
+        if (!head) {
+          sendRange(request, response, channel, file, single[0], single[1], true);
+        }
+      } else {
+        String boundary = Long.toHexString(System.nanoTime()) + Long.toHexString(lastModified);
+        List<byte[]> partHeaders = new ArrayList<>(ranges.size());
+        long length = 0;
+        for (long[] part : ranges) {
+          byte[] partHeader = ("\r\n--" + boundary + "\r\nContent-Type: " + DOWNLOAD_CONTENT_TYPE
+              + "\r\nContent-Range: bytes " + part[0] + "-" + (part[1] - 1) + "/" + fileSize
+              + "\r\n\r\n").getBytes(StandardCharsets.US_ASCII);
+          partHeaders.add(partHeader);
+          length += partHeader.length + part[1] - part[0];
+        }
+        byte[] trailer = ("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.US_ASCII);
+        length += trailer.length;
+
+        response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+        response.setContentType("multipart/byteranges; boundary=" + boundary);
+        response.setHeader("Content-Length", Long.toString(length));
+        if (!head) {
+          OutputStream out = response.getOutputStream();
+          for (int i = 0; i < ranges.size(); i++) {
+            out.write(partHeaders.get(i));
+            sendRange(request, response, channel, file, ranges.get(i)[0], ranges.get(i)[1],
+                false);
           }
-        } catch (NumberFormatException e) {
-          // keep rangeStart unchanged
-          logger.trace("", e);
+          out.write(trailer);
+          out.flush();
         }
+      }
+    }
+  }
 
-        if (rangeSep < pureRange.length() - 1) {
-          try {
-            rangeFinish = Long.parseLong(pureRange.substring(rangeSep + 1));
-            if (rangeFinish < 0 || rangeFinish >= fileSize) {
-              rangeFinish = fileSize - 1;
+  /**
+   * Parses the "Range" header of a request. Overlapping and adjacent ranges are coalesced, so that
+   * no byte of the file is sent twice however many ranges ask for it.
+   *
+   * @param range the header, may be null
+   * @param fileSize the file size
+   * @return the satisfiable ranges, as start and end offsets, the end excluded, in ascending order,
+   *         empty if none is satisfiable, null if the whole file is to be sent
+   */
+  static List<long[]> parseRanges(String range, long fileSize) {
+    if (range == null || !range.startsWith("bytes=")) {
+      return null;
+    }
+    String[] specs = range.substring("bytes=".length()).split(",");
+    if (specs.length > MAX_RANGES) {
+      return null;
+    }
+    List<long[]> ranges = new ArrayList<>(specs.length);
+    for (String spec : specs) {
+      String pureSpec = spec.trim();
+      int sep = pureSpec.indexOf('-');
+      if (sep < 0) {
+        return null;
+      }
+      long start;
+      long end;
+      try {
+        if (sep == 0) {
+          // the last bytes
+          start = Math.max(0, fileSize - Long.parseLong(pureSpec.substring(1)));
+          end = fileSize;
+        } else {
+          start = Long.parseLong(pureSpec.substring(0, sep));
+          if (sep == pureSpec.length() - 1) {
+            end = fileSize;
+          } else {
+            long last = Long.parseLong(pureSpec.substring(sep + 1));
+            if (last < start) {
+              // syntactically invalid, the header is ignored
+              return null;
             }
-          } catch (NumberFormatException e) {
-            logger.trace("", e);
+            end = Math.min(fileSize, last + 1);
           }
         }
+      } catch (NumberFormatException e) {
+        logger.trace("", e);
+        return null;
       }
+      if (start < end) {
+        ranges.add(new long[] {start, end});
+      }
+    }
+    ranges.sort((r1, r2) -> Long.compare(r1[0], r2[0]));
+    List<long[]> coalesced = new ArrayList<>(ranges.size());
+    for (long[] next : ranges) {
+      long[] last = coalesced.isEmpty() ? null : coalesced.get(coalesced.size() - 1);
+      if (last != null && next[0] <= last[1]) {
+        last[1] = Math.max(last[1], next[1]);
+      } else {
+        coalesced.add(next);
+      }
+    }
+    return coalesced;
+  }
 
-      // set some headers
-      response.setContentType("application/x-download");
-      response.setHeader("Content-Disposition", "attachment; filename=" + file.getName());
-      response.setHeader("Accept-Ranges", "bytes");
-      response.setHeader("Content-Length", Long.toString(rangeFinish - rangeStart + 1));
-      response.setHeader("Content-Range",
-          "bytes " + rangeStart + "-" + rangeFinish + "/" + fileSize);
-
-      // seek to the requested offset
-      raf.seek(rangeStart);
+  /**
+   * Checks if an "If-None-Match" header matches the entity tag of a file, weakly.
+   *
+   * @param header the header, a list of entity tags or "*"
+   * @param etag the entity tag of the file
+   * @return true, if one of the tags of the header is the tag of the file
+   */
+  static boolean matchesEtag(String header, String etag) {
+    for (String tag : header.split(",")) {
+      String pureTag = tag.trim();
+      if (pureTag.startsWith("W/")) {
+        pureTag = pureTag.substring(2);
+      }
+      if ("*".equals(pureTag) || pureTag.equals(etag)) {
+        return true;
+      }
+    }
+    return false;
+  }
 
-      // send the file
-      byte[] buffer = new byte[4096];
+  /**
+   * Checks if a file was not modified since the date of a request header.
+   *
+   * @param request the request
+   * @param header the header
+   * @param lastModified the last modification time of the file
+   * @return true, if the header holds a date and the file was not modified since
+   */
+  private static boolean isNotModifiedSince(HttpServletRequest request, String header,
+      long lastModified) {
+    long since;
+    try {
+      since = request.getDateHeader(header);
+    } catch (IllegalArgumentException e) {
+      logger.trace("", e);
+      return false;
+    }
+    // dates are to the second
+    return since >= 0 && lastModified / 1000 <= since / 1000;
+  }
 
-      long len;
-      int totalRead = 0;
-      boolean nomore = false;
-      while (true) {
-        len = raf.read(buffer);
-        if (len > 0 && totalRead + len > rangeFinish - rangeStart + 1) {
-          // read more then required?
-          // adjust the length
-          len = rangeFinish - rangeStart + 1 - totalRead;
-          nomore = true;
-        }
+  /**
+   * Checks if the date of a request header is the last modification date of a file, as a date in
+   * "If-Range" must be to validate the range.
+   *
+   * @param request the request
+   * @param header the header
+   * @param lastModified the last modification time of the file
+   * @return true, if the header holds a date and it is the last modification date, to the second
+   */
+  private static boolean isLastModified(HttpServletRequest request, String header,
+      long lastModified) {
+    long date;
+    try {
+      date = request.getDateHeader(header);
+    } catch (IllegalArgumentException e) {
+      logger.trace("", e);
+      return false;
+    }
+    return date >= 0 && lastModified / 1000 == date / 1000;
+  }
 
-        if (len > 0) {
-          out.write(buffer, 0, (int) len);
-          totalRead += len;
-          if (nomore) {
-            break;
-          }
-        } else {
-          break;
-        }
+  /**
+   * Sends a range of a file.
+   *
+   * @param request the request
+   * @param response the response
+   * @param channel the channel of the file
+   * @param file the file
+   * @param start the start offset
+   * @param end the end offset, excluded
+   * @param whole whether the range is the whole response body, which can then be sent by the
+   *        container
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  private static void sendRange(HttpServletRequest request, HttpServletResponse response,
+      FileChannel channel, File file, long start, long end, boolean whole) throws IOException {
+
+    if (whole && end - start >= SENDFILE_MIN_SIZE
+        && Boolean.TRUE.equals(request.getAttribute("org.apache.tomcat.sendfile.support"))) {
+      request.setAttribute("org.apache.tomcat.sendfile.filename", file.getCanonicalPath());
+      request.setAttribute("org.apache.tomcat.sendfile.start", start);
+      request.setAttribute("org.apache.tomcat.sendfile.end", end);
+      return;
+    }
+    OutputStream out = response.getOutputStream();
+    WritableByteChannel target = Channels.newChannel(out);
+    long position = start;
+    while (position < end) {
+      long sent = channel.transferTo(position, end - position, target);
+      if (sent <= 0) {
+        // the file was truncated
+        break;
       }
+      position += sent;
     }
+    out.flush();
   }
 
   /**
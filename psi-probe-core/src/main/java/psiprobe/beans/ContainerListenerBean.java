@@ -24,6 +24,8 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
 
 import javax.inject.Inject;
 import javax.management.InstanceNotFoundException;
@@ -63,6 +65,12 @@ public class ContainerListenerBean implements NotificationListener {
   /** The executor names. */
   private List<ObjectName> executorNames;
 
+  /** The listeners notified of web modules being registered or unregistered. */
+  private final List<Consumer<ObjectName>> contextListeners = new CopyOnWriteArrayList<>();
+
+  /** Whether this bean listens to MBean server notifications. */
+  private boolean listening;
+
   /** Used to obtain required {@link MBeanServer} instance. */
   @Inject
   private ContainerWrapperBean containerWrapper;
@@ -112,7 +120,8 @@ public class ContainerListenerBean implements NotificationListener {
   }
 
   /**
-   * Handles creation and deletion of new "worker" threads.
+   * Handles creation and deletion of new "worker" threads, and reports web modules being
+   * registered or unregistered to the context listeners.
    *
    * @param notification the notification
    * @param object the object
@@ -124,7 +133,11 @@ public class ContainerListenerBean implements NotificationListener {
         || MBeanServerNotification.UNREGISTRATION_NOTIFICATION.equals(notification.getType())) {
 
       ObjectName objectName = ((MBeanServerNotification) notification).getMBeanName();
-      if ("RequestProcessor".equals(objectName.getKeyProperty("type"))) {
+      if ("WebModule".equals(objectName.getKeyProperty("j2eeType"))) {
+        for (Consumer<ObjectName> listener : contextListeners) {
+          listener.accept(objectName);
+        }
+      } else if ("RequestProcessor".equals(objectName.getKeyProperty("type"))) {
         ThreadPoolObjectName threadPoolObjectName = findPool(objectName.getKeyProperty("worker"));
         if (threadPoolObjectName != null) {
           if (MBeanServerNotification.REGISTRATION_NOTIFICATION.equals(notification.getType())) {
@@ -190,10 +203,35 @@ public class ContainerListenerBean implements NotificationListener {
       executorNames.add(executorName);
     }
 
-    // Register with MBean server
-    server.addNotificationListener(new ObjectName("JMImplementation:type=MBeanServerDelegate"),
-        this, null, null);
+    listen(server);
+  }
 
+  /**
+   * Registers with the MBean server for notifications, unless done already.
+   *
+   * @param server the server
+   * @throws Exception - this method does not handle any of the exceptions that may be thrown when
+   *         registering with MBean server.
+   */
+  private synchronized void listen(MBeanServer server) throws Exception {
+    if (!listening) {
+      server.addNotificationListener(new ObjectName("JMImplementation:type=MBeanServerDelegate"),
+          this, null, null);
+      listening = true;
+    }
+  }
+
+  /**
+   * Adds a listener notified with the object name of every web module registered or unregistered,
+   * i.e. every context deployed or undeployed.
+   *
+   * @param listener the listener
+   * @throws Exception - this method does not handle any of the exceptions that may be thrown when
+   *         registering with MBean server.
+   */
+  public void addContextListener(Consumer<ObjectName> listener) throws Exception {
+    listen(getContainerWrapper().getResourceResolver().getMBeanServer());
+    contextListeners.add(listener);
   }
 
   /**
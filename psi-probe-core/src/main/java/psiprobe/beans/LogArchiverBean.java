@@ -0,0 +1,164 @@
+/*
+ * Licensed under the GPL License. You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   https://www.gnu.org/licenses/old-licenses/gpl-2.0.html
+ *
+ * THIS PACKAGE IS PROVIDED "AS IS" AND WITHOUT ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING,
+ * WITHOUT LIMITATION, THE IMPLIED WARRANTIES OF MERCHANTIBILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE.
+ */
+package psiprobe.beans;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+
+import psiprobe.tools.ArchiveWriter;
+import psiprobe.tools.ThreadPools;
+
+/**
+ * Streams log files into ZIP or tar.gz archives, compressing blocks of the files in parallel on a
+ * pool shared by all downloads, so archiving does not take more cores than configured however many
+ * archives are being downloaded.
+ */
+public class LogArchiverBean implements DisposableBean {
+
+  /** The number of threads, one per processor if not positive. */
+  private int threadCount;
+
+  /** The compression level, 0 to 9. */
+  private int level = 6;
+
+  /** The size of the blocks compressed in parallel. */
+  private int blockSize = 128 * 1024;
+
+  /** The executor, created on first use. */
+  private ExecutorService executor;
+
+  /**
+   * Gets the thread count.
+   *
+   * @return the thread count
+   */
+  public int getThreadCount() {
+    return threadCount;
+  }
+
+  /**
+   * Sets the thread count.
+   *
+   * @param threadCount the new thread count, one thread per processor if not positive
+   */
+  @Value("${psiprobe.beans.logs.archiver.threadCount}")
+  public void setThreadCount(int threadCount) {
+    this.threadCount = threadCount;
+  }
+
+  /**
+   * Gets the level.
+   *
+   * @return the compression level
+   */
+  public int getLevel() {
+    return level;
+  }
+
+  /**
+   * Sets the level.
+   *
+   * @param level the new compression level, 0 to 9
+   */
+  @Value("${psiprobe.beans.logs.archiver.level}")
+  public void setLevel(int level) {
+    this.level = level;
+  }
+
+  /**
+   * Gets the block size.
+   *
+   * @return the block size
+   */
+  public int getBlockSize() {
+    return blockSize;
+  }
+
+  /**
+   * Sets the block size.
+   *
+   * @param blockSize the new block size
+   */
+  public void setBlockSize(int blockSize) {
+    this.blockSize = blockSize;
+  }
+
+  /**
+   * Writes files into a ZIP archive.
+   *
+   * @param files the files, by entry name
+   * @param out the output, left open
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  public void writeZip(Map<String, File> files, OutputStream out) throws IOException {
+    newWriter().writeZip(files, out);
+  }
+
+  /**
+   * Writes files into a gzip compressed tar archive.
+   *
+   * @param files the files, by entry name
+   * @param out the output, left open
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  public void writeTarGz(Map<String, File> files, OutputStream out) throws IOException {
+    newWriter().writeTarGz(files, out);
+  }
+
+  /**
+   * Creates an archive writer. Each archive has up to two blocks per thread being compressed or
+   * waiting to be written.
+   *
+   * @return the archive writer
+   */
+  private ArchiveWriter newWriter() {
+    int threads = getThreads();
+    return new ArchiveWriter(getExecutor(threads), Math.max(0, Math.min(9, level)), blockSize,
+        2 * threads);
+  }
+
+  /**
+   * Gets the number of threads.
+   *
+   * @return the number of threads
+   */
+  private int getThreads() {
+    return threadCount > 0 ? threadCount : Runtime.getRuntime().availableProcessors();
+  }
+
+  /**
+   * Gets the executor, creating it on first use.
+   *
+   * @param threads the number of threads
+   * @return the executor
+   */
+  private synchronized ExecutorService getExecutor(int threads) {
+    if (executor == null) {
+      executor = ThreadPools.newThreadPool("Probe_Archiver-", threads);
+    }
+    return executor;
+  }
+
+  @Override
+  public synchronized void destroy() {
+    if (executor != null) {
+      executor.shutdownNow();
+      executor = null;
+    }
+  }
+
+}
@@ -0,0 +1,532 @@
+/*
+ * Licensed under the GPL License. You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   https://www.gnu.org/licenses/old-licenses/gpl-2.0.html
+ *
+ * THIS PACKAGE IS PROVIDED "AS IS" AND WITHOUT ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING,
+ * WITHOUT LIMITATION, THE IMPLIED WARRANTIES OF MERCHANTIBILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE.
+ */
+package psiprobe.beans;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+
+import psiprobe.tools.BackwardsFileStream;
+import psiprobe.tools.BackwardsLineReader;
+import psiprobe.tools.TimeExpression;
+
+/**
+ * Follows log files on behalf of any number of subscribers. Every followed file is read once per
+ * change, whoever follows it: a single thread waits for the file system to report changes to the
+ * directories of the followed files, reads what was appended and hands the lines over to all the
+ * subscribers of the file.
+ *
+ * <p>
+ * Files are also checked every poll interval, as not every file system reports changes in time,
+ * and subscribers are sent a heartbeat then. A file is no longer watched once its last subscriber
+ * is gone.
+ * </p>
+ */
+public class LogFollowerBean implements DisposableBean {
+
+  /** The Constant logger. */
+  private static final Logger logger = LoggerFactory.getLogger(LogFollowerBean.class);
+
+  /** The poll interval in milliseconds. */
+  private long pollInterval = 3000;
+
+  /** The maximum number of bytes read at once, older bytes of larger appends are skipped. */
+  private int maxReadSize = 1024 * 1024;
+
+  /** The followed files. */
+  private final Map<Path, FollowedFile> followedFiles = new ConcurrentHashMap<>();
+
+  /** The watch keys of the directories of the followed files. */
+  private final Map<Path, WatchKey> watchKeys = new HashMap<>();
+
+  /** The watch service, created on first use. */
+  private WatchService watchService;
+
+  /** The watcher thread. */
+  private Thread watcher;
+
+  /**
+   * Receives the lines appended to a followed file. Methods are called on the watcher thread, with
+   * the file locked: they must neither block nor unsubscribe.
+   */
+  public interface Subscriber {
+
+    /**
+     * Receives lines.
+     *
+     * @param lines the lines
+     * @param position the position in the file right after the lines
+     */
+    void lines(List<String> lines, long position);
+
+    /**
+     * Notifies the file has been truncated, lines following are read from its start.
+     */
+    void truncated();
+
+    /**
+     * Notifies the subscriber is still being followed, no line having been appended.
+     */
+    void heartbeat();
+  }
+
+  /**
+   * Gets the poll interval.
+   *
+   * @return the poll interval in milliseconds
+   */
+  public long getPollInterval() {
+    return pollInterval;
+  }
+
+  /**
+   * Sets the poll interval.
+   *
+   * @param pollInterval the new poll interval in milliseconds
+   */
+  public void setPollInterval(long pollInterval) {
+    this.pollInterval = pollInterval;
+  }
+
+  /**
+   * Sets the poll interval expression.
+   *
+   * @param pollInterval the new poll interval expression, e.g. "3s"
+   */
+  @Value("${psiprobe.beans.logs.follower.pollInterval}")
+  public void setPollIntervalExpression(String pollInterval) {
+    this.pollInterval = TimeExpression.inSeconds(pollInterval) * 1000;
+  }
+
+  /**
+   * Gets the max read size.
+   *
+   * @return the max read size in bytes
+   */
+  public int getMaxReadSize() {
+    return maxReadSize;
+  }
+
+  /**
+   * Sets the max read size.
+   *
+   * @param maxReadSize the new max read size in bytes
+   */
+  public void setMaxReadSize(int maxReadSize) {
+    this.maxReadSize = maxReadSize;
+  }
+
+  /**
+   * Subscribes to the lines appended to a file. The subscriber is first sent the lines it missed:
+   * those following the last known length if it is known, or else the last lines of the file.
+   *
+   * @param file the file
+   * @param encoding the encoding, UTF-8 if null
+   * @param lastKnownLength the position the subscriber has read up to, negative if none
+   * @param maxLines the maximum number of lines sent if the last known length is unknown
+   * @param subscriber the subscriber
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  public synchronized void subscribe(File file, String encoding, long lastKnownLength,
+      int maxLines, Subscriber subscriber) throws IOException {
+
+    FollowedFile followedFile = follow(file, encoding);
+    synchronized (followedFile) {
+      long lineEnd = followedFile.getLineEnd();
+      if (lastKnownLength > followedFile.position) {
+        subscriber.truncated();
+        lastKnownLength = -1;
+      }
+      List<String> lines;
+      if (lastKnownLength < 0) {
+        lines = readLastLines(followedFile, lineEnd, maxLines);
+      } else if (lineEnd - lastKnownLength > maxReadSize) {
+        // start right after the first line terminator of the last bytes, the byte before them
+        // telling whether they start with a whole line
+        lines = readLines(followedFile, lineEnd - maxReadSize - 1, lineEnd, true);
+      } else {
+        lines = readLines(followedFile, Math.min(lastKnownLength, lineEnd), lineEnd, false);
+      }
+      if (!lines.isEmpty()) {
+        subscriber.lines(lines, lineEnd);
+      }
+      followedFile.subscribers.add(subscriber);
+    }
+  }
+
+  /**
+   * Unsubscribes from a file, which is no longer watched if it was the last subscriber.
+   *
+   * @param file the file
+   * @param subscriber the subscriber
+   */
+  public synchronized void unsubscribe(File file, Subscriber subscriber) {
+    Path path = toPath(file);
+    FollowedFile followedFile = followedFiles.get(path);
+    if (followedFile != null && followedFile.subscribers.remove(subscriber)
+        && followedFile.subscribers.isEmpty()) {
+      followedFiles.remove(path);
+      Path dir = path.getParent();
+      boolean watched = false;
+      for (Path followed : followedFiles.keySet()) {
+        watched |= dir.equals(followed.getParent());
+      }
+      if (!watched) {
+        WatchKey key = watchKeys.remove(dir);
+        if (key != null) {
+          key.cancel();
+        }
+      }
+    }
+  }
+
+  /**
+   * Gets the number of subscribers of a file.
+   *
+   * @param file the file
+   * @return the subscriber count
+   */
+  public int getSubscriberCount(File file) {
+    FollowedFile followedFile = followedFiles.get(toPath(file));
+    return followedFile == null ? 0 : followedFile.subscribers.size();
+  }
+
+  /**
+   * Starts following a file, unless it is already followed.
+   *
+   * @param file the file
+   * @param encoding the encoding
+   * @return the followed file
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  private synchronized FollowedFile follow(File file, String encoding) throws IOException {
+    Path path = toPath(file);
+    FollowedFile followedFile = followedFiles.get(path);
+    if (followedFile == null) {
+      if (watchService == null) {
+        watchService = FileSystems.getDefault().newWatchService();
+        watcher = new Thread(this::watch, "Probe_LogFollower");
+        watcher.setDaemon(true);
+        watcher.start();
+      }
+      Path dir = path.getParent();
+      if (!watchKeys.containsKey(dir)) {
+        watchKeys.put(dir, dir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+            StandardWatchEventKinds.ENTRY_MODIFY));
+      }
+      followedFile = new FollowedFile(path,
+          encoding == null ? StandardCharsets.UTF_8 : Charset.forName(encoding));
+      followedFile.position = file.length();
+      followedFiles.put(path, followedFile);
+    }
+    return followedFile;
+  }
+
+  /**
+   * Gets the path a file is followed by.
+   *
+   * @param file the file
+   * @return the absolute, normalized path
+   */
+  private static Path toPath(File file) {
+    return file.toPath().toAbsolutePath().normalize();
+  }
+
+  /**
+   * Waits for changes to the followed files until the watch service is closed.
+   */
+  private void watch() {
+    WatchService service;
+    synchronized (this) {
+      service = watchService;
+    }
+    try {
+      while (true) {
+        WatchKey key = service.poll(pollInterval, TimeUnit.MILLISECONDS);
+        if (key == null) {
+          checkAll(true);
+          continue;
+        }
+        Path dir = (Path) key.watchable();
+        for (WatchEvent<?> event : key.pollEvents()) {
+          if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+            checkAll(false);
+          } else {
+            FollowedFile followedFile = followedFiles.get(dir.resolve((Path) event.context()));
+            if (followedFile != null) {
+              check(followedFile, false);
+            }
+          }
+        }
+        key.reset();
+      }
+    } catch (ClosedWatchServiceException | InterruptedException e) {
+      logger.debug("Stopped following logs");
+    }
+  }
+
+  /**
+   * Checks all followed files.
+   *
+   * @param heartbeat whether subscribers of unchanged files are sent a heartbeat
+   */
+  private void checkAll(boolean heartbeat) {
+    for (FollowedFile followedFile : followedFiles.values()) {
+      check(followedFile, heartbeat);
+    }
+  }
+
+  /**
+   * Reads what was appended to a file since it was last checked and hands the lines over to its
+   * subscribers.
+   *
+   * @param followedFile the followed file
+   * @param heartbeat whether subscribers are sent a heartbeat if the file is unchanged
+   */
+  void check(FollowedFile followedFile, boolean heartbeat) {
+    synchronized (followedFile) {
+      long length = followedFile.path.toFile().length();
+      if (length < followedFile.position) {
+        followedFile.restart(0, false);
+        for (Subscriber subscriber : followedFile.subscribers) {
+          subscriber.truncated();
+        }
+      }
+      List<String> lines = Collections.emptyList();
+      if (length > followedFile.position) {
+        if (length - followedFile.position > maxReadSize) {
+          // skip to the last bytes, dropping the line they start in the middle of; the byte
+          // before them tells whether they start with a whole line
+          followedFile.restart(length - maxReadSize - 1, true);
+        }
+        long from = followedFile.position;
+        try {
+          byte[] bytes = read(followedFile.path, from, length);
+          followedFile.position = from + bytes.length;
+          lines = followedFile.split(bytes);
+        } catch (IOException e) {
+          logger.error("Cannot read '{}'", followedFile.path, e);
+        }
+      }
+      for (Subscriber subscriber : followedFile.subscribers) {
+        if (!lines.isEmpty()) {
+          subscriber.lines(lines, followedFile.getLineEnd());
+        } else if (heartbeat) {
+          subscriber.heartbeat();
+        }
+      }
+    }
+  }
+
+  /**
+   * Reads the last lines of a file.
+   *
+   * @param followedFile the followed file
+   * @param end the position to read backwards from
+   * @param maxLines the maximum number of lines
+   * @return the lines
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  private static List<String> readLastLines(FollowedFile followedFile, long end, int maxLines)
+      throws IOException {
+    LinkedList<String> lines = new LinkedList<>();
+    try (BackwardsFileStream bfs = new BackwardsFileStream(followedFile.path.toFile(), end)) {
+      BackwardsLineReader br = new BackwardsLineReader(bfs, followedFile.charset.name());
+      String line = br.readLine();
+      // the end is usually right after a line terminator, there is no line after it
+      if (line != null && line.isEmpty()) {
+        line = br.readLine();
+      }
+      while (lines.size() < maxLines && line != null) {
+        lines.addFirst(line);
+        line = br.readLine();
+      }
+    }
+    return lines;
+  }
+
+  /**
+   * Reads the lines between two positions of a file.
+   *
+   * @param followedFile the followed file
+   * @param from the position to read from
+   * @param to the position to read up to, right after a line terminator
+   * @param midLine whether the position read from may be in the middle of a line, which is dropped
+   * @return the lines
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  private static List<String> readLines(FollowedFile followedFile, long from, long to,
+      boolean midLine) throws IOException {
+    FollowedFile lines = new FollowedFile(followedFile.path, followedFile.charset);
+    lines.restart(from, midLine);
+    return lines.split(read(followedFile.path, from, to));
+  }
+
+  /**
+   * Reads the bytes between two positions of a file.
+   *
+   * @param path the path
+   * @param from the position to read from
+   * @param to the position to read up to
+   * @return the bytes, fewer than asked for if the file got shorter
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  private static byte[] read(Path path, long from, long to) throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocate((int) (to - from));
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      while (buffer.hasRemaining()
+          && channel.read(buffer, from + buffer.position()) >= 0) {
+        // keep reading
+      }
+    }
+    byte[] bytes = new byte[buffer.position()];
+    System.arraycopy(buffer.array(), 0, bytes, 0, bytes.length);
+    return bytes;
+  }
+
+  @Override
+  public void destroy() throws IOException {
+    Thread thread;
+    synchronized (this) {
+      if (watchService == null) {
+        return;
+      }
+      watchService.close();
+      watchService = null;
+      watchKeys.clear();
+      followedFiles.clear();
+      thread = watcher;
+      watcher = null;
+    }
+    thread.interrupt();
+  }
+
+  /**
+   * A followed file, and the bytes of its last line while it is not terminated.
+   */
+  static class FollowedFile {
+
+    /** The path. */
+    final Path path;
+
+    /** The charset. */
+    final Charset charset;
+
+    /** The subscribers. */
+    final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+
+    /** The position read up to. */
+    long position;
+
+    /** The bytes read of the line not terminated yet. */
+    final ByteArrayOutputStream partialLine = new ByteArrayOutputStream();
+
+    /** Whether the last byte read was a carriage return. */
+    private boolean carriageReturn;
+
+    /** Whether the bytes up to the next line terminator are the end of a line to drop. */
+    private boolean dropLine;
+
+    /**
+     * Instantiates a new followed file.
+     *
+     * @param path the path
+     * @param charset the charset
+     */
+    FollowedFile(Path path, Charset charset) {
+      this.path = path;
+      this.charset = charset;
+    }
+
+    /**
+     * Gets the position right after the last line terminator read.
+     *
+     * @return the line end
+     */
+    long getLineEnd() {
+      return position - partialLine.size();
+    }
+
+    /**
+     * Restarts reading at a position, forgetting about the bytes read before.
+     *
+     * @param position the position
+     * @param midLine whether the position may be in the middle of a line, whose bytes up to the
+     *        next line terminator are then dropped rather than split as a whole line
+     */
+    void restart(long position, boolean midLine) {
+      this.position = position;
+      partialLine.reset();
+      carriageReturn = false;
+      dropLine = midLine;
+    }
+
+    /**
+     * Splits bytes read into lines. Bytes following the last line terminator are kept until the
+     * line is terminated.
+     *
+     * @param bytes the bytes
+     * @return the lines terminated by the bytes
+     */
+    List<String> split(byte[] bytes) {
+      List<String> lines = new ArrayList<>();
+      int start = 0;
+      for (int i = 0; i < bytes.length; i++) {
+        byte chr = bytes[i];
+        if (chr == '\n' && carriageReturn) {
+          // second half of a CRLF terminator
+          start = i + 1;
+        } else if (chr == '\n' || chr == '\r') {
+          if (dropLine) {
+            dropLine = false;
+          } else {
+            partialLine.write(bytes, start, i - start);
+            lines.add(new String(partialLine.toByteArray(), charset));
+          }
+          partialLine.reset();
+          start = i + 1;
+        }
+        carriageReturn = chr == '\r';
+      }
+      if (!dropLine) {
+        partialLine.write(bytes, start, bytes.length - start);
+      }
+      return lines;
+    }
+  }
+
+}
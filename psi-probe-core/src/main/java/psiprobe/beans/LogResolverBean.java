@@ -20,8 +20,11 @@ import java.util.Comparator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 import javax.inject.Inject;
+import javax.management.ObjectName;
 import javax.servlet.ServletContext;
 
 import org.apache.catalina.Context;
@@ -29,13 +32,17 @@ import org.apache.catalina.Loader;
 import org.apache.commons.lang3.reflect.MethodUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.util.ClassUtils;
 
 import psiprobe.model.Application;
 import psiprobe.model.DisconnectedLogDestination;
 import psiprobe.tools.ApplicationUtils;
 import psiprobe.tools.Instruments;
+import psiprobe.tools.SizeExpression;
+import psiprobe.tools.logging.CompressedLogIndex;
 import psiprobe.tools.logging.FileLogAccessor;
 import psiprobe.tools.logging.LogDestination;
 import psiprobe.tools.logging.catalina.CatalinaLoggerAccessor;
@@ -55,8 +62,19 @@ import psiprobe.tools.logging.slf4jlogback.TomcatSlf4jLogbackLoggerAccessor;
 
 /**
  * The Class LogResolverBean.
+ *
+ * <p>
+ * Discovering log destinations means interrogating every logging framework of every class loader
+ * reflectively, so the destinations found are cached by the class loader interrogated. Those of a
+ * webapp are dropped when its context is registered or unregistered again, as reported by the
+ * {@link ContainerListenerBean}, or when its class loader changes, as it does when the webapp is
+ * stopped, started or reloaded. As logging may be reconfigured without any of this, e.g. by a
+ * framework watching its configuration file, destinations are discovered again once older than
+ * the cache timeout, and {@link #refresh()} drops everything cached at once. Destinations are
+ * indexed by the parameters identifying them in requests.
+ * </p>
  */
-public class LogResolverBean {
+public class LogResolverBean implements DisposableBean {
 
   /** The Constant logger. */
   private static final Logger logger = LoggerFactory.getLogger(LogResolverBean.class);
@@ -65,9 +83,28 @@ public class LogResolverBean {
   @Inject
   private ContainerWrapperBean containerWrapper;
 
+  /** The container listener. */
+  @Inject
+  private ContainerListenerBean containerListener;
+
   /** The stdout files. */
   private List<String> stdoutFiles = new ArrayList<>();
 
+  /** The time log destinations are kept before being discovered again, in milliseconds. */
+  private long cacheTimeout = TimeUnit.MINUTES.toMillis(5);
+
+  /** The log destinations of the server class loaders, guarded by serverLogsLock. */
+  private volatile DiscoveredLogs serverLogs;
+
+  /** The lock discovering the log destinations of the server class loaders. */
+  private final Object serverLogsLock = new Object();
+
+  /** The log destinations of the webapps, by webapp class loader. */
+  private final Map<ClassLoader, DiscoveredLogs> contextLogs = new ConcurrentHashMap<>();
+
+  /** Whether the container listener reports context changes. */
+  private boolean listening;
+
   /**
    * Gets the container wrapper.
    *
@@ -86,6 +123,24 @@ public class LogResolverBean {
     this.containerWrapper = containerWrapper;
   }
 
+  /**
+   * Gets the container listener.
+   *
+   * @return the container listener
+   */
+  public ContainerListenerBean getContainerListener() {
+    return containerListener;
+  }
+
+  /**
+   * Sets the container listener.
+   *
+   * @param containerListener the new container listener
+   */
+  public void setContainerListener(ContainerListenerBean containerListener) {
+    this.containerListener = containerListener;
+  }
+
   /**
    * Gets the stdout files.
    *
@@ -106,6 +161,41 @@ public class LogResolverBean {
     this.stdoutFiles = stdoutFiles;
   }
 
+  /**
+   * Sets the disk space the indexes of compressed log files are cached in.
+   *
+   * @param cacheSize the size expression, e.g. "1GB"
+   */
+  @Value("${psiprobe.beans.logs.compressedIndex.cacheSize}")
+  public void setCompressedIndexCacheSize(String cacheSize) {
+    CompressedLogIndex.setMaxCacheSize(SizeExpression.parse(cacheSize));
+  }
+
+  @Override
+  public void destroy() {
+    // the spans of the indexes are spilled to temporary files
+    CompressedLogIndex.clearCache();
+  }
+
+  /**
+   * Gets the cache timeout.
+   *
+   * @return the time log destinations are kept before being discovered again, in milliseconds
+   */
+  public long getCacheTimeout() {
+    return cacheTimeout;
+  }
+
+  /**
+   * Sets the cache timeout.
+   *
+   * @param cacheTimeout the time log destinations are kept before being discovered again, in
+   *        milliseconds
+   */
+  public void setCacheTimeout(long cacheTimeout) {
+    this.cacheTimeout = cacheTimeout;
+  }
+
   /**
    * Gets the log destinations.
    *
@@ -185,16 +275,7 @@ public class LogResolverBean {
       return null;
     }
 
-    List<LogDestination> allAppenders = new ArrayList<>();
-
-    //
-    // interrogate classloader hierarchy
-    //
-    ClassLoader cl2 = Thread.currentThread().getContextClassLoader().getParent();
-    while (cl2 != null) {
-      interrogateClassLoader(cl2, null, allAppenders);
-      cl2 = cl2.getParent();
-    }
+    List<LogDestination> allAppenders = new ArrayList<>(getServerLogs().destinations);
 
     //
     // check for known stdout files, such as "catalina.out"
@@ -202,16 +283,141 @@ public class LogResolverBean {
     interrogateStdOutFiles(allAppenders);
 
     //
-    // interrogate webapp classloaders and available loggers
+    // add destinations of webapp classloaders and available loggers
     //
     List<Context> contexts = getContainerWrapper().getTomcatContainer().findContexts();
+    List<ClassLoader> classLoaders = new ArrayList<>(contexts.size());
     for (Context ctx : contexts) {
-      interrogateContext(ctx, allAppenders);
+      DiscoveredLogs logs = getContextLogs(ctx);
+      allAppenders.addAll(logs.destinations);
+      classLoaders.add(logs.classLoader);
     }
+    // forget the webapps gone or reloaded without us being told
+    contextLogs.keySet().retainAll(classLoaders);
 
     return allAppenders;
   }
 
+  /**
+   * Drops all cached log destinations, they are discovered again on next use.
+   */
+  public void refresh() {
+    synchronized (serverLogsLock) {
+      serverLogs = null;
+    }
+    contextLogs.clear();
+  }
+
+  /**
+   * Drops the cached log destinations of a context, as its MBean got registered or unregistered.
+   *
+   * @param webModule the object name of the web module
+   */
+  void contextChanged(ObjectName webModule) {
+    // web modules are named "//host/path", the root context being "//host/"
+    String name = webModule.getKeyProperty("name");
+    int pathStart = name == null ? -1 : name.indexOf('/', 2);
+    if (pathStart < 0) {
+      contextLogs.clear();
+    } else {
+      String path = name.substring(pathStart);
+      String contextName = "/".equals(path) ? "" : path;
+      contextLogs.values().removeIf(logs -> contextName.equals(logs.contextName));
+    }
+  }
+
+  /**
+   * Gets the log destinations of the server class loaders.
+   *
+   * @return the discovered logs
+   */
+  private DiscoveredLogs getServerLogs() {
+    listenToContainer();
+    ClassLoader cl = Thread.currentThread().getContextClassLoader().getParent();
+    DiscoveredLogs logs = serverLogs;
+    if (isStale(logs, cl)) {
+      synchronized (serverLogsLock) {
+        logs = serverLogs;
+        if (isStale(logs, cl)) {
+          //
+          // interrogate classloader hierarchy
+          //
+          List<LogDestination> appenders = new ArrayList<>();
+          ClassLoader cl2 = cl;
+          while (cl2 != null) {
+            interrogateClassLoader(cl2, null, appenders);
+            cl2 = cl2.getParent();
+          }
+          logs = new DiscoveredLogs(null, cl, appenders);
+          serverLogs = logs;
+        }
+      }
+    }
+    return logs;
+  }
+
+  /**
+   * Gets the log destinations of a webapp, discovering them again if its class loader changed.
+   *
+   * @param ctx the ctx
+   * @return the discovered logs
+   */
+  private DiscoveredLogs getContextLogs(Context ctx) {
+    listenToContainer();
+    ClassLoader cl = ctx.getLoader() == null ? null : ctx.getLoader().getClassLoader();
+    if (cl == null) {
+      // a stopped webapp has nothing to discover, nor a class loader to cache it by
+      return new DiscoveredLogs(ctx.getName(), null, Collections.emptyList());
+    }
+    DiscoveredLogs logs = contextLogs.get(cl);
+    if (isStale(logs, cl)) {
+      // discovers once for all the requests asking at the same time
+      logs = contextLogs.compute(cl, (loader, cached) -> isStale(cached, loader)
+          ? discoverContextLogs(ctx, loader) : cached);
+    }
+    return logs;
+  }
+
+  /**
+   * Discovers the log destinations of a webapp.
+   *
+   * @param ctx the ctx
+   * @param cl the class loader of the webapp
+   * @return the discovered logs
+   */
+  private DiscoveredLogs discoverContextLogs(Context ctx, ClassLoader cl) {
+    List<LogDestination> appenders = new ArrayList<>();
+    interrogateContext(ctx, appenders);
+    return new DiscoveredLogs(ctx.getName(), cl, appenders);
+  }
+
+  /**
+   * Tells whether discovered logs are missing, or have to be discovered again as they were for
+   * another class loader or are older than the cache timeout.
+   *
+   * @param logs the discovered logs, may be null
+   * @param cl the class loader to interrogate
+   * @return true, if the logs have to be discovered
+   */
+  private boolean isStale(DiscoveredLogs logs, ClassLoader cl) {
+    return logs == null || logs.classLoader != cl
+        || System.currentTimeMillis() - logs.discoveryTime >= cacheTimeout;
+  }
+
+  /**
+   * Registers for context changes with the container listener, if not done yet.
+   */
+  private synchronized void listenToContainer() {
+    if (!listening && containerListener != null) {
+      try {
+        containerListener.addContextListener(this::contextChanged);
+        listening = true;
+      } catch (Exception e) {
+        logger.debug("Cannot listen to context changes, relying on class loader changes", e);
+      }
+    }
+  }
+
   /**
    * Gets the log destination.
    *
@@ -226,15 +432,52 @@ public class LogResolverBean {
   public LogDestination getLogDestination(String logType, String webapp, boolean context,
       boolean root, String logName, String logIndex) {
 
-    LogDestination result = null;
     Context ctx = null;
-    Application application = null;
     if (webapp != null) {
       ctx = getContainerWrapper().getTomcatContainer().findContext(webapp);
-      if (ctx != null) {
-        application = ApplicationUtils.getApplication(ctx, getContainerWrapper());
+    }
+
+    String key = toKey(logType, ctx != null ? webapp : null, context, root, logName, logIndex);
+    DiscoveredLogs logs;
+    if ("stdout".equals(logType)) {
+      // stdout files come and go, they are not cached
+      logs = null;
+    } else if (ctx != null) {
+      logs = getContextLogs(ctx);
+    } else if (Instruments.isInitialized()) {
+      logs = getServerLogs();
+    } else {
+      logs = null;
+    }
+    LogDestination result = logs == null ? null : logs.index.get(key);
+    if (result == null) {
+      result = resolveLogDestination(ctx, logType, context, root, logName, logIndex);
+      if (result != null && logs != null) {
+        logs.index.put(key, result);
       }
     }
+    return result;
+  }
+
+  /**
+   * Resolves a log destination, without looking it up among the destinations discovered.
+   *
+   * @param ctx the ctx, null if the destination is not a webapp one
+   * @param logType the log type
+   * @param context the context
+   * @param root the root
+   * @param logName the log name
+   * @param logIndex the log index
+   * @return the log destination
+   */
+  private LogDestination resolveLogDestination(Context ctx, String logType, boolean context,
+      boolean root, String logName, String logIndex) {
+
+    LogDestination result = null;
+    Application application = null;
+    if (ctx != null) {
+      application = ApplicationUtils.getApplication(ctx, getContainerWrapper());
+    }
 
     if (logName != null && "stdout".equals(logType)) {
       result = getStdoutLogDestination(logName);
@@ -663,6 +906,77 @@ public class LogResolverBean {
     return null;
   }
 
+  /**
+   * Builds the key a destination is indexed by from the request parameters identifying it.
+   * Parameters not taken into account for the log type are left out, as they are in requests.
+   *
+   * @param logType the log type
+   * @param webapp the webapp
+   * @param context the context
+   * @param root the root
+   * @param logName the log name
+   * @param logIndex the log index
+   * @return the key
+   */
+  static String toKey(String logType, String webapp, boolean context, boolean root,
+      String logName, String logIndex) {
+    boolean named = !context || "log4j2".equals(logType);
+    return logType + '!' + (webapp == null ? "" : webapp) + '!' + context + '!' + (named && root)
+        + '!' + (named && !root && logName != null ? logName : "") + '!'
+        + (logIndex == null ? "" : logIndex);
+  }
+
+  /**
+   * Builds the key a destination is indexed by.
+   *
+   * @param dest the dest
+   * @return the key
+   */
+  static String toKey(LogDestination dest) {
+    Application app = dest.getApplication();
+    boolean context = app != null && dest.isContext();
+    return toKey(dest.getLogType(), app == null ? null : app.getName(), context, dest.isRoot(),
+        dest.getName(), dest.getIndex());
+  }
+
+  /**
+   * The log destinations discovered in a class loader, and the index to look them up.
+   */
+  private static class DiscoveredLogs {
+
+    /** The name of the context, null for the server class loaders. */
+    final String contextName;
+
+    /** The class loader interrogated first. */
+    final ClassLoader classLoader;
+
+    /** The time the destinations were discovered. */
+    final long discoveryTime = System.currentTimeMillis();
+
+    /** The destinations. */
+    final List<LogDestination> destinations;
+
+    /** The destinations by key, including those resolved since. */
+    final Map<String, LogDestination> index = new ConcurrentHashMap<>();
+
+    /**
+     * Instantiates new discovered logs.
+     *
+     * @param contextName the context name
+     * @param classLoader the class loader
+     * @param destinations the destinations
+     */
+    DiscoveredLogs(String contextName, ClassLoader classLoader,
+        List<LogDestination> destinations) {
+      this.contextName = contextName;
+      this.classLoader = classLoader;
+      this.destinations = Collections.unmodifiableList(destinations);
+      for (LogDestination dest : destinations) {
+        index.putIfAbsent(toKey(dest), dest);
+      }
+    }
+  }
+
   /**
    * The Class AbstractLogComparator.
    */
@@ -36,6 +36,7 @@ import org.slf4j.LoggerFactory;
 import psiprobe.beans.accessors.DatasourceAccessor;
 import psiprobe.model.ApplicationResource;
 import psiprobe.model.DataSourceInfo;
+import psiprobe.tools.AccessorCache;
 
 /**
  * The Class ResourceResolverBean.
@@ -158,8 +159,8 @@ public class ResourceResolverBean implements ResourceResolver {
         resource.setLookedUp(true);
         for (String accessorString : datasourceMappers) {
           logger.debug("Looking up datasource adapter: {}", accessorString);
-          DatasourceAccessor accessor = (DatasourceAccessor) Class.forName(accessorString)
-              .getDeclaredConstructor().newInstance();
+          DatasourceAccessor accessor =
+              AccessorCache.getInstance(accessorString, DatasourceAccessor.class);
           dataSourceInfo = accessor.getInfo(obj);
           if (dataSourceInfo != null) {
             break;
@@ -194,8 +195,8 @@ public class ResourceResolverBean implements ResourceResolver {
       try {
         for (String accessorString : datasourceMappers) {
           logger.debug("Resetting datasource adapter: {}", accessorString);
-          DatasourceAccessor accessor = (DatasourceAccessor) Class.forName(accessorString)
-              .getDeclaredConstructor().newInstance();
+          DatasourceAccessor accessor =
+              AccessorCache.getInstance(accessorString, DatasourceAccessor.class);
           if (accessor.reset(obj)) {
             return true;
           }
@@ -0,0 +1,656 @@
+/*
+ * Licensed under the GPL License. You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   https://www.gnu.org/licenses/old-licenses/gpl-2.0.html
+ *
+ * THIS PACKAGE IS PROVIDED "AS IS" AND WITHOUT ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING,
+ * WITHOUT LIMITATION, THE IMPLIED WARRANTIES OF MERCHANTIBILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE.
+ */
+package psiprobe.beans;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.http.HttpSession;
+
+import org.apache.catalina.Manager;
+import org.apache.catalina.Session;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+
+import psiprobe.tools.IdentityObjectSet;
+import psiprobe.tools.Instruments;
+import psiprobe.tools.ThreadPools;
+
+/**
+ * Estimates the size of sessions in the background, so that listing sessions with their size does
+ * not walk the attribute graphs of every session on the request thread.
+ *
+ * <p>
+ * Sessions are queued, by ID and manager, when their size is asked for and estimated on a single
+ * thread, in runs limited in elapsed and CPU time and separated by a pause, so estimating takes a
+ * bounded share of a core however many sessions there are. The object graph of an attribute is
+ * walked in steps of {@link #DEFAULT_STEP_SIZE} objects, the budget being checked between steps, so
+ * a session left half estimated when a run ends, even in the middle of a large attribute, is
+ * resumed by the next one. Estimates are cached by session, with the size of each attribute, until
+ * the session is accessed again or the estimate has not been asked for a while.
+ * </p>
+ */
+public class SessionSizeEstimatorBean implements DisposableBean {
+
+  /** The Constant logger. */
+  private static final Logger logger = LoggerFactory.getLogger(SessionSizeEstimatorBean.class);
+
+  /** The size of a session not estimated yet. */
+  public static final long UNKNOWN = -1;
+
+  /** The default number of objects walked between checks of the budget of a run. */
+  public static final int DEFAULT_STEP_SIZE = 10000;
+
+  /** The elapsed time of a run at most, in milliseconds. */
+  private long maxRunTime = 1000;
+
+  /** The CPU time of a run at most, in milliseconds. */
+  private long maxRunCpuTime = 250;
+
+  /** The pause between runs, in milliseconds. */
+  private long pause = 1000;
+
+  /** The number of sessions queued at most, urgent or not. */
+  private int maxQueueSize = 100000;
+
+  /** The number of objects walked between checks of the budget of a run. */
+  private int stepSize = DEFAULT_STEP_SIZE;
+
+  /** The time an estimate is kept without being asked for, in milliseconds. */
+  private long cacheTimeout = TimeUnit.MINUTES.toMillis(30);
+
+  /** The estimates, by session key. */
+  private final Map<String, Estimate> estimates = new ConcurrentHashMap<>();
+
+  /** The sessions to estimate, guarded by this. */
+  private final Deque<Job> queue = new ArrayDeque<>();
+
+  /** The sessions to estimate before the others, guarded by this. */
+  private final Deque<Job> urgentQueue = new ArrayDeque<>();
+
+  /**
+   * The jobs queued, by session key, guarded by this. A job moved to the urgent queue is left in
+   * the other one too, to be skipped there.
+   */
+  private final Map<String, Job> queued = new HashMap<>();
+
+  /** Whether a run is scheduled or running, guarded by this. */
+  private boolean scheduled;
+
+  /** Whether the bean is destroyed, guarded by this. */
+  private boolean destroyed;
+
+  /** The executor, created on first use, guarded by this. */
+  private ScheduledExecutorService executor;
+
+  /** The session being estimated, used by the estimating thread only. */
+  private Job current;
+
+  /**
+   * Gets the max run time.
+   *
+   * @return the elapsed time of a run at most, in milliseconds
+   */
+  public long getMaxRunTime() {
+    return maxRunTime;
+  }
+
+  /**
+   * Sets the max run time.
+   *
+   * @param maxRunTime the elapsed time of a run at most, in milliseconds
+   */
+  @Value("${psiprobe.beans.sessions.sizeEstimator.maxRunTime}")
+  public void setMaxRunTime(long maxRunTime) {
+    this.maxRunTime = maxRunTime;
+  }
+
+  /**
+   * Gets the max run CPU time.
+   *
+   * @return the CPU time of a run at most, in milliseconds
+   */
+  public long getMaxRunCpuTime() {
+    return maxRunCpuTime;
+  }
+
+  /**
+   * Sets the max run CPU time, ignored where the JVM does not measure the CPU time of threads.
+   *
+   * @param maxRunCpuTime the CPU time of a run at most, in milliseconds
+   */
+  @Value("${psiprobe.beans.sessions.sizeEstimator.maxRunCpuTime}")
+  public void setMaxRunCpuTime(long maxRunCpuTime) {
+    this.maxRunCpuTime = maxRunCpuTime;
+  }
+
+  /**
+   * Gets the pause.
+   *
+   * @return the pause between runs, in milliseconds
+   */
+  public long getPause() {
+    return pause;
+  }
+
+  /**
+   * Sets the pause.
+   *
+   * @param pause the pause between runs, in milliseconds
+   */
+  @Value("${psiprobe.beans.sessions.sizeEstimator.pause}")
+  public void setPause(long pause) {
+    this.pause = pause;
+  }
+
+  /**
+   * Gets the max queue size.
+   *
+   * @return the number of sessions queued at most
+   */
+  public int getMaxQueueSize() {
+    return maxQueueSize;
+  }
+
+  /**
+   * Sets the max queue size.
+   *
+   * @param maxQueueSize the number of sessions queued at most
+   */
+  public void setMaxQueueSize(int maxQueueSize) {
+    this.maxQueueSize = maxQueueSize;
+  }
+
+  /**
+   * Gets the step size.
+   *
+   * @return the number of objects walked between checks of the budget of a run
+   */
+  public int getStepSize() {
+    return stepSize;
+  }
+
+  /**
+   * Sets the step size.
+   *
+   * @param stepSize the number of objects walked between checks of the budget of a run
+   */
+  public void setStepSize(int stepSize) {
+    this.stepSize = Math.max(1, stepSize);
+  }
+
+  /**
+   * Gets the cache timeout.
+   *
+   * @return the time an estimate is kept without being asked for, in milliseconds
+   */
+  public long getCacheTimeout() {
+    return cacheTimeout;
+  }
+
+  /**
+   * Sets the cache timeout.
+   *
+   * @param cacheTimeout the time an estimate is kept without being asked for, in milliseconds
+   */
+  public void setCacheTimeout(long cacheTimeout) {
+    this.cacheTimeout = cacheTimeout;
+  }
+
+  /**
+   * Gets the size of a session, queuing it to be estimated if it has not been since it was last
+   * accessed.
+   *
+   * @param appName the name of the application of the session
+   * @param session the session
+   * @param urgent whether the session is estimated before those already queued
+   * @return the size, {@link #UNKNOWN} until estimated
+   */
+  public long getSize(String appName, Session session, boolean urgent) {
+    Estimate estimate = getEstimate(appName, session);
+    if (estimate != null) {
+      return estimate.getSize();
+    }
+    request(appName, session, urgent);
+    return UNKNOWN;
+  }
+
+  /**
+   * Gets the estimate of a session, if it has been estimated since it was last accessed.
+   *
+   * @param appName the name of the application of the session
+   * @param session the session
+   * @return the estimate, null if there is none or it is out of date
+   */
+  public Estimate getEstimate(String appName, Session session) {
+    String key = getKey(appName, session.getIdInternal());
+    Estimate estimate = estimates.get(key);
+    if (estimate == null) {
+      return null;
+    }
+    if (estimate.lastAccessedTime != session.getLastAccessedTimeInternal()) {
+      estimates.remove(key, estimate);
+      return null;
+    }
+    estimate.lastReadTime = System.currentTimeMillis();
+    return estimate;
+  }
+
+  /**
+   * Gets the number of sessions queued.
+   *
+   * @return the queue size
+   */
+  public synchronized int getQueueSize() {
+    return queued.size();
+  }
+
+  /**
+   * Queues a session to be estimated.
+   *
+   * @param appName the name of the application of the session
+   * @param session the session
+   * @param urgent whether the session is estimated before those already queued
+   */
+  private synchronized void request(String appName, Session session, boolean urgent) {
+    if (destroyed) {
+      return;
+    }
+    String key = getKey(appName, session.getIdInternal());
+    Job job = queued.get(key);
+    if (job != null) {
+      if (urgent && !job.urgent) {
+        job.urgent = true;
+        urgentQueue.addLast(job);
+      }
+      return;
+    }
+    if (queued.size() >= maxQueueSize) {
+      return;
+    }
+    // the session itself is not held, it may expire while queued
+    job = new Job(key, session.getManager(), session.getIdInternal());
+    job.urgent = urgent;
+    queued.put(key, job);
+    (urgent ? urgentQueue : queue).addLast(job);
+    if (!scheduled) {
+      scheduled = true;
+      getExecutor().execute(this::run);
+    }
+  }
+
+  /**
+   * Takes the next session to estimate, clearing the scheduled flag if there is none.
+   *
+   * @return the job, null if the queue is empty
+   */
+  private synchronized Job next() {
+    while (true) {
+      Job job = urgentQueue.pollFirst();
+      if (job == null) {
+        job = queue.pollFirst();
+      }
+      if (job == null) {
+        scheduled = false;
+        return null;
+      }
+      // skips the jobs already taken from the other queue
+      if (queued.remove(job.key, job)) {
+        return job;
+      }
+    }
+  }
+
+  /**
+   * Schedules the next run, after the pause.
+   */
+  private synchronized void reschedule() {
+    if (executor != null) {
+      executor.schedule(this::run, pause, TimeUnit.MILLISECONDS);
+    }
+  }
+
+  /**
+   * Estimates queued sessions until the queue is empty or the budget of the run is spent.
+   */
+  void run() {
+    long start = System.nanoTime();
+    long cpuStart = getCpuTime();
+    try {
+      evictExpired();
+      while (true) {
+        if (current == null) {
+          current = next();
+          if (current == null) {
+            return;
+          }
+          if (!current.start(estimates.get(current.key))) {
+            current = null;
+            continue;
+          }
+        }
+        if (current.step(stepSize)) {
+          Job job = current;
+          current = null;
+          if (job.isValid()) {
+            estimates.put(job.key, job.toEstimate());
+          }
+        }
+        if (isOverBudget(start, cpuStart)) {
+          reschedule();
+          return;
+        }
+      }
+    } catch (RuntimeException e) {
+      logger.error("Cannot estimate session sizes", e);
+      current = null;
+      reschedule();
+    }
+  }
+
+  /**
+   * Checks if the budget of a run is spent.
+   *
+   * @param start the start of the run, in nanoseconds
+   * @param cpuStart the CPU time of the thread at the start of the run, negative if unknown
+   * @return true, if the run should stop
+   */
+  private boolean isOverBudget(long start, long cpuStart) {
+    if (System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(maxRunTime)) {
+      return true;
+    }
+    return cpuStart >= 0
+        && getCpuTime() - cpuStart >= TimeUnit.MILLISECONDS.toNanos(maxRunCpuTime);
+  }
+
+  /**
+   * Removes the estimates not asked for within the cache timeout.
+   */
+  private void evictExpired() {
+    long oldest = System.currentTimeMillis() - cacheTimeout;
+    for (Iterator<Estimate> it = estimates.values().iterator(); it.hasNext();) {
+      if (it.next().lastReadTime < oldest) {
+        it.remove();
+      }
+    }
+  }
+
+  /**
+   * Gets the CPU time of the current thread.
+   *
+   * @return the CPU time, in nanoseconds, negative if the JVM does not measure it
+   */
+  private static long getCpuTime() {
+    ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+    if (threads.isCurrentThreadCpuTimeSupported() && threads.isThreadCpuTimeEnabled()) {
+      return threads.getCurrentThreadCpuTime();
+    }
+    return -1;
+  }
+
+  /**
+   * Gets the key of a session, as the sessions are listed.
+   *
+   * @param appName the name of the application
+   * @param id the ID of the session
+   * @return the key
+   */
+  private static String getKey(String appName, String id) {
+    return id + ';' + appName;
+  }
+
+  /**
+   * Gets the executor, creating it on first use.
+   *
+   * @return the executor
+   */
+  private ScheduledExecutorService getExecutor() {
+    if (executor == null) {
+      executor = ThreadPools.newScheduledThreadPool("Probe_SessionSizeEstimator-", 1,
+          Thread.MIN_PRIORITY);
+    }
+    return executor;
+  }
+
+  @Override
+  public synchronized void destroy() {
+    if (executor != null) {
+      executor.shutdownNow();
+      executor = null;
+    }
+    destroyed = true;
+    queue.clear();
+    urgentQueue.clear();
+    queued.clear();
+    estimates.clear();
+  }
+
+  /**
+   * The estimated size of a session.
+   */
+  public static class Estimate {
+
+    /** The last accessed time of the session when estimated. */
+    final long lastAccessedTime;
+
+    /** The size. */
+    private final long size;
+
+    /** The sizes of the attributes, by name. */
+    private final Map<String, Long> attributeSizes;
+
+    /** The time the estimate was last asked for. */
+    volatile long lastReadTime = System.currentTimeMillis();
+
+    /**
+     * Instantiates a new estimate.
+     *
+     * @param lastAccessedTime the last accessed time of the session when estimated
+     * @param size the size
+     * @param attributeSizes the sizes of the attributes, by name
+     */
+    Estimate(long lastAccessedTime, long size, Map<String, Long> attributeSizes) {
+      this.lastAccessedTime = lastAccessedTime;
+      this.size = size;
+      this.attributeSizes = Collections.unmodifiableMap(attributeSizes);
+    }
+
+    /**
+     * Gets the size.
+     *
+     * @return the size
+     */
+    public long getSize() {
+      return size;
+    }
+
+    /**
+     * Gets the sizes of the attributes, the objects shared by attributes being counted in the
+     * first of them.
+     *
+     * @return the sizes of the attributes, by name
+     */
+    public Map<String, Long> getAttributeSizes() {
+      return attributeSizes;
+    }
+
+  }
+
+  /**
+   * A session being estimated.
+   */
+  private static class Job {
+
+    /** The key. */
+    final String key;
+
+    /** The manager of the session. */
+    private final Manager manager;
+
+    /** The ID of the session. */
+    private final String id;
+
+    /** Whether the job was asked to be done before the others, guarded by the bean. */
+    boolean urgent;
+
+    /** The session, looked up when started. */
+    private Session session;
+
+    /** The last accessed time of the session when started. */
+    private long lastAccessedTime;
+
+    /** The HTTP session. */
+    private HttpSession httpSession;
+
+    /** The names of the attributes. */
+    private List<String> names;
+
+    /** The index of the next attribute. */
+    private int index;
+
+    /** The objects already counted, shared by the attributes. */
+    private IdentityObjectSet processedObjects;
+
+    /** The walk of the object graphs of the attributes. */
+    private Instruments walk;
+
+    /** The name of the attribute being walked, null between attributes. */
+    private String walking;
+
+    /** The size of the attribute being walked, so far. */
+    private long walkingSize;
+
+    /** The sizes of the attributes estimated, by name. */
+    private final Map<String, Long> attributeSizes = new LinkedHashMap<>();
+
+    /** The size of the attributes estimated. */
+    private long size;
+
+    /** Whether the session was invalidated while estimated. */
+    private boolean invalidated;
+
+    /**
+     * Instantiates a new job.
+     *
+     * @param key the key
+     * @param manager the manager of the session
+     * @param id the ID of the session
+     */
+    Job(String key, Manager manager, String id) {
+      this.key = key;
+      this.manager = manager;
+      this.id = id;
+    }
+
+    /**
+     * Checks if the session was still valid when estimated.
+     *
+     * @return true, if valid
+     */
+    boolean isValid() {
+      return !invalidated;
+    }
+
+    /**
+     * Looks the session up and lists its attributes.
+     *
+     * @param estimate the estimate cached for the session, null if none
+     * @return true, if the session is still valid and not estimated since it was last accessed
+     */
+    boolean start(Estimate estimate) {
+      try {
+        session = manager == null ? null : manager.findSession(id);
+        if (session == null || !session.isValid()) {
+          return false;
+        }
+        lastAccessedTime = session.getLastAccessedTimeInternal();
+        if (estimate != null && estimate.lastAccessedTime == lastAccessedTime) {
+          return false;
+        }
+        httpSession = session.getSession();
+        names = Collections.list(httpSession.getAttributeNames());
+      } catch (IOException | IllegalStateException e) {
+        logger.trace("Session {} appears to be invalidated, ignore", key, e);
+        return false;
+      }
+      processedObjects = new IdentityObjectSet();
+      // Exclude references back to the session itself
+      processedObjects.add(httpSession);
+      walk = Instruments.newWalk(processedObjects);
+      return true;
+    }
+
+    /**
+     * Walks the next objects of the attribute being estimated, or starts on the next attribute.
+     *
+     * @param maxObjects the number of objects to walk at most
+     * @return true, if all the attributes are estimated
+     */
+    boolean step(int maxObjects) {
+      if (walking == null && index < names.size()) {
+        String name = names.get(index++);
+        try {
+          Object value = httpSession.getAttribute(name);
+          if (value != null) {
+            walk.add(name);
+            walk.add(value);
+          }
+          walking = name;
+          walkingSize = 0;
+        } catch (IllegalStateException e) {
+          logger.trace("Session {} appears to be invalidated, ignore", key, e);
+          invalidated = true;
+          index = names.size();
+        }
+      }
+      if (walking != null) {
+        try {
+          walkingSize += walk.walk(maxObjects);
+        } catch (Exception e) {
+          logger.error("Cannot estimate size of attribute '{}'", walking, e);
+          // the rest of the graph of the attribute is left out
+          walk = Instruments.newWalk(processedObjects);
+        }
+        if (walk.isDone()) {
+          attributeSizes.put(walking, walkingSize);
+          size += walkingSize;
+          walking = null;
+        }
+      }
+      return walking == null && index >= names.size();
+    }
+
+    /**
+     * Makes the estimate.
+     *
+     * @return the estimate
+     */
+    Estimate toEstimate() {
+      return new Estimate(lastAccessedTime, size, attributeSizes);
+    }
+
+  }
+
+}
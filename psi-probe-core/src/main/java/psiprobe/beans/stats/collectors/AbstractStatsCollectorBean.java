@@ -10,34 +10,75 @@
  */
 package psiprobe.beans.stats.collectors;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.inject.Inject;
 
 import org.jfree.data.xy.XYDataItem;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.BeanNameAware;
 
 import psiprobe.Utils;
+import psiprobe.beans.stats.collectors.StatsCollectorExecutor.SourceReader;
 import psiprobe.beans.stats.listeners.StatsCollectionEvent;
 import psiprobe.beans.stats.listeners.StatsCollectionListener;
 import psiprobe.model.stats.StatsCollection;
+import psiprobe.model.stats.StatsSeries;
+import psiprobe.tools.TimeExpression;
 
 /**
  * The Class AbstractStatsCollectorBean.
+ *
+ * <p>
+ * Collectors instrument themselves when collecting through {@link #execute()}: every cycle adds
+ * its duration, whether it overran the collection period, the number of cycles skipped since the
+ * previous one and the number of series maintained to the series prefixed with
+ * {@link #OVERHEAD_PREFIX}, followed by the metric and the collector name.
+ * </p>
  */
-public abstract class AbstractStatsCollectorBean {
+public abstract class AbstractStatsCollectorBean implements BeanNameAware {
+
+  /** The prefix of the series collectors record their own overhead to. */
+  public static final String OVERHEAD_PREFIX = "probe.collector.";
+
+  /** The Constant logger. */
+  private static final Logger logger = LoggerFactory.getLogger(AbstractStatsCollectorBean.class);
 
   /** The stats collection. */
   @Inject
   private StatsCollection statsCollection;
 
+  /** The collector executor. */
+  @Inject
+  private StatsCollectorExecutor collectorExecutor;
+
   /** The max series. */
   private int maxSeries = 240;
 
   /** The listeners. */
   private List<StatsCollectionListener> listeners;
 
+  /** The bean name. */
+  private String beanName;
+
+  /** The collection period in milliseconds, 0 if unknown. */
+  private long period;
+
+  /** The start time of the first cycle, 0 until the first cycle. */
+  private volatile long firstCycleTime;
+
+  /** The start time of the previous cycle. */
+  private long lastCycleTime;
+
+  /** The names of the series built. */
+  private final Set<String> seriesNames = ConcurrentHashMap.newKeySet();
+
   /** The previous data. */
   private final Map<String, Long> previousData = new TreeMap<>();
 
@@ -62,6 +103,24 @@ public abstract class AbstractStatsCollectorBean {
     this.statsCollection = statsCollection;
   }
 
+  /**
+   * Gets the collector executor.
+   *
+   * @return the collector executor
+   */
+  public StatsCollectorExecutor getCollectorExecutor() {
+    return collectorExecutor;
+  }
+
+  /**
+   * Sets the collector executor.
+   *
+   * @param collectorExecutor the new collector executor
+   */
+  public void setCollectorExecutor(StatsCollectorExecutor collectorExecutor) {
+    this.collectorExecutor = collectorExecutor;
+  }
+
   /**
    * Gets the max series.
    *
@@ -80,6 +139,66 @@ public abstract class AbstractStatsCollectorBean {
     this.maxSeries = maxSeries;
   }
 
+  /**
+   * Gets the name collector overhead is recorded under.
+   *
+   * @return the bean name, or the simple class name if not known
+   */
+  public String getBeanName() {
+    return beanName == null ? getClass().getSimpleName() : beanName;
+  }
+
+  @Override
+  public void setBeanName(String beanName) {
+    this.beanName = beanName;
+  }
+
+  /**
+   * Gets the period.
+   *
+   * @return the collection period in milliseconds, 0 if unknown
+   */
+  public long getPeriod() {
+    return period;
+  }
+
+  /**
+   * Sets the period.
+   *
+   * @param period the new collection period in milliseconds
+   */
+  public void setPeriod(long period) {
+    this.period = period;
+  }
+
+  /**
+   * Sets the period expression.
+   *
+   * @param period the period expression, e.g. "30s"
+   */
+  public void setPeriodExpression(String period) {
+    setPeriod(TimeExpression.inSeconds(period) * 1000);
+  }
+
+  /**
+   * Gets the first cycle time. Overhead samples older than this, read back from disk or written as
+   * the downtime plunge of a restart, are not of the cycles of this collector.
+   *
+   * @return the start time of the first cycle, 0 until the first cycle
+   */
+  public long getFirstCycleTime() {
+    return firstCycleTime;
+  }
+
+  /**
+   * Gets the number of series built by this collector.
+   *
+   * @return the series count
+   */
+  public int getSeriesCount() {
+    return seriesNames.size();
+  }
+
   /**
    * Gets the listeners.
    *
@@ -105,6 +224,84 @@ public abstract class AbstractStatsCollectorBean {
    */
   public abstract void collect() throws Exception;
 
+  /**
+   * Collects and records the overhead of the cycle. This is what the scheduler invokes.
+   *
+   * @throws Exception the exception
+   */
+  public void execute() throws Exception {
+    long start = System.currentTimeMillis();
+    try {
+      collect();
+    } finally {
+      recordOverhead(start, System.currentTimeMillis() - start);
+    }
+  }
+
+  /**
+   * Records the overhead of a cycle.
+   *
+   * @param start the start time of the cycle
+   * @param duration the duration of the cycle in milliseconds
+   */
+  protected void recordOverhead(long start, long duration) {
+    long skipped = 0;
+    if (period > 0 && lastCycleTime > 0) {
+      skipped = Math.max(0, Math.round((double) (start - lastCycleTime) / period) - 1);
+    }
+    lastCycleTime = start;
+    if (firstCycleTime == 0) {
+      firstCycleTime = start;
+    }
+    logger.debug("{} collected in {}ms", getBeanName(), duration);
+    if (statsCollection != null) {
+      String name = getBeanName();
+      addOverheadSample(OVERHEAD_PREFIX + "time." + name, start, duration);
+      addOverheadSample(OVERHEAD_PREFIX + "overruns." + name, start,
+          period > 0 && duration > period ? 1 : 0);
+      addOverheadSample(OVERHEAD_PREFIX + "skipped." + name, start, skipped);
+      addOverheadSample(OVERHEAD_PREFIX + "series." + name, start, seriesNames.size());
+    }
+  }
+
+  /**
+   * Adds an overhead sample. Unlike collected stats, the first sample is kept and listeners are not
+   * notified.
+   *
+   * @param name the name
+   * @param time the time
+   * @param value the value
+   */
+  private void addOverheadSample(String name, long time, long value) {
+    StatsSeries stats = statsCollection.getStats(name);
+    if (stats == null) {
+      stats = statsCollection.newStats(name, maxSeries);
+    }
+    houseKeepStats(stats);
+    statsCollection.addSample(name, stats, time, value);
+  }
+
+  /**
+   * Reads a value from every source in parallel, on the collector executor if one is set. Stats
+   * must be built from the values returned, on the collecting thread.
+   *
+   * @param <S> the source type
+   * @param <R> the value type
+   * @param sources the sources
+   * @param reader the reader
+   * @return the values read, in the order of the sources, without the sources that failed
+   * @throws InterruptedException the interrupted exception
+   */
+  protected <S, R> Map<S, R> readAll(Collection<S> sources, SourceReader<S, R> reader)
+      throws InterruptedException {
+    StatsCollectorExecutor executor = collectorExecutor;
+    if (executor == null) {
+      executor = new StatsCollectorExecutor();
+      executor.setThreadCount(0);
+    }
+    return executor.readAll(sources, reader);
+  }
+
   /**
    * Builds the delta stats.
    *
@@ -160,20 +357,15 @@ public abstract class AbstractStatsCollectorBean {
   protected void buildAbsoluteStats(String name, long value, long time)
       throws InterruptedException {
 
-    List<XYDataItem> stats = statsCollection.getStats(name);
+    seriesNames.add(name);
+    StatsSeries stats = statsCollection.getStats(name);
     if (stats == null) {
       statsCollection.newStats(name, maxSeries);
     } else {
-      XYDataItem data = new XYDataItem(time, value);
-      statsCollection.lockForUpdate();
-      try {
-        stats.add(data);
-        houseKeepStats(stats);
-      } finally {
-        statsCollection.releaseLock();
-      }
+      houseKeepStats(stats);
+      statsCollection.addSample(name, stats, time, value);
       if (listeners != null) {
-        StatsCollectionEvent event = new StatsCollectionEvent(name, data);
+        StatsCollectionEvent event = new StatsCollectionEvent(name, new XYDataItem(time, value));
         for (StatsCollectionListener listener : listeners) {
           if (listener.isEnabled()) {
             listener.statsCollected(event);
@@ -221,7 +413,7 @@ public abstract class AbstractStatsCollectorBean {
    * @param name the name of the value, which allows the collector to be used for multiple values
    * @param value time spent on the task in milliseconds (A or B in the example above)
    * @param time system time in milliseconds (T1 or T2 in the example above)
-   * @throws InterruptedException if a lock could not be obtained
+   * @throws InterruptedException the interrupted exception
    */
   protected void buildTimePercentageStats(String name, long value, long time)
       throws InterruptedException {
@@ -236,17 +428,13 @@ public abstract class AbstractStatsCollectorBean {
       double valueDelta = (double) value - entry.value;
       double timeDelta = (double) time - entry.time;
       double statValue = valueDelta * 100 / timeDelta;
-      statsCollection.lockForUpdate();
-      try {
-        List<XYDataItem> stats = statsCollection.getStats(name);
-        if (stats == null) {
-          stats = statsCollection.newStats(name, maxSeries);
-        }
-        stats.add(stats.size(), new XYDataItem(time, statValue));
-        houseKeepStats(stats);
-      } finally {
-        statsCollection.releaseLock();
+      seriesNames.add(name);
+      StatsSeries stats = statsCollection.getStats(name);
+      if (stats == null) {
+        stats = statsCollection.newStats(name, maxSeries);
       }
+      houseKeepStats(stats);
+      statsCollection.addSample(name, stats, time, statValue);
     }
   }
 
@@ -260,13 +448,14 @@ public abstract class AbstractStatsCollectorBean {
   }
 
   /**
-   * House keep stats.
+   * House keep stats. The series evicts its oldest samples by itself, this only adjusts its
+   * capacity when it was created with a different max series, e.g. read back from disk.
    *
    * @param stats the stats
    */
-  private void houseKeepStats(List<XYDataItem> stats) {
-    while (stats.size() > maxSeries) {
-      stats.remove(0);
+  private void houseKeepStats(StatsSeries stats) {
+    if (stats.getCapacity() != maxSeries && maxSeries > 0) {
+      stats.setCapacity(maxSeries);
     }
   }
 }
@@ -10,6 +10,10 @@
  */
 package psiprobe.beans.stats.collectors;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
 import javax.inject.Inject;
 import javax.servlet.ServletContext;
 
@@ -113,32 +117,44 @@ public class AppStatsCollectorBean extends AbstractStatsCollectorBean
         long totalAvgProcTime = 0;
         int participatingAppCount = 0;
 
+        // read the servlet stats of every context in parallel
+        List<Context> contexts = new ArrayList<>();
         for (Context ctx : tomcatContainer.findContexts()) {
           if (ctx != null && ctx.getName() != null) {
-            Application app = new Application();
-            ApplicationUtils.collectApplicationServletStats(ctx, app);
-
-            String appName = "".equals(ctx.getName()) ? "/" : ctx.getName();
-
-            long reqDelta =
-                buildDeltaStats("app.requests." + appName, app.getRequestCount(), currentTime);
-            long errDelta = buildDeltaStats("app.errors." + appName, app.getErrorCount());
-            long procTimeDelta =
-                buildDeltaStats("app.proc_time." + appName, app.getProcessingTime(), currentTime);
-
-            long avgProcTime = reqDelta == 0 ? 0 : procTimeDelta / reqDelta;
-            buildAbsoluteStats("app.avg_proc_time." + appName, avgProcTime, currentTime);
-
-            /*
-             * make sure applications that did not serve any requests do not participate in average
-             * response time equation thus diluting the value
-             */
-            if (reqDelta > 0 && !excludeFromTotal(ctx)) {
-              totalReqDelta += reqDelta;
-              totalErrDelta += errDelta;
-              totalAvgProcTime += avgProcTime;
-              participatingAppCount++;
-            }
+            contexts.add(ctx);
+          }
+        }
+        Map<Context, Application> apps = readAll(contexts, ctx -> {
+          Application app = new Application();
+          ApplicationUtils.collectApplicationServletStats(ctx, app);
+          return app;
+        });
+
+        for (Map.Entry<Context, Application> entry : apps.entrySet()) {
+          Context ctx = entry.getKey();
+          Application app = entry.getValue();
+
+          String appName = "".equals(ctx.getName()) ? "/" : ctx.getName();
+
+          long reqDelta =
+              buildDeltaStats("app.requests." + appName, app.getRequestCount(), currentTime);
+          long errDelta =
+              buildDeltaStats("app.errors." + appName, app.getErrorCount(), currentTime);
+          long procTimeDelta =
+              buildDeltaStats("app.proc_time." + appName, app.getProcessingTime(), currentTime);
+
+          long avgProcTime = reqDelta == 0 ? 0 : procTimeDelta / reqDelta;
+          buildAbsoluteStats("app.avg_proc_time." + appName, avgProcTime, currentTime);
+
+          /*
+           * make sure applications that did not serve any requests do not participate in average
+           * response time equation thus diluting the value
+           */
+          if (reqDelta > 0 && !excludeFromTotal(ctx)) {
+            totalReqDelta += reqDelta;
+            totalErrDelta += errDelta;
+            totalAvgProcTime += avgProcTime;
+            participatingAppCount++;
           }
         }
         // build totals for all applications
@@ -10,12 +10,18 @@
  */
 package psiprobe.beans.stats.collectors;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
 import javax.inject.Inject;
 
+import org.apache.catalina.Context;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 
+import psiprobe.TomcatContainer;
 import psiprobe.beans.ContainerWrapperBean;
 import psiprobe.model.ApplicationResource;
 import psiprobe.model.DataSourceInfo;
@@ -63,7 +69,20 @@ public class DatasourceStatsCollectorBean extends AbstractStatsCollectorBean {
     if (containerWrapper == null) {
       logger.error("Cannot collect data source stats. Container wrapper is not set.");
     } else {
-      for (ApplicationResource ds : getContainerWrapper().getDataSources()) {
+      // look up the global data sources and those of every context in parallel
+      List<Context> sources = new ArrayList<>();
+      sources.add(null);
+      TomcatContainer tomcatContainer = getContainerWrapper().getTomcatContainer();
+      if (tomcatContainer != null) {
+        sources.addAll(tomcatContainer.findContexts());
+      }
+      Map<Context, List<ApplicationResource>> dataSources = readAll(sources,
+          ctx -> ctx == null ? getContainerWrapper().getGlobalDataSources()
+              : getContainerWrapper().getPrivateDataSources(ctx));
+
+      List<ApplicationResource> resources = new ArrayList<>();
+      dataSources.values().forEach(resources::addAll);
+      for (ApplicationResource ds : resources) {
         String appName = ds.getApplicationName();
         String name = (appName == null ? "" : appName) + '/' + ds.getName();
         DataSourceInfo dsi = ds.getDataSourceInfo();
@@ -0,0 +1,315 @@
+/*
+ * Licensed under the GPL License. You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   https://www.gnu.org/licenses/old-licenses/gpl-2.0.html
+ *
+ * THIS PACKAGE IS PROVIDED "AS IS" AND WITHOUT ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING,
+ * WITHOUT LIMITATION, THE IMPLIED WARRANTIES OF MERCHANTIBILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE.
+ */
+package psiprobe.beans.stats.collectors;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import javax.inject.Inject;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+
+import psiprobe.beans.LogResolverBean;
+import psiprobe.beans.stats.listeners.StatsCollectionListener;
+import psiprobe.model.Application;
+import psiprobe.tools.TimeExpression;
+import psiprobe.tools.logging.LogDestination;
+import psiprobe.tools.logging.LogLineRule;
+import psiprobe.tools.logging.LogTail;
+
+/**
+ * Collects the number of log lines matching configured rules, e.g. the ERROR lines or the lines
+ * reporting an OutOfMemoryError, per collection period.
+ *
+ * <p>
+ * The files of the log destinations are tailed: every cycle only reads the lines appended since
+ * the previous one, in parallel. The lines of a rule are counted into "log.RULE.APP" for the files
+ * of an application and into "total.log.RULE" for all files, so listeners can alert on them like
+ * on any other series.
+ * </p>
+ */
+public class LogMetricsCollectorBean extends AbstractStatsCollectorBean {
+
+  /** The Constant logger. */
+  private static final Logger logger = LoggerFactory.getLogger(LogMetricsCollectorBean.class);
+
+  /** The log resolver. */
+  @Inject
+  private LogResolverBean logResolver;
+
+  /** The rules, "name=level:LEVEL" or "name=regex" separated by ";". */
+  private String rules;
+
+  /** The number of bytes of a file read at most per cycle. */
+  private long maxReadSize = 16L * 1024 * 1024;
+
+  /** The rules parsed, null until the first cycle. */
+  private List<LogLineRule> parsedRules;
+
+  /** The files tailed, by canonical path. */
+  private final Map<String, Source> sources = new LinkedHashMap<>();
+
+  /**
+   * Gets the log resolver.
+   *
+   * @return the log resolver
+   */
+  public LogResolverBean getLogResolver() {
+    return logResolver;
+  }
+
+  /**
+   * Sets the log resolver.
+   *
+   * @param logResolver the new log resolver
+   */
+  public void setLogResolver(LogResolverBean logResolver) {
+    this.logResolver = logResolver;
+  }
+
+  /**
+   * Gets the rules.
+   *
+   * @return the rules
+   */
+  public String getRules() {
+    return rules;
+  }
+
+  /**
+   * Sets the rules.
+   *
+   * @param rules the new rules, "name=level:LEVEL" or "name=regex" separated by ";"
+   */
+  @Value("${psiprobe.beans.stats.collectors.log.rules}")
+  public void setRules(String rules) {
+    this.rules = rules;
+    this.parsedRules = null;
+  }
+
+  /**
+   * Gets the max read size.
+   *
+   * @return the number of bytes of a file read at most per cycle
+   */
+  public long getMaxReadSize() {
+    return maxReadSize;
+  }
+
+  /**
+   * Sets the max read size.
+   *
+   * @param maxReadSize the number of bytes of a file read at most per cycle
+   */
+  public void setMaxReadSize(long maxReadSize) {
+    this.maxReadSize = maxReadSize;
+  }
+
+  @Override
+  public synchronized void collect() throws Exception {
+    if (logResolver == null) {
+      logger.error("Cannot collect log metrics. Log resolver is not set.");
+      return;
+    }
+    List<LogLineRule> ruleList = getParsedRules();
+    if (ruleList.isEmpty()) {
+      return;
+    }
+    long currentTime = System.currentTimeMillis();
+    updateSources(logResolver.getLogDestinations(true));
+
+    Map<Source, long[]> counts = readAll(sources.values(), source -> source.read(ruleList));
+
+    Map<String, long[]> appCounts = new LinkedHashMap<>();
+    long[] totals = new long[ruleList.size()];
+    for (Source source : sources.values()) {
+      long[] fileCounts = counts.get(source);
+      if (source.appName != null) {
+        long[] sums = appCounts.computeIfAbsent(source.appName, k -> new long[ruleList.size()]);
+        add(sums, fileCounts);
+      }
+      add(totals, fileCounts);
+    }
+    for (int i = 0; i < ruleList.size(); i++) {
+      String ruleName = ruleList.get(i).getName();
+      for (Map.Entry<String, long[]> entry : appCounts.entrySet()) {
+        buildAbsoluteStats("log." + ruleName + "." + entry.getKey(), entry.getValue()[i],
+            currentTime);
+      }
+      buildAbsoluteStats("total.log." + ruleName, totals[i], currentTime);
+    }
+    logger.debug("log metrics collected in {}ms", System.currentTimeMillis() - currentTime);
+  }
+
+  /**
+   * Gets the rules parsed, none if they are invalid.
+   *
+   * @return the rules
+   */
+  private List<LogLineRule> getParsedRules() {
+    if (parsedRules == null) {
+      try {
+        parsedRules = LogLineRule.parse(rules);
+      } catch (IllegalArgumentException e) {
+        logger.error("Cannot collect log metrics", e);
+        parsedRules = Collections.emptyList();
+      }
+    }
+    return parsedRules;
+  }
+
+  /**
+   * Updates the files tailed to the files of the log destinations, files tailed already being
+   * tailed on from where they were.
+   *
+   * @param destinations the log destinations
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  private void updateSources(List<LogDestination> destinations) throws IOException {
+    Map<String, Source> current = new LinkedHashMap<>();
+    if (destinations != null) {
+      for (LogDestination dest : destinations) {
+        File file = dest.getFile();
+        if (file == null) {
+          continue;
+        }
+        String key = file.getCanonicalPath();
+        if (!current.containsKey(key)) {
+          Source source = sources.get(key);
+          if (source == null) {
+            Application app = dest.getApplication();
+            source = new Source(new LogTail(file, maxReadSize), app == null ? null : app.getName(),
+                dest.getEncoding() == null ? StandardCharsets.UTF_8
+                    : Charset.forName(dest.getEncoding()));
+          }
+          current.put(key, source);
+        }
+      }
+    }
+    sources.clear();
+    sources.putAll(current);
+  }
+
+  /**
+   * Adds counts to sums.
+   *
+   * @param sums the sums
+   * @param counts the counts, null if the file could not be read
+   */
+  private static void add(long[] sums, long[] counts) {
+    if (counts != null) {
+      for (int i = 0; i < sums.length; i++) {
+        sums[i] += counts[i];
+      }
+    }
+  }
+
+  /**
+   * Resets the stats of an application.
+   *
+   * @param appName the app name
+   */
+  public void reset(String appName) {
+    for (LogLineRule rule : getParsedRules()) {
+      resetStats("log." + rule.getName() + "." + appName);
+    }
+  }
+
+  /**
+   * Gets the names of the rules.
+   *
+   * @return the rule names
+   */
+  public Set<String> getRuleNames() {
+    Set<String> names = new TreeSet<>();
+    for (LogLineRule rule : getParsedRules()) {
+      names.add(rule.getName());
+    }
+    return names;
+  }
+
+  /**
+   * Sets the max series expression.
+   *
+   * @param period the period
+   * @param span the span
+   */
+  public void setMaxSeries(@Value("${psiprobe.beans.stats.collectors.log.period}") long period,
+      @Value("${psiprobe.beans.stats.collectors.log.span}") long span) {
+    super.setMaxSeries((int) TimeExpression.dataPoints(period, span));
+  }
+
+  @Autowired
+  @Override
+  public void setListeners(List<StatsCollectionListener> listeners) {
+    super.setListeners(listeners);
+  }
+
+  /**
+   * A file tailed.
+   */
+  private static class Source {
+
+    /** The tail of the file. */
+    final LogTail tail;
+
+    /** The name of the application logging into the file, null for the server. */
+    final String appName;
+
+    /** The charset of the file. */
+    final Charset charset;
+
+    /**
+     * Instantiates a new source.
+     *
+     * @param tail the tail
+     * @param appName the app name
+     * @param charset the charset
+     */
+    Source(LogTail tail, String appName, Charset charset) {
+      this.tail = tail;
+      this.appName = appName;
+      this.charset = charset;
+    }
+
+    /**
+     * Counts the lines appended to the file matching each rule.
+     *
+     * @param rules the rules
+     * @return the counts, by rule
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    long[] read(List<LogLineRule> rules) throws IOException {
+      long[] counts = new long[rules.size()];
+      tail.read(charset, line -> {
+        for (int i = 0; i < counts.length; i++) {
+          if (rules.get(i).matches(line)) {
+            counts[i]++;
+          }
+        }
+      });
+      return counts;
+    }
+
+  }
+
+}
@@ -0,0 +1,536 @@
+/*
+ * Licensed under the GPL License. You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   https://www.gnu.org/licenses/old-licenses/gpl-2.0.html
+ *
+ * THIS PACKAGE IS PROVIDED "AS IS" AND WITHOUT ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING,
+ * WITHOUT LIMITATION, THE IMPLIED WARRANTIES OF MERCHANTIBILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE.
+ */
+package psiprobe.beans.stats.collectors;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.ToLongFunction;
+
+import javax.inject.Inject;
+
+import org.apache.catalina.Context;
+import org.apache.catalina.Manager;
+import org.apache.catalina.Session;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+
+import psiprobe.TomcatContainer;
+import psiprobe.beans.ContainerWrapperBean;
+import psiprobe.beans.SessionSizeEstimatorBean;
+import psiprobe.tools.SizeExpression;
+import psiprobe.tools.TimeExpression;
+
+/**
+ * Collects session statistics: the number of active sessions of each application, the sessions
+ * created and expired per collection period, and the number of sessions in fixed buckets of idle
+ * time, age and size.
+ *
+ * <p>
+ * The created and expired sessions are the deltas of the counters every manager keeps, so they
+ * need no listener in the applications. The idle time and age histograms are counted from the
+ * creation and last accessed times of the sessions only. The size histogram is opt-in, collected
+ * only once size buckets are configured, as it has the attributes of every session walked: it is
+ * counted from the sizes cached by the {@link SessionSizeEstimatorBean}, this collector never
+ * reads attributes, it queues the sessions not estimated since their last access to the estimator,
+ * which walks them in the background within its own budget, so a session is counted once
+ * estimated. The series are
+ * "app.sessions.active.APP", "app.sessions.created.APP", "app.sessions.expired.APP",
+ * "app.sessions.idle.BUCKET.APP", "app.sessions.age.BUCKET.APP" and
+ * "app.sessions.size.BUCKET.APP", a bucket being named by its lower bound, with the
+ * "total.sessions.*" series of all applications.
+ * </p>
+ */
+public class SessionStatsCollectorBean extends AbstractStatsCollectorBean {
+
+  /** The Constant logger. */
+  private static final Logger logger = LoggerFactory.getLogger(SessionStatsCollectorBean.class);
+
+  /** The container wrapper. */
+  @Inject
+  private ContainerWrapperBean containerWrapper;
+
+  /** The session size estimator, no size histogram without it. */
+  @Inject
+  private SessionSizeEstimatorBean sessionSizeEstimator;
+
+  /** The upper bounds of the idle time buckets, time expressions separated by ",". */
+  private String idleBuckets = "1m,5m,15m,30m";
+
+  /** The upper bounds of the age buckets, time expressions separated by ",". */
+  private String ageBuckets = "5m,30m,2h,8h";
+
+  /**
+   * The upper bounds of the size buckets, size expressions separated by ",", empty if no size
+   * histogram is collected.
+   */
+  private String sizeBuckets = "";
+
+  /** The idle time buckets parsed, null until used. */
+  private Buckets parsedIdleBuckets;
+
+  /** The age buckets parsed, null until used. */
+  private Buckets parsedAgeBuckets;
+
+  /** The size buckets parsed, null until used. */
+  private Buckets parsedSizeBuckets;
+
+  /**
+   * Gets the container wrapper.
+   *
+   * @return the container wrapper
+   */
+  public ContainerWrapperBean getContainerWrapper() {
+    return containerWrapper;
+  }
+
+  /**
+   * Sets the container wrapper.
+   *
+   * @param containerWrapper the new container wrapper
+   */
+  public void setContainerWrapper(ContainerWrapperBean containerWrapper) {
+    this.containerWrapper = containerWrapper;
+  }
+
+  /**
+   * Gets the idle buckets.
+   *
+   * @return the upper bounds of the idle time buckets
+   */
+  public String getIdleBuckets() {
+    return idleBuckets;
+  }
+
+  /**
+   * Sets the idle buckets.
+   *
+   * @param idleBuckets the upper bounds of the idle time buckets, time expressions separated by
+   *        ",", the last bucket having no upper bound
+   */
+  @Value("${psiprobe.beans.stats.collectors.sessions.idleBuckets}")
+  public void setIdleBuckets(String idleBuckets) {
+    this.idleBuckets = idleBuckets;
+    this.parsedIdleBuckets = null;
+  }
+
+  /**
+   * Gets the age buckets.
+   *
+   * @return the upper bounds of the age buckets
+   */
+  public String getAgeBuckets() {
+    return ageBuckets;
+  }
+
+  /**
+   * Sets the age buckets.
+   *
+   * @param ageBuckets the upper bounds of the age buckets, time expressions separated by ",", the
+   *        last bucket having no upper bound
+   */
+  @Value("${psiprobe.beans.stats.collectors.sessions.ageBuckets}")
+  public void setAgeBuckets(String ageBuckets) {
+    this.ageBuckets = ageBuckets;
+    this.parsedAgeBuckets = null;
+  }
+
+  /**
+   * Gets the session size estimator.
+   *
+   * @return the session size estimator
+   */
+  public SessionSizeEstimatorBean getSessionSizeEstimator() {
+    return sessionSizeEstimator;
+  }
+
+  /**
+   * Sets the session size estimator.
+   *
+   * @param sessionSizeEstimator the new session size estimator
+   */
+  public void setSessionSizeEstimator(SessionSizeEstimatorBean sessionSizeEstimator) {
+    this.sessionSizeEstimator = sessionSizeEstimator;
+  }
+
+  /**
+   * Gets the size buckets.
+   *
+   * @return the upper bounds of the size buckets
+   */
+  public String getSizeBuckets() {
+    return sizeBuckets;
+  }
+
+  /**
+   * Sets the size buckets.
+   *
+   * @param sizeBuckets the upper bounds of the size buckets, size expressions separated by ",",
+   *        the last bucket having no upper bound; empty for no size histogram
+   */
+  @Value("${psiprobe.beans.stats.collectors.sessions.sizeBuckets}")
+  public void setSizeBuckets(String sizeBuckets) {
+    this.sizeBuckets = sizeBuckets;
+    this.parsedSizeBuckets = null;
+  }
+
+  /**
+   * Checks if the size histogram is collected, which it is once size buckets are configured.
+   *
+   * @return true, if the size histogram is collected
+   */
+  public boolean isSizeHistogramEnabled() {
+    return sizeBuckets != null && !sizeBuckets.trim().isEmpty();
+  }
+
+  @Override
+  public void collect() throws Exception {
+    if (containerWrapper == null) {
+      logger.error("Cannot collect session stats. Container wrapper is not set.");
+      return;
+    }
+    TomcatContainer tomcatContainer = containerWrapper.getTomcatContainer();
+    // check if the containerWrapper has been initialized
+    if (tomcatContainer != null) {
+      collect(tomcatContainer.findContexts(), System.currentTimeMillis());
+    }
+  }
+
+  /**
+   * Collects the session stats of contexts.
+   *
+   * @param contexts the contexts
+   * @param currentTime the current time
+   * @throws InterruptedException if interrupted
+   */
+  synchronized void collect(List<Context> contexts, long currentTime)
+      throws InterruptedException {
+    Buckets idle = getParsedIdleBuckets();
+    Buckets age = getParsedAgeBuckets();
+    Buckets size = getParsedSizeBuckets();
+    SessionSizeEstimatorBean estimator = isSizeHistogramEnabled() ? sessionSizeEstimator : null;
+    long totalActive = 0;
+    long totalCreated = 0;
+    long totalExpired = 0;
+    long[] totalIdle = new long[idle.size()];
+    long[] totalAge = new long[age.size()];
+    long[] totalSize = new long[size.size()];
+
+    for (Context ctx : contexts) {
+      Manager manager = ctx == null || ctx.getName() == null ? null : ctx.getManager();
+      if (manager == null) {
+        continue;
+      }
+      String appName = "".equals(ctx.getName()) ? "/" : ctx.getName();
+
+      long[] idleCounts = new long[idle.size()];
+      long[] ageCounts = new long[age.size()];
+      long[] sizeCounts = new long[size.size()];
+      long active = 0;
+      for (Session session : manager.findSessions()) {
+        try {
+          if (session.isValid()) {
+            idleCounts[idle.indexOf(currentTime - session.getLastAccessedTime())]++;
+            ageCounts[age.indexOf(currentTime - session.getCreationTime())]++;
+            if (estimator != null) {
+              long bytes = estimator.getSize(appName, session, false);
+              if (bytes != SessionSizeEstimatorBean.UNKNOWN) {
+                sizeCounts[size.indexOf(bytes)]++;
+              }
+            }
+            active++;
+          }
+        } catch (IllegalStateException e) {
+          logger.trace("Session {} appears to be invalidated, ignore", session.getIdInternal(), e);
+        }
+      }
+
+      buildAbsoluteStats("app.sessions.active." + appName, active, currentTime);
+      totalActive += active;
+      totalCreated += buildDeltaStats("app.sessions.created." + appName,
+          manager.getSessionCounter(), currentTime);
+      totalExpired += buildDeltaStats("app.sessions.expired." + appName,
+          manager.getExpiredSessions(), currentTime);
+      for (int i = 0; i < idle.size(); i++) {
+        buildAbsoluteStats("app.sessions.idle." + idle.getName(i) + "." + appName, idleCounts[i],
+            currentTime);
+        totalIdle[i] += idleCounts[i];
+      }
+      for (int i = 0; i < age.size(); i++) {
+        buildAbsoluteStats("app.sessions.age." + age.getName(i) + "." + appName, ageCounts[i],
+            currentTime);
+        totalAge[i] += ageCounts[i];
+      }
+      if (estimator != null) {
+        for (int i = 0; i < size.size(); i++) {
+          buildAbsoluteStats("app.sessions.size." + size.getName(i) + "." + appName,
+              sizeCounts[i], currentTime);
+          totalSize[i] += sizeCounts[i];
+        }
+      }
+    }
+
+    buildAbsoluteStats("total.sessions.active", totalActive, currentTime);
+    buildAbsoluteStats("total.sessions.created", totalCreated, currentTime);
+    buildAbsoluteStats("total.sessions.expired", totalExpired, currentTime);
+    for (int i = 0; i < idle.size(); i++) {
+      buildAbsoluteStats("total.sessions.idle." + idle.getName(i), totalIdle[i], currentTime);
+    }
+    for (int i = 0; i < age.size(); i++) {
+      buildAbsoluteStats("total.sessions.age." + age.getName(i), totalAge[i], currentTime);
+    }
+    if (estimator != null) {
+      for (int i = 0; i < size.size(); i++) {
+        buildAbsoluteStats("total.sessions.size." + size.getName(i), totalSize[i], currentTime);
+      }
+    }
+    logger.debug("session stats collected in {}ms", System.currentTimeMillis() - currentTime);
+  }
+
+  /**
+   * Resets the stats of an application.
+   *
+   * @param appName the app name
+   */
+  public void reset(String appName) {
+    resetStats("app.sessions.active." + appName);
+    resetStats("app.sessions.created." + appName);
+    resetStats("app.sessions.expired." + appName);
+    for (String name : getParsedIdleBuckets().names) {
+      resetStats("app.sessions.idle." + name + "." + appName);
+    }
+    for (String name : getParsedAgeBuckets().names) {
+      resetStats("app.sessions.age." + name + "." + appName);
+    }
+    for (String name : getParsedSizeBuckets().names) {
+      resetStats("app.sessions.size." + name + "." + appName);
+    }
+  }
+
+  /**
+   * Gets the names of the idle time buckets, their lower bounds.
+   *
+   * @return the idle bucket names
+   */
+  public List<String> getIdleBucketNames() {
+    return getParsedIdleBuckets().names;
+  }
+
+  /**
+   * Gets the labels of the idle time buckets, their ranges.
+   *
+   * @return the idle bucket labels
+   */
+  public List<String> getIdleBucketLabels() {
+    return getParsedIdleBuckets().labels;
+  }
+
+  /**
+   * Gets the names of the age buckets, their lower bounds.
+   *
+   * @return the age bucket names
+   */
+  public List<String> getAgeBucketNames() {
+    return getParsedAgeBuckets().names;
+  }
+
+  /**
+   * Gets the labels of the age buckets, their ranges.
+   *
+   * @return the age bucket labels
+   */
+  public List<String> getAgeBucketLabels() {
+    return getParsedAgeBuckets().labels;
+  }
+
+  /**
+   * Gets the names of the size buckets, their lower bounds.
+   *
+   * @return the size bucket names, none if the size histogram is not collected
+   */
+  public List<String> getSizeBucketNames() {
+    return isSizeHistogramEnabled() ? getParsedSizeBuckets().names : Collections.emptyList();
+  }
+
+  /**
+   * Gets the labels of the size buckets, their ranges.
+   *
+   * @return the size bucket labels, none if the size histogram is not collected
+   */
+  public List<String> getSizeBucketLabels() {
+    return isSizeHistogramEnabled() ? getParsedSizeBuckets().labels : Collections.emptyList();
+  }
+
+  /**
+   * Gets the idle time buckets parsed.
+   *
+   * @return the idle time buckets
+   */
+  private synchronized Buckets getParsedIdleBuckets() {
+    if (parsedIdleBuckets == null) {
+      parsedIdleBuckets = Buckets.parse(idleBuckets, "0s", Buckets::inMillis);
+    }
+    return parsedIdleBuckets;
+  }
+
+  /**
+   * Gets the age buckets parsed.
+   *
+   * @return the age buckets
+   */
+  private synchronized Buckets getParsedAgeBuckets() {
+    if (parsedAgeBuckets == null) {
+      parsedAgeBuckets = Buckets.parse(ageBuckets, "0s", Buckets::inMillis);
+    }
+    return parsedAgeBuckets;
+  }
+
+  /**
+   * Gets the size buckets parsed.
+   *
+   * @return the size buckets
+   */
+  private synchronized Buckets getParsedSizeBuckets() {
+    if (parsedSizeBuckets == null) {
+      parsedSizeBuckets = Buckets.parse(sizeBuckets, "0B", SizeExpression::parse);
+    }
+    return parsedSizeBuckets;
+  }
+
+  /**
+   * Sets the max series expression.
+   *
+   * @param period the period
+   * @param span the span
+   */
+  public void setMaxSeries(
+      @Value("${psiprobe.beans.stats.collectors.sessions.period}") long period,
+      @Value("${psiprobe.beans.stats.collectors.sessions.span}") long span) {
+    super.setMaxSeries((int) TimeExpression.dataPoints(period, span));
+  }
+
+  /**
+   * Fixed buckets of durations or sizes.
+   */
+  static class Buckets {
+
+    /** The upper bounds of the buckets but the last, ascending. */
+    private final long[] bounds;
+
+    /** The names of the buckets, their lower bounds. */
+    final List<String> names;
+
+    /** The labels of the buckets, their ranges. */
+    final List<String> labels;
+
+    /**
+     * Instantiates new buckets.
+     *
+     * @param bounds the upper bounds of the buckets but the last, ascending
+     * @param names the names of the buckets
+     * @param labels the labels of the buckets
+     */
+    private Buckets(long[] bounds, List<String> names, List<String> labels) {
+      this.bounds = bounds;
+      this.names = Collections.unmodifiableList(names);
+      this.labels = Collections.unmodifiableList(labels);
+    }
+
+    /**
+     * Parses buckets, a single bucket of all values if the bounds are invalid.
+     *
+     * @param expression the upper bounds separated by ","
+     * @param zero the name of the first bucket
+     * @param parser the parser of a bound
+     * @return the buckets
+     */
+    static Buckets parse(String expression, String zero, ToLongFunction<String> parser) {
+      List<String> bounds = new ArrayList<>();
+      long[] values = new long[0];
+      try {
+        if (expression != null) {
+          for (String bound : expression.split(",")) {
+            if (!bound.trim().isEmpty()) {
+              bounds.add(bound.trim());
+            }
+          }
+        }
+        values = new long[bounds.size()];
+        for (int i = 0; i < values.length; i++) {
+          values[i] = parser.applyAsLong(bounds.get(i));
+          if (i > 0 && values[i] <= values[i - 1]) {
+            throw new IllegalArgumentException("Bucket bounds not ascending: " + expression);
+          }
+        }
+      } catch (IllegalArgumentException e) {
+        logger.error("Invalid session stats buckets '{}'", expression, e);
+        bounds.clear();
+        values = new long[0];
+      }
+
+      List<String> names = new ArrayList<>();
+      List<String> labels = new ArrayList<>();
+      names.add(zero);
+      for (int i = 0; i < bounds.size(); i++) {
+        names.add(bounds.get(i));
+        labels.add(i == 0 ? "< " + bounds.get(i) : bounds.get(i - 1) + " - " + bounds.get(i));
+      }
+      labels.add(bounds.isEmpty() ? "all" : "> " + bounds.get(bounds.size() - 1));
+      return new Buckets(values, names, labels);
+    }
+
+    /**
+     * Gets the number of buckets.
+     *
+     * @return the size
+     */
+    int size() {
+      return names.size();
+    }
+
+    /**
+     * Gets the name of a bucket.
+     *
+     * @param index the index of the bucket
+     * @return the name
+     */
+    String getName(int index) {
+      return names.get(index);
+    }
+
+    /**
+     * Gets the bucket of a value.
+     *
+     * @param value the duration in milliseconds, or the size in bytes
+     * @return the index of the bucket
+     */
+    int indexOf(long value) {
+      int i = 0;
+      while (i < bounds.length && value >= bounds[i]) {
+        i++;
+      }
+      return i;
+    }
+
+    /**
+     * Parses a time expression in milliseconds.
+     *
+     * @param expression the time expression
+     * @return the milliseconds
+     */
+    static long inMillis(String expression) {
+      return TimeExpression.inSeconds(expression) * 1000;
+    }
+
+  }
+
+}
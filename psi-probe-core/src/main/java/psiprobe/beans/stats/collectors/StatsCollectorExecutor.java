@@ -0,0 +1,247 @@
+/*
+ * Licensed under the GPL License. You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   https://www.gnu.org/licenses/old-licenses/gpl-2.0.html
+ *
+ * THIS PACKAGE IS PROVIDED "AS IS" AND WITHOUT ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING,
+ * WITHOUT LIMITATION, THE IMPLIED WARRANTIES OF MERCHANTIBILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE.
+ */
+package psiprobe.beans.stats.collectors;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+
+import psiprobe.tools.ThreadPools;
+import psiprobe.tools.TimeExpression;
+
+/**
+ * Bounded pool the stats collectors fan their per source work out to, e.g. reading the servlet
+ * stats of every context or looking up the data sources of every context. A slow source then only
+ * delays its own stats: the reads of a cycle share one deadline, the task timeout, after which the
+ * reads left are cancelled and their sources skipped for the cycle.
+ *
+ * <p>
+ * A read blocked in a call that ignores interrupts, e.g. JMX or JDBC, keeps its thread after it is
+ * cancelled. Such a source is skipped by the following cycles until its read returns, so a stuck
+ * source holds one thread at most rather than one more every cycle.
+ * </p>
+ *
+ * <p>
+ * Only reading is done in parallel. Collectors build their stats from the values read on their own
+ * thread, with one timestamp per cycle, so stats and listeners are never updated concurrently.
+ * </p>
+ */
+public class StatsCollectorExecutor implements DisposableBean {
+
+  /** The Constant logger. */
+  private static final Logger logger = LoggerFactory.getLogger(StatsCollectorExecutor.class);
+
+  /** The number of threads. */
+  private int threadCount = 4;
+
+  /** The task timeout in milliseconds, the time the reads of a cycle are given. */
+  private long taskTimeout = 10000;
+
+  /** The reads running, by reader class and source, with the time they started. */
+  private final Map<List<Object>, Long> running = new ConcurrentHashMap<>();
+
+  /** The executor, created on first use. */
+  private ExecutorService executor;
+
+  /**
+   * Reads a value from a source.
+   *
+   * @param <S> the source type
+   * @param <R> the value type
+   */
+  @FunctionalInterface
+  public interface SourceReader<S, R> {
+
+    /**
+     * Reads a value.
+     *
+     * @param source the source
+     * @return the value, null if there is none
+     * @throws Exception the exception
+     */
+    R read(S source) throws Exception;
+  }
+
+  /**
+   * Gets the thread count.
+   *
+   * @return the thread count
+   */
+  public int getThreadCount() {
+    return threadCount;
+  }
+
+  /**
+   * Sets the thread count. Sources are read on the calling thread if it is not positive.
+   *
+   * @param threadCount the new thread count
+   */
+  @Value("${psiprobe.beans.stats.collectors.threadCount}")
+  public void setThreadCount(int threadCount) {
+    this.threadCount = threadCount;
+  }
+
+  /**
+   * Gets the task timeout.
+   *
+   * @return the task timeout in milliseconds
+   */
+  public long getTaskTimeout() {
+    return taskTimeout;
+  }
+
+  /**
+   * Sets the task timeout.
+   *
+   * @param taskTimeout the new task timeout in milliseconds
+   */
+  public void setTaskTimeout(long taskTimeout) {
+    this.taskTimeout = taskTimeout;
+  }
+
+  /**
+   * Sets the task timeout expression.
+   *
+   * @param taskTimeout the new task timeout expression, e.g. "10s"
+   */
+  @Value("${psiprobe.beans.stats.collectors.taskTimeout}")
+  public void setTaskTimeoutExpression(String taskTimeout) {
+    this.taskTimeout = TimeExpression.inSeconds(taskTimeout) * 1000;
+  }
+
+  /**
+   * Reads a value from every source in parallel, within the task timeout. Sources failing or timing
+   * out are logged and left out of the result, as are the sources whose read of a previous cycle is
+   * still running.
+   *
+   * @param <S> the source type
+   * @param <R> the value type
+   * @param sources the sources
+   * @param reader the reader
+   * @return the values read, in the order of the sources
+   * @throws InterruptedException if interrupted while waiting for the values
+   */
+  public <S, R> Map<S, R> readAll(Collection<S> sources, SourceReader<S, R> reader)
+      throws InterruptedException {
+
+    Map<S, R> values = new LinkedHashMap<>();
+    ExecutorService pool = getExecutor();
+    if (pool == null) {
+      for (S source : sources) {
+        try {
+          putValue(values, source, reader.read(source));
+        } catch (Exception e) {
+          logger.error("Cannot read stats of '{}'", source, e);
+        }
+      }
+      return values;
+    }
+
+    List<S> submitted = new ArrayList<>(sources.size());
+    List<Callable<R>> tasks = new ArrayList<>(sources.size());
+    long now = System.currentTimeMillis();
+    for (S source : sources) {
+      // the class of the reader tells the collectors apart, they may read the same sources
+      List<Object> key = Arrays.asList(reader.getClass(), source);
+      Long started = running.get(key);
+      if (started != null) {
+        logger.warn("Reading stats of '{}' is still running after {}ms, skipped", source,
+            now - started);
+        continue;
+      }
+      submitted.add(source);
+      tasks.add(() -> {
+        running.put(key, System.currentTimeMillis());
+        try {
+          return reader.read(source);
+        } finally {
+          running.remove(key);
+        }
+      });
+    }
+
+    List<Future<R>> futures = pool.invokeAll(tasks, taskTimeout, TimeUnit.MILLISECONDS);
+    for (int i = 0; i < futures.size(); i++) {
+      Future<R> future = futures.get(i);
+      S source = submitted.get(i);
+      if (future.isCancelled()) {
+        logger.warn("Reading stats of '{}' did not complete within {}ms, skipped", source,
+            taskTimeout);
+        continue;
+      }
+      try {
+        putValue(values, source, future.get());
+      } catch (ExecutionException e) {
+        logger.error("Cannot read stats of '{}'", source, e.getCause());
+      }
+    }
+    return values;
+  }
+
+  /**
+   * Gets the number of reads running, including the reads cancelled that did not return yet.
+   *
+   * @return the number of reads running
+   */
+  public int getRunningCount() {
+    return running.size();
+  }
+
+  /**
+   * Puts a value unless it is null.
+   *
+   * @param <S> the source type
+   * @param <R> the value type
+   * @param values the values
+   * @param source the source
+   * @param value the value
+   */
+  private static <S, R> void putValue(Map<S, R> values, S source, R value) {
+    if (value != null) {
+      values.put(source, value);
+    }
+  }
+
+  /**
+   * Gets the executor, creating it on first use.
+   *
+   * @return the executor, null if sources are read on the calling thread
+   */
+  private synchronized ExecutorService getExecutor() {
+    if (executor == null && threadCount > 0) {
+      executor = ThreadPools.newThreadPool("Probe_Collector-", threadCount);
+    }
+    return executor;
+  }
+
+  @Override
+  public synchronized void destroy() {
+    if (executor != null) {
+      executor.shutdownNow();
+      executor = null;
+    }
+  }
+
+}
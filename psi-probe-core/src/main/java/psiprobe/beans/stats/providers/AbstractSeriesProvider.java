@@ -10,12 +10,17 @@
  */
 package psiprobe.beans.stats.providers;
 
-import java.util.List;
+import javax.servlet.http.HttpServletRequest;
 
-import org.jfree.data.xy.XYDataItem;
 import org.jfree.data.xy.XYSeries;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.web.bind.ServletRequestUtils;
+
+import psiprobe.model.stats.StatsCollection;
+import psiprobe.model.stats.StatsRollup;
+import psiprobe.model.stats.StatsSeries;
+import psiprobe.tools.TimeExpression;
 
 /**
  * The Class AbstractSeriesProvider.
@@ -32,14 +37,78 @@ public abstract class AbstractSeriesProvider implements SeriesProvider {
    * @param stats the stats
    * @return the XY series
    */
-  protected XYSeries toSeries(String legend, List<XYDataItem> stats) {
+  protected XYSeries toSeries(String legend, StatsSeries stats) {
+    XYSeries xySeries = new XYSeries(legend, true, false);
+    synchronized (stats) {
+      for (int i = 0; i < stats.size(); i++) {
+        xySeries.addOrUpdate(stats.getTime(i), stats.getValue(i));
+      }
+    }
+    return xySeries;
+  }
+
+  /**
+   * To series, honouring the time window (tw) request parameter. Windows the raw samples cover are
+   * plotted from the raw samples, longer ones from the finest rollup covering the window, or the
+   * coarsest one if none does, plotting the average of every bucket.
+   *
+   * @param legend the legend
+   * @param statName the stat name
+   * @param stats the stats
+   * @param statsCollection the stats collection
+   * @param request the request
+   * @return the XY series
+   */
+  protected XYSeries toSeries(String legend, String statName, StatsSeries stats,
+      StatsCollection statsCollection, HttpServletRequest request) {
+    long window = getTimeWindow(request);
+    if (window <= 0) {
+      return toSeries(legend, stats);
+    }
+    long from = System.currentTimeMillis() - window;
+    StatsRollup[] rollups = statsCollection.getRollups(statName);
     XYSeries xySeries = new XYSeries(legend, true, false);
+    // samples are added to the series and its rollups under the series monitor
     synchronized (stats) {
-      for (XYDataItem item : stats) {
-        xySeries.addOrUpdate(item.getX(), item.getY());
+      if (rollups == null || rollups.length == 0 || stats.size() > 0 && stats.getTime(0) <= from) {
+        for (int i = 0; i < stats.size(); i++) {
+          if (stats.getTime(i) >= from) {
+            xySeries.addOrUpdate(stats.getTime(i), stats.getValue(i));
+          }
+        }
+        return xySeries;
+      }
+
+      StatsRollup rollup = rollups[rollups.length - 1];
+      for (StatsRollup tier : rollups) {
+        if (tier.getSpan() >= window) {
+          rollup = tier;
+          break;
+        }
+      }
+      for (int i = 0; i < rollup.size(); i++) {
+        if (rollup.getTime(i) + rollup.getResolution() > from) {
+          xySeries.addOrUpdate(rollup.getTime(i), rollup.getAverage(i));
+        }
       }
     }
     return xySeries;
   }
 
+  /**
+   * Gets the time window requested by the tw parameter, e.g. "7d".
+   *
+   * @param request the request
+   * @return the time window in milliseconds, 0 if none or an invalid one was requested
+   */
+  protected long getTimeWindow(HttpServletRequest request) {
+    String timeWindow = ServletRequestUtils.getStringParameter(request, "tw", null);
+    try {
+      return TimeExpression.inSeconds(timeWindow) * 1000;
+    } catch (IllegalArgumentException e) {
+      logger.debug("Invalid time window '{}'", timeWindow, e);
+      return 0;
+    }
+  }
+
 }
@@ -19,9 +19,9 @@ import java.util.Map;
 import javax.servlet.http.HttpServletRequest;
 
 import org.jfree.data.xy.DefaultTableXYDataset;
-import org.jfree.data.xy.XYDataItem;
 
 import psiprobe.model.stats.StatsCollection;
+import psiprobe.model.stats.StatsSeries;
 
 /**
  * Retrieves stats series with names that start with the statNamePrefix. Either all matching series
@@ -102,11 +102,11 @@ public class MultipleSeriesProvider extends AbstractSeriesProvider {
   public void populate(DefaultTableXYDataset dataset, StatsCollection statsCollection,
       HttpServletRequest request) {
 
-    Map<String, List<XYDataItem>> statMap = statsCollection.getStatsByPrefix(statNamePrefix);
+    Map<String, StatsSeries> statMap = statsCollection.getStatsByPrefix(statNamePrefix);
     boolean useTop = getTop() > 0 && getTop() < statMap.size();
     List<Series> seriesList = new ArrayList<>(statMap.size());
 
-    for (Map.Entry<String, List<XYDataItem>> entry : statMap.entrySet()) {
+    for (Map.Entry<String, StatsSeries> entry : statMap.entrySet()) {
       Series ser = new Series(entry);
       if (useTop) {
         ser.calculateAvg();
@@ -131,9 +131,7 @@ public class MultipleSeriesProvider extends AbstractSeriesProvider {
     Collections.sort(seriesList, (s1, s2) -> s1.key.compareTo(s2.key));
 
     for (Series ser : seriesList) {
-      synchronized (ser.stats) {
-        dataset.addSeries(toSeries(ser.key, ser.stats));
-      }
+      dataset.addSeries(toSeries(ser.key, ser.name, ser.stats, statsCollection, request));
     }
   }
 
@@ -143,11 +141,14 @@ public class MultipleSeriesProvider extends AbstractSeriesProvider {
   // a helper class that holds series and calculates an avg value
   private class Series {
 
+    /** The stat name. */
+    final String name;
+
     /** The key. */
     final String key;
 
     /** The stats. */
-    final List<XYDataItem> stats;
+    final StatsSeries stats;
 
     /** The avg. */
     double avg = 0;
@@ -157,8 +158,9 @@ public class MultipleSeriesProvider extends AbstractSeriesProvider {
      *
      * @param en the en
      */
-    Series(Map.Entry<String, List<XYDataItem>> en) {
-      key = en.getKey().substring(statNamePrefix.length());
+    Series(Map.Entry<String, StatsSeries> en) {
+      name = en.getKey();
+      key = name.substring(statNamePrefix.length());
       stats = en.getValue();
     }
 
@@ -173,11 +175,10 @@ public class MultipleSeriesProvider extends AbstractSeriesProvider {
       synchronized (stats) {
         boolean useMovingAvg = getMovingAvgFrame() > 0 && getMovingAvgFrame() < stats.size();
 
-        for (ListIterator<XYDataItem> it = stats.listIterator(); it.hasNext();) {
-          XYDataItem xy = it.next();
-          sum += xy.getY().longValue();
+        for (int i = 0; i < stats.size(); i++) {
+          sum += (long) stats.getValue(i);
 
-          if (useMovingAvg && count % getMovingAvgFrame() == 0 || !it.hasNext()) {
+          if (useMovingAvg && count % getMovingAvgFrame() == 0 || i == stats.size() - 1) {
             double thisAvg = (double) sum / count;
             if (thisAvg > avg) {
               avg = thisAvg;
@@ -17,10 +17,10 @@ import java.util.List;
 import javax.servlet.http.HttpServletRequest;
 
 import org.jfree.data.xy.DefaultTableXYDataset;
-import org.jfree.data.xy.XYDataItem;
 import org.springframework.web.bind.ServletRequestUtils;
 
 import psiprobe.model.stats.StatsCollection;
+import psiprobe.model.stats.StatsSeries;
 
 /**
  * The Class StandardSeriesProvider.
@@ -30,6 +30,9 @@ public class StandardSeriesProvider extends AbstractSeriesProvider {
   /** The stat names. */
   private List<String> statNames = new ArrayList<>(2);
 
+  /** The series labels, used when the request does not label the series. */
+  private List<String> seriesLabels = new ArrayList<>(2);
+
   /**
    * Gets the stat names.
    *
@@ -48,6 +51,25 @@ public class StandardSeriesProvider extends AbstractSeriesProvider {
     this.statNames = statNames;
   }
 
+  /**
+   * Gets the series labels.
+   *
+   * @return the series labels
+   */
+  public List<String> getSeriesLabels() {
+    return seriesLabels;
+  }
+
+  /**
+   * Sets the series labels.
+   *
+   * @param seriesLabels the labels of the series, in the order of the stat names, used when the
+   *        request does not label them
+   */
+  public void setSeriesLabels(List<String> seriesLabels) {
+    this.seriesLabels = seriesLabels;
+  }
+
   @Override
   public void populate(DefaultTableXYDataset dataset, StatsCollection statsCollection,
       HttpServletRequest request) {
@@ -58,11 +80,12 @@ public class StandardSeriesProvider extends AbstractSeriesProvider {
       if (seriesParam != null) {
         statName = MessageFormat.format(statName, seriesParam);
       }
-      List<XYDataItem> stats = statsCollection.getStats(statName);
+      StatsSeries stats = statsCollection.getStats(statName);
       if (stats != null) {
-        String series =
-            ServletRequestUtils.getStringParameter(request, "s" + (i + 1) + "l", "series" + i);
-        dataset.addSeries(toSeries(series, stats));
+        String label = seriesLabels != null && i < seriesLabels.size() ? seriesLabels.get(i)
+            : "series" + i;
+        String series = ServletRequestUtils.getStringParameter(request, "s" + (i + 1) + "l", label);
+        dataset.addSeries(toSeries(series, statName, stats, statsCollection, request));
       }
     }
   }
@@ -12,6 +12,10 @@ package psiprobe.controllers;
 
 import java.awt.BasicStroke;
 import java.awt.Color;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
 
 import javax.inject.Inject;
 import javax.servlet.http.HttpServletRequest;
@@ -30,6 +34,7 @@ import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.ServletRequestUtils;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.context.request.ServletWebRequest;
 import org.springframework.web.servlet.ModelAndView;
 import org.springframework.web.servlet.mvc.AbstractController;
 
@@ -54,6 +59,13 @@ import psiprobe.model.stats.StatsCollection;
  * <li>l - show legend (boolean: true|false)</li>
  * <li>p - name of series provider bean</li>
  * </ul>
+ *
+ * <p>
+ * Rendered images are cached by request parameters. A cached image is reused as long as the data
+ * plotted did not change, which is the case for most hits of auto-refreshing pages. Responses carry
+ * an ETag derived from the data and the last sample time as Last-Modified, so that clients
+ * revalidating an image get a 304 while nothing was collected.
+ * </p>
  */
 @Controller
 public class RenderChartController extends AbstractController {
@@ -61,10 +73,28 @@ public class RenderChartController extends AbstractController {
   /** The Constant logger. */
   private static final Logger logger = LoggerFactory.getLogger(RenderChartController.class);
 
+  /** The name of the cache busting parameter appended by auto-refreshing pages. */
+  private static final String TIMESTAMP_PARAMETER = "t";
+
   /** The stats collection. */
   @Inject
   private StatsCollection statsCollection;
 
+  /** The maximum number of rendered images cached. */
+  private int cacheSize = 128;
+
+  /** The rendered images, by request parameters, least recently used first. */
+  private final Map<String, RenderedChart> chartCache =
+      new LinkedHashMap<String, RenderedChart>(16, 0.75f, true) {
+
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, RenderedChart> eldest) {
+          return size() > cacheSize;
+        }
+      };
+
   /**
    * Gets the stats collection.
    *
@@ -83,6 +113,24 @@ public class RenderChartController extends AbstractController {
     this.statsCollection = statsCollection;
   }
 
+  /**
+   * Gets the cache size.
+   *
+   * @return the maximum number of rendered images cached
+   */
+  public int getCacheSize() {
+    return cacheSize;
+  }
+
+  /**
+   * Sets the cache size.
+   *
+   * @param cacheSize the maximum number of rendered images cached, 0 disables caching
+   */
+  public void setCacheSize(int cacheSize) {
+    this.cacheSize = cacheSize;
+  }
+
   @RequestMapping(path = "/chart.png")
   @Override
   public ModelAndView handleRequest(HttpServletRequest request, HttpServletResponse response)
@@ -152,6 +200,23 @@ public class RenderChartController extends AbstractController {
       }
     }
 
+    // the image only depends on the request parameters and the data plotted
+    String cacheKey = getCacheKey(request);
+    String etag = getEtag(cacheKey, ds);
+    response.setHeader("Cache-Control", "no-cache");
+    if (new ServletWebRequest(request, response).checkNotModified(etag, getLastModified(ds))) {
+      return null;
+    }
+    RenderedChart cached;
+    synchronized (chartCache) {
+      cached = chartCache.get(cacheKey);
+    }
+    if (cached != null && cached.etag.equals(etag)) {
+      response.setHeader("Content-type", "image/png");
+      response.getOutputStream().write(cached.image);
+      return null;
+    }
+
     // Build series data from the give statistic
     JFreeChart chart = null;
     if ("area".equals(chartType)) {
@@ -198,11 +263,91 @@ public class RenderChartController extends AbstractController {
       chart.getXYPlot().setDomainAxis(1, new DateAxis());
       chart.getXYPlot().setInsets(new RectangleInsets(-15, 0, 0, 10));
 
+      byte[] image = ChartUtils.encodeAsPNG(chart.createBufferedImage(width, height));
+      if (cacheSize > 0) {
+        synchronized (chartCache) {
+          chartCache.put(cacheKey, new RenderedChart(etag, image));
+        }
+      }
       response.setHeader("Content-type", "image/png");
-      response.getOutputStream()
-          .write(ChartUtils.encodeAsPNG(chart.createBufferedImage(width, height)));
+      response.getOutputStream().write(image);
     }
 
     return null;
   }
+
+  /**
+   * Gets the cache key of a request, made of its parameters but the cache busting one.
+   *
+   * @param request the request
+   * @return the cache key
+   */
+  private static String getCacheKey(HttpServletRequest request) {
+    Map<String, String[]> parameters = new TreeMap<>(request.getParameterMap());
+    parameters.remove(TIMESTAMP_PARAMETER);
+    StringBuilder key = new StringBuilder();
+    for (Map.Entry<String, String[]> entry : parameters.entrySet()) {
+      key.append(entry.getKey()).append('=').append(Arrays.toString(entry.getValue())).append('&');
+    }
+    return key.toString();
+  }
+
+  /**
+   * Gets the ETag of a chart, hashing the cache key and every data item plotted.
+   *
+   * @param cacheKey the cache key
+   * @param ds the dataset
+   * @return the ETag
+   */
+  private static String getEtag(String cacheKey, DefaultTableXYDataset ds) {
+    long hash = cacheKey.hashCode();
+    for (int series = 0; series < ds.getSeriesCount(); series++) {
+      hash = 31 * hash + ds.getSeriesKey(series).hashCode();
+      for (int item = 0; item < ds.getItemCount(series); item++) {
+        hash = 31 * hash + Double.doubleToLongBits(ds.getXValue(series, item));
+        hash = 31 * hash + Double.doubleToLongBits(ds.getYValue(series, item));
+      }
+    }
+    return "\"" + Long.toHexString(hash) + "\"";
+  }
+
+  /**
+   * Gets the time of the most recent data item plotted.
+   *
+   * @param ds the dataset
+   * @return the last modified time, -1 if there is no data
+   */
+  private static long getLastModified(DefaultTableXYDataset ds) {
+    long lastModified = -1;
+    for (int series = 0; series < ds.getSeriesCount(); series++) {
+      int count = ds.getItemCount(series);
+      if (count > 0) {
+        lastModified = Math.max(lastModified, (long) ds.getXValue(series, count - 1));
+      }
+    }
+    return lastModified;
+  }
+
+  /**
+   * A rendered image and the ETag of the data it plots.
+   */
+  private static final class RenderedChart {
+
+    /** The ETag. */
+    final String etag;
+
+    /** The PNG image. */
+    final byte[] image;
+
+    /**
+     * Instantiates a new rendered chart.
+     *
+     * @param etag the ETag
+     * @param image the PNG image
+     */
+    RenderedChart(String etag, byte[] image) {
+      this.etag = etag;
+      this.image = image;
+    }
+  }
 }
@@ -19,6 +19,7 @@ import org.springframework.web.bind.ServletRequestUtils;
 import org.springframework.web.servlet.ModelAndView;
 
 import psiprobe.beans.ResourceResolver;
+import psiprobe.beans.stats.collectors.SessionStatsCollectorBean;
 import psiprobe.controllers.AbstractContextHandlerController;
 import psiprobe.model.Application;
 import psiprobe.model.stats.StatsCollection;
@@ -37,6 +38,10 @@ public class BaseGetApplicationController extends AbstractContextHandlerControll
   @Inject
   private StatsCollection statsCollection;
 
+  /** The session stats collector. */
+  @Inject
+  private SessionStatsCollectorBean sessionStatsCollector;
+
   /** The collection period. */
   private long collectionPeriod;
 
@@ -76,6 +81,24 @@ public class BaseGetApplicationController extends AbstractContextHandlerControll
     this.statsCollection = statsCollection;
   }
 
+  /**
+   * Gets the session stats collector.
+   *
+   * @return the session stats collector
+   */
+  public SessionStatsCollectorBean getSessionStatsCollector() {
+    return sessionStatsCollector;
+  }
+
+  /**
+   * Sets the session stats collector.
+   *
+   * @param sessionStatsCollector the new session stats collector
+   */
+  public void setSessionStatsCollector(SessionStatsCollectorBean sessionStatsCollector) {
+    this.sessionStatsCollector = sessionStatsCollector;
+  }
+
   /**
    * Gets the collection period.
    *
@@ -112,7 +135,9 @@ public class BaseGetApplicationController extends AbstractContextHandlerControll
 
     return new ModelAndView(getViewName()).addObject("app", app)
         .addObject("no_resources", !resourceResolver.supportsPrivateResources())
-        .addObject("collectionPeriod", getCollectionPeriod());
+        .addObject("collectionPeriod", getCollectionPeriod())
+        .addObject("sessionSizeStats", getSessionStatsCollector() != null
+            && getSessionStatsCollector().isSizeHistogramEnabled());
   }
 
 }
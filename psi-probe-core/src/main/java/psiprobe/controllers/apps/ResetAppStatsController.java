@@ -15,6 +15,7 @@ import javax.inject.Inject;
 import org.springframework.stereotype.Controller;
 
 import psiprobe.beans.stats.collectors.AppStatsCollectorBean;
+import psiprobe.beans.stats.collectors.LogMetricsCollectorBean;
 
 /**
  * The Class ResetAppStatsController.
@@ -27,6 +28,10 @@ public class ResetAppStatsController extends AbstractNoSelfContextHandlerControl
   @Inject
   private AppStatsCollectorBean statsCollector;
 
+  /** The log metrics collector. */
+  @Inject
+  private LogMetricsCollectorBean logMetricsCollector;
+
   /**
    * Gets the stats collector.
    *
@@ -45,9 +50,28 @@ public class ResetAppStatsController extends AbstractNoSelfContextHandlerControl
     this.statsCollector = statsCollector;
   }
 
+  /**
+   * Gets the log metrics collector.
+   *
+   * @return the log metrics collector
+   */
+  public LogMetricsCollectorBean getLogMetricsCollector() {
+    return logMetricsCollector;
+  }
+
+  /**
+   * Sets the log metrics collector.
+   *
+   * @param logMetricsCollector the new log metrics collector
+   */
+  public void setLogMetricsCollector(LogMetricsCollectorBean logMetricsCollector) {
+    this.logMetricsCollector = logMetricsCollector;
+  }
+
   @Override
   protected void executeAction(String contextName) throws Exception {
     statsCollector.reset(contextName);
+    logMetricsCollector.reset(contextName);
   }
 
 }
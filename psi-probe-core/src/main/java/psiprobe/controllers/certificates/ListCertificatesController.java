@@ -30,7 +30,6 @@ import javax.servlet.http.HttpServletResponse;
 
 import org.apache.catalina.connector.Connector;
 import org.apache.commons.beanutils.BeanUtils;
-import org.apache.commons.lang3.reflect.MethodUtils;
 import org.apache.coyote.ProtocolHandler;
 import org.apache.coyote.http11.AbstractHttp11JsseProtocol;
 import org.slf4j.Logger;
@@ -46,6 +45,7 @@ import psiprobe.model.certificates.CertificateInfo;
 import psiprobe.model.certificates.ConnectorInfo;
 import psiprobe.model.certificates.OldConnectorInfo;
 import psiprobe.model.certificates.SslHostConfigInfo;
+import psiprobe.tools.AccessorCache;
 
 /**
  * The Class ListCertificatesController.
@@ -232,7 +232,7 @@ public class ListCertificatesController extends AbstractTomcatContainerControlle
     try {
       // Introduced in Tomcat 8.5.x+
       Object defaultSslHostConfigName =
-          MethodUtils.invokeMethod(protocol, "getDefaultSSLHostConfigName");
+          AccessorCache.invokeMethod(protocol, "getDefaultSSLHostConfigName");
       if (defaultSslHostConfigName == null) {
         logger.error("Cannot determine defaultSslHostConfigName");
         return info;
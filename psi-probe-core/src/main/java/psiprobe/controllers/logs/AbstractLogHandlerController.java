@@ -10,6 +10,8 @@
  */
 package psiprobe.controllers.logs;
 
+import java.io.File;
+
 import javax.inject.Inject;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
@@ -22,6 +24,7 @@ import org.springframework.web.servlet.mvc.ParameterizableViewController;
 
 import psiprobe.beans.LogResolverBean;
 import psiprobe.tools.logging.LogDestination;
+import psiprobe.tools.logging.LogFiles;
 
 /**
  * The Class AbstractLogHandlerController.
@@ -87,6 +90,22 @@ public abstract class AbstractLogHandlerController extends ParameterizableViewCo
     return modelAndView;
   }
 
+  /**
+   * Gets the file requested, the file of the log destination or, given its name in the
+   * "rotatedFile" parameter, a file the log was rotated into.
+   *
+   * @param request the request
+   * @param logDest the log dest
+   * @return the file, null if the log was rotated into no file of the name requested
+   */
+  protected File getRequestedFile(HttpServletRequest request, LogDestination logDest) {
+    String rotatedFile = ServletRequestUtils.getStringParameter(request, "rotatedFile", "");
+    if (rotatedFile.isEmpty()) {
+      return logDest.getFile();
+    }
+    return LogFiles.findRotatedFile(logDest.getFile(), rotatedFile);
+  }
+
   /**
    * Handle log file.
    *
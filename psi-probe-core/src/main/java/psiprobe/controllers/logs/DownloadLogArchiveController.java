@@ -0,0 +1,202 @@
+/*
+ * Licensed under the GPL License. You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   https://www.gnu.org/licenses/old-licenses/gpl-2.0.html
+ *
+ * THIS PACKAGE IS PROVIDED "AS IS" AND WITHOUT ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING,
+ * WITHOUT LIMITATION, THE IMPLIED WARRANTIES OF MERCHANTIBILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE.
+ */
+package psiprobe.controllers.logs;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.text.SimpleDateFormat;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import javax.inject.Inject;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.ServletRequestUtils;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.servlet.ModelAndView;
+import org.springframework.web.servlet.mvc.ParameterizableViewController;
+
+import psiprobe.beans.LogArchiverBean;
+import psiprobe.beans.LogResolverBean;
+import psiprobe.tools.logging.LogDestination;
+import psiprobe.tools.logging.LogFiles;
+
+/**
+ * Downloads the files of several log destinations, and optionally the files they were rotated
+ * into, as a single ZIP or tar.gz archive streamed as it is compressed.
+ *
+ * <p>
+ * Files are given by their paths in "file" parameters, only the files of known log destinations
+ * being archived. The "format" parameter is "zip", the default, or "tgz".
+ * </p>
+ */
+@Controller
+public class DownloadLogArchiveController extends ParameterizableViewController {
+
+  /** The Constant logger. */
+  private static final Logger logger = LoggerFactory.getLogger(DownloadLogArchiveController.class);
+
+  /** The log resolver. */
+  @Inject
+  private LogResolverBean logResolver;
+
+  /** The log archiver. */
+  @Inject
+  private LogArchiverBean logArchiver;
+
+  /**
+   * Gets the log resolver.
+   *
+   * @return the log resolver
+   */
+  public LogResolverBean getLogResolver() {
+    return logResolver;
+  }
+
+  /**
+   * Sets the log resolver.
+   *
+   * @param logResolver the new log resolver
+   */
+  public void setLogResolver(LogResolverBean logResolver) {
+    this.logResolver = logResolver;
+  }
+
+  /**
+   * Gets the log archiver.
+   *
+   * @return the log archiver
+   */
+  public LogArchiverBean getLogArchiver() {
+    return logArchiver;
+  }
+
+  /**
+   * Sets the log archiver.
+   *
+   * @param logArchiver the new log archiver
+   */
+  public void setLogArchiver(LogArchiverBean logArchiver) {
+    this.logArchiver = logArchiver;
+  }
+
+  @RequestMapping(path = "/archive")
+  @Override
+  public ModelAndView handleRequest(HttpServletRequest request, HttpServletResponse response)
+      throws Exception {
+    return super.handleRequest(request, response);
+  }
+
+  @Override
+  protected ModelAndView handleRequestInternal(HttpServletRequest request,
+      HttpServletResponse response) throws Exception {
+
+    String[] paths = ServletRequestUtils.getStringParameters(request, "file");
+    boolean rotated = ServletRequestUtils.getBooleanParameter(request, "rotated", false);
+    boolean tgz = "tgz".equals(ServletRequestUtils.getStringParameter(request, "format"));
+
+    Map<String, File> files = getFiles(paths, rotated);
+    if (files.isEmpty()) {
+      response.sendError(HttpServletResponse.SC_BAD_REQUEST, "No log file selected");
+      return null;
+    }
+
+    String timestamp = new SimpleDateFormat("yyyyMMdd-HHmmss", Locale.ROOT).format(new Date());
+    String name = "logs-" + timestamp + (tgz ? ".tar.gz" : ".zip");
+    logger.info("Sending {} files as {} to {} ({})", files.size(), name, request.getRemoteAddr(),
+        request.getRemoteUser());
+    response.setContentType(tgz ? "application/gzip" : "application/zip");
+    response.setHeader("Content-Disposition", "attachment; filename=" + name);
+    OutputStream out = response.getOutputStream();
+    if (tgz) {
+      logArchiver.writeTarGz(files, out);
+    } else {
+      logArchiver.writeZip(files, out);
+    }
+    return null;
+  }
+
+  /**
+   * Gets the files to archive, among the files of the log destinations.
+   *
+   * @param paths the paths requested
+   * @param rotated whether the files they were rotated into are archived too
+   * @return the files, by entry name
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  Map<String, File> getFiles(String[] paths, boolean rotated) throws IOException {
+    Set<String> requested = new HashSet<>();
+    for (String path : paths) {
+      requested.add(new File(path).getCanonicalPath());
+    }
+    Map<String, File> files = new LinkedHashMap<>();
+    Set<String> archived = new HashSet<>();
+    Set<String> names = new HashSet<>();
+    List<LogDestination> destinations = logResolver.getLogDestinations(true);
+    if (destinations == null) {
+      return files;
+    }
+    for (LogDestination dest : destinations) {
+      File file = dest.getFile();
+      if (file == null || !file.isFile() || !requested.contains(file.getCanonicalPath())) {
+        continue;
+      }
+      List<File> candidates =
+          rotated ? LogFiles.withRotatedFiles(file) : Collections.singletonList(file);
+      for (File candidate : candidates) {
+        if (archived.add(candidate.getCanonicalPath())) {
+          files.put(toEntryName(candidate, names), candidate);
+        }
+      }
+    }
+    return files;
+  }
+
+  /**
+   * Gets the name of the entry of a file, unique in the archive.
+   *
+   * @param file the file
+   * @param names the names used so far
+   * @return the entry name
+   */
+  private static String toEntryName(File file, Set<String> names) {
+    String name = file.getName();
+    if (!names.add(name)) {
+      // a file of the same name in another directory
+      File parent = file.getAbsoluteFile().getParentFile();
+      String base = (parent == null ? "" : parent.getName() + "/") + file.getName();
+      name = base;
+      for (int i = 2; !names.add(name); i++) {
+        name = base + "." + i;
+      }
+    }
+    return name;
+  }
+
+  @Value("")
+  @Override
+  public void setViewName(String viewName) {
+    super.setViewName(viewName);
+  }
+
+}
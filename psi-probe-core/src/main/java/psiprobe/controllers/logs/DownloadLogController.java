@@ -49,7 +49,11 @@ public class DownloadLogController extends AbstractLogHandlerController {
     boolean compressed =
         "true".equals(ServletRequestUtils.getStringParameter(request, "compressed"));
 
-    File file = logDest.getFile();
+    File file = getRequestedFile(request, logDest);
+    if (file == null) {
+      response.sendError(HttpServletResponse.SC_NOT_FOUND);
+      return null;
+    }
     logger.info("Sending {}{} to {} ({})", file, compressed ? " compressed" : "",
         request.getRemoteAddr(), request.getRemoteUser());
     if (compressed) {
@@ -25,6 +25,8 @@ import org.springframework.web.servlet.ModelAndView;
 import psiprobe.tools.BackwardsFileStream;
 import psiprobe.tools.BackwardsLineReader;
 import psiprobe.tools.logging.LogDestination;
+import psiprobe.tools.logging.LogFiles;
+import psiprobe.tools.logging.LogReader;
 
 /**
  * The Class FollowController.
@@ -44,48 +46,54 @@ public class FollowController extends AbstractLogHandlerController {
       LogDestination logDest) throws Exception {
 
     ModelAndView mv = new ModelAndView(getViewName());
-    File file = logDest.getFile();
+    File file = getRequestedFile(request, logDest);
+    if (file == null) {
+      response.sendError(HttpServletResponse.SC_NOT_FOUND);
+      return null;
+    }
 
     if (file.exists()) {
       LinkedList<String> lines = new LinkedList<>();
-      long actualLength = file.length();
-      long lastKnownLength = ServletRequestUtils.getLongParameter(request, "lastKnownLength", 0);
-      long currentLength =
-          ServletRequestUtils.getLongParameter(request, "currentLength", actualLength);
-      long maxReadLines = ServletRequestUtils.getLongParameter(request, "maxReadLines", 0);
-
-      if (lastKnownLength > currentLength || lastKnownLength > actualLength
-          || currentLength > actualLength) {
-
-        // file length got reset
-        lastKnownLength = 0;
-        lines.add(" ------------- THE FILE HAS BEEN TRUNCATED --------------");
-      }
-
-      try (BackwardsFileStream bfs = new BackwardsFileStream(file, currentLength)) {
-        BackwardsLineReader br;
-        if (logDest.getEncoding() != null) {
-          br = new BackwardsLineReader(bfs, logDest.getEncoding());
-        } else {
-          br = new BackwardsLineReader(bfs);
+      try (LogReader reader = LogFiles.openReader(file)) {
+        long actualLength = reader.length();
+        long lastKnownLength = ServletRequestUtils.getLongParameter(request, "lastKnownLength", 0);
+        long currentLength =
+            ServletRequestUtils.getLongParameter(request, "currentLength", actualLength);
+        long maxReadLines = ServletRequestUtils.getLongParameter(request, "maxReadLines", 0);
+
+        if (lastKnownLength > currentLength || lastKnownLength > actualLength
+            || currentLength > actualLength) {
+
+          // file length got reset
+          lastKnownLength = 0;
+          lines.add(" ------------- THE FILE HAS BEEN TRUNCATED --------------");
         }
-        long readSize = 0;
-        long totalReadSize = currentLength - lastKnownLength;
-        String line;
-        while (readSize < totalReadSize && (line = br.readLine()) != null) {
-          if (!line.isEmpty()) {
-            lines.addFirst(line);
-            readSize += line.length();
+
+        try (BackwardsFileStream bfs = new BackwardsFileStream(reader, currentLength)) {
+          BackwardsLineReader br;
+          if (logDest.getEncoding() != null) {
+            br = new BackwardsLineReader(bfs, logDest.getEncoding());
           } else {
-            readSize++;
+            br = new BackwardsLineReader(bfs);
           }
-          if (maxReadLines != 0 && lines.size() >= maxReadLines) {
-            break;
+          long readSize = 0;
+          long totalReadSize = currentLength - lastKnownLength;
+          String line;
+          while (readSize < totalReadSize && (line = br.readLine()) != null) {
+            if (!line.isEmpty()) {
+              lines.addFirst(line);
+              readSize += line.length();
+            } else {
+              readSize++;
+            }
+            if (maxReadLines != 0 && lines.size() >= maxReadLines) {
+              break;
+            }
           }
-        }
 
-        if (lastKnownLength != 0 && readSize > totalReadSize) {
-          lines.removeFirst();
+          if (lastKnownLength != 0 && readSize > totalReadSize) {
+            lines.removeFirst();
+          }
         }
       }
 
@@ -0,0 +1,132 @@
+/*
+ * Licensed under the GPL License. You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   https://www.gnu.org/licenses/old-licenses/gpl-2.0.html
+ *
+ * THIS PACKAGE IS PROVIDED "AS IS" AND WITHOUT ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING,
+ * WITHOUT LIMITATION, THE IMPLIED WARRANTIES OF MERCHANTIBILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE.
+ */
+package psiprobe.controllers.logs;
+
+import java.io.File;
+
+import javax.inject.Inject;
+import javax.servlet.AsyncContext;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.ServletRequestUtils;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.servlet.ModelAndView;
+
+import psiprobe.beans.LogFollowerBean;
+import psiprobe.tools.logging.LogDestination;
+
+/**
+ * Streams the lines appended to a log file as server-sent events, from the shared
+ * {@link LogFollowerBean}. The request is held open until the client goes away or the timeout
+ * elapses, browsers then reconnect on their own, sending the id of the last event received.
+ *
+ * <p>
+ * The first event holds the lines following the "lastKnownLength" parameter, or if it is not set
+ * the last "maxReadLines" lines of the file.
+ * </p>
+ */
+@Controller
+public class FollowStreamController extends AbstractLogHandlerController {
+
+  /** The log follower. */
+  @Inject
+  private LogFollowerBean logFollower;
+
+  /** The time a stream is held open, in milliseconds. */
+  private long timeout = 5 * 60 * 1000L;
+
+  /**
+   * Gets the log follower.
+   *
+   * @return the log follower
+   */
+  public LogFollowerBean getLogFollower() {
+    return logFollower;
+  }
+
+  /**
+   * Sets the log follower.
+   *
+   * @param logFollower the new log follower
+   */
+  public void setLogFollower(LogFollowerBean logFollower) {
+    this.logFollower = logFollower;
+  }
+
+  /**
+   * Gets the timeout.
+   *
+   * @return the timeout in milliseconds
+   */
+  public long getTimeout() {
+    return timeout;
+  }
+
+  /**
+   * Sets the timeout.
+   *
+   * @param timeout the new timeout in milliseconds
+   */
+  public void setTimeout(long timeout) {
+    this.timeout = timeout;
+  }
+
+  @RequestMapping(path = "/stream.ajax")
+  @Override
+  public ModelAndView handleRequest(HttpServletRequest request, HttpServletResponse response)
+      throws Exception {
+    return super.handleRequest(request, response);
+  }
+
+  @Override
+  protected ModelAndView handleLogFile(HttpServletRequest request, HttpServletResponse response,
+      LogDestination logDest) throws Exception {
+
+    if (!request.isAsyncSupported()) {
+      response.sendError(HttpServletResponse.SC_NOT_IMPLEMENTED);
+      return null;
+    }
+
+    long lastKnownLength = ServletRequestUtils.getLongParameter(request, "lastKnownLength", -1);
+    String lastEventId = request.getHeader("Last-Event-ID");
+    if (lastEventId != null) {
+      try {
+        lastKnownLength = Long.parseLong(lastEventId.trim());
+      } catch (NumberFormatException e) {
+        // not one of ours, start over
+      }
+    }
+    int maxReadLines = ServletRequestUtils.getIntParameter(request, "maxReadLines", 250);
+
+    response.setContentType("text/event-stream");
+    response.setCharacterEncoding("UTF-8");
+    response.setHeader("Cache-Control", "no-cache");
+    AsyncContext asyncContext = request.startAsync(request, response);
+    asyncContext.setTimeout(timeout);
+    File file = logDest.getFile();
+    LogEventStream stream = new LogEventStream(asyncContext, logFollower, file);
+    asyncContext.addListener(stream);
+
+    // commit the response while the request is still being processed by the filters
+    response.getWriter().write("retry: 3000\n\n");
+    response.flushBuffer();
+    try {
+      logFollower.subscribe(file, logDest.getEncoding(), lastKnownLength, maxReadLines, stream);
+    } catch (Exception e) {
+      stream.close();
+      throw e;
+    }
+    return null;
+  }
+
+}
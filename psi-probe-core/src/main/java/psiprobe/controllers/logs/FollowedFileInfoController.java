@@ -10,6 +10,9 @@
  */
 package psiprobe.controllers.logs;
 
+import java.io.File;
+import java.sql.Timestamp;
+
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
@@ -19,6 +22,7 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.servlet.ModelAndView;
 
 import psiprobe.tools.logging.LogDestination;
+import psiprobe.tools.logging.LogFiles;
 
 /**
  * The Class FollowedFileInfoController.
@@ -36,7 +40,14 @@ public class FollowedFileInfoController extends AbstractLogHandlerController {
   @Override
   protected ModelAndView handleLogFile(HttpServletRequest request, HttpServletResponse response,
       LogDestination logDest) throws Exception {
-    return new ModelAndView(getViewName()).addObject("log", logDest);
+    File file = getRequestedFile(request, logDest);
+    if (file == null) {
+      response.sendError(HttpServletResponse.SC_NOT_FOUND);
+      return null;
+    }
+    return new ModelAndView(getViewName()).addObject("log", logDest).addObject("file", file)
+        .addObject("size", file.exists() ? LogFiles.getLength(file) : 0)
+        .addObject("lastModified", file.exists() ? new Timestamp(file.lastModified()) : null);
   }
 
 
@@ -88,6 +88,9 @@ public class ListLogsController extends ParameterizableViewController {
       HttpServletResponse response) throws Exception {
 
     boolean showAll = ServletRequestUtils.getBooleanParameter(request, "apps", false);
+    if (ServletRequestUtils.getBooleanParameter(request, "refresh", false)) {
+      logResolver.refresh();
+    }
     List<LogDestination> uniqueList = logResolver.getLogDestinations(showAll);
     if (uniqueList != null) {
       return new ModelAndView(getViewName()).addObject("logs", uniqueList);
@@ -0,0 +1,190 @@
+/*
+ * Licensed under the GPL License. You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   https://www.gnu.org/licenses/old-licenses/gpl-2.0.html
+ *
+ * THIS PACKAGE IS PROVIDED "AS IS" AND WITHOUT ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING,
+ * WITHOUT LIMITATION, THE IMPLIED WARRANTIES OF MERCHANTIBILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE.
+ */
+package psiprobe.controllers.logs;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+
+import psiprobe.beans.LogFollowerBean;
+
+/**
+ * Streams the lines appended to a followed file to a client as server-sent events. Every batch of
+ * lines is an event whose id is the position in the file right after the lines, so that a client
+ * reconnecting resumes where it stopped.
+ *
+ * <p>
+ * Events are queued by the follower and written by a container thread, one at a time. A client
+ * falling too far behind is disconnected rather than holding up the follower.
+ * </p>
+ */
+class LogEventStream implements LogFollowerBean.Subscriber, AsyncListener {
+
+  /** The maximum number of events queued for a client. */
+  static final int MAX_PENDING_EVENTS = 1000;
+
+  /** The async context. */
+  private final AsyncContext asyncContext;
+
+  /** The writer. */
+  private final PrintWriter writer;
+
+  /** The log follower. */
+  private final LogFollowerBean logFollower;
+
+  /** The followed file. */
+  private final File file;
+
+  /** The events not written yet. */
+  private final Queue<String> events = new ConcurrentLinkedQueue<>();
+
+  /** The number of events not written yet. */
+  private final AtomicInteger pendingEvents = new AtomicInteger();
+
+  /** Whether events are being written. */
+  private final AtomicBoolean writing = new AtomicBoolean();
+
+  /** Whether the client fell too far behind. */
+  private volatile boolean overflow;
+
+  /** Whether the stream is closed. */
+  private final AtomicBoolean closed = new AtomicBoolean();
+
+  /**
+   * Instantiates a new log event stream.
+   *
+   * @param asyncContext the async context
+   * @param logFollower the log follower
+   * @param file the followed file
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  LogEventStream(AsyncContext asyncContext, LogFollowerBean logFollower, File file)
+      throws IOException {
+    this.asyncContext = asyncContext;
+    this.writer = asyncContext.getResponse().getWriter();
+    this.logFollower = logFollower;
+    this.file = file;
+  }
+
+  @Override
+  public void lines(List<String> lines, long position) {
+    StringBuilder event = new StringBuilder("id: ").append(position).append('\n');
+    for (String line : lines) {
+      event.append("data: ").append(line).append('\n');
+    }
+    send(event.append('\n').toString());
+  }
+
+  @Override
+  public void truncated() {
+    send("event: truncated\ndata: \n\n");
+  }
+
+  @Override
+  public void heartbeat() {
+    send(":\n\n");
+  }
+
+  /**
+   * Queues an event and makes sure it gets written.
+   *
+   * @param event the event
+   */
+  private void send(String event) {
+    if (closed.get() || overflow) {
+      return;
+    }
+    if (pendingEvents.incrementAndGet() > MAX_PENDING_EVENTS) {
+      overflow = true;
+    } else {
+      events.add(event);
+    }
+    if (writing.compareAndSet(false, true)) {
+      try {
+        asyncContext.start(this::write);
+      } catch (IllegalStateException e) {
+        // the request has completed already
+        writing.set(false);
+      }
+    }
+  }
+
+  /**
+   * Writes the queued events.
+   */
+  void write() {
+    do {
+      try {
+        if (overflow) {
+          close();
+          return;
+        }
+        String event;
+        while ((event = events.poll()) != null) {
+          pendingEvents.decrementAndGet();
+          writer.write(event);
+        }
+        writer.flush();
+        if (writer.checkError()) {
+          close();
+          return;
+        }
+      } finally {
+        writing.set(false);
+      }
+    } while (!events.isEmpty() && !closed.get() && writing.compareAndSet(false, true));
+  }
+
+  /**
+   * Unsubscribes and completes the request.
+   */
+  void close() {
+    if (closed.compareAndSet(false, true)) {
+      logFollower.unsubscribe(file, this);
+      events.clear();
+      try {
+        asyncContext.complete();
+      } catch (IllegalStateException e) {
+        // the request has completed already
+      }
+    }
+  }
+
+  @Override
+  public void onComplete(AsyncEvent event) {
+    close();
+  }
+
+  @Override
+  public void onTimeout(AsyncEvent event) {
+    close();
+  }
+
+  @Override
+  public void onError(AsyncEvent event) {
+    close();
+  }
+
+  @Override
+  public void onStartAsync(AsyncEvent event) {
+    // not restarted
+  }
+
+}
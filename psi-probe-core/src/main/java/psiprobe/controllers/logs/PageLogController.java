@@ -0,0 +1,149 @@
+/*
+ * Licensed under the GPL License. You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   https://www.gnu.org/licenses/old-licenses/gpl-2.0.html
+ *
+ * THIS PACKAGE IS PROVIDED "AS IS" AND WITHOUT ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING,
+ * WITHOUT LIMITATION, THE IMPLIED WARRANTIES OF MERCHANTIBILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE.
+ */
+package psiprobe.controllers.logs;
+
+import java.io.File;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.ServletRequestUtils;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.servlet.ModelAndView;
+
+import psiprobe.tools.logging.LogDestination;
+import psiprobe.tools.logging.LogFiles;
+import psiprobe.tools.logging.LogLineIndex;
+import psiprobe.tools.logging.LogReader;
+import psiprobe.tools.logging.LogTimestampFormat;
+
+/**
+ * Reads a page of lines of a log file, from a line number or from the first line logged at or after
+ * a time, the last page being read when neither is given. Seeking by time in a file whose timestamp
+ * format is unknown is a bad request, answered with a message rather than with some other page.
+ *
+ * <p>
+ * Lines are found through the {@link LogLineIndex} of the file, so a page costs reading at most a
+ * checkpoint interval more than its lines, wherever it is in the file.
+ * </p>
+ */
+@Controller
+public class PageLogController extends AbstractLogHandlerController {
+
+  /** The default number of lines of a page. */
+  private int defaultPageSize = 100;
+
+  /** The number of lines of a page at most. */
+  private int maxPageSize = 1000;
+
+  /**
+   * Gets the default page size.
+   *
+   * @return the default number of lines of a page
+   */
+  public int getDefaultPageSize() {
+    return defaultPageSize;
+  }
+
+  /**
+   * Sets the default page size.
+   *
+   * @param defaultPageSize the default number of lines of a page
+   */
+  public void setDefaultPageSize(int defaultPageSize) {
+    this.defaultPageSize = defaultPageSize;
+  }
+
+  /**
+   * Gets the max page size.
+   *
+   * @return the number of lines of a page at most
+   */
+  public int getMaxPageSize() {
+    return maxPageSize;
+  }
+
+  /**
+   * Sets the max page size.
+   *
+   * @param maxPageSize the number of lines of a page at most
+   */
+  public void setMaxPageSize(int maxPageSize) {
+    this.maxPageSize = maxPageSize;
+  }
+
+  @RequestMapping(path = "/page.ajax")
+  @Override
+  public ModelAndView handleRequest(HttpServletRequest request, HttpServletResponse response)
+      throws Exception {
+    return super.handleRequest(request, response);
+  }
+
+  @Override
+  protected ModelAndView handleLogFile(HttpServletRequest request, HttpServletResponse response,
+      LogDestination logDest) throws Exception {
+
+    File file = getRequestedFile(request, logDest);
+    if (file == null || !file.exists()) {
+      response.sendError(HttpServletResponse.SC_NOT_FOUND);
+      return null;
+    }
+    LocalDateTime time;
+    try {
+      time = SearchLogController.parseTime(ServletRequestUtils.getStringParameter(request, "time"));
+    } catch (DateTimeParseException e) {
+      response.sendError(HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+      return null;
+    }
+    int pageSize = Math.max(1, Math.min(maxPageSize,
+        ServletRequestUtils.getIntParameter(request, "lines", defaultPageSize)));
+    long line = ServletRequestUtils.getLongParameter(request, "line", 0);
+    Charset charset = logDest.getEncoding() == null ? StandardCharsets.UTF_8
+        : Charset.forName(logDest.getEncoding());
+
+    ModelAndView mv = new ModelAndView(getViewName());
+    try (LogReader reader = LogFiles.openReader(file)) {
+      LogLineIndex index = LogLineIndex.forFile(file, reader,
+          LogTimestampFormat.forConversionPattern(logDest.getConversionPattern()));
+      LogLineIndex.Position start = null;
+      if (time != null) {
+        if (index.getTimestampFormat() == null) {
+          response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+          return mv.addObject("timeUnsupported", Boolean.TRUE);
+        }
+        start = index.findTime(reader, time);
+      }
+      if (start == null) {
+        if (line <= 0) {
+          line = Math.max(1, index.getLineCount() - pageSize + 1);
+        }
+        start = index.findLine(reader, line);
+      }
+      mv.addObject("page", LogLineIndex.readPage(reader, start, pageSize, charset));
+      mv.addObject("lineCount", index.getLineCount());
+      mv.addObject("pageSize", pageSize);
+    }
+    return mv;
+  }
+
+  @Value("ajax/log_page")
+  @Override
+  public void setViewName(String viewName) {
+    super.setViewName(viewName);
+  }
+
+}
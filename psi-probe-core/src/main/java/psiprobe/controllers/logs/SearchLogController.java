@@ -0,0 +1,246 @@
+/*
+ * Licensed under the GPL License. You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   https://www.gnu.org/licenses/old-licenses/gpl-2.0.html
+ *
+ * THIS PACKAGE IS PROVIDED "AS IS" AND WITHOUT ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING,
+ * WITHOUT LIMITATION, THE IMPLIED WARRANTIES OF MERCHANTIBILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE.
+ */
+package psiprobe.controllers.logs;
+
+import java.io.File;
+import java.io.PrintWriter;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.ServletRequestUtils;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.servlet.ModelAndView;
+
+import psiprobe.tools.ThreadPools;
+import psiprobe.tools.logging.LogDestination;
+import psiprobe.tools.logging.LogFiles;
+import psiprobe.tools.logging.LogSearch;
+import psiprobe.tools.logging.LogTimestampFormat;
+
+/**
+ * Searches a log file, and optionally its rotated files, streaming the matching lines back as plain
+ * text as they are found.
+ *
+ * <p>
+ * Parameters are "q", the text searched, "regex" and "ignoreCase", "contextLines", "from" and "to",
+ * the bounds of the time range as "yyyy-MM-dd HH:mm[:ss]", "maxMatches" and "rotated".
+ * </p>
+ */
+@Controller
+public class SearchLogController extends AbstractLogHandlerController implements DisposableBean {
+
+  /** The Constant logger. */
+  private static final Logger logger = LoggerFactory.getLogger(SearchLogController.class);
+
+  /** The number of files searched at once. */
+  private int threadCount = 4;
+
+  /** The maximum number of context lines. */
+  private int maxContextLines = 20;
+
+  /** The default maximum number of matches. */
+  private int defaultMaxMatches = 1000;
+
+  /** The upper limit of the maximum number of matches. */
+  private int maxMatchesLimit = 10000;
+
+  /** The executor, created on first use. */
+  private ExecutorService executor;
+
+  /**
+   * Gets the thread count.
+   *
+   * @return the thread count
+   */
+  public int getThreadCount() {
+    return threadCount;
+  }
+
+  /**
+   * Sets the thread count.
+   *
+   * @param threadCount the new thread count
+   */
+  public void setThreadCount(int threadCount) {
+    this.threadCount = threadCount;
+  }
+
+  /**
+   * Gets the max context lines.
+   *
+   * @return the max context lines
+   */
+  public int getMaxContextLines() {
+    return maxContextLines;
+  }
+
+  /**
+   * Sets the max context lines.
+   *
+   * @param maxContextLines the new max context lines
+   */
+  public void setMaxContextLines(int maxContextLines) {
+    this.maxContextLines = maxContextLines;
+  }
+
+  /**
+   * Gets the default max matches.
+   *
+   * @return the default max matches
+   */
+  public int getDefaultMaxMatches() {
+    return defaultMaxMatches;
+  }
+
+  /**
+   * Sets the default max matches.
+   *
+   * @param defaultMaxMatches the new default max matches
+   */
+  public void setDefaultMaxMatches(int defaultMaxMatches) {
+    this.defaultMaxMatches = defaultMaxMatches;
+  }
+
+  /**
+   * Gets the max matches limit.
+   *
+   * @return the max matches limit
+   */
+  public int getMaxMatchesLimit() {
+    return maxMatchesLimit;
+  }
+
+  /**
+   * Sets the max matches limit.
+   *
+   * @param maxMatchesLimit the new max matches limit
+   */
+  public void setMaxMatchesLimit(int maxMatchesLimit) {
+    this.maxMatchesLimit = maxMatchesLimit;
+  }
+
+  @RequestMapping(path = "/search")
+  @Override
+  public ModelAndView handleRequest(HttpServletRequest request, HttpServletResponse response)
+      throws Exception {
+    return super.handleRequest(request, response);
+  }
+
+  @Override
+  protected ModelAndView handleLogFile(HttpServletRequest request, HttpServletResponse response,
+      LogDestination logDest) throws Exception {
+
+    String query = ServletRequestUtils.getStringParameter(request, "q", "");
+    if (query.isEmpty()) {
+      response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Missing search text");
+      return null;
+    }
+    boolean regex = ServletRequestUtils.getBooleanParameter(request, "regex", false);
+    boolean ignoreCase = ServletRequestUtils.getBooleanParameter(request, "ignoreCase", false);
+    Pattern pattern;
+    LocalDateTime from;
+    LocalDateTime to;
+    try {
+      pattern = Pattern.compile(query, (regex ? 0 : Pattern.LITERAL)
+          | (ignoreCase ? Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE : 0));
+      from = parseTime(ServletRequestUtils.getStringParameter(request, "from"));
+      to = parseTime(ServletRequestUtils.getStringParameter(request, "to"));
+    } catch (PatternSyntaxException | DateTimeParseException e) {
+      response.sendError(HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+      return null;
+    }
+    int contextLines = Math.max(0, Math.min(maxContextLines,
+        ServletRequestUtils.getIntParameter(request, "contextLines", 2)));
+    int maxMatches = Math.max(1, Math.min(maxMatchesLimit,
+        ServletRequestUtils.getIntParameter(request, "maxMatches", defaultMaxMatches)));
+    boolean rotated = ServletRequestUtils.getBooleanParameter(request, "rotated", false);
+
+    File file = logDest.getFile();
+    List<File> files =
+        rotated ? LogFiles.withRotatedFiles(file) : Collections.singletonList(file);
+    LogSearch search = new LogSearch(pattern);
+    search.setContextLines(contextLines);
+    search.setMaxMatches(maxMatches);
+    search.setTimeRange(from, to);
+    search.setTimestampFormat(
+        LogTimestampFormat.forConversionPattern(logDest.getConversionPattern()));
+    search.setCharset(logDest.getEncoding() == null ? StandardCharsets.UTF_8
+        : Charset.forName(logDest.getEncoding()));
+
+    logger.info("Searching {} in {} file(s) of {} for {} ({})", query, files.size(), file,
+        request.getRemoteAddr(), request.getRemoteUser());
+    response.setContentType("text/plain");
+    response.setCharacterEncoding("UTF-8");
+    response.setHeader("Cache-Control", "no-cache");
+    PrintWriter out = response.getWriter();
+    int matches = search.search(files, getExecutor(), out);
+    out.write("-- " + matches + " matching line(s) in " + files.size() + " file(s)"
+        + (search.isLimitReached() ? ", search stopped at " + maxMatches + " matches" : "")
+        + "\n");
+    out.flush();
+    return null;
+  }
+
+  /**
+   * Parses a time range bound.
+   *
+   * @param time the time, "yyyy-MM-dd HH:mm[:ss]" or "yyyy-MM-ddTHH:mm[:ss]", may be empty
+   * @return the time, null if empty
+   */
+  static LocalDateTime parseTime(String time) {
+    if (time == null || time.trim().isEmpty()) {
+      return null;
+    }
+    return LocalDateTime.parse(time.trim().replace(' ', 'T'));
+  }
+
+  /**
+   * Gets the executor, creating it on first use.
+   *
+   * @return the executor
+   */
+  private synchronized ExecutorService getExecutor() {
+    if (executor == null) {
+      executor = ThreadPools.newThreadPool("Probe_LogSearch-", Math.max(1, threadCount));
+    }
+    return executor;
+  }
+
+  @Override
+  public synchronized void destroy() {
+    if (executor != null) {
+      executor.shutdownNow();
+      executor = null;
+    }
+  }
+
+  @Value("")
+  @Override
+  public void setViewName(String viewName) {
+    super.setViewName(viewName);
+  }
+
+}
@@ -22,6 +22,7 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.servlet.ModelAndView;
 
 import psiprobe.tools.logging.LogDestination;
+import psiprobe.tools.logging.LogFiles;
 
 /**
  * The Class SetupFollowController.
@@ -40,9 +41,14 @@ public class SetupFollowController extends AbstractLogHandlerController {
   protected ModelAndView handleLogFile(HttpServletRequest request, HttpServletResponse response,
       LogDestination logDest) throws Exception {
 
+    if (getRequestedFile(request, logDest) == null) {
+      response.sendError(HttpServletResponse.SC_NOT_FOUND);
+      return null;
+    }
     File logFile = logDest.getFile();
     List<LogDestination> sources = getLogResolver().getLogSources(logFile);
-    return new ModelAndView(getViewName()).addObject("log", logDest).addObject("sources", sources);
+    return new ModelAndView(getViewName()).addObject("log", logDest).addObject("sources", sources)
+        .addObject("rotatedFiles", LogFiles.findRotatedFiles(logFile));
   }
 
   @Value("follow")
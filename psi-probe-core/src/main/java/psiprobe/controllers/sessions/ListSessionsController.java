@@ -11,17 +11,21 @@
 package psiprobe.controllers.sessions;
 
 import java.util.ArrayList;
-import java.util.Iterator;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
-import java.util.regex.Pattern;
+import java.util.Map;
+import java.util.Set;
 
+import javax.inject.Inject;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import javax.servlet.http.HttpSession;
 
 import org.apache.catalina.Context;
-import org.apache.catalina.Session;
 import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.support.MessageSourceAccessor;
 import org.springframework.stereotype.Controller;
@@ -29,19 +33,91 @@ import org.springframework.web.bind.ServletRequestUtils;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.servlet.ModelAndView;
 
+import psiprobe.beans.SessionSizeEstimatorBean;
 import psiprobe.controllers.AbstractContextHandlerController;
-import psiprobe.model.ApplicationSession;
-import psiprobe.model.Attribute;
 import psiprobe.model.SessionSearchInfo;
-import psiprobe.tools.ApplicationUtils;
 import psiprobe.tools.SecurityUtils;
+import psiprobe.tools.SessionIndex;
+import psiprobe.tools.SessionPager;
 
 /**
  * Creates the list of sessions for a particular web application or all web applications if a webapp
- * request parameter is not set.
+ * request parameter is not set, a page at a time, sorted by age, idle time, size or last IP. Sizes
+ * are estimated in the background, the sessions not estimated yet being listed without a size.
+ * Searches by attribute name, last IP, age or idle time look the sessions up in an index of each
+ * web application, and only the sessions found there are read.
  */
 @Controller
-public class ListSessionsController extends AbstractContextHandlerController {
+public class ListSessionsController extends AbstractContextHandlerController
+    implements DisposableBean {
+
+  /** The sorts supported. */
+  private static final List<String> SORTS = Arrays.asList(SessionPager.SORT_AGE,
+      SessionPager.SORT_IDLE_TIME, SessionPager.SORT_SIZE, SessionPager.SORT_LAST_IP);
+
+  /** The default number of sessions of a page. */
+  private int defaultPageSize = 50;
+
+  /** The number of sessions of a page at most. */
+  private int maxPageSize = 500;
+
+  /** The session size estimator. */
+  @Inject
+  private SessionSizeEstimatorBean sessionSizeEstimator;
+
+  /**
+   * Gets the default page size.
+   *
+   * @return the default number of sessions of a page
+   */
+  public int getDefaultPageSize() {
+    return defaultPageSize;
+  }
+
+  /**
+   * Sets the default page size.
+   *
+   * @param defaultPageSize the default number of sessions of a page
+   */
+  public void setDefaultPageSize(int defaultPageSize) {
+    this.defaultPageSize = defaultPageSize;
+  }
+
+  /**
+   * Gets the max page size.
+   *
+   * @return the number of sessions of a page at most
+   */
+  public int getMaxPageSize() {
+    return maxPageSize;
+  }
+
+  /**
+   * Sets the max page size.
+   *
+   * @param maxPageSize the number of sessions of a page at most
+   */
+  public void setMaxPageSize(int maxPageSize) {
+    this.maxPageSize = maxPageSize;
+  }
+
+  /**
+   * Gets the session size estimator.
+   *
+   * @return the session size estimator
+   */
+  public SessionSizeEstimatorBean getSessionSizeEstimator() {
+    return sessionSizeEstimator;
+  }
+
+  /**
+   * Sets the session size estimator.
+   *
+   * @param sessionSizeEstimator the new session size estimator
+   */
+  public void setSessionSizeEstimator(SessionSizeEstimatorBean sessionSizeEstimator) {
+    this.sessionSizeEstimator = sessionSizeEstimator;
+  }
 
   @RequestMapping(path = "/sessions.htm")
   @Override
@@ -103,31 +179,47 @@ public class ListSessionsController extends AbstractContextHandlerController {
       ctxs.add(context);
     }
 
-    List<ApplicationSession> sessionList = new ArrayList<>();
-    for (Context ctx : ctxs) {
-      if (ctx != null && ctx.getManager() != null
-          && (!searchInfo.isApply() || searchInfo.isUseSearch())) {
-        Session[] sessions = ctx.getManager().findSessions();
-        for (Session session : sessions) {
-          ApplicationSession appSession =
-              ApplicationUtils.getApplicationSession(session, calcSize, searchInfo.isUseAttr());
-          if (appSession != null && matchSession(appSession, searchInfo)) {
-            if (ctx.getName() != null) {
-              appSession.setApplicationName(ctx.getName().length() > 0 ? ctx.getName() : "/");
-            }
-            sessionList.add(appSession);
-          }
-        }
-      }
+    SessionPager pager = new SessionPager();
+    pager.setSizeEstimator(sessionSizeEstimator);
+    String sort =
+        ServletRequestUtils.getStringParameter(request, "sort", SessionPager.SORT_IDLE_TIME);
+    if (SORTS.contains(sort) && (calcSize || !SessionPager.SORT_SIZE.equals(sort))) {
+      pager.setSort(sort);
     }
+    pager.setDescending(ServletRequestUtils.getBooleanParameter(request, "desc", false));
+    pager.setPageSize(Math.max(1, Math.min(maxPageSize,
+        ServletRequestUtils.getIntParameter(request, "pageSize", defaultPageSize))));
+    pager.setAfter(
+        StringUtils.trimToNull(ServletRequestUtils.getStringParameter(request, "after")));
+    pager.setBefore(
+        StringUtils.trimToNull(ServletRequestUtils.getStringParameter(request, "before")));
 
-    if (sessionList.isEmpty() && searchInfo.isApply()) {
+    List<Context> pagedContexts =
+        !searchInfo.isApply() || searchInfo.isUseSearch() ? ctxs : Collections.emptyList();
+    SessionSearchInfo search = searchInfo;
+    if (SessionIndex.isIndexed(searchInfo)) {
+      // only the sessions found in the indexes are read
+      pager.setCandidates(
+          searchIndexes(pagedContexts, searchInfo, System.currentTimeMillis()));
+    }
+    SessionPager.Page page = pager.read(pagedContexts, entry -> matchSession(entry, search),
+        calcSize, searchInfo.isUseAttr());
+
+    if (page.getTotal() == 0 && searchInfo.isApply()) {
       synchronized (sess) {
         populateSearchMessages(searchInfo);
       }
     }
 
-    ModelAndView modelAndView = new ModelAndView(getViewName(), "sessions", sessionList);
+    ModelAndView modelAndView =
+        new ModelAndView(getViewName(), "sessions", page.getSessions());
+    modelAndView.addObject("sessionPage", page);
+    modelAndView.addObject("sessionPager", pager);
+    List<String> sortNames = new ArrayList<>(SORTS);
+    if (!calcSize) {
+      sortNames.remove(SessionPager.SORT_SIZE);
+    }
+    modelAndView.addObject("sortNames", sortNames);
     modelAndView.addObject("searchInfo", searchInfo);
 
     return modelAndView;
@@ -178,63 +270,47 @@ public class ListSessionsController extends AbstractContextHandlerController {
   }
 
   /**
-   * Match session.
+   * Searches the sessions of the contexts through their indexes, by the criteria other than the
+   * session ID.
    *
-   * @param appSession the app session
+   * @param contexts the contexts of the web applications
    * @param searchInfo the search info
-   * @return true, if successful
+   * @param now the current time
+   * @return the IDs of the sessions found, by application name
    */
-  private boolean matchSession(ApplicationSession appSession, SessionSearchInfo searchInfo) {
-    boolean sessionMatches = true;
-    if (searchInfo.isUseSearch()) {
-      if (searchInfo.isUseSessionId() && appSession.getId() != null) {
-        sessionMatches = searchInfo.getSessionIdPattern().matcher(appSession.getId()).matches();
-      }
-      if (sessionMatches && searchInfo.isUseAgeFrom()) {
-        sessionMatches = appSession.getAge() >= searchInfo.getAgeFromSec().longValue() * 1000;
-      }
-      if (sessionMatches && searchInfo.isUseAgeTo()) {
-        sessionMatches = appSession.getAge() <= searchInfo.getAgeToSec().longValue() * 1000;
-      }
-      if (sessionMatches && searchInfo.isUseIdleTimeFrom()) {
-        sessionMatches =
-            appSession.getIdleTime() >= searchInfo.getIdleTimeFromSec().longValue() * 1000;
-      }
-      if (sessionMatches && searchInfo.isUseIdleTimeTo()) {
-        sessionMatches =
-            appSession.getIdleTime() <= searchInfo.getIdleTimeToSec().longValue() * 1000;
-      }
-      if (searchInfo.isUseLastIp() && appSession.getLastAccessedIp() != null) {
-        sessionMatches = appSession.getLastAccessedIp().contains(searchInfo.getLastIp());
-      }
-
-      if (sessionMatches && searchInfo.isUseAttrName()) {
-        boolean attrMatches = false;
-        List<Pattern> namePatterns = new ArrayList<>();
-        namePatterns.addAll(searchInfo.getAttrNamePatterns());
-
-        for (Attribute attr : appSession.getAttributes()) {
-          String attrName = attr.getName();
-
-          if (attrName != null) {
-            for (Iterator<Pattern> it = namePatterns.iterator(); it.hasNext();) {
-              if (it.next().matcher(attrName).matches()) {
-                it.remove();
-              }
-            }
-
-            if (namePatterns.isEmpty()) {
-              attrMatches = true;
-              break;
-            }
-          }
-        }
-
-        sessionMatches = attrMatches;
+  private Map<String, Set<String>> searchIndexes(List<Context> contexts,
+      SessionSearchInfo searchInfo, long now) {
+    Map<String, Set<String>> matches = new HashMap<>();
+    for (Context context : contexts) {
+      if (context == null || context.getManager() == null) {
+        continue;
       }
+      String appName = context.getName() == null ? null
+          : context.getName().isEmpty() ? "/" : context.getName();
+      matches.put(appName,
+          SessionIndex.forContext(context).search(context, searchInfo, now));
     }
+    return matches;
+  }
+
+  /**
+   * Match session, on its entry, so that only the sessions of the page are built. The criteria
+   * other than the session ID were looked up in the indexes already, only the sessions found there
+   * being read.
+   *
+   * @param entry the entry of the session
+   * @param searchInfo the search info
+   * @return true, if successful
+   */
+  private boolean matchSession(SessionPager.Entry entry, SessionSearchInfo searchInfo) {
+    return !searchInfo.isUseSearch() || !searchInfo.isUseSessionId() || entry.getId() == null
+        || searchInfo.getSessionIdPattern().matcher(entry.getId()).matches();
+  }
 
-    return sessionMatches;
+  @Override
+  public void destroy() {
+    // the indexes listen to the contexts, which would keep Probe loaded
+    SessionIndex.detachAll();
   }
 
   @Override
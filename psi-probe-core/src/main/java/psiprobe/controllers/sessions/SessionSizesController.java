@@ -0,0 +1,100 @@
+/*
+ * Licensed under the GPL License. You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   https://www.gnu.org/licenses/old-licenses/gpl-2.0.html
+ *
+ * THIS PACKAGE IS PROVIDED "AS IS" AND WITHOUT ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING,
+ * WITHOUT LIMITATION, THE IMPLIED WARRANTIES OF MERCHANTIBILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE.
+ */
+package psiprobe.controllers.sessions;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.inject.Inject;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.catalina.Context;
+import org.apache.catalina.Session;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.ServletRequestUtils;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.servlet.ModelAndView;
+
+import psiprobe.beans.SessionSizeEstimatorBean;
+import psiprobe.controllers.AbstractTomcatContainerController;
+import psiprobe.tools.SecurityUtils;
+
+/**
+ * Gets the estimated sizes of the sessions of a list, so that the list fills them in as they are
+ * estimated. Accepts a list of sid_webapp parameters in a form of "sid;webapp", with a row
+ * parameter each the size is returned for.
+ */
+@Controller
+public class SessionSizesController extends AbstractTomcatContainerController {
+
+  /** The session size estimator. */
+  @Inject
+  private SessionSizeEstimatorBean sessionSizeEstimator;
+
+  /**
+   * Gets the session size estimator.
+   *
+   * @return the session size estimator
+   */
+  public SessionSizeEstimatorBean getSessionSizeEstimator() {
+    return sessionSizeEstimator;
+  }
+
+  /**
+   * Sets the session size estimator.
+   *
+   * @param sessionSizeEstimator the new session size estimator
+   */
+  public void setSessionSizeEstimator(SessionSizeEstimatorBean sessionSizeEstimator) {
+    this.sessionSizeEstimator = sessionSizeEstimator;
+  }
+
+  @RequestMapping(path = "/sessionsizes.ajax")
+  @Override
+  public ModelAndView handleRequest(HttpServletRequest request, HttpServletResponse response)
+      throws Exception {
+    return super.handleRequest(request, response);
+  }
+
+  @Override
+  protected ModelAndView handleRequestInternal(HttpServletRequest request,
+      HttpServletResponse response) throws Exception {
+
+    // sizes by row, unknown while estimating
+    Map<String, Long> sizes = new LinkedHashMap<>();
+    if (SecurityUtils.hasAttributeValueRole(getServletContext(), request)) {
+      String[] sidWebApps = ServletRequestUtils.getStringParameters(request, "sid_webapp");
+      String[] rows = ServletRequestUtils.getStringParameters(request, "row");
+      for (int i = 0; i < sidWebApps.length && i < rows.length; i++) {
+        String[] ss = sidWebApps[i].split(";");
+        if (ss.length != 2) {
+          continue;
+        }
+        Context context = getContainerWrapper().getTomcatContainer().findContext(ss[1]);
+        Session session = context == null || context.getManager() == null ? null
+            : context.getManager().findSession(ss[0]);
+        if (session != null && session.isValid()) {
+          sizes.put(rows[i], sessionSizeEstimator.getSize(ss[1], session, true));
+        }
+      }
+    }
+    return new ModelAndView(getViewName(), "sizes", sizes);
+  }
+
+  @Value("ajax/session_sizes")
+  @Override
+  public void setViewName(String viewName) {
+    super.setViewName(viewName);
+  }
+
+}
@@ -0,0 +1,190 @@
+/*
+ * Licensed under the GPL License. You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   https://www.gnu.org/licenses/old-licenses/gpl-2.0.html
+ *
+ * THIS PACKAGE IS PROVIDED "AS IS" AND WITHOUT ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING,
+ * WITHOUT LIMITATION, THE IMPLIED WARRANTIES OF MERCHANTIBILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE.
+ */
+package psiprobe.controllers.system;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.inject.Inject;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.servlet.ModelAndView;
+import org.springframework.web.servlet.mvc.ParameterizableViewController;
+
+import psiprobe.beans.stats.collectors.AbstractStatsCollectorBean;
+import psiprobe.model.stats.CollectorOverhead;
+import psiprobe.model.stats.StatsCollection;
+import psiprobe.model.stats.StatsSeries;
+
+/**
+ * Shows the overhead of the stats collectors, as recorded by the collectors themselves.
+ */
+@Controller
+public class ProbeOverheadController extends ParameterizableViewController {
+
+  /** The stats collection. */
+  @Inject
+  private StatsCollection statsCollection;
+
+  /** The collectors. */
+  @Inject
+  private List<AbstractStatsCollectorBean> collectors;
+
+  /**
+   * Gets the stats collection.
+   *
+   * @return the stats collection
+   */
+  public StatsCollection getStatsCollection() {
+    return statsCollection;
+  }
+
+  /**
+   * Sets the stats collection.
+   *
+   * @param statsCollection the new stats collection
+   */
+  public void setStatsCollection(StatsCollection statsCollection) {
+    this.statsCollection = statsCollection;
+  }
+
+  /**
+   * Gets the collectors.
+   *
+   * @return the collectors
+   */
+  public List<AbstractStatsCollectorBean> getCollectors() {
+    return collectors;
+  }
+
+  /**
+   * Sets the collectors.
+   *
+   * @param collectors the new collectors
+   */
+  public void setCollectors(List<AbstractStatsCollectorBean> collectors) {
+    this.collectors = collectors;
+  }
+
+  @RequestMapping(path = "/overhead.htm")
+  @Override
+  public ModelAndView handleRequest(HttpServletRequest request, HttpServletResponse response)
+      throws Exception {
+    return super.handleRequest(request, response);
+  }
+
+  @Override
+  protected ModelAndView handleRequestInternal(HttpServletRequest request,
+      HttpServletResponse response) throws Exception {
+    List<CollectorOverhead> overheads = new ArrayList<>();
+    if (collectors != null) {
+      for (AbstractStatsCollectorBean collector : collectors) {
+        overheads.add(getOverhead(collector));
+      }
+    }
+    return super.handleRequestInternal(request, response).addObject("overheads", overheads);
+  }
+
+  /**
+   * Summarizes the overhead series of a collector. Only the cycles of this run are counted: the
+   * samples read back from disk and the zero samples of the downtime plunge predate the first
+   * cycle.
+   *
+   * @param collector the collector
+   * @return the collector overhead
+   */
+  CollectorOverhead getOverhead(AbstractStatsCollectorBean collector) {
+    String name = collector.getBeanName();
+    CollectorOverhead overhead = new CollectorOverhead();
+    overhead.setName(name);
+    overhead.setPeriod(collector.getPeriod());
+    overhead.setSeriesCount(collector.getSeriesCount());
+    long since = collector.getFirstCycleTime();
+    if (since == 0) {
+      return overhead;
+    }
+
+    StatsSeries times =
+        statsCollection.getStats(AbstractStatsCollectorBean.OVERHEAD_PREFIX + "time." + name);
+    if (times != null) {
+      long[] durations;
+      synchronized (times) {
+        int first = firstIndex(times, since);
+        durations = new long[times.size() - first];
+        for (int i = 0; i < durations.length; i++) {
+          durations[i] = (long) times.getValue(first + i);
+        }
+      }
+      if (durations.length > 0) {
+        overhead.setCycles(durations.length);
+        overhead.setLastTime(durations[durations.length - 1]);
+        Arrays.sort(durations);
+        overhead.setAverageTime(Arrays.stream(durations).sum() / durations.length);
+        overhead.setMedianTime(durations[(durations.length - 1) / 2]);
+        overhead.setPercentile95Time(durations[(int) Math.ceil(durations.length * 0.95) - 1]);
+        overhead.setMaxTime(durations[durations.length - 1]);
+      }
+    }
+    overhead.setOverruns(
+        sum(AbstractStatsCollectorBean.OVERHEAD_PREFIX + "overruns." + name, since));
+    overhead.setSkipped(
+        sum(AbstractStatsCollectorBean.OVERHEAD_PREFIX + "skipped." + name, since));
+    return overhead;
+  }
+
+  /**
+   * Sums the values of a series.
+   *
+   * @param name the name
+   * @param since the time of the first sample to count
+   * @return the sum, 0 if there is no such series
+   */
+  private long sum(String name, long since) {
+    StatsSeries stats = statsCollection.getStats(name);
+    long sum = 0;
+    if (stats != null) {
+      synchronized (stats) {
+        for (int i = firstIndex(stats, since); i < stats.size(); i++) {
+          sum += (long) stats.getValue(i);
+        }
+      }
+    }
+    return sum;
+  }
+
+  /**
+   * Finds the first sample of a series taken at or after a time. The caller holds the series
+   * monitor.
+   *
+   * @param stats the series
+   * @param since the time
+   * @return the index of the sample, the size of the series if there is none
+   */
+  private static int firstIndex(StatsSeries stats, long since) {
+    int index = stats.size();
+    while (index > 0 && stats.getTime(index - 1) >= since) {
+      index--;
+    }
+    return index;
+  }
+
+  @Value("overhead")
+  @Override
+  public void setViewName(String viewName) {
+    super.setViewName(viewName);
+  }
+
+}
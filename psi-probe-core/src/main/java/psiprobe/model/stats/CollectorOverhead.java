@@ -0,0 +1,249 @@
+/*
+ * Licensed under the GPL License. You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   https://www.gnu.org/licenses/old-licenses/gpl-2.0.html
+ *
+ * THIS PACKAGE IS PROVIDED "AS IS" AND WITHOUT ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING,
+ * WITHOUT LIMITATION, THE IMPLIED WARRANTIES OF MERCHANTIBILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE.
+ */
+package psiprobe.model.stats;
+
+/**
+ * Overhead of a stats collector over the cycles retained in its overhead series.
+ */
+public class CollectorOverhead {
+
+  /** The name. */
+  private String name;
+
+  /** The period. */
+  private long period;
+
+  /** The cycles. */
+  private int cycles;
+
+  /** The last time. */
+  private long lastTime;
+
+  /** The average time. */
+  private long averageTime;
+
+  /** The median time. */
+  private long medianTime;
+
+  /** The percentile 95 time. */
+  private long percentile95Time;
+
+  /** The max time. */
+  private long maxTime;
+
+  /** The overruns. */
+  private long overruns;
+
+  /** The skipped. */
+  private long skipped;
+
+  /** The series count. */
+  private long seriesCount;
+
+  /**
+   * Gets the name.
+   *
+   * @return the collector name
+   */
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * Sets the name.
+   *
+   * @param name the collector name
+   */
+  public void setName(String name) {
+    this.name = name;
+  }
+
+  /**
+   * Gets the period.
+   *
+   * @return the collection period in milliseconds
+   */
+  public long getPeriod() {
+    return period;
+  }
+
+  /**
+   * Sets the period.
+   *
+   * @param period the collection period in milliseconds
+   */
+  public void setPeriod(long period) {
+    this.period = period;
+  }
+
+  /**
+   * Gets the cycles.
+   *
+   * @return the number of cycles recorded
+   */
+  public int getCycles() {
+    return cycles;
+  }
+
+  /**
+   * Sets the cycles.
+   *
+   * @param cycles the number of cycles recorded
+   */
+  public void setCycles(int cycles) {
+    this.cycles = cycles;
+  }
+
+  /**
+   * Gets the last time.
+   *
+   * @return the duration of the last cycle in milliseconds
+   */
+  public long getLastTime() {
+    return lastTime;
+  }
+
+  /**
+   * Sets the last time.
+   *
+   * @param lastTime the duration of the last cycle in milliseconds
+   */
+  public void setLastTime(long lastTime) {
+    this.lastTime = lastTime;
+  }
+
+  /**
+   * Gets the average time.
+   *
+   * @return the average cycle duration in milliseconds
+   */
+  public long getAverageTime() {
+    return averageTime;
+  }
+
+  /**
+   * Sets the average time.
+   *
+   * @param averageTime the average cycle duration in milliseconds
+   */
+  public void setAverageTime(long averageTime) {
+    this.averageTime = averageTime;
+  }
+
+  /**
+   * Gets the median time.
+   *
+   * @return the median cycle duration in milliseconds
+   */
+  public long getMedianTime() {
+    return medianTime;
+  }
+
+  /**
+   * Sets the median time.
+   *
+   * @param medianTime the median cycle duration in milliseconds
+   */
+  public void setMedianTime(long medianTime) {
+    this.medianTime = medianTime;
+  }
+
+  /**
+   * Gets the percentile 95 time.
+   *
+   * @return the 95th percentile of the cycle durations in milliseconds
+   */
+  public long getPercentile95Time() {
+    return percentile95Time;
+  }
+
+  /**
+   * Sets the percentile 95 time.
+   *
+   * @param percentile95Time the 95th percentile of the cycle durations in milliseconds
+   */
+  public void setPercentile95Time(long percentile95Time) {
+    this.percentile95Time = percentile95Time;
+  }
+
+  /**
+   * Gets the max time.
+   *
+   * @return the longest cycle duration in milliseconds
+   */
+  public long getMaxTime() {
+    return maxTime;
+  }
+
+  /**
+   * Sets the max time.
+   *
+   * @param maxTime the longest cycle duration in milliseconds
+   */
+  public void setMaxTime(long maxTime) {
+    this.maxTime = maxTime;
+  }
+
+  /**
+   * Gets the overruns.
+   *
+   * @return the number of cycles that took longer than the period
+   */
+  public long getOverruns() {
+    return overruns;
+  }
+
+  /**
+   * Sets the overruns.
+   *
+   * @param overruns the number of cycles that took longer than the period
+   */
+  public void setOverruns(long overruns) {
+    this.overruns = overruns;
+  }
+
+  /**
+   * Gets the skipped.
+   *
+   * @return the number of cycles skipped
+   */
+  public long getSkipped() {
+    return skipped;
+  }
+
+  /**
+   * Sets the skipped.
+   *
+   * @param skipped the number of cycles skipped
+   */
+  public void setSkipped(long skipped) {
+    this.skipped = skipped;
+  }
+
+  /**
+   * Gets the series count.
+   *
+   * @return the number of series maintained by the collector
+   */
+  public long getSeriesCount() {
+    return seriesCount;
+  }
+
+  /**
+   * Sets the series count.
+   *
+   * @param seriesCount the number of series maintained by the collector
+   */
+  public void setSeriesCount(long seriesCount) {
+    this.seriesCount = seriesCount;
+  }
+
+}
@@ -12,6 +12,7 @@ package psiprobe.model.stats;
 
 import com.thoughtworks.xstream.XStream;
 
+import java.io.BufferedInputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
@@ -20,13 +21,13 @@ import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.SortedMap;
 import java.util.TreeMap;
-
-import javax.inject.Inject;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
 
 import org.jfree.data.xy.XYDataItem;
 import org.slf4j.Logger;
@@ -38,10 +39,17 @@ import org.springframework.context.ApplicationContext;
 import org.springframework.context.ApplicationContextAware;
 import org.springframework.web.context.WebApplicationContext;
 
-import psiprobe.tools.UpdateCommitLock;
+import psiprobe.tools.TimeExpression;
 
 /**
  * The Class StatsCollection.
+ *
+ * <p>
+ * Series are held in a concurrent map and every series guards itself, so looking up, creating and
+ * appending to series never takes a collection wide lock. Serialization copies each series under
+ * its own monitor and writes the copy, so collectors and chart requests are not blocked while the
+ * snapshot is written to disk.
+ * </p>
  */
 public class StatsCollection implements InitializingBean, DisposableBean, ApplicationContextAware {
 
@@ -49,15 +57,15 @@ public class StatsCollection implements InitializingBean, DisposableBean, Applic
   private static final Logger logger = LoggerFactory.getLogger(StatsCollection.class);
 
   /** The stats data. */
-  private Map<String, List<XYDataItem>> statsData = new TreeMap<>();
-
-  /** The xstream. */
-  @Inject
-  private XStream xstream;
+  private final ConcurrentSkipListMap<String, StatsSeries> statsData =
+      new ConcurrentSkipListMap<>();
 
   /** The swap file name. */
   private String swapFileName;
 
+  /** The name of the xml swap file written by older versions, imported if no snapshot exists. */
+  private String xmlSwapFileName;
+
   /** The storage path. */
   private String storagePath;
 
@@ -67,8 +75,23 @@ public class StatsCollection implements InitializingBean, DisposableBean, Applic
   /** The max files. */
   private int maxFiles = 2;
 
-  /** The lock. */
-  private final UpdateCommitLock lock = new UpdateCommitLock();
+  /** The journal segment size. */
+  private int journalSegmentSize = 1024 * 1024;
+
+  /** The journal, null if journaling is disabled or the journal could not be opened. */
+  private volatile StatsJournal journal;
+
+  /** The rollups expression. */
+  private String rollups;
+
+  /** The rollup tier resolutions in milliseconds, finest first. */
+  private long[] rollupResolutions = new long[0];
+
+  /** The rollup tier capacities, in buckets. */
+  private int[] rollupCapacities = new int[0];
+
+  /** The rollup tiers of every series, finest first. */
+  private final Map<String, StatsRollup[]> rollupData = new ConcurrentHashMap<>();
 
   /**
    * Gets the swap file name.
@@ -84,11 +107,31 @@ public class StatsCollection implements InitializingBean, DisposableBean, Applic
    *
    * @param swapFileName the new swap file name
    */
-  @Value("stats.xml")
+  @Value("stats.bin")
   public void setSwapFileName(String swapFileName) {
     this.swapFileName = swapFileName;
   }
 
+  /**
+   * Gets the xml swap file name.
+   *
+   * @return the xml swap file name
+   */
+  public String getXmlSwapFileName() {
+    return xmlSwapFileName;
+  }
+
+  /**
+   * Sets the name of the xml swap file written by older versions of the probe. It is only read if
+   * no binary snapshot can be found, so that stats history survives the upgrade.
+   *
+   * @param xmlSwapFileName the new xml swap file name
+   */
+  @Value("stats.xml")
+  public void setXmlSwapFileName(String xmlSwapFileName) {
+    this.xmlSwapFileName = xmlSwapFileName;
+  }
+
   /**
    * Gets the storage path.
    *
@@ -115,7 +158,7 @@ public class StatsCollection implements InitializingBean, DisposableBean, Applic
    * @param statsName the stats name
    * @return true, if is collected
    */
-  public synchronized boolean isCollected(String statsName) {
+  public boolean isCollected(String statsName) {
     return statsData.get(statsName) != null;
   }
 
@@ -137,15 +180,135 @@ public class StatsCollection implements InitializingBean, DisposableBean, Applic
     this.maxFiles = maxFiles > 0 ? maxFiles : 2;
   }
 
+  /**
+   * Gets the journal segment size.
+   *
+   * @return the journal segment size
+   */
+  public int getJournalSegmentSize() {
+    return journalSegmentSize;
+  }
+
+  /**
+   * Sets the size of the journal segments samples are written to between two snapshots. Set to 0
+   * to disable the journal, in which case samples collected since the last snapshot are lost if
+   * the JVM crashes.
+   *
+   * @param journalSegmentSize the new journal segment size in bytes
+   */
+  public void setJournalSegmentSize(int journalSegmentSize) {
+    this.journalSegmentSize = journalSegmentSize;
+  }
+
+  /**
+   * Gets the rollups expression.
+   *
+   * @return the rollups expression
+   */
+  public String getRollups() {
+    return rollups;
+  }
+
+  /**
+   * Sets the downsampled tiers maintained for every series, as a comma separated list of
+   * {@code resolution/span} time expressions. For example {@code 5m/2d,1h/30d} keeps 5 minute
+   * aggregates for 2 days and hourly aggregates for 30 days. An empty expression disables
+   * rollups. The expression is applied by {@link #afterPropertiesSet()}.
+   *
+   * @param rollups the new rollups expression
+   */
+  @Value("${psiprobe.model.stats.rollups}")
+  public void setRollups(String rollups) {
+    this.rollups = rollups;
+  }
+
+  /**
+   * Parses the rollups expression into the tier configuration.
+   *
+   * @throws IllegalArgumentException if the expression is invalid
+   */
+  private void configureRollups() {
+    List<long[]> tiers = new ArrayList<>();
+    if (rollups != null) {
+      for (String tier : rollups.split(",")) {
+        if (tier.trim().isEmpty()) {
+          continue;
+        }
+        String[] parts = tier.trim().split("/");
+        if (parts.length != 2) {
+          throw new IllegalArgumentException("Invalid rollup expression: " + tier);
+        }
+        long resolution = TimeExpression.inSeconds(parts[0].trim());
+        long capacity =
+            TimeExpression.dataPoints(resolution, TimeExpression.inSeconds(parts[1].trim()));
+        if (capacity < 1 || capacity > Integer.MAX_VALUE) {
+          throw new IllegalArgumentException("Invalid rollup expression: " + tier);
+        }
+        tiers.add(new long[] {resolution * 1000, capacity});
+      }
+    }
+    tiers.sort((t1, t2) -> Long.compare(t1[0], t2[0]));
+    long[] resolutions = new long[tiers.size()];
+    int[] capacities = new int[tiers.size()];
+    for (int i = 0; i < tiers.size(); i++) {
+      resolutions[i] = tiers.get(i)[0];
+      capacities[i] = (int) tiers.get(i)[1];
+    }
+    rollupResolutions = resolutions;
+    rollupCapacities = capacities;
+  }
+
+  /**
+   * Gets the rollup tiers of a series.
+   *
+   * @param name the name
+   * @return the rollup tiers, finest first, or null if the series has none
+   */
+  public StatsRollup[] getRollups(String name) {
+    return rollupData.get(name);
+  }
+
+  /**
+   * Checks if rollup tiers match the configured ones.
+   *
+   * @param tiers the tiers
+   * @return true, if they match
+   */
+  private boolean isConfigured(StatsRollup[] tiers) {
+    if (tiers.length != rollupResolutions.length) {
+      return false;
+    }
+    for (int i = 0; i < tiers.length; i++) {
+      if (tiers[i].getResolution() != rollupResolutions[i]
+          || tiers[i].getCapacity() != rollupCapacities[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Creates the configured rollup tiers.
+   *
+   * @return the tiers
+   */
+  private StatsRollup[] createRollups() {
+    StatsRollup[] tiers = new StatsRollup[rollupResolutions.length];
+    for (int i = 0; i < tiers.length; i++) {
+      tiers[i] = new StatsRollup(rollupResolutions[i], rollupCapacities[i]);
+    }
+    return tiers;
+  }
+
   /**
    * New stats.
    *
    * @param name the name
    * @param maxElements the max elements
-   * @return the list
+   * @return the stats series
    */
-  public synchronized List<XYDataItem> newStats(String name, int maxElements) {
-    List<XYDataItem> stats = Collections.synchronizedList(new ArrayList<XYDataItem>(maxElements));
+  public StatsSeries newStats(String name, int maxElements) {
+    StatsSeries stats = new StatsSeries(Math.max(maxElements, 1));
     statsData.put(name, stats);
     return stats;
   }
@@ -155,10 +318,55 @@ public class StatsCollection implements InitializingBean, DisposableBean, Applic
    *
    * @param name the name
    */
-  public synchronized void resetStats(String name) {
-    List<XYDataItem> stats = getStats(name);
+  public void resetStats(String name) {
+    StatsSeries stats = getStats(name);
     if (stats != null) {
       stats.clear();
+      StatsRollup[] tiers = rollupData.get(name);
+      if (tiers != null) {
+        for (StatsRollup tier : tiers) {
+          tier.clear();
+        }
+      }
+      StatsJournal currentJournal = journal;
+      if (currentJournal != null) {
+        try {
+          currentJournal.reset(name, stats.getCapacity());
+        } catch (IOException e) {
+          logger.error("Could not journal reset of '{}'", name, e);
+        }
+      }
+    }
+  }
+
+  /**
+   * Appends a sample to a series, its rollups and the journal.
+   *
+   * @param name the name
+   * @param stats the stats series registered under the name
+   * @param time the time
+   * @param value the value
+   */
+  public void addSample(String name, StatsSeries stats, long time, double value) {
+    if (rollupResolutions.length > 0) {
+      StatsRollup[] tiers = rollupData.computeIfAbsent(name, key -> createRollups());
+      // under the series monitor, for charts to read the series and its rollups consistently
+      synchronized (stats) {
+        stats.add(time, value);
+        for (StatsRollup tier : tiers) {
+          tier.add(time, value);
+        }
+      }
+    } else {
+      stats.add(time, value);
+    }
+    StatsJournal currentJournal = journal;
+    if (currentJournal != null) {
+      try {
+        currentJournal.append(name, stats.getCapacity(), time, value);
+      } catch (IOException e) {
+        logger.error("Could not journal sample of '{}'", name, e);
+      }
     }
   }
 
@@ -166,9 +374,9 @@ public class StatsCollection implements InitializingBean, DisposableBean, Applic
    * Gets the stats.
    *
    * @param name the name
-   * @return the stats
+   * @return the stats series
    */
-  public synchronized List<XYDataItem> getStats(String name) {
+  public StatsSeries getStats(String name) {
     return statsData.get(name);
   }
 
@@ -179,34 +387,39 @@ public class StatsCollection implements InitializingBean, DisposableBean, Applic
    * @return the last value for stat
    */
   public long getLastValueForStat(String statName) {
-    long statValue = 0;
-
-    List<XYDataItem> stats = getStats(statName);
-    if (stats != null && !stats.isEmpty()) {
-      XYDataItem xy = stats.get(stats.size() - 1);
-      if (xy != null && xy.getY() != null) {
-        statValue = xy.getY().longValue();
-      }
-    }
-
-    return statValue;
+    StatsSeries stats = getStats(statName);
+    return stats == null ? 0 : (long) stats.getLastValue();
   }
 
   /**
-   * Returns series if stat name starts with the prefix.
-   * 
+   * Returns series if stat name starts with the prefix. The series are looked up in the sorted
+   * stats map, so this costs O(log n) regardless of the number of stats collected.
+   *
    * @param statNamePrefix they key under which the stats are stored
-   * @return a Map of matching stats. Map keys are stat names and map values are corresponding
-   *         series.
+   * @return a read-only, live view of matching stats, sorted by name. Map keys are stat names and
+   *         map values are corresponding series.
    */
-  public synchronized Map<String, List<XYDataItem>> getStatsByPrefix(String statNamePrefix) {
-    Map<String, List<XYDataItem>> map = new HashMap<>();
-    for (Map.Entry<String, List<XYDataItem>> en : statsData.entrySet()) {
-      if (en.getKey().startsWith(statNamePrefix)) {
-        map.put(en.getKey(), en.getValue());
+  public SortedMap<String, StatsSeries> getStatsByPrefix(String statNamePrefix) {
+    if (statNamePrefix == null || statNamePrefix.isEmpty()) {
+      return Collections.unmodifiableSortedMap(statsData);
+    }
+    int last = statNamePrefix.length() - 1;
+    char lastChar = statNamePrefix.charAt(last);
+    SortedMap<String, StatsSeries> map;
+    if (lastChar == Character.MAX_VALUE) {
+      map = statsData.tailMap(statNamePrefix);
+      // names beyond the prefix range still sort after it, cut them off one by one
+      for (String name : map.keySet()) {
+        if (!name.startsWith(statNamePrefix)) {
+          map = map.headMap(name);
+          break;
+        }
       }
+    } else {
+      map = statsData.subMap(statNamePrefix,
+          statNamePrefix.substring(0, last) + (char) (lastChar + 1));
     }
-    return map;
+    return Collections.unmodifiableSortedMap(map);
   }
 
   /**
@@ -215,8 +428,18 @@ public class StatsCollection implements InitializingBean, DisposableBean, Applic
    * @return the file
    */
   private File makeFile() {
-    return storagePath == null ? new File(contextTempDir, swapFileName)
-        : new File(storagePath, swapFileName);
+    return makeFile(swapFileName);
+  }
+
+  /**
+   * Make file.
+   *
+   * @param fileName the file name
+   * @return the file
+   */
+  private File makeFile(String fileName) {
+    return storagePath == null ? new File(contextTempDir, fileName)
+        : new File(storagePath, fileName);
   }
 
   /**
@@ -249,56 +472,58 @@ public class StatsCollection implements InitializingBean, DisposableBean, Applic
   /**
    * Writes stats data to file on disk.
    *
-   * @throws InterruptedException if a lock cannot be obtained
+   * <p>
+   * Only concurrent serializations are excluded from each other. Collectors keep appending while
+   * the snapshot is written, whatever they append after the journal rotation goes to the new
+   * journal segment.
+   * </p>
    */
-  public synchronized void serialize() throws InterruptedException {
-    lock.lockForCommit();
+  public synchronized void serialize() {
     long start = System.currentTimeMillis();
+    StatsJournal currentJournal = journal;
     try {
+      // samples appended from now on go to a new journal segment,
+      // the older ones are covered by the snapshot once it is written
+      long firstKept = currentJournal == null ? -1 : currentJournal.rotate();
+      Map<String, StatsSeries> snapshot = new TreeMap<>();
+      for (Map.Entry<String, StatsSeries> entry : statsData.entrySet()) {
+        snapshot.put(entry.getKey(), entry.getValue().copy());
+      }
       shiftFiles(0);
       try (OutputStream os = Files.newOutputStream(makeFile().toPath())) {
-        xstream.toXML(statsData, os);
+        StatsSnapshotFormat.write(snapshot, new TreeMap<>(rollupData), os);
+      }
+      if (currentJournal != null) {
+        currentJournal.deleteSegmentsBefore(firstKept);
       }
     } catch (Exception e) {
       logger.error("Could not write stats data to '{}'", makeFile().getAbsolutePath(), e);
     } finally {
-      lock.releaseCommitLock();
       logger.debug("stats serialized in {}ms", System.currentTimeMillis() - start);
     }
   }
 
   /**
-   * Deserialize.
+   * Deserialize. Both binary snapshots and xml files written by older versions are understood.
    *
    * @param file the file
+   * @param rollups the map the rollups read are put into
    * @return the map
    */
-  @SuppressWarnings("unchecked")
-  private Map<String, List<XYDataItem>> deserialize(File file) {
-    Map<String, List<XYDataItem>> stats = null;
+  private Map<String, StatsSeries> deserialize(File file, Map<String, StatsRollup[]> rollups) {
+    Map<String, StatsSeries> stats = null;
     if (file.exists() && file.canRead()) {
       long start = System.currentTimeMillis();
       try {
-        try (InputStream fis = Files.newInputStream(file.toPath())) {
-          stats = (Map<String, List<XYDataItem>>) (new XStream().fromXML(fis));
-
-          if (stats != null) {
-            // adjust stats data so that charts look realistic.
-            // we do that by ending the previous stats group with 0 value
-            // and starting the current stats group also with 0
-            // thus giving the chart nice plunge to zero indicating downtime
-            // and lets not bother about rotating stats;
-            // regular stats collection cycle will do it
-
-            for (Entry<String, List<XYDataItem>> set : stats.entrySet()) {
-              List<XYDataItem> list = set.getValue();
-              if (!list.isEmpty()) {
-                XYDataItem xy = list.get(list.size() - 1);
-                list.add(new XYDataItem(xy.getX().longValue() + 1, 0));
-                list.add(new XYDataItem(System.currentTimeMillis(), 0));
-              }
-            }
+        try (InputStream fis = new BufferedInputStream(Files.newInputStream(file.toPath()))) {
+          if (StatsSnapshotFormat.isSnapshot(fis)) {
+            stats = StatsSnapshotFormat.read(fis, rollups);
+          } else {
+            XStream reader = new XStream();
+            reader.allowTypes(new Class[] {StatsSeries.class, XYDataItem.class});
+            stats = toSeriesMap((Map<?, ?>) reader.fromXML(fis));
           }
+
         }
         logger.debug("stats data read in {}ms", System.currentTimeMillis() - start);
       } catch (Exception e) {
@@ -310,19 +535,27 @@ public class StatsCollection implements InitializingBean, DisposableBean, Applic
   }
 
   /**
-   * Lock for update.
+   * Converts deserialized stats data to series. Files written by older versions of the probe hold
+   * lists of {@link XYDataItem} rather than {@link StatsSeries}.
    *
-   * @throws InterruptedException the interrupted exception
+   * @param data the deserialized data
+   * @return the series map
    */
-  public void lockForUpdate() throws InterruptedException {
-    lock.lockForUpdate();
-  }
-
-  /**
-   * Release lock.
-   */
-  public void releaseLock() {
-    lock.releaseUpdateLock();
+  @SuppressWarnings("unchecked")
+  private static Map<String, StatsSeries> toSeriesMap(Map<?, ?> data) {
+    if (data == null) {
+      return null;
+    }
+    Map<String, StatsSeries> stats = new TreeMap<>();
+    for (Entry<?, ?> entry : data.entrySet()) {
+      Object value = entry.getValue();
+      if (value instanceof StatsSeries) {
+        stats.put((String) entry.getKey(), (StatsSeries) value);
+      } else if (value instanceof List) {
+        stats.put((String) entry.getKey(), StatsSeries.fromItems((List<XYDataItem>) value));
+      }
+    }
+    return stats;
   }
 
   /**
@@ -330,29 +563,81 @@ public class StatsCollection implements InitializingBean, DisposableBean, Applic
    */
   @Override
   public synchronized void afterPropertiesSet() {
+    configureRollups();
+
     int index = 0;
-    Map<String, List<XYDataItem>> stats;
+    Map<String, StatsSeries> stats;
+    Map<String, StatsRollup[]> rollupStats = new TreeMap<>();
 
     while (true) {
       File file = index == 0 ? makeFile() : new File(makeFile().getAbsolutePath() + "." + index);
-      stats = deserialize(file);
+      stats = deserialize(file, rollupStats);
       index += 1;
       if (stats != null || index >= maxFiles - 1) {
         break;
       }
     }
 
+    if (stats == null && xmlSwapFileName != null && !xmlSwapFileName.equals(swapFileName)) {
+      stats = deserialize(makeFile(xmlSwapFileName), rollupStats);
+      if (stats != null) {
+        logger.info("Imported stats data from '{}'", xmlSwapFileName);
+      }
+    }
+
     if (stats != null) {
-      statsData = stats;
+      statsData.clear();
+      statsData.putAll(stats);
     } else {
       logger.debug("Stats data file not found. Empty file assumed.");
     }
 
+    // rollups written with a different tier configuration are dropped
+    rollupData.clear();
+    for (Map.Entry<String, StatsRollup[]> entry : rollupStats.entrySet()) {
+      if (isConfigured(entry.getValue())) {
+        rollupData.put(entry.getKey(), entry.getValue());
+      }
+    }
+
+    if (journalSegmentSize > 0) {
+      StatsJournal newJournal =
+          new StatsJournal(makeFile().getAbsoluteFile().getParentFile(), swapFileName,
+              journalSegmentSize);
+      long start = System.currentTimeMillis();
+      int replayed = newJournal.replay(statsData);
+      logger.debug("{} journaled samples replayed in {}ms", replayed,
+          System.currentTimeMillis() - start);
+      try {
+        newJournal.open();
+        journal = newJournal;
+      } catch (IOException e) {
+        logger.error("Could not open stats journal, samples will only be saved by snapshots", e);
+      }
+    }
+
+    // adjust stats data so that charts look realistic.
+    // we do that by ending the previous stats group with 0 value
+    // and starting the current stats group also with 0
+    // thus giving the chart nice plunge to zero indicating downtime
+    // and lets not bother about rotating stats;
+    // regular stats collection cycle will do it
+    for (StatsSeries series : statsData.values()) {
+      if (!series.isEmpty()) {
+        series.add(series.getLastTime() + 1, 0);
+        series.add(System.currentTimeMillis(), 0);
+      }
+    }
   }
 
   @Override
   public void destroy() throws Exception {
     serialize();
+    StatsJournal currentJournal = journal;
+    journal = null;
+    if (currentJournal != null) {
+      currentJournal.close();
+    }
   }
 
   @Override
@@ -0,0 +1,573 @@
+/*
+ * Licensed under the GPL License. You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   https://www.gnu.org/licenses/old-licenses/gpl-2.0.html
+ *
+ * THIS PACKAGE IS PROVIDED "AS IS" AND WITHOUT ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING,
+ * WITHOUT LIMITATION, THE IMPLIED WARRANTIES OF MERCHANTIBILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE.
+ */
+package psiprobe.model.stats;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Append-only write-ahead journal of stats samples. Samples are written to memory mapped segment
+ * files of a fixed size, so they survive a crash of the JVM without a syscall per sample. When a
+ * segment is full the journal rotates to the next one.
+ *
+ * <p>
+ * Segments are named {@code <baseName>.journal.<sequence>}. Every segment is self contained: the
+ * stats names are defined in the segment before samples refer to them by id. A record is written
+ * payload first and its type byte last, so a record torn by a crash reads as the end of the
+ * segment.
+ * </p>
+ *
+ * <p>
+ * Appends take no lock: every record reserves its bytes by advancing the write offset of the
+ * segment atomically, then fills them in, so collectors journaling at the same time only contend
+ * on that offset. Only the rotation to a new segment is synchronized. A record reserved but not yet
+ * filled in when the JVM crashes ends the segment, losing the records reserved after it.
+ * </p>
+ *
+ * <p>
+ * Segments are unmapped as soon as the last append writing to them is done, rather than when their
+ * buffers are garbage collected, so that the files of deleted segments are released at once.
+ * </p>
+ *
+ * <p>
+ * After a snapshot has been written the segments it covers are deleted, see {@link #rotate()} and
+ * {@link #deleteSegmentsBefore(long)}. Replaying a segment that is already covered by the snapshot
+ * is harmless, as samples not newer than the last sample of their series are skipped.
+ * </p>
+ */
+public class StatsJournal {
+
+  /** The Constant logger. */
+  private static final Logger logger = LoggerFactory.getLogger(StatsJournal.class);
+
+  /** Record type marking the end of the written part of a segment. */
+  private static final byte END = 0;
+
+  /** Record type defining a stats name: id, capacity, name length, name. */
+  private static final byte DEFINE = 1;
+
+  /** Record type of a sample: id, time, value. */
+  private static final byte SAMPLE = 2;
+
+  /** Record type of a series reset: id. */
+  private static final byte RESET = 3;
+
+  /** The size of a sample record. */
+  private static final int SAMPLE_SIZE = 1 + 4 + 8 + 8;
+
+  /** The size of a reset record. */
+  private static final int RESET_SIZE = 1 + 4;
+
+  /** Unmaps a mapped buffer, null if mapped buffers are only released by the garbage collector. */
+  private static final MethodHandle UNMAP;
+
+  /** The directory holding the segments. */
+  private final File directory;
+
+  /** The segment file name prefix. */
+  private final String prefix;
+
+  /** The segment size. */
+  private final int segmentSize;
+
+  /** The current segment, null if the journal is not open. */
+  private volatile Segment segment;
+
+  /** The current segment sequence number. */
+  private long sequence;
+
+  static {
+    MethodHandle unmap = null;
+    MethodHandles.Lookup lookup = MethodHandles.lookup();
+    try {
+      // Java 9 and later
+      Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+      Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+      theUnsafe.setAccessible(true);
+      unmap = lookup.findVirtual(unsafeClass, "invokeCleaner",
+          MethodType.methodType(void.class, ByteBuffer.class)).bindTo(theUnsafe.get(null));
+    } catch (ReflectiveOperationException | RuntimeException e) {
+      try {
+        // Java 8
+        Method cleaner = Class.forName("java.nio.DirectByteBuffer").getMethod("cleaner");
+        cleaner.setAccessible(true);
+        MethodHandle clean = lookup.findVirtual(Class.forName("sun.misc.Cleaner"), "clean",
+            MethodType.methodType(void.class));
+        unmap = MethodHandles.filterReturnValue(lookup.unreflect(cleaner), clean)
+            .asType(MethodType.methodType(void.class, ByteBuffer.class));
+      } catch (ReflectiveOperationException | RuntimeException e2) {
+        logger.debug("Mapped buffers cannot be unmapped, journal segments are released by the"
+            + " garbage collector");
+        logger.trace("", e2);
+      }
+    }
+    UNMAP = unmap;
+  }
+
+  /**
+   * Instantiates a new stats journal.
+   *
+   * @param directory the directory holding the segments
+   * @param baseName the base name of the segment files
+   * @param segmentSize the segment size in bytes
+   */
+  public StatsJournal(File directory, String baseName, int segmentSize) {
+    this.directory = directory;
+    this.prefix = baseName + ".journal.";
+    this.segmentSize = segmentSize;
+  }
+
+  /**
+   * Replays all segments found on disk into stats data.
+   *
+   * @param statsData the stats data
+   * @return the number of samples replayed
+   */
+  public synchronized int replay(Map<String, StatsSeries> statsData) {
+    int count = 0;
+    for (File segment : listSegments()) {
+      try {
+        count += replay(segment, statsData);
+      } catch (IOException e) {
+        logger.error("Could not replay stats journal '{}'", segment.getAbsolutePath(), e);
+      }
+    }
+    return count;
+  }
+
+  /**
+   * Replays a segment.
+   *
+   * @param segment the segment
+   * @param statsData the stats data
+   * @return the number of samples replayed
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  private int replay(File segment, Map<String, StatsSeries> statsData) throws IOException {
+    Map<Integer, String> names = new HashMap<>();
+    Map<Integer, Integer> capacities = new HashMap<>();
+    int count = 0;
+    try (FileChannel channel = FileChannel.open(segment.toPath(), StandardOpenOption.READ)) {
+      MappedByteBuffer in = channel.map(MapMode.READ_ONLY, 0, channel.size());
+      try {
+        while (in.hasRemaining()) {
+          byte type = in.get();
+          if (type == END) {
+            break;
+          } else if (type == DEFINE) {
+            int id = in.getInt();
+            capacities.put(id, in.getInt());
+            short length = in.getShort();
+            if (length < 0) {
+              break;
+            }
+            byte[] name = new byte[length];
+            in.get(name);
+            names.put(id, new String(name, StandardCharsets.UTF_8));
+          } else if (type == SAMPLE) {
+            int id = in.getInt();
+            long time = in.getLong();
+            double value = in.getDouble();
+            String name = names.get(id);
+            if (name != null) {
+              StatsSeries series = statsData.get(name);
+              if (series == null) {
+                series = new StatsSeries(Math.max(capacities.get(id), 1));
+                statsData.put(name, series);
+              }
+              if (series.isEmpty() || time > series.getLastTime()) {
+                series.add(time, value);
+                count++;
+              }
+            }
+          } else if (type == RESET) {
+            StatsSeries series = statsData.get(names.get(in.getInt()));
+            if (series != null) {
+              series.clear();
+            }
+          } else {
+            break;
+          }
+        }
+      } catch (BufferUnderflowException e) {
+        logger.debug("Stats journal '{}' ends with a partial record", segment.getName());
+      } finally {
+        unmap(in);
+      }
+    }
+    return count;
+  }
+
+  /**
+   * Opens a new segment after the ones found on disk.
+   *
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  public synchronized void open() throws IOException {
+    List<File> segments = listSegments();
+    sequence = segments.isEmpty() ? 0 : sequenceOf(segments.get(segments.size() - 1));
+    openSegment(sequence + 1);
+  }
+
+  /**
+   * Appends a sample.
+   *
+   * @param name the stats name
+   * @param capacity the capacity of the series, used to recreate it on replay
+   * @param time the time
+   * @param value the value
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  public void append(String name, int capacity, long time, double value) throws IOException {
+    for (Segment current = segment; current != null; current = next(current)) {
+      if (!current.acquire()) {
+        continue;
+      }
+      try {
+        int id = current.define(name, capacity, SAMPLE_SIZE);
+        if (id == -2) {
+          return;
+        }
+        int pos = id < 0 ? -1 : current.reserve(SAMPLE_SIZE);
+        if (pos >= 0) {
+          MappedByteBuffer buffer = current.buffer;
+          buffer.putInt(pos + 1, id);
+          buffer.putLong(pos + 5, time);
+          buffer.putDouble(pos + 13, value);
+          buffer.put(pos, SAMPLE);
+          return;
+        }
+      } finally {
+        current.release();
+      }
+    }
+  }
+
+  /**
+   * Records that a series has been reset.
+   *
+   * @param name the stats name
+   * @param capacity the capacity of the series
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  public void reset(String name, int capacity) throws IOException {
+    for (Segment current = segment; current != null; current = next(current)) {
+      if (!current.acquire()) {
+        continue;
+      }
+      try {
+        int id = current.define(name, capacity, RESET_SIZE);
+        if (id == -2) {
+          return;
+        }
+        int pos = id < 0 ? -1 : current.reserve(RESET_SIZE);
+        if (pos >= 0) {
+          current.buffer.putInt(pos + 1, id);
+          current.buffer.put(pos, RESET);
+          return;
+        }
+      } finally {
+        current.release();
+      }
+    }
+  }
+
+  /**
+   * Gets the segment to write to once a segment is full, rotating if no other thread did.
+   *
+   * @param full the full segment, or a retired one
+   * @return the current segment, null if the journal has been closed
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  private synchronized Segment next(Segment full) throws IOException {
+    if (segment == full) {
+      openSegment(sequence + 1);
+    }
+    return segment;
+  }
+
+  /**
+   * Starts a new segment. Samples appended from now on go to the new segment, so once a snapshot
+   * has been written all segments before the returned one may be deleted.
+   *
+   * @return the sequence number of the new segment
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  public synchronized long rotate() throws IOException {
+    openSegment(sequence + 1);
+    return sequence;
+  }
+
+  /**
+   * Deletes segments covered by a snapshot.
+   *
+   * @param firstKept the sequence number of the first segment to keep
+   */
+  public synchronized void deleteSegmentsBefore(long firstKept) {
+    for (File file : listSegments()) {
+      if (sequenceOf(file) < firstKept) {
+        try {
+          Files.deleteIfExists(file.toPath());
+        } catch (IOException e) {
+          logger.warn("Could not delete stats journal '{}'", file.getName(), e);
+        }
+      }
+    }
+  }
+
+  /**
+   * Closes the journal. Segments are left on disk, except for the current one if nothing has been
+   * written to it. The current segment is unmapped once the appends writing to it are done.
+   */
+  public synchronized void close() {
+    Segment current = segment;
+    segment = null;
+    if (current != null) {
+      current.buffer.force();
+      current.retire();
+      if (current.position.get() == 0) {
+        try {
+          Files.deleteIfExists(current.file.toPath());
+        } catch (IOException e) {
+          logger.warn("Could not delete stats journal '{}'", current.file.getName(), e);
+        }
+      }
+    }
+  }
+
+  /**
+   * Opens a segment.
+   *
+   * @param newSequence the new sequence
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  private void openSegment(long newSequence) throws IOException {
+    File file = new File(directory, prefix + newSequence);
+    Segment previous = segment;
+    try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE_NEW,
+        StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+      segment = new Segment(file, channel.map(MapMode.READ_WRITE, 0, segmentSize));
+    }
+    sequence = newSequence;
+    if (previous != null) {
+      previous.retire();
+    }
+  }
+
+  /**
+   * Unmaps a mapped buffer, which must not be accessed anymore.
+   *
+   * @param buffer the buffer
+   */
+  private static void unmap(MappedByteBuffer buffer) {
+    if (UNMAP != null) {
+      try {
+        UNMAP.invokeExact((ByteBuffer) buffer);
+      } catch (Throwable e) {
+        logger.debug("Could not unmap stats journal segment", e);
+      }
+    }
+  }
+
+  /**
+   * Lists the segments on disk, oldest first.
+   *
+   * @return the segments
+   */
+  private List<File> listSegments() {
+    List<File> segments = new ArrayList<>();
+    File[] files = directory.listFiles((dir, name) -> name.startsWith(prefix)
+        && name.length() > prefix.length() && name.substring(prefix.length()).matches("[0-9]+"));
+    if (files != null) {
+      Collections.addAll(segments, files);
+    }
+    segments.sort((f1, f2) -> Long.compare(sequenceOf(f1), sequenceOf(f2)));
+    return segments;
+  }
+
+  /**
+   * Gets the sequence number of a segment.
+   *
+   * @param segment the segment
+   * @return the sequence number
+   */
+  private long sequenceOf(File segment) {
+    return Long.parseLong(segment.getName().substring(prefix.length()));
+  }
+
+  /**
+   * A mapped segment file and its write offset. Records are filled in with absolute puts, which
+   * leave the position of the shared buffer alone, in bytes reserved by one thread only. Appends
+   * acquire the segment while they write to it, a retired segment is unmapped once the last of them
+   * releases it.
+   */
+  private static final class Segment {
+
+    /** The file. */
+    final File file;
+
+    /** The mapped buffer. */
+    final MappedByteBuffer buffer;
+
+    /** The offset the next record is written at, beyond the buffer once the segment is full. */
+    final AtomicInteger position = new AtomicInteger();
+
+    /** The ids of the names defined in the segment. */
+    final ConcurrentMap<String, Integer> ids = new ConcurrentHashMap<>();
+
+    /** The id of the next name defined. */
+    final AtomicInteger nextId = new AtomicInteger();
+
+    /** The number of appends writing to the segment. */
+    private final AtomicInteger writers = new AtomicInteger();
+
+    /** Whether the segment has been replaced or the journal closed. */
+    private volatile boolean retired;
+
+    /** Whether the segment has been unmapped. */
+    private final AtomicBoolean unmapped = new AtomicBoolean();
+
+    /**
+     * Instantiates a new segment.
+     *
+     * @param file the file
+     * @param buffer the mapped buffer
+     */
+    Segment(File file, MappedByteBuffer buffer) {
+      this.file = file;
+      this.buffer = buffer;
+    }
+
+    /**
+     * Acquires the segment for an append.
+     *
+     * @return true, if the segment may be written to until released; false if it has been retired
+     */
+    boolean acquire() {
+      writers.incrementAndGet();
+      if (retired) {
+        release();
+        return false;
+      }
+      return true;
+    }
+
+    /**
+     * Releases the segment after an append, unmapping it if it has been retired meanwhile.
+     */
+    void release() {
+      if (writers.decrementAndGet() == 0 && retired) {
+        unmap();
+      }
+    }
+
+    /**
+     * Retires the segment once it is not the current one anymore, unmapping it if no append is
+     * writing to it.
+     */
+    void retire() {
+      retired = true;
+      if (writers.get() == 0) {
+        unmap();
+      }
+    }
+
+    /**
+     * Unmaps the segment, once.
+     */
+    private void unmap() {
+      if (unmapped.compareAndSet(false, true)) {
+        StatsJournal.unmap(buffer);
+      }
+    }
+
+    /**
+     * Reserves bytes for a record.
+     *
+     * @param size the record size
+     * @return the offset of the reserved bytes, or -1 if the segment is full
+     */
+    int reserve(int size) {
+      int limit = buffer.capacity();
+      if (position.get() > limit - size) {
+        return -1;
+      }
+      int pos = position.getAndAdd(size);
+      return pos <= limit - size ? pos : -1;
+    }
+
+    /**
+     * Makes sure a name is defined in the segment, the definition being written before any record
+     * referring to it is reserved.
+     *
+     * @param name the name
+     * @param capacity the capacity
+     * @param recordSize the size of the record following the definition
+     * @return the id of the name, -1 if the segment is full, or -2 if the record cannot fit in a
+     *         segment
+     */
+    int define(String name, int capacity, int recordSize) {
+      Integer id = ids.get(name);
+      if (id != null) {
+        return id;
+      }
+      byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+      int defineSize = 1 + 4 + 4 + 2 + bytes.length;
+      if (defineSize + recordSize > buffer.capacity() || bytes.length > Short.MAX_VALUE) {
+        logger.warn("Stats name '{}' is too long to be journaled", name);
+        return -2;
+      }
+      id = ids.computeIfAbsent(name, key -> {
+        int pos = reserve(defineSize);
+        if (pos < 0) {
+          return null;
+        }
+        int newId = nextId.getAndIncrement();
+        buffer.putInt(pos + 1, newId);
+        buffer.putInt(pos + 5, capacity);
+        buffer.putShort(pos + 9, (short) bytes.length);
+        for (int i = 0; i < bytes.length; i++) {
+          buffer.put(pos + 11 + i, bytes[i]);
+        }
+        buffer.put(pos, DEFINE);
+        return newId;
+      });
+      return id == null ? -1 : id;
+    }
+
+  }
+
+}
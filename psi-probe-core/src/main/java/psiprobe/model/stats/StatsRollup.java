@@ -0,0 +1,239 @@
+/*
+ * Licensed under the GPL License. You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   https://www.gnu.org/licenses/old-licenses/gpl-2.0.html
+ *
+ * THIS PACKAGE IS PROVIDED "AS IS" AND WITHOUT ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING,
+ * WITHOUT LIMITATION, THE IMPLIED WARRANTIES OF MERCHANTIBILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE.
+ */
+package psiprobe.model.stats;
+
+/**
+ * Downsampled tier of a stats series. Samples are aggregated into buckets of a fixed resolution,
+ * every bucket holding the min, max, sum and count of the samples falling into it. Buckets are
+ * kept in a ring buffer of parallel primitive arrays, like {@link StatsSeries} samples, so a
+ * rollup is maintained incrementally without allocating.
+ *
+ * <p>
+ * Buckets are addressed by index, 0 being the oldest one. Readers that need a consistent view of
+ * several buckets should hold the monitor of the rollup while reading.
+ * </p>
+ */
+public class StatsRollup {
+
+  /** The bucket resolution in milliseconds. */
+  private final long resolution;
+
+  /** The bucket start times. */
+  private final long[] times;
+
+  /** The min values. */
+  private final double[] mins;
+
+  /** The max values. */
+  private final double[] maxs;
+
+  /** The value sums. */
+  private final double[] sums;
+
+  /** The sample counts. */
+  private final int[] counts;
+
+  /** The index of the oldest bucket. */
+  private int head;
+
+  /** The number of buckets held. */
+  private int size;
+
+  /**
+   * Instantiates a new stats rollup.
+   *
+   * @param resolution the bucket resolution in milliseconds
+   * @param capacity the maximum number of buckets held
+   */
+  public StatsRollup(long resolution, int capacity) {
+    if (resolution < 1 || capacity < 1) {
+      throw new IllegalArgumentException(
+          "Invalid rollup resolution " + resolution + " or capacity " + capacity);
+    }
+    this.resolution = resolution;
+    times = new long[capacity];
+    mins = new double[capacity];
+    maxs = new double[capacity];
+    sums = new double[capacity];
+    counts = new int[capacity];
+  }
+
+  /**
+   * Aggregates a sample into its bucket. Samples older than the most recent bucket are ignored.
+   *
+   * @param time the time
+   * @param value the value
+   */
+  public synchronized void add(long time, double value) {
+    long bucketTime = time - Math.floorMod(time, resolution);
+    if (size > 0) {
+      int last = offset(size - 1);
+      if (times[last] == bucketTime) {
+        mins[last] = Math.min(mins[last], value);
+        maxs[last] = Math.max(maxs[last], value);
+        sums[last] += value;
+        counts[last]++;
+        return;
+      } else if (times[last] > bucketTime) {
+        return;
+      }
+    }
+    put(bucketTime, value, value, value, 1);
+  }
+
+  /**
+   * Appends a whole bucket, evicting the oldest one if the rollup is full. Used to restore a rollup
+   * from disk.
+   *
+   * @param time the bucket start time
+   * @param min the min
+   * @param max the max
+   * @param sum the sum
+   * @param count the count
+   */
+  public synchronized void put(long time, double min, double max, double sum, int count) {
+    int capacity = times.length;
+    int tail = head + size;
+    if (tail >= capacity) {
+      tail -= capacity;
+    }
+    times[tail] = time;
+    mins[tail] = min;
+    maxs[tail] = max;
+    sums[tail] = sum;
+    counts[tail] = count;
+    if (size < capacity) {
+      size++;
+    } else {
+      head = head + 1 == capacity ? 0 : head + 1;
+    }
+  }
+
+  /**
+   * Gets the bucket resolution.
+   *
+   * @return the resolution in milliseconds
+   */
+  public long getResolution() {
+    return resolution;
+  }
+
+  /**
+   * Gets the time span covered by a full rollup.
+   *
+   * @return the span in milliseconds
+   */
+  public long getSpan() {
+    return resolution * times.length;
+  }
+
+  /**
+   * Gets the maximum number of buckets held.
+   *
+   * @return the capacity
+   */
+  public int getCapacity() {
+    return times.length;
+  }
+
+  /**
+   * Gets the number of buckets held.
+   *
+   * @return the size
+   */
+  public synchronized int size() {
+    return size;
+  }
+
+  /**
+   * Gets the start time of a bucket.
+   *
+   * @param index the index, 0 being the oldest bucket
+   * @return the time
+   */
+  public synchronized long getTime(int index) {
+    return times[offset(index)];
+  }
+
+  /**
+   * Gets the min value of a bucket.
+   *
+   * @param index the index
+   * @return the min
+   */
+  public synchronized double getMin(int index) {
+    return mins[offset(index)];
+  }
+
+  /**
+   * Gets the max value of a bucket.
+   *
+   * @param index the index
+   * @return the max
+   */
+  public synchronized double getMax(int index) {
+    return maxs[offset(index)];
+  }
+
+  /**
+   * Gets the value sum of a bucket.
+   *
+   * @param index the index
+   * @return the sum
+   */
+  public synchronized double getSum(int index) {
+    return sums[offset(index)];
+  }
+
+  /**
+   * Gets the sample count of a bucket.
+   *
+   * @param index the index
+   * @return the count
+   */
+  public synchronized int getCount(int index) {
+    return counts[offset(index)];
+  }
+
+  /**
+   * Gets the average value of a bucket.
+   *
+   * @param index the index
+   * @return the average
+   */
+  public synchronized double getAverage(int index) {
+    int offset = offset(index);
+    return sums[offset] / counts[offset];
+  }
+
+  /**
+   * Removes all buckets.
+   */
+  public synchronized void clear() {
+    head = 0;
+    size = 0;
+  }
+
+  /**
+   * Translates a logical index into an array offset.
+   *
+   * @param index the index
+   * @return the offset
+   */
+  private int offset(int index) {
+    if (index < 0 || index >= size) {
+      throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+    }
+    int offset = head + index;
+    return offset >= times.length ? offset - times.length : offset;
+  }
+
+}
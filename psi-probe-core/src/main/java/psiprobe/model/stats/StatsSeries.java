@@ -0,0 +1,228 @@
+/*
+ * Licensed under the GPL License. You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   https://www.gnu.org/licenses/old-licenses/gpl-2.0.html
+ *
+ * THIS PACKAGE IS PROVIDED "AS IS" AND WITHOUT ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING,
+ * WITHOUT LIMITATION, THE IMPLIED WARRANTIES OF MERCHANTIBILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE.
+ */
+package psiprobe.model.stats;
+
+import java.util.List;
+
+import org.jfree.data.xy.XYDataItem;
+
+/**
+ * Fixed capacity time series backed by parallel primitive arrays used as a ring buffer. Appending a
+ * sample to a full series overwrites the oldest one, so neither appending nor eviction allocates.
+ *
+ * <p>
+ * Samples are addressed by index, 0 being the oldest one. Readers that need a consistent view of
+ * several samples should hold the monitor of the series while reading, e.g.
+ * </p>
+ *
+ * <pre>
+ * synchronized (series) {
+ *   for (int i = 0; i &lt; series.size(); i++) {
+ *     consume(series.getTime(i), series.getValue(i));
+ *   }
+ * }
+ * </pre>
+ */
+public class StatsSeries {
+
+  /** The sample times. */
+  private long[] times;
+
+  /** The sample values. */
+  private double[] values;
+
+  /** The index of the oldest sample. */
+  private int head;
+
+  /** The number of samples held. */
+  private int size;
+
+  /**
+   * Instantiates a new stats series.
+   *
+   * @param capacity the maximum number of samples held by the series
+   */
+  public StatsSeries(int capacity) {
+    if (capacity < 1) {
+      throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+    }
+    times = new long[capacity];
+    values = new double[capacity];
+  }
+
+  /**
+   * Creates a series from a list of data items as written by older versions of the probe. The
+   * capacity of the series is the size of the list.
+   *
+   * @param items the items
+   * @return the stats series
+   */
+  public static StatsSeries fromItems(List<XYDataItem> items) {
+    StatsSeries series = new StatsSeries(Math.max(items.size(), 1));
+    for (XYDataItem item : items) {
+      if (item != null && item.getX() != null && item.getY() != null) {
+        series.add(item.getX().longValue(), item.getY().doubleValue());
+      }
+    }
+    return series;
+  }
+
+  /**
+   * Appends a sample, evicting the oldest one if the series is full.
+   *
+   * @param time the time
+   * @param value the value
+   */
+  public synchronized void add(long time, double value) {
+    int capacity = times.length;
+    int tail = head + size;
+    if (tail >= capacity) {
+      tail -= capacity;
+    }
+    times[tail] = time;
+    values[tail] = value;
+    if (size < capacity) {
+      size++;
+    } else {
+      head = head + 1 == capacity ? 0 : head + 1;
+    }
+  }
+
+  /**
+   * Gets the time of a sample.
+   *
+   * @param index the index, 0 being the oldest sample
+   * @return the time
+   */
+  public synchronized long getTime(int index) {
+    return times[offset(index)];
+  }
+
+  /**
+   * Gets the value of a sample.
+   *
+   * @param index the index, 0 being the oldest sample
+   * @return the value
+   */
+  public synchronized double getValue(int index) {
+    return values[offset(index)];
+  }
+
+  /**
+   * Gets the time of the most recent sample.
+   *
+   * @return the last time or 0 if the series is empty
+   */
+  public synchronized long getLastTime() {
+    return size == 0 ? 0 : times[offset(size - 1)];
+  }
+
+  /**
+   * Gets the value of the most recent sample.
+   *
+   * @return the last value or 0 if the series is empty
+   */
+  public synchronized double getLastValue() {
+    return size == 0 ? 0 : values[offset(size - 1)];
+  }
+
+  /**
+   * Gets the number of samples held.
+   *
+   * @return the size
+   */
+  public synchronized int size() {
+    return size;
+  }
+
+  /**
+   * Checks if the series holds no samples.
+   *
+   * @return true, if is empty
+   */
+  public synchronized boolean isEmpty() {
+    return size == 0;
+  }
+
+  /**
+   * Gets the maximum number of samples held.
+   *
+   * @return the capacity
+   */
+  public synchronized int getCapacity() {
+    return times.length;
+  }
+
+  /**
+   * Changes the maximum number of samples held. If the series holds more samples than the new
+   * capacity, the oldest ones are discarded.
+   *
+   * @param capacity the new capacity
+   */
+  public synchronized void setCapacity(int capacity) {
+    if (capacity < 1) {
+      throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+    }
+    if (capacity == times.length) {
+      return;
+    }
+    int newSize = Math.min(size, capacity);
+    long[] newTimes = new long[capacity];
+    double[] newValues = new double[capacity];
+    for (int i = 0; i < newSize; i++) {
+      int src = offset(size - newSize + i);
+      newTimes[i] = times[src];
+      newValues[i] = values[src];
+    }
+    times = newTimes;
+    values = newValues;
+    head = 0;
+    size = newSize;
+  }
+
+  /**
+   * Creates a copy of the series, e.g. to work on a consistent view of it without holding its
+   * monitor.
+   *
+   * @return the copy
+   */
+  public synchronized StatsSeries copy() {
+    StatsSeries copy = new StatsSeries(times.length);
+    System.arraycopy(times, 0, copy.times, 0, times.length);
+    System.arraycopy(values, 0, copy.values, 0, values.length);
+    copy.head = head;
+    copy.size = size;
+    return copy;
+  }
+
+  /**
+   * Removes all samples.
+   */
+  public synchronized void clear() {
+    head = 0;
+    size = 0;
+  }
+
+  /**
+   * Translates a logical index into an array offset.
+   *
+   * @param index the index
+   * @return the offset
+   */
+  private int offset(int index) {
+    if (index < 0 || index >= size) {
+      throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+    }
+    int offset = head + index;
+    return offset >= times.length ? offset - times.length : offset;
+  }
+
+}
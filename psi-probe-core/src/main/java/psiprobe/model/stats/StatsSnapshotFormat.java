@@ -0,0 +1,345 @@
+/*
+ * Licensed under the GPL License. You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   https://www.gnu.org/licenses/old-licenses/gpl-2.0.html
+ *
+ * THIS PACKAGE IS PROVIDED "AS IS" AND WITHOUT ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING,
+ * WITHOUT LIMITATION, THE IMPLIED WARRANTIES OF MERCHANTIBILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE.
+ */
+package psiprobe.model.stats;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Versioned binary snapshot format for stats data. The snapshot is columnar: every series is
+ * written as its block of times followed by its block of values.
+ *
+ * <p>
+ * Times are delta encoded as variable length integers, collection periods being regular this
+ * usually takes one or two bytes per sample. Series holding only integral values, which is the case
+ * for everything but percentage stats, get their values delta encoded the same way. Other series
+ * are written as raw doubles.
+ * </p>
+ *
+ * <p>
+ * Since version 2 the series are followed by their rollups. Version 1 snapshots, which have no
+ * rollups, are still read.
+ * </p>
+ *
+ * <pre>
+ * snapshot := MAGIC version:short count:int series* rollupCount:int rollups*
+ * series   := name:UTF capacity:int size:int encoding:byte times values
+ * rollups  := name:UTF tiers:byte tier*
+ * tier     := resolution:long capacity:int size:int times (min max sum count)*
+ * </pre>
+ */
+public final class StatsSnapshotFormat {
+
+  /** The magic number starting every snapshot, "PSIS". */
+  public static final int MAGIC = 0x50534953;
+
+  /** The current format version. */
+  public static final short VERSION = 2;
+
+  /** The first format version holding rollups. */
+  private static final short VERSION_ROLLUPS = 2;
+
+  /** Series encoding flag, values are zigzag delta encoded longs rather than raw doubles. */
+  private static final int ENCODING_INTEGRAL_VALUES = 1;
+
+  /** The buffer size. */
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  /**
+   * Prevent Instantiation.
+   */
+  private StatsSnapshotFormat() {
+    // Prevent Instantiation
+  }
+
+  /**
+   * Checks if a stream starts with a binary snapshot. The stream must support mark/reset.
+   *
+   * @param in the input stream
+   * @return true, if the stream holds a binary snapshot
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  public static boolean isSnapshot(InputStream in) throws IOException {
+    in.mark(4);
+    try {
+      return new DataInputStream(in).readInt() == MAGIC;
+    } catch (EOFException e) {
+      return false;
+    } finally {
+      in.reset();
+    }
+  }
+
+  /**
+   * Writes stats data.
+   *
+   * @param statsData the stats data
+   * @param out the output stream, not closed by this method
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  public static void write(Map<String, StatsSeries> statsData, OutputStream out)
+      throws IOException {
+    write(statsData, Collections.<String, StatsRollup[]>emptyMap(), out);
+  }
+
+  /**
+   * Writes stats data and rollups.
+   *
+   * @param statsData the stats data
+   * @param rollupData the rollups of the stats series
+   * @param out the output stream, not closed by this method
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  public static void write(Map<String, StatsSeries> statsData,
+      Map<String, StatsRollup[]> rollupData, OutputStream out) throws IOException {
+    DataOutputStream dos = new DataOutputStream(new BufferedOutputStream(out, BUFFER_SIZE));
+    dos.writeInt(MAGIC);
+    dos.writeShort(VERSION);
+    dos.writeInt(statsData.size());
+    for (Map.Entry<String, StatsSeries> entry : statsData.entrySet()) {
+      dos.writeUTF(entry.getKey());
+      writeSeries(entry.getValue(), dos);
+    }
+    dos.writeInt(rollupData.size());
+    for (Map.Entry<String, StatsRollup[]> entry : rollupData.entrySet()) {
+      dos.writeUTF(entry.getKey());
+      dos.writeByte(entry.getValue().length);
+      for (StatsRollup rollup : entry.getValue()) {
+        writeRollup(rollup, dos);
+      }
+    }
+    dos.flush();
+  }
+
+  /**
+   * Reads stats data.
+   *
+   * @param in the input stream, not closed by this method
+   * @return the stats data
+   * @throws IOException Signals that an I/O exception has occurred, or the stream does not hold a
+   *         supported snapshot.
+   */
+  public static Map<String, StatsSeries> read(InputStream in) throws IOException {
+    return read(in, new TreeMap<String, StatsRollup[]>());
+  }
+
+  /**
+   * Reads stats data and rollups.
+   *
+   * @param in the input stream, not closed by this method
+   * @param rollupData the map the rollups read are put into
+   * @return the stats data
+   * @throws IOException Signals that an I/O exception has occurred, or the stream does not hold a
+   *         supported snapshot.
+   */
+  public static Map<String, StatsSeries> read(InputStream in,
+      Map<String, StatsRollup[]> rollupData) throws IOException {
+    DataInputStream dis = new DataInputStream(new BufferedInputStream(in, BUFFER_SIZE));
+    if (dis.readInt() != MAGIC) {
+      throw new IOException("Not a stats snapshot");
+    }
+    short version = dis.readShort();
+    if (version < 1 || version > VERSION) {
+      throw new IOException("Unsupported stats snapshot version " + version);
+    }
+    int count = dis.readInt();
+    Map<String, StatsSeries> statsData = new TreeMap<>();
+    for (int i = 0; i < count; i++) {
+      String name = dis.readUTF();
+      statsData.put(name, readSeries(dis));
+    }
+    if (version >= VERSION_ROLLUPS) {
+      int rollupCount = dis.readInt();
+      for (int i = 0; i < rollupCount; i++) {
+        String name = dis.readUTF();
+        StatsRollup[] tiers = new StatsRollup[dis.readUnsignedByte()];
+        for (int j = 0; j < tiers.length; j++) {
+          tiers[j] = readRollup(dis);
+        }
+        rollupData.put(name, tiers);
+      }
+    }
+    return statsData;
+  }
+
+  /**
+   * Writes a series.
+   *
+   * @param series the series
+   * @param dos the output
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  private static void writeSeries(StatsSeries series, DataOutputStream dos) throws IOException {
+    synchronized (series) {
+      int size = series.size();
+      boolean integral = true;
+      for (int i = 0; i < size && integral; i++) {
+        double value = series.getValue(i);
+        integral = value == (long) value;
+      }
+      dos.writeInt(series.getCapacity());
+      dos.writeInt(size);
+      dos.writeByte(integral ? ENCODING_INTEGRAL_VALUES : 0);
+
+      long previousTime = 0;
+      for (int i = 0; i < size; i++) {
+        long time = series.getTime(i);
+        writeVarLong(dos, time - previousTime);
+        previousTime = time;
+      }
+      long previousValue = 0;
+      for (int i = 0; i < size; i++) {
+        if (integral) {
+          long value = (long) series.getValue(i);
+          writeVarLong(dos, value - previousValue);
+          previousValue = value;
+        } else {
+          dos.writeDouble(series.getValue(i));
+        }
+      }
+    }
+  }
+
+  /**
+   * Reads a series.
+   *
+   * @param dis the input
+   * @return the stats series
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  private static StatsSeries readSeries(DataInputStream dis) throws IOException {
+    int capacity = dis.readInt();
+    int size = dis.readInt();
+    int encoding = dis.readByte();
+    if (capacity < 1 || size < 0 || size > capacity) {
+      throw new IOException("Corrupt stats snapshot, capacity " + capacity + ", size " + size);
+    }
+    long[] times = new long[size];
+    long previousTime = 0;
+    for (int i = 0; i < size; i++) {
+      previousTime += readVarLong(dis);
+      times[i] = previousTime;
+    }
+    StatsSeries series = new StatsSeries(capacity);
+    long previousValue = 0;
+    for (int i = 0; i < size; i++) {
+      if ((encoding & ENCODING_INTEGRAL_VALUES) != 0) {
+        previousValue += readVarLong(dis);
+        series.add(times[i], previousValue);
+      } else {
+        series.add(times[i], dis.readDouble());
+      }
+    }
+    return series;
+  }
+
+  /**
+   * Writes a rollup.
+   *
+   * @param rollup the rollup
+   * @param dos the output
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  private static void writeRollup(StatsRollup rollup, DataOutputStream dos) throws IOException {
+    synchronized (rollup) {
+      int size = rollup.size();
+      dos.writeLong(rollup.getResolution());
+      dos.writeInt(rollup.getCapacity());
+      dos.writeInt(size);
+      long previousTime = 0;
+      for (int i = 0; i < size; i++) {
+        long time = rollup.getTime(i);
+        writeVarLong(dos, time - previousTime);
+        previousTime = time;
+      }
+      for (int i = 0; i < size; i++) {
+        dos.writeDouble(rollup.getMin(i));
+        dos.writeDouble(rollup.getMax(i));
+        dos.writeDouble(rollup.getSum(i));
+        writeVarLong(dos, rollup.getCount(i));
+      }
+    }
+  }
+
+  /**
+   * Reads a rollup.
+   *
+   * @param dis the input
+   * @return the stats rollup
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  private static StatsRollup readRollup(DataInputStream dis) throws IOException {
+    long resolution = dis.readLong();
+    int capacity = dis.readInt();
+    int size = dis.readInt();
+    if (resolution < 1 || capacity < 1 || size < 0 || size > capacity) {
+      throw new IOException("Corrupt stats snapshot, resolution " + resolution + ", capacity "
+          + capacity + ", size " + size);
+    }
+    long[] times = new long[size];
+    long previousTime = 0;
+    for (int i = 0; i < size; i++) {
+      previousTime += readVarLong(dis);
+      times[i] = previousTime;
+    }
+    StatsRollup rollup = new StatsRollup(resolution, capacity);
+    for (int i = 0; i < size; i++) {
+      rollup.put(times[i], dis.readDouble(), dis.readDouble(), dis.readDouble(),
+          (int) readVarLong(dis));
+    }
+    return rollup;
+  }
+
+  /**
+   * Writes a zigzag encoded variable length long.
+   *
+   * @param dos the output
+   * @param value the value
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  static void writeVarLong(DataOutputStream dos, long value) throws IOException {
+    long zigzag = value << 1 ^ value >> 63;
+    while ((zigzag & ~0x7FL) != 0) {
+      dos.writeByte((int) (zigzag & 0x7F | 0x80));
+      zigzag >>>= 7;
+    }
+    dos.writeByte((int) zigzag);
+  }
+
+  /**
+   * Reads a zigzag encoded variable length long.
+   *
+   * @param dis the input
+   * @return the long
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  static long readVarLong(DataInputStream dis) throws IOException {
+    long zigzag = 0;
+    for (int shift = 0; shift < 64; shift += 7) {
+      int b = dis.readUnsignedByte();
+      zigzag |= (long) (b & 0x7F) << shift;
+      if ((b & 0x80) == 0) {
+        return zigzag >>> 1 ^ -(zigzag & 1);
+      }
+    }
+    throw new IOException("Malformed variable length long");
+  }
+
+}
@@ -31,7 +31,7 @@ public class DatasourceStatsJobDetail extends MethodInvokingJobDetailFactoryBean
   }
 
   @Override
-  @Value("collect")
+  @Value("execute")
   public void setTargetMethod(String targetMethod) {
     super.setTargetMethod(targetMethod);
   }
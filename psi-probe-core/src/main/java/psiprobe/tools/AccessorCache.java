@@ -0,0 +1,210 @@
+/*
+ * Licensed under the GPL License. You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   https://www.gnu.org/licenses/old-licenses/gpl-2.0.html
+ *
+ * THIS PACKAGE IS PROVIDED "AS IS" AND WITHOUT ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING,
+ * WITHOUT LIMITATION, THE IMPLIED WARRANTIES OF MERCHANTIBILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE.
+ */
+package psiprobe.tools;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.commons.lang3.ClassUtils;
+import org.apache.commons.lang3.reflect.FieldUtils;
+import org.apache.commons.lang3.reflect.MethodUtils;
+
+/**
+ * Reflective access to the objects of other class loaders, e.g. the loggers of applications, with
+ * every method and field looked up once per class and name, and argument types for methods, into a
+ * {@link MethodHandle} which is then reused.
+ *
+ * <p>
+ * Handles are held by the classes they were looked up in, through a {@link ClassValue}, so they go
+ * away along with the class loaders of applications. Keys and values are JDK types only, which
+ * keeps classes of applications from holding on to the class loader of the probe.
+ * </p>
+ */
+public final class AccessorCache {
+
+  /** The method handles, by name and argument types, empty if the method is not cached. */
+  private static final ClassValue<Map<List<Object>, Optional<MethodHandle>>> METHODS =
+      new ClassValue<Map<List<Object>, Optional<MethodHandle>>>() {
+        @Override
+        protected Map<List<Object>, Optional<MethodHandle>> computeValue(Class<?> type) {
+          return new ConcurrentHashMap<>();
+        }
+      };
+
+  /** The field getter handles, by name, empty if there is no such field. */
+  private static final ClassValue<Map<String, Optional<MethodHandle>>> FIELDS =
+      new ClassValue<Map<String, Optional<MethodHandle>>>() {
+        @Override
+        protected Map<String, Optional<MethodHandle>> computeValue(Class<?> type) {
+          return new ConcurrentHashMap<>();
+        }
+      };
+
+  /** The shared instances, by class name. */
+  private static final Map<String, Object> INSTANCES = new ConcurrentHashMap<>();
+
+  /**
+   * Prevent Instantiation.
+   */
+  private AccessorCache() {
+    // Prevent Instantiation
+  }
+
+  /**
+   * Invokes the public method of an object best matching the types of the arguments, as does
+   * {@link MethodUtils#invokeMethod(Object, String, Object...)}. Static methods may be invoked
+   * through an instance of their class.
+   *
+   * @param object the object
+   * @param name the method name
+   * @param args the arguments
+   * @return the value returned by the method, null if void
+   * @throws NoSuchMethodException if there is no such accessible method
+   * @throws IllegalAccessException if the method cannot be accessed
+   * @throws InvocationTargetException if the method throws an exception
+   */
+  public static Object invokeMethod(Object object, String name, Object... args)
+      throws NoSuchMethodException, IllegalAccessException, InvocationTargetException {
+
+    Object[] arguments = args == null ? new Object[0] : args;
+    Class<?>[] argTypes = ClassUtils.toClass(arguments);
+    List<Object> key = new ArrayList<>(argTypes.length + 1);
+    key.add(name);
+    key.addAll(Arrays.asList(argTypes));
+    Optional<MethodHandle> handle = METHODS.get(object.getClass()).computeIfAbsent(key,
+        k -> Optional.ofNullable(findMethod(object.getClass(), name, argTypes)));
+    if (!handle.isPresent()) {
+      // variable arity or not accessible through a method handle, left to reflection
+      return MethodUtils.invokeMethod(object, name, arguments);
+    }
+    try {
+      return handle.get().invokeExact(object, arguments);
+    } catch (Throwable e) {
+      throw new InvocationTargetException(e);
+    }
+  }
+
+  /**
+   * Reads a field of an object, whatever its visibility, as does
+   * {@link FieldUtils#readField(Object, String, boolean)}.
+   *
+   * @param object the object
+   * @param name the field name
+   * @return the value of the field
+   * @throws IllegalArgumentException if there is no such field
+   * @throws IllegalAccessException if the field cannot be accessed
+   */
+  public static Object readField(Object object, String name) throws IllegalAccessException {
+    Map<String, Optional<MethodHandle>> getters = FIELDS.get(object.getClass());
+    Optional<MethodHandle> getter = getters.get(name);
+    if (getter == null) {
+      // looked up outside of computeIfAbsent, so that access failures reach the caller uncached
+      getter = Optional.ofNullable(findGetter(object.getClass(), name));
+      getters.putIfAbsent(name, getter);
+    }
+    if (!getter.isPresent()) {
+      throw new IllegalArgumentException(
+          "Cannot locate field " + name + " on " + object.getClass());
+    }
+    try {
+      return getter.get().invokeExact(object);
+    } catch (RuntimeException | Error e) {
+      throw e;
+    } catch (Throwable e) {
+      IllegalAccessException failure =
+          new IllegalAccessException("Cannot read field " + name + " on " + object.getClass());
+      failure.initCause(e);
+      throw failure;
+    }
+  }
+
+  /**
+   * Gets the shared instance of a class, created with its no argument constructor on first use.
+   * Instances must be stateless, or thread safe.
+   *
+   * @param <T> the expected type
+   * @param className the class name
+   * @param type the expected type
+   * @return the instance
+   * @throws ReflectiveOperationException if the class cannot be loaded or instantiated
+   */
+  public static <T> T getInstance(String className, Class<T> type)
+      throws ReflectiveOperationException {
+
+    Object instance = INSTANCES.get(className);
+    if (instance == null) {
+      instance = Class.forName(className).getDeclaredConstructor().newInstance();
+      Object existing = INSTANCES.putIfAbsent(className, instance);
+      if (existing != null) {
+        instance = existing;
+      }
+    }
+    return type.cast(instance);
+  }
+
+  /**
+   * Finds a method, as a handle taking the object and an array of arguments.
+   *
+   * @param type the class of the object
+   * @param name the name
+   * @param argTypes the argument types
+   * @return the handle, null if there is no accessible fixed arity method
+   */
+  private static MethodHandle findMethod(Class<?> type, String name, Class<?>[] argTypes) {
+    Method method = MethodUtils.getMatchingAccessibleMethod(type, name, argTypes);
+    if (method == null || method.isVarArgs()) {
+      return null;
+    }
+    try {
+      MethodHandle handle = MethodHandles.publicLookup().unreflect(method);
+      if (Modifier.isStatic(method.getModifiers())) {
+        handle = MethodHandles.dropArguments(handle, 0, Object.class);
+      }
+      return handle.asType(MethodType.genericMethodType(argTypes.length + 1))
+          .asSpreader(Object[].class, argTypes.length);
+    } catch (IllegalAccessException e) {
+      return null;
+    }
+  }
+
+  /**
+   * Finds a field, as a getter handle taking the object.
+   *
+   * @param type the class of the object
+   * @param name the name
+   * @return the handle, null if there is no such field
+   * @throws IllegalAccessException if the field cannot be accessed
+   */
+  private static MethodHandle findGetter(Class<?> type, String name)
+      throws IllegalAccessException {
+    Field field = FieldUtils.getField(type, name, true);
+    if (field == null) {
+      return null;
+    }
+    MethodHandle handle = MethodHandles.lookup().unreflectGetter(field);
+    if (Modifier.isStatic(field.getModifiers())) {
+      handle = MethodHandles.dropArguments(handle, 0, Object.class);
+    }
+    return handle.asType(MethodType.genericMethodType(1));
+  }
+
+}
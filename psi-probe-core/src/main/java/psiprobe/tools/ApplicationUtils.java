@@ -16,10 +16,8 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Date;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
-import java.util.Set;
 
 import javax.naming.NamingException;
 import javax.servlet.ServletContext;
@@ -30,7 +28,6 @@ import org.apache.catalina.Context;
 import org.apache.catalina.Session;
 import org.apache.catalina.Wrapper;
 import org.apache.catalina.core.StandardWrapper;
-import org.apache.commons.lang3.reflect.MethodUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.util.ClassUtils;
@@ -237,7 +234,7 @@ public final class ApplicationUtils {
       // Tomcat 8+ dropped support of getInfo off session. This patch allows it to continue working
       // for tomcat 7.
       try {
-        Object info = MethodUtils.invokeMethod(session, "getInfo");
+        Object info = AccessorCache.invokeMethod(session, "getInfo");
         sbean.setInfo(String.valueOf(info));
       } catch (NoSuchMethodException | IllegalAccessException | InvocationTargetException e) {
         sbean.setInfo(session.getClass().getSimpleName());
@@ -249,7 +246,7 @@ public final class ApplicationUtils {
       long size = 0;
 
       HttpSession httpSession = session.getSession();
-      Set<Object> processedObjects = new HashSet<>(1000);
+      IdentityObjectSet processedObjects = new IdentityObjectSet();
 
       // Exclude references back to the session itself
       processedObjects.add(httpSession);
@@ -301,6 +298,36 @@ public final class ApplicationUtils {
     return sbean;
   }
 
+  /**
+   * Gets the size of a session, the size of its attributes, without building its
+   * {@link ApplicationSession}.
+   *
+   * @param session the session
+   * @return the size, 0 if the session is no longer valid
+   */
+  public static long getSessionSize(Session session) {
+    long size = 0;
+    if (session != null && session.isValid()) {
+      HttpSession httpSession = session.getSession();
+      IdentityObjectSet processedObjects = new IdentityObjectSet();
+      processedObjects.add(httpSession);
+      try {
+        for (String name : Collections.list(httpSession.getAttributeNames())) {
+          try {
+            size += Instruments.sizeOf(name, processedObjects);
+            size += Instruments.sizeOf(httpSession.getAttribute(name), processedObjects);
+          } catch (Exception ex) {
+            logger.error("Cannot estimate size of attribute '{}'", name, ex);
+          }
+        }
+      } catch (IllegalStateException e) {
+        logger.info("Session appears to be invalidated, ignore");
+        logger.trace("", e);
+      }
+    }
+    return size;
+  }
+
   /**
    * Gets the application attributes.
    *
@@ -384,7 +411,7 @@ public final class ApplicationUtils {
       // resulted in class being loaded if not already. This is why Null is returned
       // now.
       try {
-        Object singleThreaded = MethodUtils.invokeMethod(sw, "isSingleThreadModel");
+        Object singleThreaded = AccessorCache.invokeMethod(sw, "isSingleThreadModel");
         if (singleThreaded == null) {
           si.setSingleThreaded(false);
         } else {
@@ -0,0 +1,427 @@
+/*
+ * Licensed under the GPL License. You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   https://www.gnu.org/licenses/old-licenses/gpl-2.0.html
+ *
+ * THIS PACKAGE IS PROVIDED "AS IS" AND WITHOUT ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING,
+ * WITHOUT LIMITATION, THE IMPLIED WARRANTIES OF MERCHANTIBILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE.
+ */
+package psiprobe.tools;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Streams files into a ZIP or tar.gz archive, compressing them with a
+ * {@link ParallelDeflaterOutputStream}. Archives are written as they go, ZIP entries having their
+ * sizes and checksum written after their data, so nothing but the blocks being compressed is held
+ * in memory.
+ *
+ * <p>
+ * Files still being written to are archived as they were when reached, up to the size they had
+ * then. ZIP64 extensions are used for files of 4 GB or more, and for archives beyond the limits of
+ * ZIP.
+ * </p>
+ */
+public class ArchiveWriter {
+
+  /** The size of the files from which ZIP64 sizes are used, leaving room for deflate overhead. */
+  private static final long ZIP64_SIZE = 0xF0000000L;
+
+  /** The largest 32 bit unsigned value, standing for a ZIP64 value. */
+  private static final long ZIP64_MAGIC = 0xFFFFFFFFL;
+
+  /** The size of tar blocks. */
+  private static final int TAR_BLOCK = 512;
+
+  /** The largest size of a tar entry written in octal. */
+  private static final long TAR_MAX_OCTAL_SIZE = 077777777777L;
+
+  /** The executor. */
+  private final ExecutorService executor;
+
+  /** The compression level. */
+  private final int level;
+
+  /** The block size. */
+  private final int blockSize;
+
+  /** The number of blocks compressed or waiting to be written, at most. */
+  private final int maxPendingBlocks;
+
+  /**
+   * Instantiates a new archive writer.
+   *
+   * @param executor the executor blocks are compressed on
+   * @param level the compression level
+   * @param blockSize the block size
+   * @param maxPendingBlocks the number of blocks compressed or waiting to be written, at most
+   */
+  public ArchiveWriter(ExecutorService executor, int level, int blockSize, int maxPendingBlocks) {
+    this.executor = executor;
+    this.level = level;
+    this.blockSize = blockSize;
+    this.maxPendingBlocks = maxPendingBlocks;
+  }
+
+  /**
+   * Writes a ZIP archive.
+   *
+   * @param files the files, by entry name
+   * @param output the output, left open
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  public void writeZip(Map<String, File> files, OutputStream output) throws IOException {
+    CountingOutputStream out = new CountingOutputStream(output);
+    List<ZipEntryInfo> entries = new ArrayList<>(files.size());
+    for (Map.Entry<String, File> file : files.entrySet()) {
+      ZipEntryInfo entry = new ZipEntryInfo();
+      entry.name = file.getKey().getBytes(StandardCharsets.UTF_8);
+      entry.time = toDosTime(file.getValue().lastModified());
+      long size = file.getValue().length();
+      entry.zip64 = size >= ZIP64_SIZE;
+      entry.offset = out.count;
+
+      ByteBuffer header = buffer(30 + entry.name.length + (entry.zip64 ? 20 : 0));
+      header.putInt(0x04034b50).putShort(entry.version()).putShort(entry.flags())
+          .putShort((short) 8).putInt(entry.time).putInt(0);
+      if (entry.zip64) {
+        header.putInt((int) ZIP64_MAGIC).putInt((int) ZIP64_MAGIC);
+      } else {
+        header.putInt(0).putInt(0);
+      }
+      header.putShort((short) entry.name.length).putShort((short) (entry.zip64 ? 20 : 0))
+          .put(entry.name);
+      if (entry.zip64) {
+        header.putShort((short) 0x0001).putShort((short) 16).putLong(0).putLong(0);
+      }
+      out.write(header.array());
+
+      ParallelDeflaterOutputStream deflater = newDeflater(out);
+      copy(file.getValue(), size, deflater);
+      deflater.finish();
+      entry.crc = deflater.getCrc();
+      entry.size = deflater.getBytesRead();
+      entry.compressedSize = deflater.getBytesWritten();
+
+      ByteBuffer descriptor = buffer(entry.zip64 ? 24 : 16);
+      descriptor.putInt(0x08074b50).putInt((int) entry.crc);
+      if (entry.zip64) {
+        descriptor.putLong(entry.compressedSize).putLong(entry.size);
+      } else {
+        descriptor.putInt((int) entry.compressedSize).putInt((int) entry.size);
+      }
+      out.write(descriptor.array());
+      entries.add(entry);
+      out.flush();
+    }
+
+    long directoryOffset = out.count;
+    for (ZipEntryInfo entry : entries) {
+      boolean bigSize = entry.size >= ZIP64_MAGIC || entry.compressedSize >= ZIP64_MAGIC;
+      boolean bigOffset = entry.offset >= ZIP64_MAGIC;
+      int extraLength = bigSize || bigOffset ? 4 + (bigSize ? 16 : 0) + (bigOffset ? 8 : 0) : 0;
+      ByteBuffer header = buffer(46 + entry.name.length + extraLength);
+      header.putInt(0x02014b50).putShort(entry.version()).putShort(entry.version())
+          .putShort(entry.flags()).putShort((short) 8).putInt(entry.time)
+          .putInt((int) entry.crc)
+          .putInt((int) (bigSize ? ZIP64_MAGIC : entry.compressedSize))
+          .putInt((int) (bigSize ? ZIP64_MAGIC : entry.size))
+          .putShort((short) entry.name.length).putShort((short) extraLength)
+          .putShort((short) 0).putShort((short) 0).putShort((short) 0).putInt(0)
+          .putInt((int) (bigOffset ? ZIP64_MAGIC : entry.offset)).put(entry.name);
+      if (extraLength > 0) {
+        header.putShort((short) 0x0001).putShort((short) (extraLength - 4));
+        if (bigSize) {
+          header.putLong(entry.size).putLong(entry.compressedSize);
+        }
+        if (bigOffset) {
+          header.putLong(entry.offset);
+        }
+      }
+      out.write(header.array());
+    }
+    long directoryEnd = out.count;
+    long directorySize = directoryEnd - directoryOffset;
+
+    boolean zip64 = entries.size() >= 0xFFFF || directoryOffset >= ZIP64_MAGIC
+        || directorySize >= ZIP64_MAGIC;
+    if (zip64) {
+      ByteBuffer zip64End = buffer(56 + 20);
+      zip64End.putInt(0x06064b50).putLong(44).putShort((short) 45).putShort((short) 45).putInt(0)
+          .putInt(0).putLong(entries.size()).putLong(entries.size()).putLong(directorySize)
+          .putLong(directoryOffset);
+      zip64End.putInt(0x07064b50).putInt(0).putLong(directoryEnd).putInt(1);
+      out.write(zip64End.array());
+    }
+    ByteBuffer end = buffer(22);
+    end.putInt(0x06054b50).putShort((short) 0).putShort((short) 0)
+        .putShort((short) Math.min(entries.size(), 0xFFFF))
+        .putShort((short) Math.min(entries.size(), 0xFFFF))
+        .putInt((int) Math.min(directorySize, ZIP64_MAGIC))
+        .putInt((int) Math.min(directoryOffset, ZIP64_MAGIC)).putShort((short) 0);
+    out.write(end.array());
+    out.flush();
+  }
+
+  /**
+   * Writes a gzip compressed tar archive.
+   *
+   * @param files the files, by entry name
+   * @param output the output, left open
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  public void writeTarGz(Map<String, File> files, OutputStream output) throws IOException {
+    ByteBuffer header = buffer(10);
+    header.put((byte) 0x1f).put((byte) 0x8b).put((byte) 8).put((byte) 0)
+        .putInt((int) (System.currentTimeMillis() / 1000)).put((byte) 0).put((byte) 3);
+    output.write(header.array());
+
+    ParallelDeflaterOutputStream tar = newDeflater(output);
+    for (Map.Entry<String, File> file : files.entrySet()) {
+      long size = file.getValue().length();
+      long mtime = file.getValue().lastModified() / 1000;
+      byte[] name = file.getKey().getBytes(StandardCharsets.UTF_8);
+      if (name.length > 100) {
+        // GNU long name, in an entry of its own preceding the file
+        tar.write(tarHeader("././@LongLink".getBytes(StandardCharsets.US_ASCII), name.length + 1,
+            0, 'L'));
+        tar.write(name);
+        tar.write(new byte[TAR_BLOCK - name.length % TAR_BLOCK]);
+      }
+      tar.write(tarHeader(name, size, mtime, '0'));
+      long copied = copy(file.getValue(), size, tar);
+      // the size was written ahead, a file truncated since is padded
+      long padding = size - copied + (TAR_BLOCK - size % TAR_BLOCK) % TAR_BLOCK;
+      byte[] zeros = new byte[TAR_BLOCK];
+      while (padding > 0) {
+        int length = (int) Math.min(padding, zeros.length);
+        tar.write(zeros, 0, length);
+        padding -= length;
+      }
+      tar.flush();
+    }
+    tar.write(new byte[2 * TAR_BLOCK]);
+    tar.finish();
+
+    ByteBuffer trailer = buffer(8);
+    trailer.putInt((int) tar.getCrc()).putInt((int) tar.getBytesRead());
+    output.write(trailer.array());
+    output.flush();
+  }
+
+  /**
+   * Creates a deflater stream.
+   *
+   * @param out the underlying stream
+   * @return the deflater stream
+   */
+  private ParallelDeflaterOutputStream newDeflater(OutputStream out) {
+    return new ParallelDeflaterOutputStream(out, executor, level, blockSize, maxPendingBlocks);
+  }
+
+  /**
+   * Copies the start of a file.
+   *
+   * @param file the file
+   * @param size the number of bytes to copy
+   * @param out the output
+   * @return the number of bytes copied, less than the size if the file is shorter
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  private static long copy(File file, long size, OutputStream out) throws IOException {
+    long copied = 0;
+    byte[] buffer = new byte[64 * 1024];
+    try (InputStream in = new FileInputStream(file)) {
+      int n;
+      while (copied < size
+          && (n = in.read(buffer, 0, (int) Math.min(buffer.length, size - copied))) > 0) {
+        out.write(buffer, 0, n);
+        copied += n;
+      }
+    }
+    return copied;
+  }
+
+  /**
+   * Builds a ustar header.
+   *
+   * @param name the name, at most 100 bytes are written
+   * @param size the size
+   * @param mtime the modification time in seconds
+   * @param type the entry type
+   * @return the header
+   */
+  static byte[] tarHeader(byte[] name, long size, long mtime, char type) {
+    byte[] header = new byte[TAR_BLOCK];
+    System.arraycopy(name, 0, header, 0, Math.min(name.length, 100));
+    putOctal(header, 100, 8, 0644);
+    putOctal(header, 108, 8, 0);
+    putOctal(header, 116, 8, 0);
+    if (size <= TAR_MAX_OCTAL_SIZE) {
+      putOctal(header, 124, 12, size);
+    } else {
+      // base-256, as GNU tar does for large files
+      header[124] = (byte) 0x80;
+      for (int i = 0; i < 8; i++) {
+        header[135 - i] = (byte) (size >>> (8 * i));
+      }
+    }
+    putOctal(header, 136, 12, mtime);
+    header[156] = (byte) type;
+    System.arraycopy("ustar\0".getBytes(StandardCharsets.US_ASCII), 0, header, 257, 6);
+    header[263] = '0';
+    header[264] = '0';
+    // the checksum is computed with its own field filled with spaces
+    for (int i = 148; i < 156; i++) {
+      header[i] = ' ';
+    }
+    long checksum = 0;
+    for (byte b : header) {
+      checksum += b & 0xff;
+    }
+    putOctal(header, 148, 7, checksum);
+    return header;
+  }
+
+  /**
+   * Writes a NUL terminated octal number, padded with zeros.
+   *
+   * @param header the header
+   * @param offset the offset of the field
+   * @param length the length of the field, the NUL included
+   * @param value the value
+   */
+  private static void putOctal(byte[] header, int offset, int length, long value) {
+    String octal = Long.toOctalString(value);
+    int digits = length - 1;
+    for (int i = 0; i < digits; i++) {
+      int index = octal.length() - digits + i;
+      header[offset + i] = (byte) (index < 0 ? '0' : octal.charAt(index));
+    }
+    header[offset + digits] = 0;
+  }
+
+  /**
+   * Converts a time to MS-DOS date and time, as found in ZIP headers.
+   *
+   * @param time the time in milliseconds
+   * @return the MS-DOS date and time
+   */
+  static int toDosTime(long time) {
+    LocalDateTime date =
+        LocalDateTime.ofInstant(Instant.ofEpochMilli(time), ZoneId.systemDefault());
+    if (date.getYear() < 1980) {
+      return (1 << 21) | (1 << 16);
+    }
+    return (date.getYear() - 1980) << 25 | date.getMonthValue() << 21 | date.getDayOfMonth() << 16
+        | date.getHour() << 11 | date.getMinute() << 5 | date.getSecond() >> 1;
+  }
+
+  /**
+   * Allocates a little endian buffer, as used by ZIP and gzip.
+   *
+   * @param size the size
+   * @return the buffer
+   */
+  private static ByteBuffer buffer(int size) {
+    return ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+  }
+
+  /**
+   * A ZIP entry, as needed to write the central directory.
+   */
+  private static class ZipEntryInfo {
+
+    /** The name. */
+    byte[] name;
+
+    /** The MS-DOS date and time. */
+    int time;
+
+    /** Whether ZIP64 sizes are written in the local header. */
+    boolean zip64;
+
+    /** The offset of the local header. */
+    long offset;
+
+    /** The CRC-32. */
+    long crc;
+
+    /** The size. */
+    long size;
+
+    /** The compressed size. */
+    long compressedSize;
+
+    /**
+     * Gets the version needed to extract the entry.
+     *
+     * @return 4.5 for ZIP64 entries, 2.0 otherwise
+     */
+    short version() {
+      return (short) (zip64 || offset >= ZIP64_MAGIC ? 45 : 20);
+    }
+
+    /**
+     * Gets the flags: sizes following the data, and UTF-8 name.
+     *
+     * @return the flags
+     */
+    short flags() {
+      return (short) 0x0808;
+    }
+  }
+
+  /**
+   * Counts the bytes written through it, and leaves the underlying stream open.
+   */
+  private static class CountingOutputStream extends FilterOutputStream {
+
+    /** The count. */
+    long count;
+
+    /**
+     * Instantiates a new counting output stream.
+     *
+     * @param out the out
+     */
+    CountingOutputStream(OutputStream out) {
+      super(out);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+      out.write(b);
+      count++;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+      out.write(b, off, len);
+      count += len;
+    }
+
+    @Override
+    public void close() throws IOException {
+      flush();
+    }
+  }
+
+}
@@ -13,17 +13,30 @@ package psiprobe.tools;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.RandomAccessFile;
+
+import psiprobe.tools.logging.FileLogReader;
+import psiprobe.tools.logging.LogReader;
 
 /**
- * The Class BackwardsFileStream.
+ * Streams the bytes of a file from a position back to its start. The file is read block by block
+ * with positional reads, so walking back through a large log costs one read per block rather than
+ * a seek and a read per byte. Compressed files are read through a {@link LogReader}.
  */
 public class BackwardsFileStream extends InputStream {
 
-  /** The raf. */
-  private final RandomAccessFile raf;
+  /** The default block size. */
+  public static final int DEFAULT_BLOCK_SIZE = 64 * 1024;
+
+  /** The reader. */
+  private final LogReader reader;
+
+  /** The current block. */
+  private final byte[] block;
 
-  /** The seek pos. */
+  /** The number of bytes of the current block not returned yet. */
+  private int blockPos;
+
+  /** The seek pos, the file position of the first byte of the current block. */
   private long seekPos;
 
   /**
@@ -33,8 +46,7 @@ public class BackwardsFileStream extends InputStream {
    * @throws IOException Signals that an I/O exception has occurred.
    */
   public BackwardsFileStream(File file) throws IOException {
-    raf = new RandomAccessFile(file, "r");
-    seekPos = raf.length();
+    this(file, file.length());
   }
 
   /**
@@ -45,25 +57,110 @@ public class BackwardsFileStream extends InputStream {
    * @throws IOException Signals that an I/O exception has occurred.
    */
   public BackwardsFileStream(File file, long pos) throws IOException {
-    raf = new RandomAccessFile(file, "r");
+    this(file, pos, DEFAULT_BLOCK_SIZE);
+  }
+
+  /**
+   * Instantiates a new backwards file stream.
+   *
+   * @param file the file
+   * @param pos the pos
+   * @param blockSize the block size
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  public BackwardsFileStream(File file, long pos, int blockSize) throws IOException {
+    this(new FileLogReader(file), pos, blockSize);
+  }
+
+  /**
+   * Instantiates a new backwards file stream, closing the reader when closed.
+   *
+   * @param reader the reader
+   * @param pos the pos
+   */
+  public BackwardsFileStream(LogReader reader, long pos) {
+    this(reader, pos, DEFAULT_BLOCK_SIZE);
+  }
+
+  /**
+   * Instantiates a new backwards file stream, closing the reader when closed.
+   *
+   * @param reader the reader
+   * @param pos the pos
+   * @param blockSize the block size
+   */
+  public BackwardsFileStream(LogReader reader, long pos, int blockSize) {
+    if (blockSize < 1) {
+      throw new IllegalArgumentException("Invalid block size " + blockSize);
+    }
+    this.reader = reader;
+    block = new byte[blockSize];
     seekPos = pos;
   }
 
   @Override
   public int read() throws IOException {
-    if (seekPos > 0) {
-      raf.seek(--seekPos);
-      return raf.read();
+    if (blockPos == 0 && !readBlock()) {
+      // return EOF (so to speak)
+      return -1;
     }
-    // return EOF (so to speak)
-    return -1;
+    return block[--blockPos] & 0xFF;
   }
 
   @Override
-  public void close() throws IOException {
-    if (raf != null) {
-      raf.close();
+  public int read(byte[] b, int off, int len) throws IOException {
+    if (off < 0 || len < 0 || len > b.length - off) {
+      throw new IndexOutOfBoundsException();
+    }
+    if (len == 0) {
+      return 0;
+    }
+    if (blockPos == 0 && !readBlock()) {
+      return -1;
+    }
+    int count = Math.min(len, blockPos);
+    for (int i = 0; i < count; i++) {
+      b[off + i] = block[--blockPos];
+    }
+    return count;
+  }
+
+  @Override
+  public int available() {
+    return blockPos;
+  }
+
+  /**
+   * Reads the block preceding the current one.
+   *
+   * @return true, if a block was read; false if the start of the file has been reached
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  private boolean readBlock() throws IOException {
+    if (seekPos <= 0) {
+      return false;
     }
+    int length = (int) Math.min(block.length, seekPos);
+    long start = seekPos - length;
+    int count = 0;
+    while (count < length) {
+      int n = reader.read(start + count, block, count, length - count);
+      if (n < 0) {
+        // the file is shorter than the position we were asked to read from, e.g. it got
+        // truncated; there is nothing sensible to return past its end
+        seekPos = 0;
+        return false;
+      }
+      count += n;
+    }
+    seekPos = start;
+    blockPos = length;
+    return true;
+  }
+
+  @Override
+  public void close() throws IOException {
+    reader.close();
   }
 
 }
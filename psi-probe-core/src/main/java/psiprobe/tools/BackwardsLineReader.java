@@ -10,7 +10,6 @@
  */
 package psiprobe.tools;
 
-import java.io.BufferedInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
@@ -21,19 +20,40 @@ import java.nio.charset.StandardCharsets;
  * Reads lines from "backwards" InputStream. This class facilitates reading files from bottom up.
  *
  * <p>
+ * Line terminators are looked for in the bytes of the buffer, which works for the ASCII compatible
+ * encodings logs are written in, and only the bytes of a whole line are decoded, in the given
+ * encoding.
+ * </p>
+ *
+ * <p>
  * This source code was kindly contributed by Kan Ogawa.
  * </p>
  */
 public class BackwardsLineReader {
 
-  /** The bis. */
-  private BufferedInputStream bis;
+  /** The buffer size. */
+  private static final int BUFFER_SIZE = 8192;
+
+  /** The is. */
+  private final InputStream is;
+
+  /** The buffer. */
+  private final byte[] buffer = new byte[BUFFER_SIZE];
+
+  /** The position of the next byte of the buffer. */
+  private int pos;
+
+  /** The number of bytes in the buffer. */
+  private int limit;
+
+  /** The line bytes, in backwards order. */
+  private final ByteArrayOutputStream baos = new ByteArrayOutputStream(512);
 
   /** The skip line feed. */
   private boolean skipLineFeed = true;
 
-  /** The encoding. */
-  private String encoding;
+  /** The charset. */
+  private final Charset charset;
 
   /**
    * Instantiates a new backwards line reader.
@@ -51,8 +71,8 @@ public class BackwardsLineReader {
    * @param encoding the encoding
    */
   public BackwardsLineReader(InputStream is, String encoding) {
-    this.bis = new BufferedInputStream(is, 8192);
-    this.encoding = encoding;
+    this.is = is;
+    this.charset = encoding == null ? StandardCharsets.UTF_8 : Charset.forName(encoding);
   }
 
   /**
@@ -62,43 +82,49 @@ public class BackwardsLineReader {
    * @throws IOException Signals that an I/O exception has occurred.
    */
   public String readLine() throws IOException {
-    ByteArrayOutputStream baos = new ByteArrayOutputStream(512);
-    boolean empty = false;
+    baos.reset();
     while (true) {
-      byte chr = (byte) bis.read();
-      if (chr != -1) {
+      if (pos == limit) {
+        limit = is.read(buffer, 0, buffer.length);
+        pos = 0;
+        if (limit <= 0) {
+          limit = 0;
+          // quit this loop, if the first of the backwards stream is reached; return null if the
+          // line is empty, as the end of the stream has been reached
+          return baos.size() == 0 ? null : toLine();
+        }
+      }
+      int start = pos;
+      while (pos < limit) {
+        byte chr = buffer[pos++];
         if (chr == '\n') {
+          baos.write(buffer, start, pos - 1 - start);
           skipLineFeed = false;
-          // quit this loop
-          break;
+          return toLine();
         }
         if (chr == '\r') {
+          baos.write(buffer, start, pos - 1 - start);
           if (skipLineFeed) {
-            // quit this loop. if the carriage return only was read
-            break;
+            // the carriage return only was read
+            return toLine();
           }
-          // go to next loop, if both the carriage return and
-          // the line feed were read
-          continue;
-        }
-        baos.write(chr);
-      } else {
-        // quit this loop, if the first of the backwards stream is
-        // reached
-        if (baos.toByteArray().length == 0) {
-          empty = true;
+          // both the carriage return and the line feed were read, skip the carriage return
+          start = pos;
         }
-        break;
       }
+      baos.write(buffer, start, pos - start);
     }
-    if (!empty) {
-      byte[] byteArray = baos.toByteArray();
-      reverse(byteArray);
-      return encoding == null ? new String(byteArray, StandardCharsets.UTF_8)
-          : new String(byteArray, Charset.forName(encoding));
-    }
-    // return null if the end of the stream has been reached
-    return null;
+  }
+
+  /**
+   * Decodes the line read.
+   *
+   * @return the line
+   */
+  private String toLine() {
+    byte[] byteArray = baos.toByteArray();
+    reverse(byteArray);
+    return new String(byteArray, charset);
   }
 
   /**
@@ -107,8 +133,8 @@ public class BackwardsLineReader {
    * @throws IOException Signals that an I/O exception has occurred.
    */
   public void close() throws IOException {
-    if (bis != null) {
-      bis.close();
+    if (is != null) {
+      is.close();
     }
   }
 
@@ -0,0 +1,135 @@
+/*
+ * Licensed under the GPL License. You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   https://www.gnu.org/licenses/old-licenses/gpl-2.0.html
+ *
+ * THIS PACKAGE IS PROVIDED "AS IS" AND WITHOUT ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING,
+ * WITHOUT LIMITATION, THE IMPLIED WARRANTIES OF MERCHANTIBILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE.
+ */
+package psiprobe.tools;
+
+/**
+ * A set of objects compared by identity, in a single array with open addressing and linear
+ * probing, so that adding an object allocates nothing until the set grows.
+ */
+public class IdentityObjectSet {
+
+  /** The default capacity. */
+  private static final int DEFAULT_CAPACITY = 1024;
+
+  /** The objects, null for the free slots. */
+  private Object[] table;
+
+  /** The number of objects. */
+  private int size;
+
+  /**
+   * Instantiates a new identity object set.
+   */
+  public IdentityObjectSet() {
+    this(DEFAULT_CAPACITY);
+  }
+
+  /**
+   * Instantiates a new identity object set.
+   *
+   * @param expectedSize the number of objects expected
+   */
+  public IdentityObjectSet(int expectedSize) {
+    int capacity = 16;
+    while (capacity < expectedSize * 2) {
+      capacity <<= 1;
+    }
+    table = new Object[capacity];
+  }
+
+  /**
+   * Adds an object.
+   *
+   * @param obj the object, not null
+   * @return true, if the object was not in the set
+   */
+  public boolean add(Object obj) {
+    Object[] tab = table;
+    int mask = tab.length - 1;
+    int i = index(obj, mask);
+    for (Object current; (current = tab[i]) != null; i = i + 1 & mask) {
+      if (current == obj) {
+        return false;
+      }
+    }
+    tab[i] = obj;
+    if (++size * 2 > tab.length) {
+      resize();
+    }
+    return true;
+  }
+
+  /**
+   * Checks if the set contains an object.
+   *
+   * @param obj the object
+   * @return true, if the object is in the set
+   */
+  public boolean contains(Object obj) {
+    Object[] tab = table;
+    int mask = tab.length - 1;
+    for (int i = index(obj, mask); tab[i] != null; i = i + 1 & mask) {
+      if (tab[i] == obj) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Gets the number of objects.
+   *
+   * @return the size
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Removes all the objects.
+   */
+  public void clear() {
+    table = new Object[table.length];
+    size = 0;
+  }
+
+  /**
+   * Doubles the capacity.
+   */
+  private void resize() {
+    Object[] old = table;
+    Object[] tab = new Object[old.length * 2];
+    int mask = tab.length - 1;
+    for (Object obj : old) {
+      if (obj != null) {
+        int i = index(obj, mask);
+        while (tab[i] != null) {
+          i = i + 1 & mask;
+        }
+        tab[i] = obj;
+      }
+    }
+    table = tab;
+  }
+
+  /**
+   * Gets the slot an object is searched from, identity hash codes being spread over the table.
+   *
+   * @param obj the object
+   * @param mask the mask of the table
+   * @return the index
+   */
+  private static int index(Object obj, int mask) {
+    int h = System.identityHashCode(obj) * 0x9E3779B9;
+    return (h ^ h >>> 16) & mask;
+  }
+
+}
@@ -10,17 +10,18 @@
  */
 package psiprobe.tools;
 
-import java.lang.reflect.Array;
 import java.lang.reflect.Field;
-import java.lang.reflect.Modifier;
-import java.util.HashSet;
-import java.util.Iterator;
-import java.util.LinkedList;
-import java.util.List;
-import java.util.Set;
+import java.util.ArrayDeque;
+import java.util.Deque;
 
 /**
  * The Class Instruments.
+ *
+ * <p>
+ * Sizes are computed from the layout of the objects in the running JVM, cached per class by
+ * {@link ObjectLayout}: object headers, reference sizes with compressed oops, field offsets and
+ * alignment. Objects are counted once, by identity.
+ * </p>
  */
 public class Instruments {
 
@@ -51,11 +52,11 @@ public class Instruments {
   /** The Constant SIZE_DOUBLE. */
   public static final long SIZE_DOUBLE = 8;
 
-  /** The Constant SIZE_OBJECT. */
-  public static final long SIZE_OBJECT = 8;
+  /** The Constant SIZE_OBJECT, the size of an object header. */
+  public static final long SIZE_OBJECT = ObjectLayout.HEADER_SIZE;
 
   /** The Constant SIZE_REFERENCE. */
-  public static final long SIZE_REFERENCE;
+  public static final long SIZE_REFERENCE = ObjectLayout.REFERENCE_SIZE;
 
   /** The Constant ACCESSOR. */
   private static final Accessor ACCESSOR = AccessorFactory.getInstance();
@@ -63,25 +64,37 @@ public class Instruments {
   /** The Constant IGNORE_NIO. */
   private static final boolean IGNORE_NIO;
 
+  /** Whether the instances of a class are left out, like NIO buffers. */
+  private static final ClassValue<Boolean> IGNORED = new ClassValue<Boolean>() {
+    @Override
+    protected Boolean computeValue(Class<?> type) {
+      return IGNORE_NIO && type.getName().startsWith("java.nio.");
+    }
+  };
+
   static {
     String ignoreNioProp = System.getProperty("psiprobe.intruments.ignoreNIO");
-    String os64bitProp = System.getProperty("sun.arch.data.model");
     IGNORE_NIO = ignoreNioProp == null || "true".equalsIgnoreCase(ignoreNioProp);
-    SIZE_REFERENCE = "64".equals(os64bitProp) ? 8 : 4;
   }
 
   /** The processed objects. */
-  private Set<Object> processedObjects = new HashSet<>(2048);
+  private final IdentityObjectSet processedObjects;
 
-  /** The this queue. */
-  private final List<Object> thisQueue = new LinkedList<>();
-
-  /** The next queue. */
-  private final List<Object> nextQueue = new LinkedList<>();
+  /** The objects to process. */
+  private final Deque<Object> queue = new ArrayDeque<>();
 
   /** The class loader. */
   private ClassLoader classLoader = null;
 
+  /**
+   * Instantiates a new instruments.
+   *
+   * @param processedObjects the processed objects
+   */
+  private Instruments(IdentityObjectSet processedObjects) {
+    this.processedObjects = processedObjects;
+  }
+
   /**
    * Size of.
    *
@@ -89,7 +102,7 @@ public class Instruments {
    * @return the long
    */
   public static long sizeOf(Object obj) {
-    return new Instruments().internalSizeOf(obj);
+    return new Instruments(new IdentityObjectSet()).internalSizeOf(obj);
   }
 
   /**
@@ -100,142 +113,85 @@ public class Instruments {
    * @return the long
    */
   public static long sizeOf(Object obj, ClassLoader cl) {
-    Instruments instruments = new Instruments();
+    Instruments instruments = new Instruments(new IdentityObjectSet());
     instruments.classLoader = cl;
     return instruments.internalSizeOf(obj);
   }
 
   /**
-   * Size of.
+   * Size of, the objects processed already being left out, so that the size of objects sharing
+   * others can be summed.
    *
    * @param obj the obj
-   * @param objects the objects
+   * @param objects the objects processed, the objects processed now being added
    * @return the long
    */
-  public static long sizeOf(Object obj, Set<Object> objects) {
-    Instruments instruments = new Instruments();
-    instruments.processedObjects = objects;
-    return instruments.internalSizeOf(obj);
+  public static long sizeOf(Object obj, IdentityObjectSet objects) {
+    return new Instruments(objects).internalSizeOf(obj);
+  }
+
+  /**
+   * Starts a walk of object graphs made in steps, for the size of large graphs to be computed
+   * within a time budget. Roots are added with {@link #add(Object)} and walked with
+   * {@link #walk(int)} until {@link #isDone()}.
+   *
+   * @param objects the objects processed, the objects processed by the walk being added
+   * @return the walk
+   */
+  public static Instruments newWalk(IdentityObjectSet objects) {
+    return new Instruments(objects);
   }
 
   /**
-   * Internal size of.
+   * Adds a root to walk.
    *
    * @param root the root
-   * @return the long
    */
-  private long internalSizeOf(Object root) {
-    long size = 0;
-    thisQueue.add(root);
-    while (!thisQueue.isEmpty()) {
-      Iterator<Object> it = thisQueue.iterator();
-      while (it.hasNext()) {
-        Object obj = it.next();
-        if (isInitialized() && obj != null
-            && (classLoader == null || classLoader == obj.getClass().getClassLoader())
-            && (!IGNORE_NIO || !obj.getClass().getName().startsWith("java.nio."))) {
-          ObjectWrapper ow = new ObjectWrapper(obj);
-          if (!processedObjects.contains(ow)) {
-            if (obj.getClass().isArray()) {
-              size += sizeOfArray(obj);
-            } else if (obj.getClass().isPrimitive()) {
-              size += sizeOfPrimitive(obj.getClass());
-            } else {
-              processedObjects.add(ow);
-              size += sizeOfObject(obj);
-            }
-          }
-        }
-        it.remove();
-      }
-      // avoids ConcurrentModificationException
-      if (!nextQueue.isEmpty()) {
-        thisQueue.addAll(nextQueue);
-        nextQueue.clear();
-      }
+  public void add(Object root) {
+    if (isInitialized() && root != null) {
+      queue.add(root);
     }
-    return size;
   }
 
   /**
-   * Size of object.
+   * Walks the objects queued, breadth first, each object being sized from the layout of its class.
    *
-   * @param obj the obj
-   * @return the long
+   * @param maxObjects the number of objects to take from the queue at most
+   * @return the size of the objects walked
    */
-  private long sizeOfObject(Object obj) {
-    long size = SIZE_OBJECT;
-    Class<? extends Object> clazz = obj.getClass();
-    while (clazz != null) {
-      Field[] fields = clazz.getDeclaredFields();
-      for (Field field : fields) {
-        if (!Modifier.isStatic(field.getModifiers())) {
-          if (field.getType().isPrimitive()) {
-            size += sizeOfPrimitive(field.getType());
-          } else {
-            Object val = ACCESSOR.get(obj, field);
-            if (field.getType().isArray()) {
-              size += sizeOfArray(val);
-            } else {
-              size += SIZE_REFERENCE;
-              nextQueue.add(val);
-            }
-          }
-        }
+  public long walk(int maxObjects) {
+    long size = 0;
+    Object obj;
+    for (int count = 0; count < maxObjects && (obj = queue.poll()) != null; count++) {
+      Class<?> clazz = obj.getClass();
+      if ((classLoader == null || classLoader == clazz.getClassLoader())
+          && !IGNORED.get(clazz) && processedObjects.add(obj)) {
+        ObjectLayout.ClassLayout layout = ObjectLayout.forClass(clazz);
+        size += layout.sizeOf(obj);
+        layout.addReferences(obj, queue);
       }
-      clazz = clazz.getSuperclass();
     }
     return size;
   }
 
   /**
-   * Size of array.
+   * Checks if the walk is done.
    *
-   * @param obj the obj
-   * @return the long
+   * @return true, if no object is left to walk
    */
-  private long sizeOfArray(Object obj) {
-    if (obj != null) {
-      Class<?> ct = obj.getClass().getComponentType();
-      if (ct.isPrimitive()) {
-        return Array.getLength(obj) * sizeOfPrimitive(ct);
-      }
-      for (int i = 0; i < Array.getLength(obj); i++) {
-        nextQueue.add(Array.get(obj, i));
-      }
-    }
-    return 0;
+  public boolean isDone() {
+    return queue.isEmpty();
   }
 
   /**
-   * Size of primitive.
+   * Internal size of, the object graph being walked at once.
    *
-   * @param <T> the generic type
-   * @param type the type
+   * @param root the root
    * @return the long
    */
-  private static <T> long sizeOfPrimitive(Class<T> type) {
-    if (type == Boolean.TYPE) {
-      return SIZE_BOOLEAN;
-    } else if (type == Byte.TYPE) {
-      return SIZE_BYTE;
-    } else if (type == Character.TYPE) {
-      return SIZE_CHAR;
-    } else if (type == Short.TYPE) {
-      return SIZE_SHORT;
-    } else if (type == Integer.TYPE) {
-      return SIZE_INT;
-    } else if (type == Long.TYPE) {
-      return SIZE_LONG;
-    } else if (type == Float.TYPE) {
-      return SIZE_FLOAT;
-    } else if (type == Double.TYPE) {
-      return SIZE_DOUBLE;
-    } else if (type == Void.TYPE) {
-      return SIZE_VOID;
-    } else {
-      return SIZE_REFERENCE;
-    }
+  private long internalSizeOf(Object root) {
+    add(root);
+    return walk(Integer.MAX_VALUE);
   }
 
   /**
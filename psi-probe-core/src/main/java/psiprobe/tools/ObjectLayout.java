@@ -0,0 +1,400 @@
+/*
+ * Licensed under the GPL License. You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   https://www.gnu.org/licenses/old-licenses/gpl-2.0.html
+ *
+ * THIS PACKAGE IS PROVIDED "AS IS" AND WITHOUT ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING,
+ * WITHOUT LIMITATION, THE IMPLIED WARRANTIES OF MERCHANTIBILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE.
+ */
+package psiprobe.tools;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The layout of objects in the running JVM, and the layout of each class, computed once and cached.
+ *
+ * <p>
+ * The header size, the reference size (4 bytes with compressed oops) and the field offsets are read
+ * from the JVM through {@code sun.misc.Unsafe} when it is available, the object alignment from the
+ * HotSpot diagnostic MBean. Otherwise they are estimated from the VM options, fields being packed
+ * after the header.
+ * </p>
+ */
+public final class ObjectLayout {
+
+  /** The Constant logger. */
+  private static final Logger logger = LoggerFactory.getLogger(ObjectLayout.class);
+
+  /** The objectFieldOffset method of Unsafe, null if unavailable. */
+  private static final MethodHandle OBJECT_FIELD_OFFSET;
+
+  /** The getObject method of Unsafe, null if unavailable. */
+  private static final MethodHandle GET_OBJECT;
+
+  /** The arrayBaseOffset method of Unsafe, null if unavailable. */
+  private static final MethodHandle ARRAY_BASE_OFFSET;
+
+  /** The arrayIndexScale method of Unsafe, null if unavailable. */
+  private static final MethodHandle ARRAY_INDEX_SCALE;
+
+  /** The size of an object header. */
+  public static final int HEADER_SIZE;
+
+  /** The size of a reference. */
+  public static final int REFERENCE_SIZE;
+
+  /** The alignment of objects. */
+  public static final int ALIGNMENT;
+
+  /** The layouts, by class. */
+  private static final ClassValue<ClassLayout> LAYOUTS = new ClassValue<ClassLayout>() {
+    @Override
+    protected ClassLayout computeValue(Class<?> type) {
+      return new ClassLayout(type, type.isArray());
+    }
+  };
+
+  static {
+    MethodHandle objectFieldOffset = null;
+    MethodHandle getObject = null;
+    MethodHandle arrayBaseOffset = null;
+    MethodHandle arrayIndexScale = null;
+    try {
+      Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+      Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+      theUnsafe.setAccessible(true);
+      Object unsafe = theUnsafe.get(null);
+      MethodHandles.Lookup lookup = MethodHandles.lookup();
+      objectFieldOffset = lookup.findVirtual(unsafeClass, "objectFieldOffset",
+          MethodType.methodType(long.class, Field.class)).bindTo(unsafe);
+      getObject = lookup.findVirtual(unsafeClass, "getObject",
+          MethodType.methodType(Object.class, Object.class, long.class)).bindTo(unsafe);
+      arrayBaseOffset = lookup.findVirtual(unsafeClass, "arrayBaseOffset",
+          MethodType.methodType(int.class, Class.class)).bindTo(unsafe);
+      arrayIndexScale = lookup.findVirtual(unsafeClass, "arrayIndexScale",
+          MethodType.methodType(int.class, Class.class)).bindTo(unsafe);
+    } catch (ReflectiveOperationException | RuntimeException e) {
+      logger.debug("Unsafe is not available, object layouts are estimated");
+      logger.trace("", e);
+      objectFieldOffset = null;
+    }
+    OBJECT_FIELD_OFFSET = objectFieldOffset;
+    GET_OBJECT = objectFieldOffset == null ? null : getObject;
+    ARRAY_BASE_OFFSET = objectFieldOffset == null ? null : arrayBaseOffset;
+    ARRAY_INDEX_SCALE = objectFieldOffset == null ? null : arrayIndexScale;
+
+    boolean is64bit = !"32".equals(System.getProperty("sun.arch.data.model"));
+    boolean compressedOops = is64bit && !"false".equals(getVmOption("UseCompressedOops"));
+    boolean compressedClassPointers =
+        compressedOops && !"false".equals(getVmOption("UseCompressedClassPointers"));
+    int headerSize = is64bit ? compressedClassPointers ? 12 : 16 : 8;
+    int referenceSize = compressedOops || !is64bit ? 4 : 8;
+    if (OBJECT_FIELD_OFFSET != null) {
+      try {
+        headerSize = (int) fieldOffset(HeaderProbe.class.getDeclaredField("value"));
+        referenceSize = (int) ARRAY_INDEX_SCALE.invokeExact((Class<?>) Object[].class);
+      } catch (Throwable e) {
+        logger.trace("", e);
+      }
+    }
+    HEADER_SIZE = headerSize;
+    REFERENCE_SIZE = referenceSize;
+    int alignment = 8;
+    String alignmentOption = getVmOption("ObjectAlignmentInBytes");
+    if (alignmentOption != null) {
+      try {
+        alignment = Integer.parseInt(alignmentOption);
+      } catch (NumberFormatException e) {
+        logger.trace("", e);
+      }
+    }
+    ALIGNMENT = alignment;
+  }
+
+  /**
+   * Prevent Instantiation.
+   */
+  private ObjectLayout() {
+    // Prevent Instantiation
+  }
+
+  /**
+   * Gets the layout of a class.
+   *
+   * @param type the class
+   * @return the layout
+   */
+  public static ClassLayout forClass(Class<?> type) {
+    return LAYOUTS.get(type);
+  }
+
+  /**
+   * Aligns a size to the object alignment.
+   *
+   * @param size the size
+   * @return the size aligned
+   */
+  public static long align(long size) {
+    return (size + ALIGNMENT - 1) / ALIGNMENT * ALIGNMENT;
+  }
+
+  /**
+   * Gets the size of a primitive type, or of a reference.
+   *
+   * @param type the type
+   * @return the size
+   */
+  static int fieldSize(Class<?> type) {
+    if (type == Boolean.TYPE || type == Byte.TYPE) {
+      return 1;
+    } else if (type == Character.TYPE || type == Short.TYPE) {
+      return 2;
+    } else if (type == Integer.TYPE || type == Float.TYPE) {
+      return 4;
+    } else if (type == Long.TYPE || type == Double.TYPE) {
+      return 8;
+    } else {
+      return REFERENCE_SIZE;
+    }
+  }
+
+  /**
+   * Gets the offset of a field.
+   *
+   * @param field the field
+   * @return the offset
+   * @throws Throwable if the offset cannot be read
+   */
+  private static long fieldOffset(Field field) throws Throwable {
+    return (long) OBJECT_FIELD_OFFSET.invokeExact(field);
+  }
+
+  /**
+   * Gets the value of a VM option of HotSpot.
+   *
+   * @param name the name
+   * @return the value, null if unknown
+   */
+  private static String getVmOption(String name) {
+    try {
+      MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+      CompositeData option = (CompositeData) server.invoke(
+          new ObjectName("com.sun.management:type=HotSpotDiagnostic"), "getVMOption",
+          new Object[] {name}, new String[] {String.class.getName()});
+      return (String) option.get("value");
+    } catch (Exception e) {
+      logger.trace("Cannot read VM option {}", name, e);
+      return null;
+    }
+  }
+
+  /**
+   * A class with a single field, the offset of which is the header size.
+   */
+  private static final class HeaderProbe {
+
+    /** The value. */
+    @SuppressWarnings("unused")
+    private int value;
+
+  }
+
+  /**
+   * The layout of a class: the shallow size of its instances and their reference fields.
+   */
+  public static final class ClassLayout {
+
+    /** The shallow size, of an instance or of an empty array. */
+    private final long shallowSize;
+
+    /** The offsets of the reference fields, null if the fields are read by reflection. */
+    private final long[] referenceOffsets;
+
+    /** The reference fields. */
+    private final Field[] referenceFields;
+
+    /** Whether the class is an array class. */
+    private final boolean array;
+
+    /** The size of an element, for an array class. */
+    private final int indexScale;
+
+    /** Whether the elements are references, for an array class. */
+    private final boolean referenceArray;
+
+    /**
+     * Instantiates a new class layout.
+     *
+     * @param type the class
+     * @param array whether the class is an array class
+     */
+    ClassLayout(Class<?> type, boolean array) {
+      this.array = array;
+      if (array) {
+        Class<?> componentType = type.getComponentType();
+        int baseOffset = HEADER_SIZE + 4;
+        int scale = fieldSize(componentType);
+        if (OBJECT_FIELD_OFFSET != null) {
+          try {
+            baseOffset = (int) ARRAY_BASE_OFFSET.invokeExact(type);
+            scale = (int) ARRAY_INDEX_SCALE.invokeExact(type);
+          } catch (Throwable e) {
+            logger.trace("", e);
+          }
+        } else if (scale == 8) {
+          baseOffset = (baseOffset + 7) / 8 * 8;
+        }
+        this.shallowSize = baseOffset;
+        this.indexScale = scale;
+        this.referenceArray = !componentType.isPrimitive();
+        this.referenceOffsets = null;
+        this.referenceFields = new Field[0];
+        return;
+      }
+      this.indexScale = 0;
+      this.referenceArray = false;
+
+      List<Field> references = new ArrayList<>();
+      List<Field> all = new ArrayList<>();
+      for (Class<?> c = type; c != null; c = c.getSuperclass()) {
+        for (Field field : c.getDeclaredFields()) {
+          if (!Modifier.isStatic(field.getModifiers())) {
+            all.add(field);
+            if (!field.getType().isPrimitive()) {
+              references.add(field);
+            }
+          }
+        }
+      }
+      this.referenceFields = references.toArray(new Field[0]);
+
+      long[] offsets = null;
+      long end = HEADER_SIZE;
+      if (OBJECT_FIELD_OFFSET != null) {
+        try {
+          for (Field field : all) {
+            end = Math.max(end, fieldOffset(field) + fieldSize(field.getType()));
+          }
+          offsets = new long[referenceFields.length];
+          for (int i = 0; i < offsets.length; i++) {
+            offsets[i] = fieldOffset(referenceFields[i]);
+          }
+        } catch (Throwable e) {
+          // hidden classes and records have no offsets
+          logger.trace("Cannot read the field offsets of {}", type, e);
+          offsets = null;
+        }
+      }
+      if (offsets == null) {
+        end = HEADER_SIZE;
+        for (Field field : all) {
+          end += fieldSize(field.getType());
+        }
+        for (Field field : referenceFields) {
+          try {
+            field.setAccessible(true);
+          } catch (RuntimeException e) {
+            logger.trace("", e);
+          }
+        }
+      }
+      this.referenceOffsets = offsets;
+      this.shallowSize = align(end);
+    }
+
+    /**
+     * Gets the shallow size of the instances, or of an empty array.
+     *
+     * @return the shallow size
+     */
+    public long getShallowSize() {
+      return shallowSize;
+    }
+
+    /**
+     * Gets the number of reference fields.
+     *
+     * @return the reference field count
+     */
+    public int getReferenceFieldCount() {
+      return referenceFields.length;
+    }
+
+    /**
+     * Gets the shallow size of an object of this class, the size of its own fields or elements.
+     *
+     * @param obj the object
+     * @return the size
+     */
+    public long sizeOf(Object obj) {
+      if (array) {
+        return align(shallowSize + (long) Array.getLength(obj) * indexScale);
+      }
+      return shallowSize;
+    }
+
+    /**
+     * Adds the objects referenced by an object of this class to a queue, nulls excluded.
+     *
+     * @param obj the object
+     * @param queue the queue
+     */
+    void addReferences(Object obj, Deque<Object> queue) {
+      if (array) {
+        if (referenceArray) {
+          for (Object element : (Object[]) obj) {
+            if (element != null) {
+              queue.add(element);
+            }
+          }
+        }
+        return;
+      }
+      for (int i = 0; i < referenceFields.length; i++) {
+        Object value = get(obj, i);
+        if (value != null) {
+          queue.add(value);
+        }
+      }
+    }
+
+    /**
+     * Gets the value of a reference field.
+     *
+     * @param obj the object
+     * @param i the index of the reference field
+     * @return the value, null if it cannot be read
+     */
+    private Object get(Object obj, int i) {
+      try {
+        if (referenceOffsets != null) {
+          return (Object) GET_OBJECT.invokeExact(obj, referenceOffsets[i]);
+        }
+        return referenceFields[i].get(obj);
+      } catch (Throwable e) {
+        logger.trace("", e);
+        return null;
+      }
+    }
+
+  }
+
+}
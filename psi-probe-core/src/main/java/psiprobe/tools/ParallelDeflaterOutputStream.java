@@ -0,0 +1,269 @@
+/*
+ * Licensed under the GPL License. You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   https://www.gnu.org/licenses/old-licenses/gpl-2.0.html
+ *
+ * THIS PACKAGE IS PROVIDED "AS IS" AND WITHOUT ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING,
+ * WITHOUT LIMITATION, THE IMPLIED WARRANTIES OF MERCHANTIBILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE.
+ */
+package psiprobe.tools;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Writes a raw deflate stream, as found in ZIP entries and gzip members, compressing blocks of the
+ * data in parallel, the way pigz does. Every block is compressed on its own, primed with the last
+ * 32 KB of the block preceding it so compression hardly suffers, and ends on a byte boundary so the
+ * compressed blocks can be written one after the other.
+ *
+ * <p>
+ * Only a bounded number of blocks are compressed or waiting to be written at a time, the writing
+ * thread waiting on the oldest one otherwise, so memory stays flat whatever the amount of data.
+ * </p>
+ */
+public class ParallelDeflaterOutputStream extends FilterOutputStream {
+
+  /** The size of the window of deflate, and so of the dictionary priming a block. */
+  private static final int DICTIONARY_SIZE = 32 * 1024;
+
+  /** The executor blocks are compressed on. */
+  private final ExecutorService executor;
+
+  /** The compression level. */
+  private final int level;
+
+  /** The number of blocks compressed or waiting to be written, at most. */
+  private final int maxPendingBlocks;
+
+  /** The compressed blocks, in order. */
+  private final Deque<Future<byte[]>> pending = new ArrayDeque<>();
+
+  /** The checksum of the data. */
+  private final CRC32 crc = new CRC32();
+
+  /** The block being filled. */
+  private byte[] block;
+
+  /** The number of bytes in the block. */
+  private int count;
+
+  /** The end of the previous block, null for the first one. */
+  private byte[] dictionary;
+
+  /** The number of bytes written to this stream. */
+  private long bytesRead;
+
+  /** The number of compressed bytes written to the underlying stream. */
+  private long bytesWritten;
+
+  /** Whether the stream is finished. */
+  private boolean finished;
+
+  /**
+   * Instantiates a new parallel deflater output stream.
+   *
+   * @param out the underlying output stream
+   * @param executor the executor blocks are compressed on
+   * @param level the compression level, 0 to 9 or {@link Deflater#DEFAULT_COMPRESSION}
+   * @param blockSize the block size
+   * @param maxPendingBlocks the number of blocks compressed or waiting to be written, at most
+   */
+  public ParallelDeflaterOutputStream(OutputStream out, ExecutorService executor, int level,
+      int blockSize, int maxPendingBlocks) {
+    super(out);
+    this.executor = executor;
+    this.level = level;
+    this.maxPendingBlocks = Math.max(1, maxPendingBlocks);
+    this.block = new byte[Math.max(DICTIONARY_SIZE, blockSize)];
+  }
+
+  /**
+   * Gets the checksum of the data written to this stream.
+   *
+   * @return the CRC-32
+   */
+  public long getCrc() {
+    return crc.getValue();
+  }
+
+  /**
+   * Gets the number of bytes written to this stream.
+   *
+   * @return the uncompressed size
+   */
+  public long getBytesRead() {
+    return bytesRead;
+  }
+
+  /**
+   * Gets the number of compressed bytes written to the underlying stream.
+   *
+   * @return the compressed size, complete once finished
+   */
+  public long getBytesWritten() {
+    return bytesWritten;
+  }
+
+  @Override
+  public void write(int b) throws IOException {
+    write(new byte[] {(byte) b}, 0, 1);
+  }
+
+  @Override
+  public void write(byte[] b, int off, int len) throws IOException {
+    if (finished) {
+      throw new IOException("Stream finished");
+    }
+    crc.update(b, off, len);
+    bytesRead += len;
+    int offset = off;
+    int remaining = len;
+    while (remaining > 0) {
+      int length = Math.min(remaining, block.length - count);
+      System.arraycopy(b, offset, block, count, length);
+      count += length;
+      offset += length;
+      remaining -= length;
+      if (count == block.length) {
+        submit(false);
+      }
+    }
+  }
+
+  /**
+   * Writes the blocks compressed so far, the data of the block being filled is not compressed
+   * until it is full or the stream finished.
+   *
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  @Override
+  public void flush() throws IOException {
+    while (!pending.isEmpty() && pending.peek().isDone()) {
+      writeNext();
+    }
+    out.flush();
+  }
+
+  /**
+   * Compresses the remaining data and writes all of it, without closing the underlying stream.
+   *
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  public void finish() throws IOException {
+    if (!finished) {
+      submit(true);
+      finished = true;
+      while (!pending.isEmpty()) {
+        writeNext();
+      }
+      out.flush();
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    try {
+      finish();
+    } finally {
+      for (Future<byte[]> future : pending) {
+        future.cancel(true);
+      }
+      pending.clear();
+      out.close();
+    }
+  }
+
+  /**
+   * Submits the block being filled for compression, waiting for the oldest block to be written if
+   * too many are pending.
+   *
+   * @param last whether this is the last block
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  private void submit(boolean last) throws IOException {
+    byte[] input = block;
+    int length = count;
+    byte[] dict = dictionary;
+    pending.add(executor.submit(() -> deflate(input, length, dict, last)));
+    if (!last) {
+      dictionary = Arrays.copyOfRange(input, length - DICTIONARY_SIZE, length);
+      block = new byte[input.length];
+      count = 0;
+    }
+    while (pending.size() > maxPendingBlocks) {
+      writeNext();
+    }
+  }
+
+  /**
+   * Writes the oldest compressed block, waiting for its compression to complete.
+   *
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  private void writeNext() throws IOException {
+    byte[] compressed;
+    try {
+      compressed = pending.poll().get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while compressing");
+    } catch (ExecutionException e) {
+      throw new IOException("Cannot compress", e.getCause());
+    }
+    out.write(compressed);
+    bytesWritten += compressed.length;
+  }
+
+  /**
+   * Compresses a block.
+   *
+   * @param input the block
+   * @param length the number of bytes in the block
+   * @param dict the end of the previous block, null if none
+   * @param last whether this is the last block, which ends the deflate stream
+   * @return the compressed block
+   */
+  private byte[] deflate(byte[] input, int length, byte[] dict, boolean last) {
+    Deflater deflater = new Deflater(level, true);
+    try {
+      if (dict != null) {
+        deflater.setDictionary(dict);
+      }
+      deflater.setInput(input, 0, length);
+      ByteArrayOutputStream compressed = new ByteArrayOutputStream(length / 2 + 64);
+      byte[] buffer = new byte[64 * 1024];
+      if (last) {
+        deflater.finish();
+        while (!deflater.finished()) {
+          int n = deflater.deflate(buffer);
+          compressed.write(buffer, 0, n);
+        }
+      } else {
+        // ends the block on a byte boundary, the next block being appended to it
+        int n;
+        do {
+          n = deflater.deflate(buffer, 0, buffer.length, Deflater.SYNC_FLUSH);
+          compressed.write(buffer, 0, n);
+        } while (n == buffer.length);
+      }
+      return compressed.toByteArray();
+    } finally {
+      deflater.end();
+    }
+  }
+
+}
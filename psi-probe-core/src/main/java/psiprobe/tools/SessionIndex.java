@@ -0,0 +1,516 @@
+/*
+ * Licensed under the GPL License. You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   https://www.gnu.org/licenses/old-licenses/gpl-2.0.html
+ *
+ * THIS PACKAGE IS PROVIDED "AS IS" AND WITHOUT ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING,
+ * WITHOUT LIMITATION, THE IMPLIED WARRANTIES OF MERCHANTIBILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE.
+ */
+package psiprobe.tools;
+
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.WeakHashMap;
+import java.util.regex.Pattern;
+
+import javax.servlet.http.HttpSession;
+import javax.servlet.http.HttpSessionAttributeListener;
+import javax.servlet.http.HttpSessionBindingEvent;
+import javax.servlet.http.HttpSessionEvent;
+import javax.servlet.http.HttpSessionListener;
+
+import org.apache.catalina.ContainerEvent;
+import org.apache.catalina.ContainerListener;
+import org.apache.catalina.Context;
+import org.apache.catalina.Manager;
+import org.apache.catalina.Session;
+import org.apache.commons.lang3.ArrayUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import psiprobe.model.ApplicationSession;
+import psiprobe.model.SessionSearchInfo;
+
+/**
+ * An index of the sessions of a web application, by attribute name, last IP and creation time,
+ * narrowing a search to the sessions matching without reading the attributes of any session.
+ *
+ * <p>
+ * The index is maintained incrementally from the events of the container: it registers itself as
+ * a session and session attribute listener of the context, and as a container listener for the
+ * session IDs changed, e.g. on login. The sessions of the manager are read once, when the index
+ * starts listening, and again only if the context dropped its listeners, as it does when it is
+ * reloaded, or was given another manager. A search evaluates the patterns of attribute names once
+ * per attribute name known and the last IP once per IP known, and looks up the sessions by
+ * creation time through a range of seconds. Last accessed times change on every request without
+ * any event, so the idle time is checked against the live sessions found by the other criteria.
+ * </p>
+ *
+ * <p>
+ * Attributes set without notifying the listeners are not seen until the session is read again.
+ * Indexes are cached by context, for as long as the context is, and {@link #detachAll()} removes
+ * them from the contexts, not to keep Probe loaded once it is undeployed.
+ * </p>
+ */
+public final class SessionIndex
+    implements HttpSessionListener, HttpSessionAttributeListener, ContainerListener {
+
+  /** The Constant logger. */
+  private static final Logger logger = LoggerFactory.getLogger(SessionIndex.class);
+
+  /** The cached indexes, by context. */
+  private static final Map<Context, SessionIndex> cache = new WeakHashMap<>();
+
+  /** The manager indexed, the index being built again when the context is given another one. */
+  private WeakReference<Manager> manager = new WeakReference<>(null);
+
+  /** The sessions indexed, by ID. */
+  private final Map<String, Indexed> sessions = new HashMap<>();
+
+  /** The IDs of the sessions, by attribute name. */
+  private final Map<String, Set<String>> byAttributeName = new HashMap<>();
+
+  /** The IDs of the sessions, by last IP. */
+  private final Map<String, Set<String>> byLastIp = new HashMap<>();
+
+  /** The IDs of the sessions, by creation time in seconds. */
+  private final NavigableMap<Long, Set<String>> byCreationTime = new TreeMap<>();
+
+  /**
+   * Gets the index of the sessions of a web application.
+   *
+   * @param context the context of the web application
+   * @return the index
+   */
+  public static SessionIndex forContext(Context context) {
+    synchronized (cache) {
+      return cache.computeIfAbsent(context, c -> new SessionIndex());
+    }
+  }
+
+  /**
+   * Removes the indexes from the contexts they listen to, and forgets them.
+   */
+  public static void detachAll() {
+    synchronized (cache) {
+      for (Map.Entry<Context, SessionIndex> entry : cache.entrySet()) {
+        entry.getValue().detach(entry.getKey());
+      }
+      cache.clear();
+    }
+  }
+
+  /**
+   * Checks whether a search uses criteria the index looks up, the session ID being matched by the
+   * caller.
+   *
+   * @param searchInfo the search info
+   * @return true, if the index narrows the search
+   */
+  public static boolean isIndexed(SessionSearchInfo searchInfo) {
+    return searchInfo.isUseSearch()
+        && (searchInfo.isUseAttrName() || searchInfo.isUseLastIp() || searchInfo.isUseAgeFrom()
+            || searchInfo.isUseAgeTo() || searchInfo.isUseIdleTimeFrom()
+            || searchInfo.isUseIdleTimeTo());
+  }
+
+  /**
+   * Gets the number of sessions indexed.
+   *
+   * @return the number of sessions indexed
+   */
+  public synchronized int size() {
+    return sessions.size();
+  }
+
+  /**
+   * Searches the sessions of a web application by attribute names, last IP, age and idle time,
+   * starting to listen to its context first if needed. The session ID is not looked up.
+   *
+   * @param context the context of the web application
+   * @param searchInfo the search info
+   * @param now the current time
+   * @return the IDs of the sessions matching
+   */
+  public synchronized Set<String> search(Context context, SessionSearchInfo searchInfo,
+      long now) {
+    listen(context);
+
+    Set<String> result = null;
+    if (searchInfo.isUseAttrName()) {
+      // every pattern is to match an attribute of the session
+      for (Pattern pattern : searchInfo.getAttrNamePatterns()) {
+        Set<String> ids = new HashSet<>();
+        for (Map.Entry<String, Set<String>> entry : byAttributeName.entrySet()) {
+          if (pattern.matcher(entry.getKey()).matches()) {
+            ids.addAll(entry.getValue());
+          }
+        }
+        result = intersect(result, ids);
+      }
+    }
+    if (searchInfo.isUseLastIp()) {
+      Set<String> ids = new HashSet<>();
+      for (Map.Entry<String, Set<String>> entry : byLastIp.entrySet()) {
+        if (entry.getKey().contains(searchInfo.getLastIp())) {
+          ids.addAll(entry.getValue());
+        }
+      }
+      result = intersect(result, ids);
+    }
+    if (searchInfo.isUseAgeFrom() || searchInfo.isUseAgeTo()) {
+      long from = searchInfo.isUseAgeTo() ? now - searchInfo.getAgeToSec() * 1000 : Long.MIN_VALUE;
+      long to =
+          searchInfo.isUseAgeFrom() ? now - searchInfo.getAgeFromSec() * 1000 : Long.MAX_VALUE;
+      result = intersect(result, findByCreationTime(from, to));
+    }
+    if (result == null) {
+      result = new HashSet<>(sessions.keySet());
+    }
+    if (searchInfo.isUseIdleTimeFrom() || searchInfo.isUseIdleTimeTo()) {
+      long from = searchInfo.isUseIdleTimeTo() ? now - searchInfo.getIdleTimeToSec() * 1000
+          : Long.MIN_VALUE;
+      long to = searchInfo.isUseIdleTimeFrom() ? now - searchInfo.getIdleTimeFromSec() * 1000
+          : Long.MAX_VALUE;
+      retainByLastAccessedTime(context.getManager(), result, from, to);
+    }
+    return result;
+  }
+
+  @Override
+  public synchronized void sessionCreated(HttpSessionEvent se) {
+    add(se.getSession());
+  }
+
+  @Override
+  public synchronized void sessionDestroyed(HttpSessionEvent se) {
+    remove(se.getSession().getId());
+  }
+
+  @Override
+  public synchronized void attributeAdded(HttpSessionBindingEvent event) {
+    attributeSet(event);
+  }
+
+  @Override
+  public synchronized void attributeReplaced(HttpSessionBindingEvent event) {
+    attributeSet(event);
+  }
+
+  @Override
+  public synchronized void attributeRemoved(HttpSessionBindingEvent event) {
+    // attributes removed from a session being destroyed are not known any more
+    Indexed indexed = sessions.get(event.getSession().getId());
+    if (indexed != null) {
+      if (indexed.attributeNames.remove(event.getName())) {
+        removeId(byAttributeName, event.getName(), indexed.id);
+      }
+      if (ApplicationSession.LAST_ACCESSED_BY_IP.equals(event.getName())) {
+        setLastIp(indexed, null);
+      }
+    }
+  }
+
+  @Override
+  public synchronized void containerEvent(ContainerEvent event) {
+    if (Context.CHANGE_SESSION_ID_EVENT.equals(event.getType())) {
+      String[] ids = (String[]) event.getData();
+      Indexed indexed = sessions.get(ids[0]);
+      if (indexed != null) {
+        remove(ids[0]);
+        add(new Indexed(ids[1], indexed.creationTime, indexed.lastIp, indexed.attributeNames));
+      }
+    }
+  }
+
+  /**
+   * Starts listening to a context, reading its sessions, unless already listening to it and its
+   * manager.
+   *
+   * @param context the context
+   */
+  private void listen(Context context) {
+    Manager current = context.getManager();
+    boolean listening = ArrayUtils.contains(context.getApplicationEventListeners(), this)
+        && ArrayUtils.contains(context.getApplicationLifecycleListeners(), this);
+    if (listening && manager.get() == current) {
+      return;
+    }
+    clear();
+    manager = new WeakReference<>(current);
+    if (!listening) {
+      // registered before reading the sessions, not to miss the sessions created meanwhile
+      detach(context);
+      context.setApplicationEventListeners(
+          ArrayUtils.add(context.getApplicationEventListeners(), this));
+      context.setApplicationLifecycleListeners(
+          ArrayUtils.add(context.getApplicationLifecycleListeners(), this));
+      context.addContainerListener(this);
+    }
+    if (current != null) {
+      for (Session session : current.findSessions()) {
+        add(session.getSession());
+      }
+    }
+  }
+
+  /**
+   * Stops listening to a context.
+   *
+   * @param context the context
+   */
+  private void detach(Context context) {
+    context.setApplicationEventListeners(
+        ArrayUtils.removeElement(context.getApplicationEventListeners(), this));
+    context.setApplicationLifecycleListeners(
+        ArrayUtils.removeElement(context.getApplicationLifecycleListeners(), this));
+    context.removeContainerListener(this);
+  }
+
+  /**
+   * Updates the entry of a session with an attribute set, reading the whole session if it is not
+   * indexed yet.
+   *
+   * @param event the event
+   */
+  private void attributeSet(HttpSessionBindingEvent event) {
+    HttpSession session = event.getSession();
+    Indexed indexed = sessions.get(session.getId());
+    if (indexed == null) {
+      add(session);
+      return;
+    }
+    if (indexed.attributeNames.add(event.getName())) {
+      byAttributeName.computeIfAbsent(event.getName(), k -> new HashSet<>()).add(indexed.id);
+    }
+    if (ApplicationSession.LAST_ACCESSED_BY_IP.equals(event.getName())) {
+      try {
+        Object lastIp = session.getAttribute(event.getName());
+        setLastIp(indexed, lastIp instanceof String ? (String) lastIp : null);
+      } catch (IllegalStateException e) {
+        logger.trace("Session {} appears to be invalidated, ignore", indexed.id, e);
+      }
+    }
+  }
+
+  /**
+   * Reads a session into the index, unless already indexed.
+   *
+   * @param session the session
+   */
+  private void add(HttpSession session) {
+    String id = session.getId();
+    if (id == null || sessions.containsKey(id)) {
+      return;
+    }
+    try {
+      Object lastIp = session.getAttribute(ApplicationSession.LAST_ACCESSED_BY_IP);
+      add(new Indexed(id, session.getCreationTime(),
+          lastIp instanceof String ? (String) lastIp : null,
+          new HashSet<>(Collections.list(session.getAttributeNames()))));
+    } catch (IllegalStateException e) {
+      logger.trace("Session {} appears to be invalidated, ignore", id, e);
+    }
+  }
+
+  /**
+   * Sets the last IP of an entry.
+   *
+   * @param indexed the entry
+   * @param lastIp the last IP, null if none
+   */
+  private void setLastIp(Indexed indexed, String lastIp) {
+    if (lastIp == null ? indexed.lastIp == null : lastIp.equals(indexed.lastIp)) {
+      return;
+    }
+    if (indexed.lastIp != null) {
+      removeId(byLastIp, indexed.lastIp, indexed.id);
+    }
+    indexed.lastIp = lastIp;
+    if (lastIp != null) {
+      byLastIp.computeIfAbsent(lastIp, k -> new HashSet<>()).add(indexed.id);
+    }
+  }
+
+  /**
+   * Adds an entry to the index.
+   *
+   * @param indexed the entry
+   */
+  private void add(Indexed indexed) {
+    sessions.put(indexed.id, indexed);
+    for (String name : indexed.attributeNames) {
+      byAttributeName.computeIfAbsent(name, k -> new HashSet<>()).add(indexed.id);
+    }
+    if (indexed.lastIp != null) {
+      byLastIp.computeIfAbsent(indexed.lastIp, k -> new HashSet<>()).add(indexed.id);
+    }
+    byCreationTime.computeIfAbsent(indexed.creationTime / 1000, k -> new HashSet<>())
+        .add(indexed.id);
+  }
+
+  /**
+   * Removes the entry of a session from the index.
+   *
+   * @param id the ID of the session
+   */
+  private void remove(String id) {
+    Indexed indexed = sessions.remove(id);
+    if (indexed == null) {
+      return;
+    }
+    for (String name : indexed.attributeNames) {
+      removeId(byAttributeName, name, indexed.id);
+    }
+    if (indexed.lastIp != null) {
+      removeId(byLastIp, indexed.lastIp, indexed.id);
+    }
+    removeId(byCreationTime, indexed.creationTime / 1000, indexed.id);
+  }
+
+  /**
+   * Removes the ID of a session from its key, the key being removed once it has no session left.
+   *
+   * @param <K> the type of the key
+   * @param map the map
+   * @param key the key
+   * @param id the ID of the session
+   */
+  private static <K> void removeId(Map<K, Set<String>> map, K key, String id) {
+    Set<String> ids = map.get(key);
+    if (ids != null && ids.remove(id) && ids.isEmpty()) {
+      map.remove(key);
+    }
+  }
+
+  /**
+   * Clears the index.
+   */
+  private void clear() {
+    sessions.clear();
+    byAttributeName.clear();
+    byLastIp.clear();
+    byCreationTime.clear();
+  }
+
+  /**
+   * Finds the sessions created in a time range, the seconds at both ends being checked against the
+   * creation time of each session.
+   *
+   * @param from the start of the range, in milliseconds
+   * @param to the end of the range, in milliseconds
+   * @return the IDs of the sessions in the range
+   */
+  private Set<String> findByCreationTime(long from, long to) {
+    Set<String> ids = new HashSet<>();
+    if (from > to) {
+      return ids;
+    }
+    long fromSecond = Math.floorDiv(from, 1000L);
+    long toSecond = Math.floorDiv(to, 1000L);
+    for (Map.Entry<Long, Set<String>> entry : byCreationTime
+        .subMap(fromSecond, true, toSecond, true).entrySet()) {
+      if (entry.getKey() > fromSecond && entry.getKey() < toSecond) {
+        ids.addAll(entry.getValue());
+        continue;
+      }
+      for (String id : entry.getValue()) {
+        long time = sessions.get(id).creationTime;
+        if (time >= from && time <= to) {
+          ids.add(id);
+        }
+      }
+    }
+    return ids;
+  }
+
+  /**
+   * Keeps the sessions last accessed in a time range, as the live sessions tell, dropping the
+   * sessions gone.
+   *
+   * @param current the manager of the sessions
+   * @param ids the IDs of the sessions
+   * @param from the start of the range, in milliseconds
+   * @param to the end of the range, in milliseconds
+   */
+  private void retainByLastAccessedTime(Manager current, Set<String> ids, long from, long to) {
+    for (Iterator<String> it = ids.iterator(); it.hasNext();) {
+      Session session = null;
+      try {
+        session = current == null ? null : current.findSession(it.next());
+      } catch (IOException e) {
+        logger.trace("Cannot find session", e);
+      }
+      long time = session == null ? Long.MIN_VALUE : session.getLastAccessedTimeInternal();
+      if (session == null || time < from || time > to) {
+        it.remove();
+      }
+    }
+  }
+
+  /**
+   * Intersects the IDs found so far with the IDs of a criterion.
+   *
+   * @param result the IDs found so far, null for all
+   * @param ids the IDs of the criterion
+   * @return the intersection
+   */
+  private static Set<String> intersect(Set<String> result, Set<String> ids) {
+    if (result == null) {
+      return ids;
+    }
+    Collection<String> larger = result.size() < ids.size() ? ids : result;
+    Set<String> smaller = result.size() < ids.size() ? result : ids;
+    for (Iterator<String> it = smaller.iterator(); it.hasNext();) {
+      if (!larger.contains(it.next())) {
+        it.remove();
+      }
+    }
+    return smaller;
+  }
+
+  /**
+   * The entry of a session, kept up to date by the events of the session.
+   */
+  private static class Indexed {
+
+    /** The ID. */
+    final String id;
+
+    /** The creation time. */
+    final long creationTime;
+
+    /** The last IP. */
+    String lastIp;
+
+    /** The attribute names. */
+    final Set<String> attributeNames;
+
+    /**
+     * Instantiates a new entry.
+     *
+     * @param id the ID
+     * @param creationTime the creation time
+     * @param lastIp the last IP
+     * @param attributeNames the attribute names
+     */
+    Indexed(String id, long creationTime, String lastIp, Set<String> attributeNames) {
+      this.id = id;
+      this.creationTime = creationTime;
+      this.lastIp = lastIp;
+      this.attributeNames = attributeNames;
+    }
+  }
+
+}
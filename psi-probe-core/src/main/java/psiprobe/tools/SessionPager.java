@@ -0,0 +1,646 @@
+/*
+ * Licensed under the GPL License. You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   https://www.gnu.org/licenses/old-licenses/gpl-2.0.html
+ *
+ * THIS PACKAGE IS PROVIDED "AS IS" AND WITHOUT ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING,
+ * WITHOUT LIMITATION, THE IMPLIED WARRANTIES OF MERCHANTIBILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE.
+ */
+package psiprobe.tools;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.function.Predicate;
+
+import javax.servlet.http.HttpSession;
+
+import org.apache.catalina.Context;
+import org.apache.catalina.Manager;
+import org.apache.catalina.Session;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import psiprobe.beans.SessionSizeEstimatorBean;
+import psiprobe.model.ApplicationSession;
+
+/**
+ * Reads a page of the sessions of web applications, sorted by age, idle time, size or last IP.
+ *
+ * <p>
+ * Only a small projection of each session, its {@link Entry}, is made to filter and sort them, and
+ * only the entries of the page are kept while the sessions are scanned, in a bounded heap. The
+ * {@link ApplicationSession} of a session, with its attributes, is built for the sessions of the
+ * page only. Pages are addressed by cursors, the sort key of the entry they start after or end
+ * before, so the pages following a page stay consistent while sessions are created and expired.
+ * </p>
+ *
+ * <p>
+ * With a size estimator, sizes are those estimated in the background, unknown sizes sorting first,
+ * rather than computed while the sessions are read.
+ * </p>
+ */
+public class SessionPager {
+
+  /** The Constant logger. */
+  private static final Logger logger = LoggerFactory.getLogger(SessionPager.class);
+
+  /** Sorts by age. */
+  public static final String SORT_AGE = "age";
+
+  /** Sorts by idle time. */
+  public static final String SORT_IDLE_TIME = "idleTime";
+
+  /** Sorts by size, which is computed for every session. */
+  public static final String SORT_SIZE = "size";
+
+  /** Sorts by last IP. */
+  public static final String SORT_LAST_IP = "lastIp";
+
+  /** The separator of the fields of a cursor. */
+  private static final char CURSOR_SEPARATOR = '|';
+
+  /** The sort. */
+  private String sort = SORT_IDLE_TIME;
+
+  /** Whether the sort is descending. */
+  private boolean descending;
+
+  /** The number of sessions of a page. */
+  private int pageSize = 50;
+
+  /** The cursor of the entry the page starts after, null for the first page. */
+  private String after;
+
+  /** The cursor of the entry the page ends before, null unless paging backwards. */
+  private String before;
+
+  /** The size estimator, null to compute sizes while reading. */
+  private SessionSizeEstimatorBean sizeEstimator;
+
+  /** The IDs of the sessions to read, by application name, null to read all the sessions. */
+  private Map<String, Set<String>> candidates;
+
+  /**
+   * Gets the sort.
+   *
+   * @return the sort
+   */
+  public String getSort() {
+    return sort;
+  }
+
+  /**
+   * Sets the sort.
+   *
+   * @param sort the new sort, one of the SORT constants
+   */
+  public void setSort(String sort) {
+    this.sort = sort;
+  }
+
+  /**
+   * Checks if the sort is descending.
+   *
+   * @return true, if descending
+   */
+  public boolean isDescending() {
+    return descending;
+  }
+
+  /**
+   * Sets whether the sort is descending.
+   *
+   * @param descending the new descending
+   */
+  public void setDescending(boolean descending) {
+    this.descending = descending;
+  }
+
+  /**
+   * Gets the page size.
+   *
+   * @return the number of sessions of a page
+   */
+  public int getPageSize() {
+    return pageSize;
+  }
+
+  /**
+   * Sets the page size.
+   *
+   * @param pageSize the number of sessions of a page
+   */
+  public void setPageSize(int pageSize) {
+    this.pageSize = pageSize;
+  }
+
+  /**
+   * Gets the cursor the page starts after.
+   *
+   * @return the cursor, null for the first page
+   */
+  public String getAfter() {
+    return after;
+  }
+
+  /**
+   * Sets the cursor the page starts after.
+   *
+   * @param after the cursor, null for the first page
+   */
+  public void setAfter(String after) {
+    this.after = after;
+  }
+
+  /**
+   * Gets the cursor the page ends before.
+   *
+   * @return the cursor, null unless paging backwards
+   */
+  public String getBefore() {
+    return before;
+  }
+
+  /**
+   * Sets the cursor the page ends before, taking precedence over the cursor it starts after.
+   *
+   * @param before the cursor, null unless paging backwards
+   */
+  public void setBefore(String before) {
+    this.before = before;
+  }
+
+  /**
+   * Gets the size estimator.
+   *
+   * @return the size estimator, null to compute sizes while reading
+   */
+  public SessionSizeEstimatorBean getSizeEstimator() {
+    return sizeEstimator;
+  }
+
+  /**
+   * Sets the size estimator.
+   *
+   * @param sizeEstimator the size estimator, null to compute sizes while reading
+   */
+  public void setSizeEstimator(SessionSizeEstimatorBean sizeEstimator) {
+    this.sizeEstimator = sizeEstimator;
+  }
+
+  /**
+   * Gets the candidates.
+   *
+   * @return the IDs of the sessions to read, by application name, null to read all the sessions
+   */
+  public Map<String, Set<String>> getCandidates() {
+    return candidates;
+  }
+
+  /**
+   * Sets the candidates, e.g. the sessions found in a {@link SessionIndex}, so that only they are
+   * read rather than every session of the applications.
+   *
+   * @param candidates the IDs of the sessions to read, by application name, null to read all the
+   *        sessions
+   */
+  public void setCandidates(Map<String, Set<String>> candidates) {
+    this.candidates = candidates;
+  }
+
+  /**
+   * Reads a page of the sessions of web applications.
+   *
+   * @param contexts the contexts of the web applications
+   * @param filter the filter of the entries, null for all
+   * @param calcSize whether the size of the sessions of the page is computed, or estimated
+   * @param addAttributes whether the attributes of the sessions of the page are added
+   * @return the page
+   */
+  public Page read(List<Context> contexts, Predicate<Entry> filter, boolean calcSize,
+      boolean addAttributes) {
+    Comparator<Entry> order = getComparator();
+    boolean backwards = before != null;
+    Entry cursor = parseCursor(backwards ? before : after);
+    int size = Math.max(1, pageSize);
+
+    // the heap keeps the entries of the page, the entry leaving it first at its head
+    PriorityQueue<Entry> heap =
+        new PriorityQueue<>(size + 1, backwards ? order : order.reversed());
+    long now = System.currentTimeMillis();
+    int total = 0;
+    int preceding = 0;
+    for (Context context : contexts) {
+      if (context == null || context.getManager() == null) {
+        continue;
+      }
+      String appName = context.getName() == null ? null
+          : context.getName().isEmpty() ? "/" : context.getName();
+      for (Session session : findSessions(context.getManager(), appName)) {
+        Entry entry = project(session, appName, now);
+        if (entry == null || filter != null && !filter.test(entry)) {
+          continue;
+        }
+        total++;
+        if (cursor != null) {
+          int c = order.compare(entry, cursor);
+          if (backwards ? c >= 0 : c <= 0) {
+            preceding += backwards ? 0 : 1;
+            continue;
+          }
+          preceding += backwards ? 1 : 0;
+        }
+        heap.add(entry);
+        if (heap.size() > size) {
+          heap.poll();
+        }
+      }
+    }
+
+    List<Entry> entries = new ArrayList<>(heap);
+    entries.sort(order);
+    int offset = backwards ? preceding - entries.size() : preceding;
+    if (backwards && offset == 0 && entries.size() < size) {
+      // back to the first page, which may have been partly before the cursor
+      setBefore(null);
+      setAfter(null);
+      return read(contexts, filter, calcSize, addAttributes);
+    }
+
+    boolean estimateSize = calcSize && sizeEstimator != null;
+    List<ApplicationSession> sessions = new ArrayList<>(entries.size());
+    for (Entry entry : entries) {
+      ApplicationSession appSession = ApplicationUtils.getApplicationSession(entry.session,
+          calcSize && !estimateSize, addAttributes);
+      if (appSession != null) {
+        appSession.setApplicationName(entry.applicationName);
+        if (estimateSize) {
+          // the sessions shown are estimated before the others sorted by size
+          appSession.setSize(sizeEstimator.getSize(entry.applicationName, entry.session, true));
+        }
+        sessions.add(appSession);
+      }
+    }
+    String first = entries.isEmpty() ? null : getCursor(entries.get(0));
+    String last = entries.isEmpty() ? null : getCursor(entries.get(entries.size() - 1));
+    return new Page(sessions, total, offset, entries.size(), first, last);
+  }
+
+  /**
+   * Finds the sessions of an application to read, the candidates if any.
+   *
+   * @param manager the manager of the sessions
+   * @param appName the name of the application
+   * @return the sessions
+   */
+  private List<Session> findSessions(Manager manager, String appName) {
+    if (candidates == null) {
+      return Arrays.asList(manager.findSessions());
+    }
+    Set<String> ids = candidates.getOrDefault(appName, Collections.emptySet());
+    List<Session> sessions = new ArrayList<>(ids.size());
+    for (String id : ids) {
+      try {
+        Session session = manager.findSession(id);
+        if (session != null) {
+          sessions.add(session);
+        }
+      } catch (IOException e) {
+        logger.trace("Cannot find session {}", id, e);
+      }
+    }
+    return sessions;
+  }
+
+  /**
+   * Makes the entry of a session.
+   *
+   * @param session the session
+   * @param appName the name of the application
+   * @param now the current time
+   * @return the entry, null if the session is no longer valid
+   */
+  private Entry project(Session session, String appName, long now) {
+    try {
+      if (!session.isValid()) {
+        return null;
+      }
+      HttpSession httpSession = session.getSession();
+      String lastIp = (String) httpSession.getAttribute(ApplicationSession.LAST_ACCESSED_BY_IP);
+      Entry entry = new Entry(session, appName, session.getIdInternal(),
+          session.getCreationTime(), session.getLastAccessedTime(), lastIp, now);
+      if (SORT_SIZE.equals(sort)) {
+        entry.size = sizeEstimator != null ? sizeEstimator.getSize(appName, session, false)
+            : ApplicationUtils.getSessionSize(session);
+      }
+      return entry;
+    } catch (IllegalStateException e) {
+      logger.trace("Session {} appears to be invalidated, ignore", session.getIdInternal(), e);
+      return null;
+    }
+  }
+
+  /**
+   * Gets the comparator of the entries, by sort key, application name and ID.
+   *
+   * @return the comparator
+   */
+  Comparator<Entry> getComparator() {
+    Comparator<Entry> bySortKey;
+    if (SORT_LAST_IP.equals(sort)) {
+      bySortKey = Comparator.comparing(entry -> entry.lastIp == null ? "" : entry.lastIp);
+    } else {
+      bySortKey = Comparator.comparingLong(this::getSortValue);
+    }
+    Comparator<Entry> comparator = bySortKey
+        .thenComparing(entry -> entry.applicationName == null ? "" : entry.applicationName)
+        .thenComparing(entry -> entry.id);
+    return descending ? comparator.reversed() : comparator;
+  }
+
+  /**
+   * Gets the numeric sort key of an entry, stable while time passes.
+   *
+   * @param entry the entry
+   * @return the sort value
+   */
+  private long getSortValue(Entry entry) {
+    switch (sort) {
+      case SORT_AGE:
+        return -entry.creationTime;
+      case SORT_SIZE:
+        return entry.size;
+      case SORT_IDLE_TIME:
+      default:
+        return -entry.lastAccessedTime;
+    }
+  }
+
+  /**
+   * Gets the cursor of an entry.
+   *
+   * @param entry the entry
+   * @return the cursor
+   */
+  String getCursor(Entry entry) {
+    String key = SORT_LAST_IP.equals(sort) ? (entry.lastIp == null ? "" : entry.lastIp)
+        : Long.toString(getSortValue(entry));
+    return key + CURSOR_SEPARATOR + entry.id + CURSOR_SEPARATOR
+        + (entry.applicationName == null ? "" : entry.applicationName);
+  }
+
+  /**
+   * Parses a cursor into an entry holding its sort key.
+   *
+   * @param cursor the cursor
+   * @return the entry, null if there is no cursor or it is invalid
+   */
+  private Entry parseCursor(String cursor) {
+    if (cursor == null) {
+      return null;
+    }
+    String[] fields = cursor.split("\\" + CURSOR_SEPARATOR, 3);
+    if (fields.length < 3) {
+      return null;
+    }
+    Entry entry = new Entry(null, fields[2].isEmpty() ? null : fields[2], fields[1], 0, 0,
+        fields[0], 0);
+    if (!SORT_LAST_IP.equals(sort)) {
+      long value;
+      try {
+        value = Long.parseLong(fields[0]);
+      } catch (NumberFormatException e) {
+        return null;
+      }
+      entry.creationTime = -value;
+      entry.lastAccessedTime = -value;
+      entry.size = value;
+    }
+    return entry;
+  }
+
+  /**
+   * The projection of a session its page is selected from.
+   */
+  public static class Entry {
+
+    /** The session. */
+    final Session session;
+
+    /** The application name. */
+    final String applicationName;
+
+    /** The ID. */
+    final String id;
+
+    /** The creation time. */
+    long creationTime;
+
+    /** The last accessed time. */
+    long lastAccessedTime;
+
+    /** The last IP. */
+    final String lastIp;
+
+    /** The size, -1 unless sorting by size or until estimated. */
+    long size = -1;
+
+    /** The time the entry was made. */
+    final long now;
+
+    /**
+     * Instantiates a new entry.
+     *
+     * @param session the session
+     * @param applicationName the application name
+     * @param id the ID
+     * @param creationTime the creation time
+     * @param lastAccessedTime the last accessed time
+     * @param lastIp the last IP
+     * @param now the time the entry was made
+     */
+    Entry(Session session, String applicationName, String id, long creationTime,
+        long lastAccessedTime, String lastIp, long now) {
+      this.session = session;
+      this.applicationName = applicationName;
+      this.id = id;
+      this.creationTime = creationTime;
+      this.lastAccessedTime = lastAccessedTime;
+      this.lastIp = lastIp;
+      this.now = now;
+    }
+
+    /**
+     * Gets the session.
+     *
+     * @return the session
+     */
+    public Session getSession() {
+      return session;
+    }
+
+    /**
+     * Gets the application name.
+     *
+     * @return the application name
+     */
+    public String getApplicationName() {
+      return applicationName;
+    }
+
+    /**
+     * Gets the ID.
+     *
+     * @return the ID
+     */
+    public String getId() {
+      return id;
+    }
+
+    /**
+     * Gets the age.
+     *
+     * @return the age, in milliseconds
+     */
+    public long getAge() {
+      return now - creationTime;
+    }
+
+    /**
+     * Gets the idle time.
+     *
+     * @return the idle time, in milliseconds
+     */
+    public long getIdleTime() {
+      return now - lastAccessedTime;
+    }
+
+    /**
+     * Gets the last IP.
+     *
+     * @return the last IP, null if unknown
+     */
+    public String getLastIp() {
+      return lastIp;
+    }
+
+  }
+
+  /**
+   * A page of sessions.
+   */
+  public static class Page {
+
+    /** The sessions. */
+    private final List<ApplicationSession> sessions;
+
+    /** The number of sessions matching. */
+    private final int total;
+
+    /** The number of sessions matching preceding the page. */
+    private final int offset;
+
+    /** The number of sessions selected for the page, some may have expired since. */
+    private final int count;
+
+    /** The cursor of the first session. */
+    private final String firstCursor;
+
+    /** The cursor of the last session. */
+    private final String lastCursor;
+
+    /**
+     * Instantiates a new page.
+     *
+     * @param sessions the sessions
+     * @param total the number of sessions matching
+     * @param offset the number of sessions matching preceding the page
+     * @param count the number of sessions selected for the page
+     * @param firstCursor the cursor of the first session
+     * @param lastCursor the cursor of the last session
+     */
+    Page(List<ApplicationSession> sessions, int total, int offset, int count, String firstCursor,
+        String lastCursor) {
+      this.sessions = Collections.unmodifiableList(sessions);
+      this.total = total;
+      this.offset = offset;
+      this.count = count;
+      this.firstCursor = firstCursor;
+      this.lastCursor = lastCursor;
+    }
+
+    /**
+     * Gets the sessions.
+     *
+     * @return the sessions
+     */
+    public List<ApplicationSession> getSessions() {
+      return sessions;
+    }
+
+    /**
+     * Gets the number of sessions matching.
+     *
+     * @return the total
+     */
+    public int getTotal() {
+      return total;
+    }
+
+    /**
+     * Gets the number of sessions matching preceding the page.
+     *
+     * @return the offset
+     */
+    public int getOffset() {
+      return offset;
+    }
+
+    /**
+     * Gets the cursor of the first session, to read the previous page.
+     *
+     * @return the first cursor
+     */
+    public String getFirstCursor() {
+      return firstCursor;
+    }
+
+    /**
+     * Gets the cursor of the last session, to read the next page.
+     *
+     * @return the last cursor
+     */
+    public String getLastCursor() {
+      return lastCursor;
+    }
+
+    /**
+     * Checks if there is a previous page.
+     *
+     * @return true, if there is a previous page
+     */
+    public boolean isPreviousAvailable() {
+      return offset > 0;
+    }
+
+    /**
+     * Checks if there is a next page.
+     *
+     * @return true, if there is a next page
+     */
+    public boolean isNextAvailable() {
+      return offset + count < total;
+    }
+
+  }
+
+}
@@ -0,0 +1,84 @@
+/*
+ * Licensed under the GPL License. You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   https://www.gnu.org/licenses/old-licenses/gpl-2.0.html
+ *
+ * THIS PACKAGE IS PROVIDED "AS IS" AND WITHOUT ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING,
+ * WITHOUT LIMITATION, THE IMPLIED WARRANTIES OF MERCHANTIBILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE.
+ */
+package psiprobe.tools;
+
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+/**
+ * Creates the thread pools of the probe. Their threads are daemons, so they never keep the
+ * container from stopping, and they end once idle for a minute, so a pool used now and then holds
+ * no thread in between.
+ */
+public final class ThreadPools {
+
+  /** The time an idle thread is kept, in seconds. */
+  private static final long KEEP_ALIVE_SECONDS = 60;
+
+  /**
+   * Prevent Instantiation.
+   */
+  private ThreadPools() {
+    // Prevent Instantiation
+  }
+
+  /**
+   * Creates a pool of a fixed number of threads, queuing the tasks submitted while all are busy.
+   *
+   * @param threadNamePrefix the prefix of the names of the threads
+   * @param threads the number of threads, at least 1
+   * @return the pool
+   */
+  public static ThreadPoolExecutor newThreadPool(String threadNamePrefix, int threads) {
+    ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, KEEP_ALIVE_SECONDS,
+        TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+        newThreadFactory(threadNamePrefix, Thread.NORM_PRIORITY));
+    pool.allowCoreThreadTimeOut(true);
+    return pool;
+  }
+
+  /**
+   * Creates a pool of a fixed number of threads running delayed tasks.
+   *
+   * @param threadNamePrefix the prefix of the names of the threads
+   * @param threads the number of threads, at least 1
+   * @param threadPriority the priority of the threads
+   * @return the pool
+   */
+  public static ScheduledThreadPoolExecutor newScheduledThreadPool(String threadNamePrefix,
+      int threads, int threadPriority) {
+    ScheduledThreadPoolExecutor pool = new ScheduledThreadPoolExecutor(threads,
+        newThreadFactory(threadNamePrefix, threadPriority));
+    pool.setKeepAliveTime(KEEP_ALIVE_SECONDS, TimeUnit.SECONDS);
+    pool.allowCoreThreadTimeOut(true);
+    return pool;
+  }
+
+  /**
+   * Creates a factory of daemon threads.
+   *
+   * @param threadNamePrefix the prefix of the names of the threads
+   * @param threadPriority the priority of the threads
+   * @return the thread factory
+   */
+  private static CustomizableThreadFactory newThreadFactory(String threadNamePrefix,
+      int threadPriority) {
+    CustomizableThreadFactory threadFactory = new CustomizableThreadFactory(threadNamePrefix);
+    threadFactory.setDaemon(true);
+    threadFactory.setThreadPriority(threadPriority);
+    return threadFactory;
+  }
+
+}
@@ -164,6 +164,8 @@ public final class TimeExpression {
         return 60;
       case 'h':
         return 60 * 60;
+      case 'd':
+        return 60 * 60 * 24;
       default:
         throw new IllegalArgumentException("Invalid unit: " + unit);
     }
@@ -0,0 +1,507 @@
+/*
+ * Licensed under the GPL License. You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   https://www.gnu.org/licenses/old-licenses/gpl-2.0.html
+ *
+ * THIS PACKAGE IS PROVIDED "AS IS" AND WITHOUT ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING,
+ * WITHOUT LIMITATION, THE IMPLIED WARRANTIES OF MERCHANTIBILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE.
+ */
+package psiprobe.tools.logging;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A seek index of a compressed log file, built by decompressing the file once.
+ *
+ * <p>
+ * A gzip or ZIP file can only be decompressed from its start, and java.util.zip cannot resume
+ * inflating in the middle of a deflate stream. So the content is cut into spans at checkpoints,
+ * every span being deflated again on its own, at the fastest level. Reading at any position then
+ * only inflates the span holding it, rather than the whole file up to the position.
+ * </p>
+ *
+ * <p>
+ * The spans are spilled to a temporary file, only their offsets are kept in heap. The file is
+ * deleted once the index is released by its last holder, the cache or a {@link CompressedLogReader}.
+ * </p>
+ *
+ * <p>
+ * Indexes are cached, by file, until the file changes or the spilled spans of the cached indexes
+ * grow past the cache size, a budget of disk space, the least recently used ones being dropped
+ * first. An index larger than that on its own is not cached at all, but the length of the content
+ * is, for the file size to be polled without indexing the file again. Concurrent requests for a
+ * file that is being indexed wait for that index rather than building their own.
+ * {@link #clearCache()} deletes the spill files of the cached indexes, e.g. on shutdown.
+ * </p>
+ */
+public final class CompressedLogIndex {
+
+  /** The Constant logger. */
+  private static final Logger logger = LoggerFactory.getLogger(CompressedLogIndex.class);
+
+  /** The default span size, of uncompressed content. */
+  public static final int DEFAULT_SPAN_SIZE = 1024 * 1024;
+
+  /** The default size of the cached spans, in bytes, on disk. */
+  public static final long DEFAULT_MAX_CACHE_SIZE = 1024L * 1024 * 1024;
+
+  /** The number of files the length of the content is cached for. */
+  private static final int MAX_CACHED_LENGTHS = 1024;
+
+  /** The cached indexes, by canonical path, least recently used first. */
+  private static final Map<String, CompressedLogIndex> cache = new LinkedHashMap<>(16, 0.75f, true);
+
+  /** The indexes being built, by canonical path. Guarded by {@link #cache}. */
+  private static final Map<String, CompletableFuture<CompressedLogIndex>> building =
+      new HashMap<>();
+
+  /** The lengths of the content of the files indexed, by canonical path. Guarded by cache. */
+  private static final Map<String, CachedLength> lengths =
+      new LinkedHashMap<String, CachedLength>(16, 0.75f, true) {
+
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CachedLength> eldest) {
+          return size() > MAX_CACHED_LENGTHS;
+        }
+      };
+
+  /** The size of the cached spans. Guarded by {@link #cache}. */
+  private static long cacheSize;
+
+  /** The size of the cached spans beyond which the least recently used are dropped. */
+  private static long maxCacheSize = DEFAULT_MAX_CACHE_SIZE;
+
+  /** The length of the uncompressed content. */
+  private final long length;
+
+  /** The uncompressed size of every span, except perhaps the last one. */
+  private final int spanSize;
+
+  /** The temporary file holding the spans, deflated. */
+  private final File spill;
+
+  /** The offsets of the spans in the spill file, and the end of the last one. */
+  private final long[] offsets;
+
+  /** The holders of the index, the spill file being deleted when none is left. */
+  private int refs = 1;
+
+  /** The length of the file indexed, to tell when it changed. */
+  private long fileLength;
+
+  /** The modification time of the file indexed, to tell when it changed. */
+  private long fileLastModified;
+
+  /**
+   * Instantiates a new compressed log index.
+   *
+   * @param length the length of the uncompressed content
+   * @param spanSize the span size
+   * @param spill the spill file
+   * @param offsets the offsets of the spans in the spill file
+   */
+  private CompressedLogIndex(long length, int spanSize, File spill, long[] offsets) {
+    this.length = length;
+    this.spanSize = spanSize;
+    this.spill = spill;
+    this.offsets = offsets;
+  }
+
+  /**
+   * Gets the max cache size.
+   *
+   * @return the size of the cached spans, in bytes, beyond which the least recently used are
+   *         dropped
+   */
+  public static long getMaxCacheSize() {
+    synchronized (cache) {
+      return maxCacheSize;
+    }
+  }
+
+  /**
+   * Sets the max cache size, dropping the least recently used indexes beyond it.
+   *
+   * @param maxCacheSize the size of the cached spans, in bytes, beyond which the least recently
+   *        used are dropped
+   */
+  public static void setMaxCacheSize(long maxCacheSize) {
+    synchronized (cache) {
+      CompressedLogIndex.maxCacheSize = maxCacheSize;
+      trimCache();
+    }
+  }
+
+  /**
+   * Opens a reader of a compressed file, through its index, building the index if it is not cached
+   * or the file changed.
+   *
+   * @param file the file, compressed
+   * @return the reader, to be closed for the index to be released
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  public static CompressedLogReader openReader(File file) throws IOException {
+    String key = file.getCanonicalPath();
+    while (true) {
+      long fileLength = file.length();
+      long fileLastModified = file.lastModified();
+      CompletableFuture<CompressedLogIndex> pending;
+      boolean builder = false;
+      synchronized (cache) {
+        CompressedLogIndex index = cache.get(key);
+        if (index != null && index.isOf(fileLength, fileLastModified)) {
+          index.refs++;
+          return new CompressedLogReader(index);
+        }
+        pending = building.get(key);
+        if (pending == null) {
+          pending = new CompletableFuture<>();
+          building.put(key, pending);
+          builder = true;
+        }
+      }
+
+      if (builder) {
+        return new CompressedLogReader(
+            buildAndCache(file, key, fileLength, fileLastModified, pending));
+      }
+
+      CompressedLogIndex index;
+      try {
+        index = pending.join();
+      } catch (CompletionException e) {
+        if (e.getCause() instanceof IOException) {
+          throw (IOException) e.getCause();
+        }
+        throw new IOException("Could not index " + file, e.getCause());
+      }
+      synchronized (cache) {
+        // still held, by the cache or the reader of the thread that built it
+        if (index.refs > 0 && index.isOf(fileLength, fileLastModified)) {
+          index.refs++;
+          return new CompressedLogReader(index);
+        }
+      }
+      // released already or outdated, built again
+    }
+  }
+
+  /**
+   * Gets the length of the uncompressed content of a compressed file.
+   *
+   * @param file the file, compressed
+   * @return the length
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  public static long getLength(File file) throws IOException {
+    String key = file.getCanonicalPath();
+    long fileLength = file.length();
+    long fileLastModified = file.lastModified();
+    synchronized (cache) {
+      CachedLength cached = lengths.get(key);
+      if (cached != null && cached.fileLength == fileLength
+          && cached.fileLastModified == fileLastModified) {
+        return cached.length;
+      }
+    }
+    try (CompressedLogReader reader = openReader(file)) {
+      return reader.length();
+    }
+  }
+
+  /**
+   * Builds the index of a file and caches it, unless it is too large, completing the pending
+   * result the other threads asking for the file wait for.
+   *
+   * @param file the file
+   * @param key the cache key
+   * @param fileLength the length of the file
+   * @param fileLastModified the modification time of the file
+   * @param pending the pending result
+   * @return the index, held for the caller
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  private static CompressedLogIndex buildAndCache(File file, String key, long fileLength,
+      long fileLastModified, CompletableFuture<CompressedLogIndex> pending) throws IOException {
+    CompressedLogIndex index;
+    try {
+      long start = System.currentTimeMillis();
+      try (InputStream in = LogFiles.openStream(file)) {
+        index = build(in, DEFAULT_SPAN_SIZE);
+      }
+      index.fileLength = fileLength;
+      index.fileLastModified = fileLastModified;
+      logger.debug("Indexed {}, {} bytes in {} spans, in {}ms", file, index.length,
+          index.getSpanCount(), System.currentTimeMillis() - start);
+    } catch (IOException | RuntimeException e) {
+      synchronized (cache) {
+        building.remove(key);
+      }
+      pending.completeExceptionally(e);
+      throw e;
+    }
+
+    synchronized (cache) {
+      building.remove(key);
+      lengths.put(key, new CachedLength(fileLength, fileLastModified, index.length));
+      long size = index.getCompressedSize();
+      if (size <= maxCacheSize) {
+        index.refs++;
+        CompressedLogIndex previous = cache.put(key, index);
+        if (previous != null) {
+          cacheSize -= previous.getCompressedSize();
+          previous.release();
+        }
+        cacheSize += size;
+        trimCache();
+      } else {
+        logger.debug("Not caching the index of {}, {} bytes is over the cache size", file, size);
+      }
+    }
+    pending.complete(index);
+    return index;
+  }
+
+  /**
+   * Drops the least recently used indexes while the cached spans are over the cache size.
+   */
+  private static void trimCache() {
+    Iterator<CompressedLogIndex> it = cache.values().iterator();
+    while (cacheSize > maxCacheSize && it.hasNext()) {
+      CompressedLogIndex eldest = it.next();
+      cacheSize -= eldest.getCompressedSize();
+      it.remove();
+      eldest.release();
+    }
+  }
+
+  /**
+   * Builds the index of uncompressed content, held for the caller.
+   *
+   * @param in the uncompressed content
+   * @param spanSize the span size
+   * @return the index, to be released, or handed to a {@link CompressedLogReader} that releases it
+   *         when closed
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  public static CompressedLogIndex build(InputStream in, int spanSize) throws IOException {
+    File spill = File.createTempFile("psi-probe-log-", ".spans");
+    long[] offsets = new long[16];
+    int spanCount = 0;
+    long length = 0;
+    byte[] span = new byte[spanSize];
+    byte[] buffer = new byte[64 * 1024];
+    Deflater deflater = new Deflater(Deflater.BEST_SPEED, true);
+    try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(spill.toPath()))) {
+      long offset = 0;
+      int count;
+      do {
+        count = 0;
+        int n;
+        while (count < spanSize && (n = in.read(span, count, spanSize - count)) > 0) {
+          count += n;
+        }
+        if (count > 0) {
+          deflater.reset();
+          deflater.setInput(span, 0, count);
+          deflater.finish();
+          while (!deflater.finished()) {
+            int deflated = deflater.deflate(buffer);
+            out.write(buffer, 0, deflated);
+            offset += deflated;
+          }
+          if (spanCount + 1 == offsets.length) {
+            offsets = Arrays.copyOf(offsets, offsets.length * 2);
+          }
+          offsets[++spanCount] = offset;
+          length += count;
+        }
+      } while (count == spanSize);
+    } catch (IOException | RuntimeException e) {
+      Files.deleteIfExists(spill.toPath());
+      throw e;
+    } finally {
+      deflater.end();
+    }
+    return new CompressedLogIndex(length, spanSize, spill,
+        Arrays.copyOf(offsets, spanCount + 1));
+  }
+
+  /**
+   * Tells whether the index is of a file of the given length and modification time.
+   *
+   * @param length the length of the file
+   * @param lastModified the modification time of the file
+   * @return true, if the file did not change since it was indexed
+   */
+  private boolean isOf(long length, long lastModified) {
+    return fileLength == length && fileLastModified == lastModified;
+  }
+
+  /**
+   * Releases the index for one of its holders, deleting the spill file after the last one.
+   */
+  void release() {
+    synchronized (cache) {
+      if (refs > 0 && --refs == 0 && !spill.delete()) {
+        logger.warn("Could not delete {}", spill);
+      }
+    }
+  }
+
+  /**
+   * Gets the length of the uncompressed content.
+   *
+   * @return the length
+   */
+  public long getLength() {
+    return length;
+  }
+
+  /**
+   * Gets the span size.
+   *
+   * @return the uncompressed size of every span, except perhaps the last one
+   */
+  public int getSpanSize() {
+    return spanSize;
+  }
+
+  /**
+   * Gets the number of spans.
+   *
+   * @return the span count
+   */
+  public int getSpanCount() {
+    return offsets.length - 1;
+  }
+
+  /**
+   * Gets the size of the spans, deflated, in the spill file.
+   *
+   * @return the size, in bytes
+   */
+  public long getCompressedSize() {
+    return offsets[offsets.length - 1];
+  }
+
+  /**
+   * Inflates a span.
+   *
+   * @param span the span, the position it starts at being {@code span * getSpanSize()}
+   * @return the uncompressed content of the span
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  public byte[] inflateSpan(int span) throws IOException {
+    byte[] deflated = new byte[(int) (offsets[span + 1] - offsets[span])];
+    try (RandomAccessFile raf = new RandomAccessFile(spill, "r")) {
+      raf.seek(offsets[span]);
+      raf.readFully(deflated);
+    }
+
+    long start = (long) span * spanSize;
+    byte[] content = new byte[(int) Math.min(spanSize, length - start)];
+    Inflater inflater = new Inflater(true);
+    try {
+      inflater.setInput(deflated);
+      int count = 0;
+      while (count < content.length && !inflater.finished()) {
+        int n = inflater.inflate(content, count, content.length - count);
+        if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+          break;
+        }
+        count += n;
+      }
+      if (count < content.length) {
+        throw new IOException("Truncated span " + span);
+      }
+    } catch (DataFormatException e) {
+      throw new IOException("Corrupt span " + span, e);
+    } finally {
+      inflater.end();
+    }
+    return content;
+  }
+
+  /**
+   * Tells whether the index of a file is cached.
+   *
+   * @param file the file
+   * @return true, if cached
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  static boolean isCached(File file) throws IOException {
+    String key = file.getCanonicalPath();
+    synchronized (cache) {
+      return cache.containsKey(key);
+    }
+  }
+
+  /**
+   * Clears the cache, deleting the spill files of the indexes not held by a reader, the others
+   * being deleted once their readers are closed.
+   */
+  public static void clearCache() {
+    synchronized (cache) {
+      for (CompressedLogIndex index : cache.values()) {
+        index.release();
+      }
+      cache.clear();
+      lengths.clear();
+      cacheSize = 0;
+    }
+  }
+
+  /**
+   * The length of the content of a compressed file, as of the length and modification time of the
+   * file.
+   */
+  private static class CachedLength {
+
+    /** The length of the file. */
+    final long fileLength;
+
+    /** The modification time of the file. */
+    final long fileLastModified;
+
+    /** The length of the uncompressed content. */
+    final long length;
+
+    /**
+     * Instantiates a new cached length.
+     *
+     * @param fileLength the length of the file
+     * @param fileLastModified the modification time of the file
+     * @param length the length of the uncompressed content
+     */
+    CachedLength(long fileLength, long fileLastModified, long length) {
+      this.fileLength = fileLength;
+      this.fileLastModified = fileLastModified;
+      this.length = length;
+    }
+  }
+
+}
@@ -0,0 +1,78 @@
+/*
+ * Licensed under the GPL License. You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   https://www.gnu.org/licenses/old-licenses/gpl-2.0.html
+ *
+ * THIS PACKAGE IS PROVIDED "AS IS" AND WITHOUT ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING,
+ * WITHOUT LIMITATION, THE IMPLIED WARRANTIES OF MERCHANTIBILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE.
+ */
+package psiprobe.tools.logging;
+
+import java.io.IOException;
+
+/**
+ * Reads a compressed log file through its seek index, keeping the last span inflated so reading a
+ * span piece by piece, forwards or backwards, inflates it once. The index is released when the
+ * reader is closed.
+ */
+public class CompressedLogReader implements LogReader {
+
+  /** The index. */
+  private final CompressedLogIndex index;
+
+  /** The span inflated, -1 if none. */
+  private int span = -1;
+
+  /** The content of the span inflated. */
+  private byte[] content;
+
+  /** Whether the reader was closed, and the index released. */
+  private boolean closed;
+
+  /**
+   * Instantiates a new compressed log reader.
+   *
+   * @param index the index of the file, held for the reader, which releases it when closed
+   */
+  public CompressedLogReader(CompressedLogIndex index) {
+    this.index = index;
+  }
+
+  @Override
+  public long length() {
+    return index.getLength();
+  }
+
+  @Override
+  public int read(long pos, byte[] b, int off, int len) throws IOException {
+    if (closed) {
+      throw new IOException("Reader closed");
+    }
+    if (pos >= index.getLength()) {
+      return -1;
+    }
+    int spanSize = index.getSpanSize();
+    int needed = (int) (pos / spanSize);
+    if (needed != span) {
+      content = index.inflateSpan(needed);
+      span = needed;
+    }
+    int start = (int) (pos - (long) needed * spanSize);
+    int count = Math.min(len, content.length - start);
+    System.arraycopy(content, start, b, off, count);
+    return count;
+  }
+
+  @Override
+  public void close() {
+    content = null;
+    span = -1;
+    if (!closed) {
+      closed = true;
+      index.release();
+    }
+  }
+
+}
@@ -13,12 +13,11 @@ package psiprobe.tools.logging;
 import java.lang.reflect.InvocationTargetException;
 
 import org.apache.commons.beanutils.PropertyUtils;
-import org.apache.commons.lang3.reflect.FieldUtils;
-import org.apache.commons.lang3.reflect.MethodUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import psiprobe.model.Application;
+import psiprobe.tools.AccessorCache;
 
 /**
  * The Class DefaultAccessor.
@@ -91,7 +90,7 @@ public class DefaultAccessor {
   protected Object getProperty(Object obj, String name, Object defaultValue, boolean forced) {
     try {
       if (forced) {
-        return FieldUtils.readField(obj, name, forced);
+        return AccessorCache.readField(obj, name);
       } else {
         return PropertyUtils.isReadable(obj, name) ? PropertyUtils.getProperty(obj, name)
             : defaultValue;
@@ -128,9 +127,9 @@ public class DefaultAccessor {
   protected Object invokeMethod(Object object, String name, Object param, Object defaultValue) {
     try {
       if (param == null) {
-        return MethodUtils.invokeMethod(object, name);
+        return AccessorCache.invokeMethod(object, name);
       }
-      return MethodUtils.invokeMethod(object, name, param);
+      return AccessorCache.invokeMethod(object, name, param);
     } catch (NoSuchMethodException | IllegalAccessException | InvocationTargetException e) {
       logger.error("", e);
     }
@@ -0,0 +1,173 @@
+/*
+ * Licensed under the GPL License. You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   https://www.gnu.org/licenses/old-licenses/gpl-2.0.html
+ *
+ * THIS PACKAGE IS PROVIDED "AS IS" AND WITHOUT ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING,
+ * WITHOUT LIMITATION, THE IMPLIED WARRANTIES OF MERCHANTIBILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE.
+ */
+package psiprobe.tools.logging;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * Utilities for the files of log destinations.
+ */
+public final class LogFiles {
+
+  /** The date found in the names of files rotated daily, e.g. "catalina.2020-01-31.log". */
+  private static final Pattern DATE = Pattern.compile("\\d{4}-\\d{2}-\\d{2}");
+
+  /**
+   * Prevent Instantiation.
+   */
+  private LogFiles() {
+    // Prevent Instantiation
+  }
+
+  /**
+   * Finds the files a log file was rotated into, or which were rotated alongside it. A file named
+   * after a date, as Tomcat names them, goes with the files named alike for other dates; any other
+   * file goes with the files named after it followed by a suffix, e.g. "app.log.1" or
+   * "app.log.2020-01-31".
+   *
+   * @param file the file
+   * @return the rotated files, most recently modified first, the file itself excluded
+   */
+  public static List<File> findRotatedFiles(File file) {
+    File dir = file.getAbsoluteFile().getParentFile();
+    String name = file.getName();
+    Pattern rotated;
+    Matcher matcher = DATE.matcher(name);
+    if (matcher.find()) {
+      rotated = Pattern.compile(Pattern.quote(name.substring(0, matcher.start())) + DATE.pattern()
+          + Pattern.quote(name.substring(matcher.end())) + "([.-].+)?");
+    } else {
+      rotated = Pattern.compile(Pattern.quote(name) + "[.-].+");
+    }
+    List<File> files = new ArrayList<>();
+    File[] siblings = dir == null ? null : dir.listFiles();
+    if (siblings != null) {
+      for (File sibling : siblings) {
+        if (!sibling.getName().equals(name) && sibling.isFile()
+            && rotated.matcher(sibling.getName()).matches()) {
+          files.add(sibling);
+        }
+      }
+    }
+    files.sort(Comparator.comparingLong(File::lastModified).reversed());
+    return files;
+  }
+
+  /**
+   * Gets a log file and the files it was rotated into.
+   *
+   * @param file the file
+   * @return the files, the log file first
+   */
+  public static List<File> withRotatedFiles(File file) {
+    List<File> files = new ArrayList<>(Arrays.asList(file));
+    files.addAll(findRotatedFiles(file));
+    return files;
+  }
+
+  /**
+   * Finds a file a log file was rotated into, by its name.
+   *
+   * @param file the log file
+   * @param name the name of the rotated file
+   * @return the rotated file, null if the log file was rotated into no file of this name
+   */
+  public static File findRotatedFile(File file, String name) {
+    for (File rotated : findRotatedFiles(file)) {
+      if (rotated.getName().equals(name)) {
+        return rotated;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Tells whether a file is compressed, as rotated files often are, from its extension.
+   *
+   * @param file the file
+   * @return true, if the file is gzip or ZIP compressed
+   */
+  public static boolean isCompressed(File file) {
+    String name = file.getName().toLowerCase(Locale.ROOT);
+    return name.endsWith(".gz") || name.endsWith(".zip");
+  }
+
+  /**
+   * Opens a log file to read its content from the start, decompressing it if need be. The content
+   * of a ZIP file is that of its first file.
+   *
+   * @param file the file
+   * @return the content
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  public static InputStream openStream(File file) throws IOException {
+    InputStream in = new BufferedInputStream(Files.newInputStream(file.toPath()), 64 * 1024);
+    try {
+      String name = file.getName().toLowerCase(Locale.ROOT);
+      if (name.endsWith(".gz")) {
+        return new GZIPInputStream(in, 64 * 1024);
+      }
+      if (name.endsWith(".zip")) {
+        ZipInputStream zip = new ZipInputStream(in);
+        ZipEntry entry = zip.getNextEntry();
+        while (entry != null && entry.isDirectory()) {
+          entry = zip.getNextEntry();
+        }
+        return zip;
+      }
+      return in;
+    } catch (IOException e) {
+      in.close();
+      throw e;
+    }
+  }
+
+  /**
+   * Opens a log file to read its content at any position, through the seek index of the file if
+   * it is compressed.
+   *
+   * @param file the file
+   * @return the reader
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  public static LogReader openReader(File file) throws IOException {
+    if (isCompressed(file)) {
+      return CompressedLogIndex.openReader(file);
+    }
+    return new FileLogReader(file);
+  }
+
+  /**
+   * Gets the length of the content of a log file, uncompressed.
+   *
+   * @param file the file
+   * @return the length
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  public static long getLength(File file) throws IOException {
+    return isCompressed(file) ? CompressedLogIndex.getLength(file) : file.length();
+  }
+
+}
@@ -0,0 +1,568 @@
+/*
+ * Licensed under the GPL License. You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   https://www.gnu.org/licenses/old-licenses/gpl-2.0.html
+ *
+ * THIS PACKAGE IS PROVIDED "AS IS" AND WITHOUT ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING,
+ * WITHOUT LIMITATION, THE IMPLIED WARRANTIES OF MERCHANTIBILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE.
+ */
+package psiprobe.tools.logging;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A sparse index of the lines of a log file, so the file can be read from a line number or a time
+ * reading little more than the lines wanted.
+ *
+ * <p>
+ * A checkpoint is taken at the first line starting at least every {@link #DEFAULT_INTERVAL} bytes,
+ * holding its offset, its line number and the first timestamp found from it on. Seeking reads from
+ * the closest checkpoint before the line or time wanted, so it costs at most an interval of reading
+ * whatever the size of the file. The index is extended with the lines appended to the file since
+ * it was last updated, and built again when the file is truncated or replaced.
+ * </p>
+ *
+ * <p>
+ * Indexes are cached by file, the {@value #MAX_CACHED} most recently used being kept.
+ * </p>
+ */
+public final class LogLineIndex {
+
+  /** The default interval between checkpoints, in bytes. */
+  public static final int DEFAULT_INTERVAL = 256 * 1024;
+
+  /** The number of indexes cached. */
+  private static final int MAX_CACHED = 32;
+
+  /** The number of bytes of the start of a line its timestamp is read from. */
+  private static final int PREFIX_LENGTH = 64;
+
+  /** The number of bytes of a line kept in a page, the rest being cut. */
+  private static final int MAX_LINE_LENGTH = 64 * 1024;
+
+  /** The number of lines the timestamp format is detected from. */
+  private static final int DETECTION_LINES = 20;
+
+  /** The cached indexes, by canonical path, least recently used first. */
+  private static final Map<String, LogLineIndex> cache =
+      new LinkedHashMap<String, LogLineIndex>(16, 0.75f, true) {
+
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, LogLineIndex> eldest) {
+          return size() > MAX_CACHED;
+        }
+      };
+
+  /** The interval between checkpoints. */
+  private final int interval;
+
+  /** The timestamp format, null if the lines have no timestamp known. */
+  private LogTimestampFormat timestampFormat;
+
+  /** Whether the timestamp format was given, rather than detected. */
+  private final boolean timestampFormatGiven;
+
+  /** The offsets of the checkpoints. */
+  private long[] offsets = new long[16];
+
+  /** The line numbers of the checkpoints, from 1. */
+  private long[] lines = new long[16];
+
+  /** The first timestamp from the checkpoints on, as keys, -1 if none was found yet. */
+  private long[] times = new long[16];
+
+  /** The number of checkpoints. */
+  private int count;
+
+  /** The offset of the first line not indexed yet. */
+  private long indexedLength;
+
+  /** The number of lines indexed, terminated lines only. */
+  private long lineCount;
+
+  /** The key of the file indexed, null if unknown. */
+  private Object fileKey;
+
+  /**
+   * Instantiates a new log line index.
+   *
+   * @param interval the interval between checkpoints, in bytes
+   * @param timestampFormat the timestamp format, detected from the first lines if null
+   */
+  public LogLineIndex(int interval, LogTimestampFormat timestampFormat) {
+    this.interval = Math.max(1, interval);
+    this.timestampFormat = timestampFormat;
+    this.timestampFormatGiven = timestampFormat != null;
+  }
+
+  /**
+   * Gets the index of a log file, extended to the lines appended since it was last used. The
+   * timestamp format is the one of the index created first for the file.
+   *
+   * @param file the file
+   * @param reader the reader of the file
+   * @param timestampFormat the timestamp format, detected from the first lines if null
+   * @return the index
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  public static LogLineIndex forFile(File file, LogReader reader,
+      LogTimestampFormat timestampFormat) throws IOException {
+    String key = file.getCanonicalPath();
+    LogLineIndex index;
+    synchronized (cache) {
+      index = cache.get(key);
+      if (index == null) {
+        index = new LogLineIndex(DEFAULT_INTERVAL, timestampFormat);
+        cache.put(key, index);
+      }
+    }
+    Object currentKey = Files.readAttributes(file.toPath(), BasicFileAttributes.class).fileKey();
+    synchronized (index) {
+      if (currentKey != null && !currentKey.equals(index.fileKey)) {
+        index.reset();
+        index.fileKey = currentKey;
+      }
+      index.update(reader);
+    }
+    return index;
+  }
+
+  /**
+   * Extends the index to the lines appended to the file, building it again if the file got
+   * shorter.
+   *
+   * @param reader the reader of the file
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  public synchronized void update(LogReader reader) throws IOException {
+    long length = reader.length();
+    if (length < indexedLength) {
+      reset();
+    }
+    if (count == 0) {
+      if (timestampFormat == null) {
+        timestampFormat = detect(reader);
+      }
+      addCheckpoint(0, 1);
+    }
+    LineScanner scanner = new LineScanner(reader, indexedLength, length);
+    ByteArrayOutputStream prefix = new ByteArrayOutputStream(PREFIX_LENGTH);
+    while (true) {
+      long lineStart = scanner.getPosition();
+      if (lineStart - offsets[count - 1] >= interval) {
+        addCheckpoint(lineStart, lineCount + 1);
+      }
+      boolean timeWanted = timestampFormat != null && times[count - 1] < 0;
+      if (scanner.next(timeWanted ? prefix : null, PREFIX_LENGTH) != 1) {
+        // a line not terminated yet is indexed once it is
+        indexedLength = lineStart;
+        break;
+      }
+      if (timeWanted) {
+        times[count - 1] = timestampFormat.parse(decode(prefix, StandardCharsets.ISO_8859_1));
+      }
+      lineCount++;
+    }
+  }
+
+  /**
+   * Gets the number of terminated lines indexed.
+   *
+   * @return the line count
+   */
+  public synchronized long getLineCount() {
+    return lineCount;
+  }
+
+  /**
+   * Gets the number of checkpoints.
+   *
+   * @return the checkpoint count
+   */
+  public synchronized int getCheckpointCount() {
+    return count;
+  }
+
+  /**
+   * Gets the timestamp format.
+   *
+   * @return the timestamp format, null if the lines have no timestamp known
+   */
+  public synchronized LogTimestampFormat getTimestampFormat() {
+    return timestampFormat;
+  }
+
+  /**
+   * Finds a line, reading from the checkpoint preceding it.
+   *
+   * @param reader the reader of the file
+   * @param line the line number, from 1, the number of the last line being used if greater
+   * @return the position of the line
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  public synchronized Position findLine(LogReader reader, long line) throws IOException {
+    long target = Math.max(1, Math.min(line, lineCount + 1));
+    int checkpoint = Arrays.binarySearch(lines, 0, count, target);
+    if (checkpoint < 0) {
+      checkpoint = -checkpoint - 2;
+    }
+    LineScanner scanner = new LineScanner(reader, offsets[checkpoint], reader.length());
+    long number = lines[checkpoint];
+    while (number < target && scanner.next(null, 0) == 1) {
+      number++;
+    }
+    return new Position(scanner.getPosition(), number);
+  }
+
+  /**
+   * Finds the first line logged at or after a time, reading from the last checkpoint before it.
+   * Lines are expected to be logged in order.
+   *
+   * @param reader the reader of the file
+   * @param time the time
+   * @return the position of the line, the end of the file if every line was logged before; null if
+   *         the lines have no timestamp known
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  public synchronized Position findTime(LogReader reader, LocalDateTime time) throws IOException {
+    if (timestampFormat == null) {
+      return null;
+    }
+    long key = timestampFormat.toKey(time);
+    int checkpoint = 0;
+    for (int i = 0; i < count; i++) {
+      if (times[i] >= key) {
+        break;
+      } else if (times[i] >= 0) {
+        checkpoint = i;
+      }
+    }
+    LineScanner scanner = new LineScanner(reader, offsets[checkpoint], reader.length());
+    ByteArrayOutputStream prefix = new ByteArrayOutputStream(PREFIX_LENGTH);
+    long number = lines[checkpoint];
+    while (true) {
+      long lineStart = scanner.getPosition();
+      if (scanner.next(prefix, PREFIX_LENGTH) < 0
+          || timestampFormat.parse(decode(prefix, StandardCharsets.ISO_8859_1)) >= key) {
+        return new Position(lineStart, number);
+      }
+      number++;
+    }
+  }
+
+  /**
+   * Reads a page of lines.
+   *
+   * @param reader the reader of the file
+   * @param start the position of the first line
+   * @param maxLines the number of lines read at most
+   * @param charset the charset of the file
+   * @return the page
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  public static Page readPage(LogReader reader, Position start, int maxLines, Charset charset)
+      throws IOException {
+    LineScanner scanner = new LineScanner(reader, start.getOffset(), reader.length());
+    ByteArrayOutputStream line = new ByteArrayOutputStream(256);
+    List<String> pageLines = new ArrayList<>();
+    while (pageLines.size() < maxLines && scanner.next(line, MAX_LINE_LENGTH) >= 0) {
+      pageLines.add(decode(line, charset));
+    }
+    return new Page(start, scanner.getPosition(), pageLines);
+  }
+
+  /**
+   * Resets the index, to build it again.
+   */
+  private void reset() {
+    count = 0;
+    indexedLength = 0;
+    lineCount = 0;
+    if (!timestampFormatGiven) {
+      timestampFormat = null;
+    }
+  }
+
+  /**
+   * Adds a checkpoint.
+   *
+   * @param offset the offset of the line
+   * @param line the line number
+   */
+  private void addCheckpoint(long offset, long line) {
+    if (count == offsets.length) {
+      offsets = Arrays.copyOf(offsets, count * 2);
+      lines = Arrays.copyOf(lines, count * 2);
+      times = Arrays.copyOf(times, count * 2);
+    }
+    offsets[count] = offset;
+    lines[count] = line;
+    times[count] = -1;
+    count++;
+  }
+
+  /**
+   * Detects the timestamp format from the first lines.
+   *
+   * @param reader the reader of the file
+   * @return the timestamp format, null if none is recognized
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  private static LogTimestampFormat detect(LogReader reader) throws IOException {
+    LineScanner scanner = new LineScanner(reader, 0, reader.length());
+    ByteArrayOutputStream line = new ByteArrayOutputStream(PREFIX_LENGTH);
+    List<String> firstLines = new ArrayList<>(DETECTION_LINES);
+    while (firstLines.size() < DETECTION_LINES && scanner.next(line, PREFIX_LENGTH) >= 0) {
+      firstLines.add(decode(line, StandardCharsets.ISO_8859_1));
+    }
+    return LogTimestampFormat.detect(firstLines);
+  }
+
+  /**
+   * Decodes a line, without a trailing carriage return.
+   *
+   * @param line the line
+   * @param charset the charset
+   * @return the line
+   */
+  private static String decode(ByteArrayOutputStream line, Charset charset) {
+    String text = new String(line.toByteArray(), charset);
+    return text.endsWith("\r") ? text.substring(0, text.length() - 1) : text;
+  }
+
+  /**
+   * Clears the cache.
+   */
+  static void clearCache() {
+    synchronized (cache) {
+      cache.clear();
+    }
+  }
+
+  /**
+   * The position of a line.
+   */
+  public static class Position {
+
+    /** The offset. */
+    private final long offset;
+
+    /** The line number, from 1. */
+    private final long line;
+
+    /**
+     * Instantiates a new position.
+     *
+     * @param offset the offset
+     * @param line the line number, from 1
+     */
+    public Position(long offset, long line) {
+      this.offset = offset;
+      this.line = line;
+    }
+
+    /**
+     * Gets the offset.
+     *
+     * @return the offset
+     */
+    public long getOffset() {
+      return offset;
+    }
+
+    /**
+     * Gets the line number.
+     *
+     * @return the line number, from 1
+     */
+    public long getLine() {
+      return line;
+    }
+
+  }
+
+  /**
+   * A page of lines.
+   */
+  public static class Page {
+
+    /** The position of the first line. */
+    private final Position start;
+
+    /** The offset following the last line. */
+    private final long endOffset;
+
+    /** The lines. */
+    private final List<String> lines;
+
+    /**
+     * Instantiates a new page.
+     *
+     * @param start the position of the first line
+     * @param endOffset the offset following the last line
+     * @param lines the lines
+     */
+    public Page(Position start, long endOffset, List<String> lines) {
+      this.start = start;
+      this.endOffset = endOffset;
+      this.lines = Collections.unmodifiableList(lines);
+    }
+
+    /**
+     * Gets the line number of the first line.
+     *
+     * @return the first line number
+     */
+    public long getFirstLine() {
+      return start.getLine();
+    }
+
+    /**
+     * Gets the offset of the first line.
+     *
+     * @return the start offset
+     */
+    public long getStartOffset() {
+      return start.getOffset();
+    }
+
+    /**
+     * Gets the offset following the last line.
+     *
+     * @return the end offset
+     */
+    public long getEndOffset() {
+      return endOffset;
+    }
+
+    /**
+     * Gets the lines.
+     *
+     * @return the lines
+     */
+    public List<String> getLines() {
+      return lines;
+    }
+
+  }
+
+  /**
+   * Reads lines forwards from a position, through a buffer.
+   */
+  private static final class LineScanner {
+
+    /** The reader. */
+    private final LogReader reader;
+
+    /** The offset reading stops at. */
+    private final long end;
+
+    /** The buffer. */
+    private final byte[] buffer = new byte[64 * 1024];
+
+    /** The offset of the buffer. */
+    private long bufferOffset;
+
+    /** The number of bytes in the buffer. */
+    private int bufferLength;
+
+    /** The index of the next byte in the buffer. */
+    private int index;
+
+    /**
+     * Instantiates a new line scanner.
+     *
+     * @param reader the reader
+     * @param start the offset reading starts at
+     * @param end the offset reading stops at
+     */
+    LineScanner(LogReader reader, long start, long end) {
+      this.reader = reader;
+      this.bufferOffset = start;
+      this.end = end;
+    }
+
+    /**
+     * Gets the offset of the next byte.
+     *
+     * @return the position
+     */
+    long getPosition() {
+      return bufferOffset + index;
+    }
+
+    /**
+     * Reads the next line.
+     *
+     * @param line the bytes of the line, null if they are not wanted
+     * @param max the number of bytes of the line kept at most
+     * @return 1 if a terminated line was read, 0 if the last line, not terminated, was read, -1 if
+     *         there is no line left
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    int next(ByteArrayOutputStream line, int max) throws IOException {
+      if (line != null) {
+        line.reset();
+      }
+      boolean read = false;
+      while (true) {
+        if (index == bufferLength && !fill()) {
+          return read ? 0 : -1;
+        }
+        int start = index;
+        while (index < bufferLength && buffer[index] != '\n') {
+          index++;
+        }
+        if (line != null && line.size() < max) {
+          line.write(buffer, start, Math.min(index - start, max - line.size()));
+        }
+        read |= index > start;
+        if (index < bufferLength) {
+          index++;
+          return 1;
+        }
+      }
+    }
+
+    /**
+     * Fills the buffer with the bytes following it.
+     *
+     * @return true, if bytes were read
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    private boolean fill() throws IOException {
+      bufferOffset += bufferLength;
+      bufferLength = 0;
+      index = 0;
+      if (bufferOffset >= end) {
+        return false;
+      }
+      int length = (int) Math.min(buffer.length, end - bufferOffset);
+      int n = reader.read(bufferOffset, buffer, 0, length);
+      if (n <= 0) {
+        return false;
+      }
+      bufferLength = n;
+      return true;
+    }
+
+  }
+
+}
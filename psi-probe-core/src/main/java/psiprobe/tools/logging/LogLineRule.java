@@ -0,0 +1,150 @@
+/*
+ * Licensed under the GPL License. You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   https://www.gnu.org/licenses/old-licenses/gpl-2.0.html
+ *
+ * THIS PACKAGE IS PROVIDED "AS IS" AND WITHOUT ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING,
+ * WITHOUT LIMITATION, THE IMPLIED WARRANTIES OF MERCHANTIBILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE.
+ */
+package psiprobe.tools.logging;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A rule log lines are counted by: either a level, matching the lines logged at this level or a
+ * more severe one, or a regular expression found in the lines.
+ *
+ * <p>
+ * Rules are written "name=level:LEVEL" or "name=regex", e.g. "errors=level:ERROR" or
+ * "oom=OutOfMemoryError", and separated by ";" when several are given.
+ * </p>
+ */
+public class LogLineRule {
+
+  /** The prefix of level rules. */
+  private static final String LEVEL_PREFIX = "level:";
+
+  /** The level names, of the logging frameworks supported. */
+  private static final Pattern LEVEL = Pattern.compile(
+      "\\b(TRACE|FINEST|FINER|FINE|DEBUG|CONFIG|INFO|WARNING|WARN|ERROR|SEVERE|FATAL)\\b");
+
+  /** The name. */
+  private final String name;
+
+  /** The pattern, null for a level rule. */
+  private final Pattern pattern;
+
+  /** The severity of the level, -1 for a regular expression rule. */
+  private final int severity;
+
+  /**
+   * Instantiates a new log line rule.
+   *
+   * @param name the name
+   * @param pattern the pattern, null for a level rule
+   * @param severity the severity of the level, -1 for a regular expression rule
+   */
+  private LogLineRule(String name, Pattern pattern, int severity) {
+    this.name = name;
+    this.pattern = pattern;
+    this.severity = severity;
+  }
+
+  /**
+   * Parses rules.
+   *
+   * @param rules the rules, "name=level:LEVEL" or "name=regex" separated by ";"
+   * @return the rules
+   * @throws IllegalArgumentException if a rule is invalid
+   */
+  public static List<LogLineRule> parse(String rules) {
+    List<LogLineRule> list = new ArrayList<>();
+    if (rules == null) {
+      return list;
+    }
+    for (String rule : rules.split(";")) {
+      if (rule.trim().isEmpty()) {
+        continue;
+      }
+      int equals = rule.indexOf('=');
+      String name = equals < 0 ? "" : rule.substring(0, equals).trim();
+      if (name.isEmpty() || !name.matches("[\\w-]+")) {
+        throw new IllegalArgumentException("Invalid log line rule '" + rule + "'");
+      }
+      String value = rule.substring(equals + 1);
+      if (value.startsWith(LEVEL_PREFIX)) {
+        int severity = severity(value.substring(LEVEL_PREFIX.length()).trim());
+        if (severity < 0) {
+          throw new IllegalArgumentException("Unknown level in log line rule '" + rule + "'");
+        }
+        list.add(new LogLineRule(name, null, severity));
+      } else {
+        list.add(new LogLineRule(name, Pattern.compile(value), -1));
+      }
+    }
+    return list;
+  }
+
+  /**
+   * Gets the name.
+   *
+   * @return the name
+   */
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * Tells whether a line matches this rule. The level of a line is the first level name found in
+   * it, lines without one, like the lines of a stack trace, match no level rule.
+   *
+   * @param line the line
+   * @return true, if the line matches
+   */
+  public boolean matches(CharSequence line) {
+    if (pattern != null) {
+      return pattern.matcher(line).find();
+    }
+    Matcher matcher = LEVEL.matcher(line);
+    return matcher.find() && severity(matcher.group(1)) >= severity;
+  }
+
+  /**
+   * Gets the severity of a level, levels of the different logging frameworks being mapped to a
+   * common scale.
+   *
+   * @param level the level
+   * @return the severity, -1 if the level is unknown
+   */
+  static int severity(String level) {
+    switch (level.toUpperCase(Locale.ROOT)) {
+      case "TRACE":
+      case "FINEST":
+      case "FINER":
+        return 0;
+      case "DEBUG":
+      case "FINE":
+      case "CONFIG":
+        return 1;
+      case "INFO":
+        return 2;
+      case "WARN":
+      case "WARNING":
+        return 3;
+      case "ERROR":
+      case "SEVERE":
+        return 4;
+      case "FATAL":
+        return 5;
+      default:
+        return -1;
+    }
+  }
+
+}
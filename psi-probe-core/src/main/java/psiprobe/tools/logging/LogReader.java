@@ -0,0 +1,44 @@
+/*
+ * Licensed under the GPL License. You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   https://www.gnu.org/licenses/old-licenses/gpl-2.0.html
+ *
+ * THIS PACKAGE IS PROVIDED "AS IS" AND WITHOUT ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING,
+ * WITHOUT LIMITATION, THE IMPLIED WARRANTIES OF MERCHANTIBILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE.
+ */
+package psiprobe.tools.logging;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Reads the content of a log file at any position, whether the file is plain text or a compressed
+ * file it was rotated into. Positions and length are those of the uncompressed content.
+ *
+ * @see LogFiles#openReader(java.io.File)
+ */
+public interface LogReader extends Closeable {
+
+  /**
+   * Gets the length of the content.
+   *
+   * @return the length
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  long length() throws IOException;
+
+  /**
+   * Reads bytes of the content.
+   *
+   * @param pos the position of the first byte to read
+   * @param b the buffer
+   * @param off the offset in the buffer
+   * @param len the number of bytes to read, at most
+   * @return the number of bytes read, -1 if the position is past the end of the content
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  int read(long pos, byte[] b, int off, int len) throws IOException;
+
+}
@@ -0,0 +1,343 @@
+/*
+ * Licensed under the GPL License. You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   https://www.gnu.org/licenses/old-licenses/gpl-2.0.html
+ *
+ * THIS PACKAGE IS PROVIDED "AS IS" AND WITHOUT ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING,
+ * WITHOUT LIMITATION, THE IMPLIED WARRANTIES OF MERCHANTIBILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE.
+ */
+package psiprobe.tools.logging;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Searches log files for the lines matching a pattern, and writes them with the lines around them
+ * as they are found, grep style: "file:number:line" for matching lines, "file-number-line" for the
+ * lines around them, groups of lines being separated by "--".
+ *
+ * <p>
+ * Files are searched in parallel. When a time range is given, the timestamp starting each log line
+ * is read at its known offset and lines out of the range are skipped without being matched, lines
+ * without a timestamp going with the line preceding them. A file is no longer read past the end of
+ * the range, nor read at all if it was last modified before its start. The search stops once the
+ * maximum number of matches is reached, or the output is closed. Compressed rotated files are
+ * decompressed as they are read.
+ * </p>
+ */
+public class LogSearch {
+
+  /** The Constant logger. */
+  private static final Logger logger = LoggerFactory.getLogger(LogSearch.class);
+
+  /** The number of lines read to detect the timestamp format of a file. */
+  private static final int DETECTION_LINES = 20;
+
+  /** The size of matching lines buffered before being written. */
+  private static final int FLUSH_SIZE = 64 * 1024;
+
+  /** The pattern. */
+  private final Pattern pattern;
+
+  /** The number of lines written before and after matching lines. */
+  private int contextLines = 2;
+
+  /** The maximum number of matches. */
+  private int maxMatches = 1000;
+
+  /** The start of the time range, null if unbounded. */
+  private LocalDateTime from;
+
+  /** The end of the time range, null if unbounded. */
+  private LocalDateTime to;
+
+  /** The timestamp format, detected for every file if null. */
+  private LogTimestampFormat timestampFormat;
+
+  /** The charset. */
+  private Charset charset = StandardCharsets.UTF_8;
+
+  /** The number of matches. */
+  private final AtomicInteger matchCount = new AtomicInteger();
+
+  /** Whether the maximum number of matches was reached. */
+  private volatile boolean limitReached;
+
+  /** Whether the search is stopped. */
+  private volatile boolean stopped;
+
+  /**
+   * Instantiates a new log search.
+   *
+   * @param pattern the pattern
+   */
+  public LogSearch(Pattern pattern) {
+    this.pattern = pattern;
+  }
+
+  /**
+   * Sets the context lines.
+   *
+   * @param contextLines the new number of lines written before and after matching lines
+   */
+  public void setContextLines(int contextLines) {
+    this.contextLines = contextLines;
+  }
+
+  /**
+   * Sets the max matches.
+   *
+   * @param maxMatches the new max matches
+   */
+  public void setMaxMatches(int maxMatches) {
+    this.maxMatches = maxMatches;
+  }
+
+  /**
+   * Sets the time range.
+   *
+   * @param from the start of the range, null if unbounded
+   * @param to the end of the range, null if unbounded
+   */
+  public void setTimeRange(LocalDateTime from, LocalDateTime to) {
+    this.from = from;
+    this.to = to;
+  }
+
+  /**
+   * Sets the timestamp format.
+   *
+   * @param timestampFormat the new timestamp format, null to detect it in every file
+   */
+  public void setTimestampFormat(LogTimestampFormat timestampFormat) {
+    this.timestampFormat = timestampFormat;
+  }
+
+  /**
+   * Sets the charset.
+   *
+   * @param charset the new charset
+   */
+  public void setCharset(Charset charset) {
+    this.charset = charset;
+  }
+
+  /**
+   * Gets the match count.
+   *
+   * @return the number of matching lines written
+   */
+  public int getMatchCount() {
+    return Math.min(matchCount.get(), maxMatches);
+  }
+
+  /**
+   * Checks if the maximum number of matches was reached.
+   *
+   * @return true, if the search stopped at the limit
+   */
+  public boolean isLimitReached() {
+    return limitReached;
+  }
+
+  /**
+   * Searches files in parallel, writing the matching lines as they are found.
+   *
+   * @param files the files
+   * @param executor the executor the files are searched on
+   * @param out the output
+   * @return the number of matching lines written
+   * @throws InterruptedException if interrupted while waiting for the search to complete
+   */
+  public int search(List<File> files, ExecutorService executor, PrintWriter out)
+      throws InterruptedException {
+
+    List<Future<?>> futures = new ArrayList<>(files.size());
+    for (File file : files) {
+      futures.add(executor.submit(() -> {
+        search(file, out);
+        return null;
+      }));
+    }
+    try {
+      for (int i = 0; i < futures.size(); i++) {
+        try {
+          futures.get(i).get();
+        } catch (ExecutionException e) {
+          logger.debug("Cannot search '{}'", files.get(i), e.getCause());
+          write(out, "-- cannot search " + files.get(i).getName() + ": "
+              + e.getCause().getMessage() + "\n");
+        }
+      }
+    } catch (InterruptedException e) {
+      stopped = true;
+      for (Future<?> future : futures) {
+        future.cancel(true);
+      }
+      throw e;
+    }
+    return getMatchCount();
+  }
+
+  /**
+   * Searches a file.
+   *
+   * @param file the file
+   * @param out the output
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  void search(File file, PrintWriter out) throws IOException {
+    boolean ranged = from != null || to != null;
+    LogTimestampFormat format = ranged && timestampFormat == null ? detect(file) : timestampFormat;
+    boolean filtered = ranged && format != null;
+    if (filtered && from != null
+        && file.lastModified() < from.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli()) {
+      return;
+    }
+    long fromKey = filtered && from != null ? format.toKey(from) : Long.MIN_VALUE;
+    long toKey = filtered && to != null ? format.toKey(to) : Long.MAX_VALUE;
+
+    String name = file.getName();
+    StringBuilder block = new StringBuilder();
+    Deque<String> before = new ArrayDeque<>(contextLines);
+    Matcher matcher = pattern.matcher("");
+    boolean inRange = !filtered || from == null;
+    long lineNumber = 0;
+    int after = 0;
+    try (BufferedReader reader =
+        new BufferedReader(new InputStreamReader(LogFiles.openStream(file), charset))) {
+      String line;
+      while (!stopped && (line = reader.readLine()) != null) {
+        lineNumber++;
+        if (filtered) {
+          long key = format.parse(line);
+          if (key > toKey) {
+            break;
+          } else if (key >= 0) {
+            inRange = key >= fromKey;
+          }
+        }
+        if (!inRange) {
+          before.clear();
+          after = 0;
+        } else if (matcher.reset(line).find()) {
+          if (matchCount.incrementAndGet() > maxMatches) {
+            limitReached = true;
+            stopped = true;
+            break;
+          }
+          long number = lineNumber - before.size();
+          for (String previous : before) {
+            append(block, name, number++, '-', previous);
+          }
+          before.clear();
+          append(block, name, lineNumber, ':', line);
+          after = contextLines;
+        } else if (after > 0) {
+          append(block, name, lineNumber, '-', line);
+          after--;
+        } else {
+          if (contextLines > 0) {
+            if (before.size() == contextLines) {
+              before.removeFirst();
+            }
+            before.addLast(line);
+          }
+          if (block.length() > 0) {
+            flush(block, out);
+          }
+        }
+        if (block.length() > FLUSH_SIZE) {
+          flush(block, out);
+        }
+      }
+    }
+    if (block.length() > 0) {
+      flush(block, out);
+    }
+  }
+
+  /**
+   * Detects the timestamp format of a file from its first lines.
+   *
+   * @param file the file
+   * @return the timestamp format, null if none is recognized
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  private LogTimestampFormat detect(File file) throws IOException {
+    List<String> lines = new ArrayList<>(DETECTION_LINES);
+    try (BufferedReader reader =
+        new BufferedReader(new InputStreamReader(LogFiles.openStream(file), charset))) {
+      String line;
+      while (lines.size() < DETECTION_LINES && (line = reader.readLine()) != null) {
+        lines.add(line);
+      }
+    }
+    return LogTimestampFormat.detect(lines);
+  }
+
+  /**
+   * Appends a line to a block.
+   *
+   * @param block the block
+   * @param name the file name
+   * @param number the line number
+   * @param separator the separator, ':' for matching lines
+   * @param line the line
+   */
+  private static void append(StringBuilder block, String name, long number, char separator,
+      String line) {
+    block.append(name).append(separator).append(number).append(separator).append(line)
+        .append('\n');
+  }
+
+  /**
+   * Writes a block of lines, as a group.
+   *
+   * @param block the block, emptied
+   * @param out the output
+   */
+  private void flush(StringBuilder block, PrintWriter out) {
+    write(out, block.append("--\n").toString());
+    block.setLength(0);
+  }
+
+  /**
+   * Writes text, stopping the search if the output is closed.
+   *
+   * @param out the output
+   * @param text the text
+   */
+  private void write(PrintWriter out, String text) {
+    synchronized (out) {
+      out.write(text);
+      out.flush();
+      if (out.checkError()) {
+        stopped = true;
+      }
+    }
+  }
+
+}
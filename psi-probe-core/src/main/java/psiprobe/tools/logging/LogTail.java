@@ -0,0 +1,165 @@
+/*
+ * Licensed under the GPL License. You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   https://www.gnu.org/licenses/old-licenses/gpl-2.0.html
+ *
+ * THIS PACKAGE IS PROVIDED "AS IS" AND WITHOUT ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING,
+ * WITHOUT LIMITATION, THE IMPLIED WARRANTIES OF MERCHANTIBILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE.
+ */
+package psiprobe.tools.logging;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.function.Consumer;
+
+/**
+ * Reads the lines appended to a log file since it was last read, from the offset reading stopped
+ * at, so the file is never read again from its start. Lines already in the file when it is first
+ * read are skipped.
+ *
+ * <p>
+ * The file is read from its start again when it gets shorter than the offset or, where the file
+ * system tells, when it is replaced by another file, as when it is rotated. A line not terminated
+ * yet is read once it is.
+ * </p>
+ */
+public class LogTail {
+
+  /** The length of a line beyond which it is read, terminated or not. */
+  private static final int MAX_LINE_LENGTH = 64 * 1024;
+
+  /** The file. */
+  private final File file;
+
+  /** The number of bytes read at most at a time, the remaining bytes being read next time. */
+  private final long maxReadSize;
+
+  /** The offset reading stopped at, -1 if the file was never read. */
+  private long offset = -1;
+
+  /** The key of the file read, null if unknown. */
+  private Object fileKey;
+
+  /**
+   * Instantiates a new log tail.
+   *
+   * @param file the file
+   * @param maxReadSize the number of bytes read at most at a time
+   */
+  public LogTail(File file, long maxReadSize) {
+    this.file = file;
+    this.maxReadSize = maxReadSize;
+  }
+
+  /**
+   * Gets the file.
+   *
+   * @return the file
+   */
+  public File getFile() {
+    return file;
+  }
+
+  /**
+   * Gets the offset reading stopped at.
+   *
+   * @return the offset, -1 if the file was never read
+   */
+  public long getOffset() {
+    return offset;
+  }
+
+  /**
+   * Reads the lines appended to the file since it was last read.
+   *
+   * @param charset the charset of the file
+   * @param consumer the consumer of the lines, without their line terminators
+   * @return the number of lines read
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  public int read(Charset charset, Consumer<String> consumer) throws IOException {
+    Path path = file.toPath();
+    BasicFileAttributes attributes;
+    try {
+      attributes = Files.readAttributes(path, BasicFileAttributes.class);
+    } catch (NoSuchFileException e) {
+      return 0;
+    }
+    Object key = attributes.fileKey();
+    long size = attributes.size();
+    if (offset < 0) {
+      offset = size;
+      fileKey = key;
+      return 0;
+    }
+    if (size < offset || key != null && !key.equals(fileKey)) {
+      offset = 0;
+      fileKey = key;
+    }
+    long end = Math.min(size, offset + maxReadSize);
+    if (end <= offset) {
+      return 0;
+    }
+
+    int lines = 0;
+    ByteArrayOutputStream line = new ByteArrayOutputStream(256);
+    long lineStart = offset;
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(64 * 1024, end - offset));
+      byte[] bytes = buffer.array();
+      long pos = offset;
+      while (pos < end) {
+        buffer.clear().limit((int) Math.min(buffer.capacity(), end - pos));
+        int n = channel.read(buffer, pos);
+        if (n <= 0) {
+          break;
+        }
+        int start = 0;
+        for (int i = 0; i < n; i++) {
+          if (bytes[i] == '\n') {
+            line.write(bytes, start, i - start);
+            consumer.accept(decode(line, charset));
+            lines++;
+            line.reset();
+            start = i + 1;
+            lineStart = pos + i + 1;
+          }
+        }
+        line.write(bytes, start, n - start);
+        pos += n;
+        if (line.size() > MAX_LINE_LENGTH) {
+          consumer.accept(decode(line, charset));
+          lines++;
+          line.reset();
+          lineStart = pos;
+        }
+      }
+    }
+    offset = lineStart;
+    return lines;
+  }
+
+  /**
+   * Decodes a line, without a trailing carriage return.
+   *
+   * @param line the line
+   * @param charset the charset
+   * @return the line
+   */
+  private static String decode(ByteArrayOutputStream line, Charset charset) {
+    String text = new String(line.toByteArray(), charset);
+    return text.endsWith("\r") ? text.substring(0, text.length() - 1) : text;
+  }
+
+}
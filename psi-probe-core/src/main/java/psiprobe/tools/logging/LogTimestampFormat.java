@@ -0,0 +1,369 @@
+/*
+ * Licensed under the GPL License. You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   https://www.gnu.org/licenses/old-licenses/gpl-2.0.html
+ *
+ * THIS PACKAGE IS PROVIDED "AS IS" AND WITHOUT ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING,
+ * WITHOUT LIMITATION, THE IMPLIED WARRANTIES OF MERCHANTIBILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE.
+ */
+package psiprobe.tools.logging;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads the timestamp starting log lines, as laid out by the date conversion of a pattern layout,
+ * e.g. "%d{yyyy-MM-dd HH:mm:ss,SSS} %-5p %c - %m%n". Only fixed width layouts are supported, with
+ * numeric fields and English month abbreviations, so that a timestamp is read at a known offset by
+ * comparing characters, without a regular expression nor a date parser.
+ *
+ * <p>
+ * Timestamps are read as sortable keys, the digits of year, month, day, hour, minute, second and
+ * millisecond in that order, to be compared with the keys of the bounds of a time range.
+ * </p>
+ */
+public final class LogTimestampFormat {
+
+  /** The English month abbreviations. */
+  private static final String[] MONTHS =
+      {"Jan", "Feb", "Mar", "Apr", "May", "Jun", "Jul", "Aug", "Sep", "Oct", "Nov", "Dec"};
+
+  /** The date pattern of the ISO8601 date conversion of log4j, log4j2 and logback. */
+  private static final String ISO8601 = "yyyy-MM-dd HH:mm:ss,SSS";
+
+  /** The date patterns of log lines detected when the conversion pattern is unknown. */
+  private static final String[] KNOWN_PATTERNS =
+      {ISO8601, "yyyy-MM-dd HH:mm:ss.SSS", "dd-MMM-yyyy HH:mm:ss.SSS", "yyyy-MM-dd HH:mm:ss"};
+
+  /** The field letters, by decreasing significance. */
+  private static final String FIELDS = "yMdHmsS";
+
+  /** The text preceding the timestamp. */
+  private final String prefix;
+
+  /** The tokens, field letters or literal text. */
+  private final List<Token> tokens;
+
+  /** The fields held by the timestamp, one bit per letter of {@link #FIELDS}. */
+  private final int fieldMask;
+
+  /**
+   * Instantiates a new log timestamp format.
+   *
+   * @param prefix the prefix
+   * @param tokens the tokens
+   */
+  private LogTimestampFormat(String prefix, List<Token> tokens) {
+    this.prefix = prefix;
+    this.tokens = tokens;
+    int mask = 0;
+    for (Token token : tokens) {
+      if (token.field != 0) {
+        mask |= 1 << FIELDS.indexOf(token.field);
+      }
+    }
+    this.fieldMask = mask;
+  }
+
+  /**
+   * Creates the format of the timestamps written by a pattern layout.
+   *
+   * @param conversionPattern the conversion pattern
+   * @return the format, null if log lines do not start with a supported timestamp
+   */
+  public static LogTimestampFormat forConversionPattern(String conversionPattern) {
+    if (conversionPattern == null) {
+      return null;
+    }
+    StringBuilder prefix = new StringBuilder();
+    int i = 0;
+    while (i < conversionPattern.length()) {
+      char chr = conversionPattern.charAt(i);
+      if (chr != '%') {
+        prefix.append(chr);
+        i++;
+      } else if (conversionPattern.startsWith("%%", i)) {
+        prefix.append('%');
+        i += 2;
+      } else if (conversionPattern.startsWith("%d", i)) {
+        i += conversionPattern.startsWith("%date", i) ? 5 : 2;
+        String option = null;
+        if (i < conversionPattern.length() && conversionPattern.charAt(i) == '{') {
+          int end = conversionPattern.indexOf('}', i);
+          if (end < 0) {
+            return null;
+          }
+          option = conversionPattern.substring(i + 1, end).trim();
+        }
+        String datePattern = toDatePattern(option);
+        return datePattern == null ? null : forDatePattern(prefix.toString(), datePattern);
+      } else {
+        // another conversion precedes the date, the timestamp is not at a fixed offset
+        return null;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Detects the format of the timestamps starting some log lines, among those usually found in log
+   * files.
+   *
+   * @param lines the lines, typically the first ones of a file
+   * @return the format, null if none is recognized
+   */
+  public static LogTimestampFormat detect(List<String> lines) {
+    for (String pattern : KNOWN_PATTERNS) {
+      LogTimestampFormat format = forDatePattern("", pattern);
+      for (String line : lines) {
+        if (format.parse(line) >= 0) {
+          return format;
+        }
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Creates a format out of a date pattern, in {@link java.text.SimpleDateFormat} syntax.
+   *
+   * @param prefix the text preceding the timestamp
+   * @param datePattern the date pattern
+   * @return the format, null if it is not supported
+   */
+  static LogTimestampFormat forDatePattern(String prefix, String datePattern) {
+    List<Token> tokens = new ArrayList<>();
+    int i = 0;
+    while (i < datePattern.length()) {
+      char chr = datePattern.charAt(i);
+      if (chr == '\'') {
+        int end = datePattern.indexOf('\'', i + 1);
+        if (end < 0) {
+          return null;
+        }
+        tokens.add(new Token(end == i + 1 ? "'" : datePattern.substring(i + 1, end)));
+        i = end + 1;
+      } else if (Character.isLetter(chr)) {
+        int end = i;
+        while (end < datePattern.length() && datePattern.charAt(end) == chr) {
+          end++;
+        }
+        int width = end - i;
+        if (FIELDS.indexOf(chr) < 0 || !isSupported(chr, width)) {
+          return null;
+        }
+        tokens.add(new Token(chr, width));
+        i = end;
+      } else {
+        tokens.add(new Token(String.valueOf(chr)));
+        i++;
+      }
+    }
+    LogTimestampFormat format = new LogTimestampFormat(prefix, tokens);
+    // without a date, timestamps of different days cannot be told apart
+    return (format.fieldMask & 0x7) == 0x7 ? format : null;
+  }
+
+  /**
+   * Reads the timestamp starting a log line.
+   *
+   * @param line the line
+   * @return the timestamp key, -1 if the line does not start with a timestamp, as is the case of the
+   *         lines following the first line of a multi line message
+   */
+  public long parse(CharSequence line) {
+    int length = line.length();
+    if (length < prefix.length()) {
+      return -1;
+    }
+    for (int i = 0; i < prefix.length(); i++) {
+      if (line.charAt(i) != prefix.charAt(i)) {
+        return -1;
+      }
+    }
+    int pos = prefix.length();
+    long[] values = new long[FIELDS.length()];
+    for (Token token : tokens) {
+      if (pos + token.width > length) {
+        return -1;
+      }
+      if (token.field == 0) {
+        for (int i = 0; i < token.width; i++) {
+          if (line.charAt(pos + i) != token.literal.charAt(i)) {
+            return -1;
+          }
+        }
+      } else {
+        long value = token.field == 'M' && token.width == 3 ? parseMonth(line, pos)
+            : parseDigits(line, pos, token.width);
+        if (value < 0) {
+          return -1;
+        }
+        if (token.field == 'y' && token.width == 2) {
+          value += 2000;
+        } else if (token.field == 'S') {
+          value *= token.width == 1 ? 100 : token.width == 2 ? 10 : 1;
+        }
+        values[FIELDS.indexOf(token.field)] = value;
+      }
+      pos += token.width;
+    }
+    return toKey(values);
+  }
+
+  /**
+   * Gets the key of a time, at the precision of the timestamps.
+   *
+   * @param time the time
+   * @return the timestamp key
+   */
+  public long toKey(LocalDateTime time) {
+    long[] values = {time.getYear(), time.getMonthValue(), time.getDayOfMonth(), time.getHour(),
+        time.getMinute(), time.getSecond(), time.getNano() / 1000000};
+    for (int i = 0; i < values.length; i++) {
+      if ((fieldMask & 1 << i) == 0) {
+        values[i] = 0;
+      }
+    }
+    return toKey(values);
+  }
+
+  /**
+   * Combines field values into a key.
+   *
+   * @param values the values, by decreasing significance
+   * @return the key
+   */
+  private static long toKey(long[] values) {
+    long key = values[0];
+    for (int i = 1; i < values.length - 1; i++) {
+      key = key * 100 + values[i];
+    }
+    return key * 1000 + values[values.length - 1];
+  }
+
+  /**
+   * Converts the option of a date conversion into a date pattern.
+   *
+   * @param option the option, null if none
+   * @return the date pattern, null if not supported
+   */
+  private static String toDatePattern(String option) {
+    if (option == null || option.isEmpty() || "ISO8601".equals(option)
+        || "DEFAULT".equals(option)) {
+      return ISO8601;
+    } else if ("ISO8601_BASIC".equals(option)) {
+      return "yyyyMMdd'T'HHmmss,SSS";
+    } else if ("COMPACT".equals(option)) {
+      return "yyyyMMddHHmmssSSS";
+    } else if ("DATE".equals(option)) {
+      return "dd MMM yyyy HH:mm:ss,SSS";
+    } else if ("ABSOLUTE".equals(option)) {
+      return null;
+    } else if (option.length() > 1 && option.charAt(0) == '"'
+        && option.indexOf('"', 1) > 0) {
+      return option.substring(1, option.indexOf('"', 1));
+    }
+    return option;
+  }
+
+  /**
+   * Checks if a field of a given width is supported, i.e. always written with that many characters.
+   *
+   * @param field the field
+   * @param width the width
+   * @return true, if supported
+   */
+  private static boolean isSupported(char field, int width) {
+    switch (field) {
+      case 'y':
+        return width == 2 || width == 4;
+      case 'M':
+        return width == 2 || width == 3;
+      case 'S':
+        return width <= 3;
+      default:
+        return width == 2;
+    }
+  }
+
+  /**
+   * Parses digits.
+   *
+   * @param line the line
+   * @param pos the position of the first digit
+   * @param width the number of digits
+   * @return the value, -1 if not all characters are digits
+   */
+  private static long parseDigits(CharSequence line, int pos, int width) {
+    long value = 0;
+    for (int i = pos; i < pos + width; i++) {
+      char chr = line.charAt(i);
+      if (chr < '0' || chr > '9') {
+        return -1;
+      }
+      value = value * 10 + chr - '0';
+    }
+    return value;
+  }
+
+  /**
+   * Parses an English month abbreviation.
+   *
+   * @param line the line
+   * @param pos the position of the abbreviation
+   * @return the month, 1 for January, -1 if not a month
+   */
+  private static long parseMonth(CharSequence line, int pos) {
+    for (int month = 0; month < MONTHS.length; month++) {
+      String name = MONTHS[month];
+      if (line.charAt(pos) == name.charAt(0) && line.charAt(pos + 1) == name.charAt(1)
+          && line.charAt(pos + 2) == name.charAt(2)) {
+        return month + 1L;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * A field of the timestamp, or literal text.
+   */
+  private static class Token {
+
+    /** The field letter, 0 for literal text. */
+    final char field;
+
+    /** The literal text. */
+    final String literal;
+
+    /** The number of characters. */
+    final int width;
+
+    /**
+     * Instantiates a new field token.
+     *
+     * @param field the field
+     * @param width the width
+     */
+    Token(char field, int width) {
+      this.field = field;
+      this.literal = null;
+      this.width = width;
+    }
+
+    /**
+     * Instantiates a new literal token.
+     *
+     * @param literal the literal
+     */
+    Token(String literal) {
+      this.field = 0;
+      this.literal = literal;
+      this.width = literal.length();
+    }
+  }
+
+}
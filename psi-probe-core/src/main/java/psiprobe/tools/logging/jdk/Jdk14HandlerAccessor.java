@@ -10,8 +10,7 @@
  */
 package psiprobe.tools.logging.jdk;
 
-import org.apache.commons.lang3.reflect.MethodUtils;
-
+import psiprobe.tools.AccessorCache;
 import psiprobe.tools.logging.AbstractLogDestination;
 
 /**
@@ -89,9 +88,9 @@ public class Jdk14HandlerAccessor extends AbstractLogDestination {
    */
   public void setLevel(String newLevelStr) {
     try {
-      Object level = MethodUtils.invokeMethod(getTarget(), "getLevel");
-      Object newLevel = MethodUtils.invokeMethod(level, "parse", newLevelStr);
-      MethodUtils.invokeMethod(getTarget(), "setLevel", newLevel);
+      Object level = AccessorCache.invokeMethod(getTarget(), "getLevel");
+      Object newLevel = AccessorCache.invokeMethod(level, "parse", newLevelStr);
+      AccessorCache.invokeMethod(getTarget(), "setLevel", newLevel);
     } catch (Exception e) {
       logger.error("{}#setLevel('{}') failed", getTarget().getClass().getName(), newLevelStr, e);
     }
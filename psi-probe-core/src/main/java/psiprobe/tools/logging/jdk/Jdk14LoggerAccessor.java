@@ -16,6 +16,7 @@ import java.util.List;
 
 import org.apache.commons.lang3.reflect.MethodUtils;
 
+import psiprobe.tools.AccessorCache;
 import psiprobe.tools.logging.DefaultAccessor;
 import psiprobe.tools.logging.LogDestination;
 
@@ -35,7 +36,7 @@ public class Jdk14LoggerAccessor extends DefaultAccessor {
   public List<LogDestination> getHandlers() {
     List<LogDestination> handlerAccessors = new ArrayList<>();
     try {
-      Object[] handlers = (Object[]) MethodUtils.invokeMethod(getTarget(), "getHandlers");
+      Object[] handlers = (Object[]) AccessorCache.invokeMethod(getTarget(), "getHandlers");
       for (int h = 0; h < handlers.length; h++) {
         Object handler = handlers[h];
         Jdk14HandlerAccessor handlerAccessor = wrapHandler(handler, h);
@@ -119,7 +120,7 @@ public class Jdk14LoggerAccessor extends DefaultAccessor {
    */
   public Jdk14HandlerAccessor getHandler(int index) {
     try {
-      Object[] handlers = (Object[]) MethodUtils.invokeMethod(getTarget(), "getHandlers");
+      Object[] handlers = (Object[]) AccessorCache.invokeMethod(getTarget(), "getHandlers");
       return wrapHandler(handlers[index], index);
     } catch (Exception e) {
       logger.error("{}#handlers inaccessible", getTarget().getClass().getName(), e);
@@ -138,12 +139,12 @@ public class Jdk14LoggerAccessor extends DefaultAccessor {
       Object target = getTarget();
       while (level == null && target != null) {
         level = getLevelInternal(target);
-        target = MethodUtils.invokeMethod(target, "getParent");
+        target = AccessorCache.invokeMethod(target, "getParent");
       }
       if (level == null && isJuliRoot()) {
         return "INFO";
       }
-      return (String) MethodUtils.invokeMethod(level, "getName");
+      return (String) AccessorCache.invokeMethod(level, "getName");
     } catch (Exception e) {
       logger.error("{}#getLevel() failed", getTarget().getClass().getName(), e);
     }
@@ -161,7 +162,7 @@ public class Jdk14LoggerAccessor extends DefaultAccessor {
           getTarget().getClass().getClassLoader().loadClass("java.util.logging.Level");
       Method parse = MethodUtils.getAccessibleMethod(levelClass, "parse", String.class);
       Object newLevel = parse.invoke(null, newLevelStr);
-      MethodUtils.invokeMethod(getTarget(), "setLevel", newLevel);
+      AccessorCache.invokeMethod(getTarget(), "setLevel", newLevel);
     } catch (Exception e) {
       logger.error("{}#setLevel('{}') failed", getTarget().getClass().getName(), newLevelStr, e);
     }
@@ -175,7 +176,7 @@ public class Jdk14LoggerAccessor extends DefaultAccessor {
    * @throws Exception the exception
    */
   private Object getLevelInternal(Object target) throws Exception {
-    return MethodUtils.invokeMethod(target, "getLevel");
+    return AccessorCache.invokeMethod(target, "getLevel");
   }
 
   /**
@@ -19,6 +19,7 @@ import java.util.List;
 
 import org.apache.commons.lang3.reflect.MethodUtils;
 
+import psiprobe.tools.AccessorCache;
 import psiprobe.tools.logging.DefaultAccessor;
 import psiprobe.tools.logging.LogDestination;
 
@@ -64,7 +65,7 @@ public class Jdk14ManagerAccessor extends DefaultAccessor {
    */
   public Jdk14LoggerAccessor getLogger(String name) {
     try {
-      Object logger = MethodUtils.invokeMethod(getTarget(), "getLogger", name);
+      Object logger = AccessorCache.invokeMethod(getTarget(), "getLogger", name);
       if (logger == null) {
         throw new NullPointerException(
             getTarget().getClass().getName() + "#getLogger(\"" + name + "\") returned null");
@@ -89,7 +90,7 @@ public class Jdk14ManagerAccessor extends DefaultAccessor {
     List<LogDestination> allHandlers = new ArrayList<>();
     try {
       for (String name : Collections
-          .list((Enumeration<String>) MethodUtils.invokeMethod(getTarget(), "getLoggerNames"))) {
+          .list((Enumeration<String>) AccessorCache.invokeMethod(getTarget(), "getLoggerNames"))) {
         Jdk14LoggerAccessor accessor = getLogger(name);
         if (accessor != null) {
           allHandlers.addAll(accessor.getHandlers());
@@ -15,8 +15,7 @@ import java.util.Collections;
 import java.util.Enumeration;
 import java.util.List;
 
-import org.apache.commons.lang3.reflect.MethodUtils;
-
+import psiprobe.tools.AccessorCache;
 import psiprobe.tools.logging.DefaultAccessor;
 
 /**
@@ -37,7 +36,7 @@ public class Log4JLoggerAccessor extends DefaultAccessor {
     List<Log4JAppenderAccessor> appenders = new ArrayList<>();
     try {
       for (Object unwrappedAppender : Collections
-          .list((Enumeration<Object>) MethodUtils.invokeMethod(getTarget(), "getAllAppenders"))) {
+          .list((Enumeration<Object>) AccessorCache.invokeMethod(getTarget(), "getAllAppenders"))) {
         Log4JAppenderAccessor appender = wrapAppender(unwrappedAppender);
         if (appender != null) {
           appenders.add(appender);
@@ -57,7 +56,7 @@ public class Log4JLoggerAccessor extends DefaultAccessor {
    */
   public Log4JAppenderAccessor getAppender(String name) {
     try {
-      Object appender = MethodUtils.invokeMethod(getTarget(), "getAppender", name);
+      Object appender = AccessorCache.invokeMethod(getTarget(), "getAppender", name);
       return wrapAppender(appender);
     } catch (Exception e) {
       logger.error("{}#getAppender() failed", getTarget().getClass().getName(), e);
@@ -108,8 +107,8 @@ public class Log4JLoggerAccessor extends DefaultAccessor {
    */
   public String getLevel() {
     try {
-      Object level = MethodUtils.invokeMethod(getTarget(), "getLevel");
-      return (String) MethodUtils.invokeMethod(level, "toString");
+      Object level = AccessorCache.invokeMethod(getTarget(), "getLevel");
+      return (String) AccessorCache.invokeMethod(level, "toString");
     } catch (Exception e) {
       logger.error("{}#getLevel() failed", getTarget().getClass().getName(), e);
     }
@@ -123,9 +122,9 @@ public class Log4JLoggerAccessor extends DefaultAccessor {
    */
   public void setLevel(String newLevelStr) {
     try {
-      Object level = MethodUtils.invokeMethod(getTarget(), "getLevel");
-      Object newLevel = MethodUtils.invokeMethod(level, "toLevel", newLevelStr);
-      MethodUtils.invokeMethod(getTarget(), "setLevel", newLevel);
+      Object level = AccessorCache.invokeMethod(getTarget(), "getLevel");
+      Object newLevel = AccessorCache.invokeMethod(level, "toLevel", newLevelStr);
+      AccessorCache.invokeMethod(getTarget(), "setLevel", newLevel);
     } catch (Exception e) {
       logger.error("{}#setLevel('{}') failed", getTarget().getClass().getName(), newLevelStr, e);
     }
@@ -14,8 +14,7 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
-import org.apache.commons.lang3.reflect.MethodUtils;
-
+import psiprobe.tools.AccessorCache;
 import psiprobe.tools.logging.DefaultAccessor;
 
 /**
@@ -133,8 +132,8 @@ public class Log4J2LoggerConfigAccessor extends DefaultAccessor {
    */
   public String getLevel() {
     try {
-      Object level = MethodUtils.invokeMethod(getTarget(), "getLevel");
-      return (String) MethodUtils.invokeMethod(level, "toString");
+      Object level = AccessorCache.invokeMethod(getTarget(), "getLevel");
+      return (String) AccessorCache.invokeMethod(level, "toString");
     } catch (Exception e) {
       logger.error("{}#getLevel() failed", getTarget().getClass().getName(), e);
     }
@@ -148,9 +147,9 @@ public class Log4J2LoggerConfigAccessor extends DefaultAccessor {
    */
   public void setLevel(String newLevelStr) {
     try {
-      Object level = MethodUtils.invokeMethod(getTarget(), "getLevel");
-      Object newLevel = MethodUtils.invokeMethod(level, "toLevel", newLevelStr);
-      MethodUtils.invokeMethod(getTarget(), "setLevel", newLevel);
+      Object level = AccessorCache.invokeMethod(getTarget(), "getLevel");
+      Object newLevel = AccessorCache.invokeMethod(level, "toLevel", newLevelStr);
+      AccessorCache.invokeMethod(getTarget(), "setLevel", newLevel);
       loggerContext.updateLoggers();
     } catch (Exception e) {
       logger.error("{}#setLevel('{}') failed", getTarget().getClass().getName(), newLevelStr, e);
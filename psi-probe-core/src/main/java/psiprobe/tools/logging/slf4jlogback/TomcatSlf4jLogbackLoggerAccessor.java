@@ -17,8 +17,7 @@ import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 
-import org.apache.commons.lang3.reflect.MethodUtils;
-
+import psiprobe.tools.AccessorCache;
 import psiprobe.tools.logging.DefaultAccessor;
 
 /**
@@ -37,7 +36,7 @@ public class TomcatSlf4jLogbackLoggerAccessor extends DefaultAccessor {
 
     try {
       for (Object appender : Collections.list(Iterators.asEnumeration(
-          (Iterator<Object>) MethodUtils.invokeMethod(getTarget(), "iteratorForAppenders")))) {
+          (Iterator<Object>) AccessorCache.invokeMethod(getTarget(), "iteratorForAppenders")))) {
         List<Object> siftedAppenders = getSiftedAppenders(appender);
         if (siftedAppenders != null) {
           for (Object siftedAppender : siftedAppenders) {
@@ -64,7 +63,7 @@ public class TomcatSlf4jLogbackLoggerAccessor extends DefaultAccessor {
    */
   public TomcatSlf4jLogbackAppenderAccessor getAppender(String name) {
     try {
-      Object appender = MethodUtils.invokeMethod(getTarget(), "getAppender", name);
+      Object appender = AccessorCache.invokeMethod(getTarget(), "getAppender", name);
       if (appender == null) {
         List<TomcatSlf4jLogbackAppenderAccessor> appenders = getAppenders();
         for (TomcatSlf4jLogbackAppenderAccessor wrappedAppender : appenders) {
@@ -114,8 +113,8 @@ public class TomcatSlf4jLogbackLoggerAccessor extends DefaultAccessor {
    */
   public String getLevel() {
     try {
-      Object level = MethodUtils.invokeMethod(getTarget(), "getLevel");
-      return (String) MethodUtils.invokeMethod(level, "toString");
+      Object level = AccessorCache.invokeMethod(getTarget(), "getLevel");
+      return (String) AccessorCache.invokeMethod(level, "toString");
     } catch (Exception e) {
       logger.error("{}#getLevel() failed", getTarget().getClass().getName(), e);
     }
@@ -129,9 +128,9 @@ public class TomcatSlf4jLogbackLoggerAccessor extends DefaultAccessor {
    */
   public void setLevel(String newLevelStr) {
     try {
-      Object level = MethodUtils.invokeMethod(getTarget(), "getLevel");
-      Object newLevel = MethodUtils.invokeMethod(level, "toLevel", newLevelStr);
-      MethodUtils.invokeMethod(getTarget(), "setLevel", newLevel);
+      Object level = AccessorCache.invokeMethod(getTarget(), "getLevel");
+      Object newLevel = AccessorCache.invokeMethod(level, "toLevel", newLevelStr);
+      AccessorCache.invokeMethod(getTarget(), "setLevel", newLevel);
     } catch (Exception e) {
       logger.error("{}#setLevel('{}') failed", getTarget().getClass().getName(), newLevelStr, e);
     }
@@ -149,14 +148,14 @@ public class TomcatSlf4jLogbackLoggerAccessor extends DefaultAccessor {
     if ("org.apache.juli.logging.ch.qos.logback.classic.sift.SiftingAppender"
         .equals(appender.getClass().getName())) {
 
-      Object tracker = MethodUtils.invokeMethod(appender, "getAppenderTracker");
+      Object tracker = AccessorCache.invokeMethod(appender, "getAppenderTracker");
       if (tracker != null) {
         try {
-          return (List<Object>) MethodUtils.invokeMethod(tracker, "allComponents");
+          return (List<Object>) AccessorCache.invokeMethod(tracker, "allComponents");
         } catch (final NoSuchMethodException e) {
           // XXX Legacy 1.0.x and lower support for logback
           logger.trace("", e);
-          return (List<Object>) MethodUtils.invokeMethod(tracker, "valueList");
+          return (List<Object>) AccessorCache.invokeMethod(tracker, "valueList");
         }
       }
       return new ArrayList<>();
@@ -10,15 +10,29 @@
  */
 package psiprobe;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import javax.servlet.http.HttpServletResponse;
+
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
 
 /**
  * The Class UtilsTest.
  */
 class UtilsTest {
 
+  /** The temp dir. */
+  @TempDir
+  File tempDir;
+
   /**
    * To int test.
    */
@@ -85,4 +99,181 @@ class UtilsTest {
     Assertions.assertEquals("", Utils.leftPad(null, 4, "0"));
   }
 
+  /**
+   * Send file test, whole file and single ranges.
+   *
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  @Test
+  void sendFileTest() throws IOException {
+    File file = writeFile("0123456789");
+
+    MockHttpServletResponse response = sendFile(file, null);
+    Assertions.assertEquals(HttpServletResponse.SC_OK, response.getStatus());
+    Assertions.assertEquals("0123456789", response.getContentAsString());
+    Assertions.assertEquals("bytes", response.getHeader("Accept-Ranges"));
+
+    response = sendFile(file, "bytes=2-4");
+    Assertions.assertEquals(HttpServletResponse.SC_PARTIAL_CONTENT, response.getStatus());
+    Assertions.assertEquals("234", response.getContentAsString());
+    Assertions.assertEquals("bytes 2-4/10", response.getHeader("Content-Range"));
+
+    Assertions.assertEquals("789", sendFile(file, "bytes=-3").getContentAsString());
+    Assertions.assertEquals("89", sendFile(file, "bytes=8-").getContentAsString());
+    Assertions.assertEquals("89", sendFile(file, "bytes=8-20").getContentAsString());
+    Assertions.assertEquals(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE,
+        sendFile(file, "bytes=10-").getStatus());
+    // invalid ranges are ignored
+    Assertions.assertEquals("0123456789", sendFile(file, "bytes=4-2").getContentAsString());
+  }
+
+  /**
+   * Send file test, multiple ranges.
+   *
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  @Test
+  void sendFileMultipleRangesTest() throws IOException {
+    File file = writeFile("0123456789");
+    MockHttpServletResponse response = sendFile(file, "bytes=0-1,-2");
+    Assertions.assertEquals(HttpServletResponse.SC_PARTIAL_CONTENT, response.getStatus());
+    String contentType = response.getContentType();
+    Assertions.assertTrue(contentType.startsWith("multipart/byteranges; boundary="));
+    String boundary = contentType.substring(contentType.indexOf('=') + 1);
+    String body = response.getContentAsString();
+    Assertions.assertEquals("\r\n--" + boundary + "\r\nContent-Type: application/x-download"
+        + "\r\nContent-Range: bytes 0-1/10\r\n\r\n01"
+        + "\r\n--" + boundary + "\r\nContent-Type: application/x-download"
+        + "\r\nContent-Range: bytes 8-9/10\r\n\r\n89"
+        + "\r\n--" + boundary + "--\r\n", body);
+    Assertions.assertEquals(Integer.toString(body.length()), response.getHeader("Content-Length"));
+
+    // overlapping and adjacent ranges are coalesced, in ascending order
+    response = sendFile(file, "bytes=0-,0-,0-");
+    Assertions.assertEquals(HttpServletResponse.SC_PARTIAL_CONTENT, response.getStatus());
+    Assertions.assertEquals("bytes 0-9/10", response.getHeader("Content-Range"));
+    Assertions.assertEquals("0123456789", response.getContentAsString());
+    body = sendFile(file, "bytes=7-8,2-3,0-1,3-4").getContentAsString();
+    Assertions.assertTrue(body.contains("Content-Range: bytes 0-4/10\r\n\r\n01234\r\n"));
+    Assertions.assertTrue(body.indexOf("bytes 0-4/10") < body.indexOf("bytes 7-8/10"));
+    Assertions.assertEquals(2, body.split("Content-Range").length - 1);
+  }
+
+  /**
+   * Send file test, conditional requests.
+   *
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  @Test
+  void sendFileConditionalTest() throws IOException {
+    File file = writeFile("0123456789");
+
+    MockHttpServletRequest request = new MockHttpServletRequest("GET", "/download");
+    request.addHeader("If-Modified-Since", file.lastModified() + 1000);
+    MockHttpServletResponse response = new MockHttpServletResponse();
+    Utils.sendFile(request, response, file);
+    Assertions.assertEquals(HttpServletResponse.SC_NOT_MODIFIED, response.getStatus());
+
+    String etag = sendFile(file, null).getHeader("ETag");
+    request = new MockHttpServletRequest("GET", "/download");
+    request.addHeader("Range", "bytes=5-");
+    request.addHeader("If-Range", etag);
+    response = new MockHttpServletResponse();
+    Utils.sendFile(request, response, file);
+    Assertions.assertEquals("56789", response.getContentAsString());
+
+    // a date must be the exact last modification date
+    request = new MockHttpServletRequest("GET", "/download");
+    request.addHeader("Range", "bytes=5-");
+    request.addHeader("If-Range", file.lastModified());
+    response = new MockHttpServletResponse();
+    Utils.sendFile(request, response, file);
+    Assertions.assertEquals("56789", response.getContentAsString());
+
+    request = new MockHttpServletRequest("GET", "/download");
+    request.addHeader("Range", "bytes=5-");
+    request.addHeader("If-Range", file.lastModified() + 1000);
+    response = new MockHttpServletResponse();
+    Utils.sendFile(request, response, file);
+    Assertions.assertEquals(HttpServletResponse.SC_OK, response.getStatus());
+    Assertions.assertEquals("0123456789", response.getContentAsString());
+
+    request = new MockHttpServletRequest("GET", "/download");
+    request.addHeader("Range", "bytes=5-");
+    request.addHeader("If-Range", "\"changed\"");
+    response = new MockHttpServletResponse();
+    Utils.sendFile(request, response, file);
+    Assertions.assertEquals(HttpServletResponse.SC_OK, response.getStatus());
+    Assertions.assertEquals("0123456789", response.getContentAsString());
+
+    // If-None-Match is looked at before, and instead of, If-Modified-Since
+    request = new MockHttpServletRequest("GET", "/download");
+    request.addHeader("If-None-Match", "\"other\", W/" + etag);
+    response = new MockHttpServletResponse();
+    Utils.sendFile(request, response, file);
+    Assertions.assertEquals(HttpServletResponse.SC_NOT_MODIFIED, response.getStatus());
+
+    request = new MockHttpServletRequest("GET", "/download");
+    request.addHeader("If-None-Match", "\"changed\"");
+    request.addHeader("If-Modified-Since", file.lastModified() + 1000);
+    response = new MockHttpServletResponse();
+    Utils.sendFile(request, response, file);
+    Assertions.assertEquals(HttpServletResponse.SC_OK, response.getStatus());
+    Assertions.assertEquals("0123456789", response.getContentAsString());
+  }
+
+  /**
+   * Send file test, sent by the container.
+   *
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  @Test
+  void sendFileSendfileTest() throws IOException {
+    byte[] content = new byte[64 * 1024];
+    File file = new File(tempDir, "large.log");
+    Files.write(file.toPath(), content);
+    MockHttpServletRequest request = new MockHttpServletRequest("GET", "/download");
+    request.setAttribute("org.apache.tomcat.sendfile.support", Boolean.TRUE);
+    request.addHeader("Range", "bytes=1024-");
+    MockHttpServletResponse response = new MockHttpServletResponse();
+    Utils.sendFile(request, response, file);
+    Assertions.assertEquals(0, response.getContentAsByteArray().length);
+    Assertions.assertEquals(file.getCanonicalPath(),
+        request.getAttribute("org.apache.tomcat.sendfile.filename"));
+    Assertions.assertEquals(1024L, request.getAttribute("org.apache.tomcat.sendfile.start"));
+    Assertions.assertEquals((long) content.length,
+        request.getAttribute("org.apache.tomcat.sendfile.end"));
+  }
+
+  /**
+   * Writes a file.
+   *
+   * @param content the content
+   * @return the file
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  private File writeFile(String content) throws IOException {
+    File file = new File(tempDir, "test.log");
+    Files.write(file.toPath(), content.getBytes(StandardCharsets.US_ASCII));
+    return file;
+  }
+
+  /**
+   * Sends a file.
+   *
+   * @param file the file
+   * @param range the range header, may be null
+   * @return the response
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  private static MockHttpServletResponse sendFile(File file, String range) throws IOException {
+    MockHttpServletRequest request = new MockHttpServletRequest("GET", "/download");
+    if (range != null) {
+      request.addHeader("Range", range);
+    }
+    MockHttpServletResponse response = new MockHttpServletResponse();
+    Utils.sendFile(request, response, file);
+    return response;
+  }
+
 }
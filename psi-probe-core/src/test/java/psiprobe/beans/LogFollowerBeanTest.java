@@ -0,0 +1,232 @@
+/*
+ * Licensed under the GPL License. You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   https://www.gnu.org/licenses/old-licenses/gpl-2.0.html
+ *
+ * THIS PACKAGE IS PROVIDED "AS IS" AND WITHOUT ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING,
+ * WITHOUT LIMITATION, THE IMPLIED WARRANTIES OF MERCHANTIBILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE.
+ */
+package psiprobe.beans;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * The Class LogFollowerBeanTest.
+ */
+class LogFollowerBeanTest {
+
+  /** The temp dir. */
+  @TempDir
+  File tempDir;
+
+  /** The log follower. */
+  LogFollowerBean logFollower;
+
+  /** The log file. */
+  File file;
+
+  /**
+   * Setup.
+   *
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  @BeforeEach
+  void setup() throws IOException {
+    logFollower = new LogFollowerBean();
+    logFollower.setPollInterval(50);
+    file = new File(tempDir, "catalina.out");
+    append("one\ntwo\nthree\n");
+  }
+
+  /**
+   * Tear down.
+   *
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  @AfterEach
+  void tearDown() throws IOException {
+    logFollower.destroy();
+  }
+
+  /**
+   * Subscribers are sent the last lines, then the lines appended.
+   *
+   * @throws Exception the exception
+   */
+  @Test
+  void followAppendedLines() throws Exception {
+    RecordingSubscriber first = new RecordingSubscriber();
+    RecordingSubscriber second = new RecordingSubscriber();
+    logFollower.subscribe(file, null, -1, 2, first);
+    logFollower.subscribe(file, null, -1, 10, second);
+    Assertions.assertEquals(Arrays.asList("two", "three"), first.lines);
+    Assertions.assertEquals(Arrays.asList("one", "two", "three"), second.lines);
+    Assertions.assertEquals(2, logFollower.getSubscriberCount(file));
+
+    append("four\r\nfi");
+    awaitLines(first, 3);
+    append("ve\n");
+    awaitLines(first, 4);
+    Assertions.assertEquals(Arrays.asList("two", "three", "four", "five"), first.lines);
+    Assertions.assertEquals(Arrays.asList("one", "two", "three", "four", "five"), second.lines);
+    Assertions.assertEquals(file.length(), first.position);
+
+    logFollower.unsubscribe(file, first);
+    logFollower.unsubscribe(file, second);
+    Assertions.assertEquals(0, logFollower.getSubscriberCount(file));
+  }
+
+  /**
+   * Subscribers knowing the length they read up to are sent the lines following it.
+   *
+   * @throws Exception the exception
+   */
+  @Test
+  void resumeFromLastKnownLength() throws Exception {
+    RecordingSubscriber subscriber = new RecordingSubscriber();
+    logFollower.subscribe(file, null, 4, 250, subscriber);
+    Assertions.assertEquals(Arrays.asList("two", "three"), subscriber.lines);
+  }
+
+  /**
+   * Subscribers are told when the file gets truncated, and sent the lines written since.
+   *
+   * @throws Exception the exception
+   */
+  @Test
+  void truncation() throws Exception {
+    RecordingSubscriber subscriber = new RecordingSubscriber();
+    logFollower.subscribe(file, null, -1, 250, subscriber);
+    Files.write(file.toPath(), "new\n".getBytes(StandardCharsets.UTF_8));
+    awaitLines(subscriber, 4);
+    Assertions.assertEquals(1, subscriber.truncations);
+    Assertions.assertEquals("new", subscriber.lines.get(3));
+  }
+
+  /**
+   * Lines following a carriage return are not taken for the second half of a CRLF terminator once
+   * the file got truncated.
+   *
+   * @throws Exception the exception
+   */
+  @Test
+  void truncationAfterCarriageReturn() throws Exception {
+    RecordingSubscriber subscriber = new RecordingSubscriber();
+    logFollower.subscribe(file, null, -1, 250, subscriber);
+    append("four\r");
+    awaitLines(subscriber, 4);
+    Files.write(file.toPath(), "\nnew\n".getBytes(StandardCharsets.UTF_8));
+    awaitLines(subscriber, 6);
+    Assertions.assertEquals(Arrays.asList("", "new"), subscriber.lines.subList(4, 6));
+  }
+
+  /**
+   * Reading only the last bytes of what was appended drops the line they start in the middle of.
+   *
+   * @throws Exception the exception
+   */
+  @Test
+  void maxReadSizeDropsPartialLine() throws Exception {
+    logFollower.setMaxReadSize(8);
+    RecordingSubscriber subscriber = new RecordingSubscriber();
+    logFollower.subscribe(file, null, -1, 250, subscriber);
+    append("0123456789\nsix\n");
+    awaitLines(subscriber, 4);
+    Assertions.assertEquals("six", subscriber.lines.get(3));
+
+    // the last bytes starting with a whole line, it is kept
+    logFollower.setMaxReadSize(6);
+    append("seven\neight\n");
+    awaitLines(subscriber, 5);
+    Assertions.assertEquals("eight", subscriber.lines.get(4));
+  }
+
+  /**
+   * Subscribers resuming from too far back are sent the whole lines of the last bytes only.
+   *
+   * @throws Exception the exception
+   */
+  @Test
+  void resumeFromTooFarBack() throws Exception {
+    logFollower.setMaxReadSize(7);
+    RecordingSubscriber subscriber = new RecordingSubscriber();
+    logFollower.subscribe(file, null, 0, 250, subscriber);
+    Assertions.assertEquals(Arrays.asList("three"), subscriber.lines);
+  }
+
+  /**
+   * Appends to the log file.
+   *
+   * @param text the text
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  private void append(String text) throws IOException {
+    Files.write(file.toPath(), text.getBytes(StandardCharsets.UTF_8), StandardOpenOption.CREATE,
+        StandardOpenOption.APPEND);
+  }
+
+  /**
+   * Waits for a subscriber to have received a number of lines.
+   *
+   * @param subscriber the subscriber
+   * @param count the line count
+   * @throws InterruptedException the interrupted exception
+   */
+  private static void awaitLines(RecordingSubscriber subscriber, int count)
+      throws InterruptedException {
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+    while (subscriber.lines.size() < count && System.nanoTime() < deadline) {
+      Thread.sleep(10);
+    }
+    Assertions.assertEquals(count, subscriber.lines.size());
+  }
+
+  /**
+   * Records what it is sent.
+   */
+  private static class RecordingSubscriber implements LogFollowerBean.Subscriber {
+
+    /** The lines. */
+    final List<String> lines = new CopyOnWriteArrayList<>();
+
+    /** The position. */
+    volatile long position;
+
+    /** The truncations. */
+    volatile int truncations;
+
+    @Override
+    public void lines(List<String> lines, long position) {
+      this.lines.addAll(new ArrayList<>(lines));
+      this.position = position;
+    }
+
+    @Override
+    public void truncated() {
+      truncations++;
+    }
+
+    @Override
+    public void heartbeat() {
+      // nothing to record
+    }
+  }
+
+}
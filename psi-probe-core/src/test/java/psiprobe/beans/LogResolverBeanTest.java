@@ -0,0 +1,107 @@
+/*
+ * Licensed under the GPL License. You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   https://www.gnu.org/licenses/old-licenses/gpl-2.0.html
+ *
+ * THIS PACKAGE IS PROVIDED "AS IS" AND WITHOUT ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING,
+ * WITHOUT LIMITATION, THE IMPLIED WARRANTIES OF MERCHANTIBILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE.
+ */
+package psiprobe.beans;
+
+import mockit.Expectations;
+import mockit.Mocked;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import psiprobe.model.Application;
+import psiprobe.tools.logging.LogDestination;
+
+/**
+ * The Class LogResolverBeanTest.
+ */
+class LogResolverBeanTest {
+
+  /** The destination. */
+  @Mocked
+  LogDestination dest;
+
+  /**
+   * Destinations are indexed by the parameters the logs page links them with.
+   */
+  @Test
+  void keyOfRootLogger() {
+    expect("log4j", "/app", false, true, "root", "R");
+    Assertions.assertEquals(LogResolverBean.toKey("log4j", "/app", false, true, null, "R"),
+        LogResolverBean.toKey(dest));
+  }
+
+  /**
+   * Named loggers are identified by their name.
+   */
+  @Test
+  void keyOfNamedLogger() {
+    expect("jdk", null, false, false, "org.apache", "0");
+    Assertions.assertEquals(LogResolverBean.toKey("jdk", null, false, false, "org.apache", "0"),
+        LogResolverBean.toKey(dest));
+    Assertions.assertNotEquals(LogResolverBean.toKey("jdk", null, false, false, "org", "0"),
+        LogResolverBean.toKey(dest));
+  }
+
+  /**
+   * Context loggers are identified by their index only, but for log4j2 ones.
+   */
+  @Test
+  void keyOfContextLogger() {
+    expect("log4j", "/app", true, false, "ignored", "1");
+    Assertions.assertEquals(LogResolverBean.toKey("log4j", "/app", true, false, null, "1"),
+        LogResolverBean.toKey(dest));
+    Assertions.assertNotEquals(LogResolverBean.toKey("log4j2", "/app", true, false, null, "1"),
+        LogResolverBean.toKey("log4j2", "/app", true, false, "name", "1"));
+  }
+
+  /**
+   * Sets up the destination.
+   *
+   * @param logType the log type
+   * @param webapp the webapp
+   * @param context the context
+   * @param root the root
+   * @param name the name
+   * @param index the index
+   */
+  private void expect(String logType, String webapp, boolean context, boolean root, String name,
+      String index) {
+    Application application = null;
+    if (webapp != null) {
+      application = new Application();
+      application.setName(webapp);
+    }
+    Application app = application;
+    new Expectations() {
+      {
+        dest.getLogType();
+        result = logType;
+        minTimes = 0;
+        dest.getApplication();
+        result = app;
+        minTimes = 0;
+        dest.isContext();
+        result = context;
+        minTimes = 0;
+        dest.isRoot();
+        result = root;
+        minTimes = 0;
+        dest.getName();
+        result = name;
+        minTimes = 0;
+        dest.getIndex();
+        result = index;
+        minTimes = 0;
+      }
+    };
+  }
+
+}
@@ -0,0 +1,159 @@
+/*
+ * Licensed under the GPL License. You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   https://www.gnu.org/licenses/old-licenses/gpl-2.0.html
+ *
+ * THIS PACKAGE IS PROVIDED "AS IS" AND WITHOUT ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING,
+ * WITHOUT LIMITATION, THE IMPLIED WARRANTIES OF MERCHANTIBILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE.
+ */
+package psiprobe.beans;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.catalina.core.StandardContext;
+import org.apache.catalina.session.StandardSession;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import psiprobe.tools.ApplicationUtils;
+import psiprobe.tools.SessionFixtures;
+
+/**
+ * The Class SessionSizeEstimatorBeanTest.
+ */
+class SessionSizeEstimatorBeanTest {
+
+  /** The estimator. */
+  private SessionSizeEstimatorBean estimator;
+
+  /** The sessions. */
+  private List<StandardSession> sessions;
+
+  /**
+   * Sets up 20 sessions of an application, each holding a list of strings and a shared value.
+   */
+  @BeforeEach
+  void setUp() {
+    estimator = new SessionSizeEstimatorBean();
+    estimator.setPause(0);
+
+    StandardContext context = SessionFixtures.newContext("/app");
+    String shared = "shared by all sessions";
+    sessions = new ArrayList<>();
+    for (int i = 0; i < 20; i++) {
+      StandardSession session =
+          SessionFixtures.addSession(context, "S" + i, System.currentTimeMillis() - 60_000L);
+      List<String> values = new ArrayList<>();
+      for (int j = 0; j <= i; j++) {
+        values.add("value " + j);
+      }
+      session.setAttribute("values", values, false);
+      session.setAttribute("shared", shared, false);
+      sessions.add(session);
+    }
+  }
+
+  /**
+   * Tear down.
+   */
+  @AfterEach
+  void tearDown() {
+    estimator.destroy();
+  }
+
+  /**
+   * Sizes are unknown until estimated in the background, then cached until the session is accessed.
+   *
+   * @throws InterruptedException the interrupted exception
+   */
+  @Test
+  void estimateInBackground() throws InterruptedException {
+    for (StandardSession session : sessions) {
+      Assertions.assertEquals(SessionSizeEstimatorBean.UNKNOWN,
+          estimator.getSize("/app", session, false));
+    }
+    awaitEstimates();
+    for (StandardSession session : sessions) {
+      long size = estimator.getSize("/app", session, false);
+      Assertions.assertEquals(ApplicationUtils.getSessionSize(session), size);
+      SessionSizeEstimatorBean.Estimate estimate = estimator.getEstimate("/app", session);
+      Assertions.assertEquals(size, estimate.getAttributeSizes().get("values")
+          + estimate.getAttributeSizes().get("shared"));
+    }
+
+    StandardSession accessed = sessions.get(3);
+    accessed.setCreationTime(System.currentTimeMillis());
+    Assertions.assertNull(estimator.getEstimate("/app", accessed));
+    Assertions.assertEquals(SessionSizeEstimatorBean.UNKNOWN,
+        estimator.getSize("/app", accessed, true));
+    awaitEstimates();
+    Assertions.assertNotNull(estimator.getEstimate("/app", accessed));
+  }
+
+  /**
+   * Runs spending their budget at the first step still estimate every session, resuming the
+   * sessions left half estimated, in the middle of an attribute.
+   *
+   * @throws InterruptedException the interrupted exception
+   */
+  @Test
+  void resumeAcrossRuns() throws InterruptedException {
+    estimator.setMaxRunTime(0);
+    estimator.setStepSize(1);
+    for (StandardSession session : sessions) {
+      estimator.getSize("/app", session, false);
+    }
+    awaitEstimates();
+    for (StandardSession session : sessions) {
+      Assertions.assertEquals(ApplicationUtils.getSessionSize(session),
+          estimator.getSize("/app", session, false));
+    }
+  }
+
+  /**
+   * Urgent requests move the sessions already queued ahead rather than queuing them again, and are
+   * bounded by the queue size as the others.
+   */
+  @Test
+  void boundedQueue() {
+    // the first run stops after one step, the sessions stay queued
+    estimator.setMaxRunTime(0);
+    estimator.setPause(60_000L);
+    estimator.setMaxQueueSize(5);
+    for (int i = 0; i < 3; i++) {
+      for (StandardSession session : sessions) {
+        estimator.getSize("/app", session, i > 0);
+      }
+      Assertions.assertTrue(estimator.getQueueSize() <= 5);
+    }
+
+    estimator.setMaxQueueSize(100);
+    for (int i = 0; i < 3; i++) {
+      for (StandardSession session : sessions) {
+        estimator.getSize("/app", session, true);
+      }
+      Assertions.assertTrue(estimator.getQueueSize() <= sessions.size());
+    }
+  }
+
+  /**
+   * Waits until every session is estimated.
+   *
+   * @throws InterruptedException the interrupted exception
+   */
+  private void awaitEstimates() throws InterruptedException {
+    long deadline = System.currentTimeMillis() + 10_000L;
+    for (StandardSession session : sessions) {
+      while (estimator.getEstimate("/app", session) == null) {
+        Assertions.assertTrue(System.currentTimeMillis() < deadline, "Sessions not estimated");
+        Thread.sleep(10);
+      }
+    }
+  }
+
+}
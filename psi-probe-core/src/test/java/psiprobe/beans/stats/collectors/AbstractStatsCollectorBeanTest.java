@@ -0,0 +1,76 @@
+/*
+ * Licensed under the GPL License. You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   https://www.gnu.org/licenses/old-licenses/gpl-2.0.html
+ *
+ * THIS PACKAGE IS PROVIDED "AS IS" AND WITHOUT ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING,
+ * WITHOUT LIMITATION, THE IMPLIED WARRANTIES OF MERCHANTIBILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE.
+ */
+package psiprobe.beans.stats.collectors;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import psiprobe.model.stats.StatsCollection;
+import psiprobe.model.stats.StatsSeries;
+
+/**
+ * The Class AbstractStatsCollectorBeanTest.
+ */
+class AbstractStatsCollectorBeanTest {
+
+  /**
+   * Test that every cycle records the overhead of the collector.
+   *
+   * @throws Exception the exception
+   */
+  @Test
+  void recordOverhead() throws Exception {
+    StatsCollection statsCollection = new StatsCollection();
+    AbstractStatsCollectorBean collector = new AbstractStatsCollectorBean() {
+      @Override
+      public void collect() throws Exception {
+        buildAbsoluteStats("test.a", 1);
+        buildAbsoluteStats("test.b", 2);
+      }
+    };
+    collector.setBeanName("testCollector");
+    collector.setStatsCollection(statsCollection);
+    collector.setPeriod(1000);
+    Assertions.assertEquals(0, collector.getFirstCycleTime());
+
+    collector.execute();
+    long firstCycleTime = collector.getFirstCycleTime();
+    Assertions.assertTrue(firstCycleTime > 0);
+    Assertions.assertEquals(2, collector.getSeriesCount());
+    Assertions.assertEquals(1, series(statsCollection, "time").size());
+
+    collector.recordOverhead(10_000, 1500);
+    collector.recordOverhead(13_000, 10);
+    collector.recordOverhead(14_000, 10);
+
+    StatsSeries overruns = series(statsCollection, "overruns");
+    Assertions.assertEquals(1, overruns.getValue(1));
+    Assertions.assertEquals(0, overruns.getValue(2));
+    StatsSeries skipped = series(statsCollection, "skipped");
+    Assertions.assertEquals(2, skipped.getValue(2));
+    Assertions.assertEquals(0, skipped.getValue(3));
+    Assertions.assertEquals(2, series(statsCollection, "series").getLastValue());
+    Assertions.assertEquals(firstCycleTime, collector.getFirstCycleTime());
+  }
+
+  /**
+   * Gets an overhead series of the test collector.
+   *
+   * @param statsCollection the stats collection
+   * @param metric the metric
+   * @return the series
+   */
+  private static StatsSeries series(StatsCollection statsCollection, String metric) {
+    return statsCollection
+        .getStats(AbstractStatsCollectorBean.OVERHEAD_PREFIX + metric + ".testCollector");
+  }
+
+}
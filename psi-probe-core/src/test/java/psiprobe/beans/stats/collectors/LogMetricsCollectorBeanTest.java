@@ -0,0 +1,186 @@
+/*
+ * Licensed under the GPL License. You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   https://www.gnu.org/licenses/old-licenses/gpl-2.0.html
+ *
+ * THIS PACKAGE IS PROVIDED "AS IS" AND WITHOUT ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING,
+ * WITHOUT LIMITATION, THE IMPLIED WARRANTIES OF MERCHANTIBILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE.
+ */
+package psiprobe.beans.stats.collectors;
+
+import com.codebox.bean.JavaBeanTester;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import psiprobe.beans.LogResolverBean;
+import psiprobe.model.Application;
+import psiprobe.model.stats.StatsCollection;
+import psiprobe.tools.logging.FileLogAccessor;
+import psiprobe.tools.logging.LogDestination;
+import psiprobe.tools.logging.LogLineRule;
+
+/**
+ * The Class LogMetricsCollectorBeanTest.
+ */
+class LogMetricsCollectorBeanTest {
+
+  /** The temp dir. */
+  @TempDir
+  File tempDir;
+
+  /**
+   * Javabean tester.
+   */
+  @Test
+  void javabeanTester() {
+    JavaBeanTester.builder(LogMetricsCollectorBean.class).loadData().test();
+  }
+
+  /**
+   * Only the lines appended since the previous cycle are counted, per application and in total.
+   *
+   * @throws Exception the exception
+   */
+  @Test
+  void countAppendedLines() throws Exception {
+    File appLog = new File(tempDir, "app.log");
+    File serverLog = new File(tempDir, "catalina.log");
+    append(appLog, "2020-01-31 10:00:00 ERROR before the first cycle\n");
+    append(serverLog, "");
+
+    List<LogDestination> destinations = new ArrayList<>();
+    destinations.add(destination(appLog, "/app"));
+    destinations.add(destination(appLog, "/app"));
+    destinations.add(destination(serverLog, null));
+    LogResolverBean logResolver = new LogResolverBean() {
+      @Override
+      public List<LogDestination> getLogDestinations(boolean all) {
+        return destinations;
+      }
+    };
+
+    StatsCollection statsCollection = new StatsCollection();
+    LogMetricsCollectorBean collector = new LogMetricsCollectorBean();
+    collector.setStatsCollection(statsCollection);
+    collector.setLogResolver(logResolver);
+    collector.setRules("errors=level:WARN;oom=OutOfMemoryError");
+
+    // files are tailed from their end, the first samples are dropped as for any series
+    collector.collect();
+    append(appLog, "2020-01-31 10:00:01 WARN slow\n2020-01-31 10:00:02 INFO fine\n"
+        + "2020-01-31 10:00:03 SEVERE failed\njava.lang.OutOfMemoryError: Java heap space\n"
+        + "2020-01-31 10:00:04 ERROR not terminated");
+    append(serverLog, "31-Jan-2020 10:00:05.000 SEVERE [main] failed\n");
+    collector.collect();
+
+    Assertions.assertEquals(2, statsCollection.getLastValueForStat("log.errors./app"));
+    Assertions.assertEquals(1, statsCollection.getLastValueForStat("log.oom./app"));
+    Assertions.assertEquals(3, statsCollection.getLastValueForStat("total.log.errors"));
+    Assertions.assertEquals(1, statsCollection.getLastValueForStat("total.log.oom"));
+
+    append(appLog, " yet\n");
+    collector.collect();
+    Assertions.assertEquals(1, statsCollection.getLastValueForStat("log.errors./app"));
+    Assertions.assertEquals(0, statsCollection.getLastValueForStat("log.oom./app"));
+    Assertions.assertEquals(1, statsCollection.getLastValueForStat("total.log.errors"));
+
+    // the file got rotated, it is read from its start
+    Files.delete(appLog.toPath());
+    append(appLog, "2020-01-31 10:01:00 FATAL down\n");
+    collector.collect();
+    Assertions.assertEquals(1, statsCollection.getLastValueForStat("log.errors./app"));
+
+    // resetting the application clears its series only
+    collector.reset("/app");
+    Assertions.assertTrue(statsCollection.getStats("log.errors./app").isEmpty());
+    Assertions.assertTrue(statsCollection.getStats("log.oom./app").isEmpty());
+    Assertions.assertFalse(statsCollection.getStats("total.log.errors").isEmpty());
+  }
+
+  /**
+   * Invalid rules disable the collector rather than failing every cycle.
+   *
+   * @throws Exception the exception
+   */
+  @Test
+  void invalidRules() throws Exception {
+    LogMetricsCollectorBean collector = new LogMetricsCollectorBean();
+    collector.setLogResolver(new LogResolverBean());
+    collector.setRules("errors=level:LOUD");
+    collector.collect();
+    Assertions.assertTrue(collector.getRuleNames().isEmpty());
+    Assertions.assertEquals(0, collector.getSeriesCount());
+  }
+
+  /**
+   * The shipped timeouts rule counts failures, not the settings that merely name a timeout.
+   *
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  @Test
+  void defaultTimeoutsRule() throws IOException {
+    Properties properties = new Properties();
+    try (InputStream in = getClass().getResourceAsStream("/stats.properties")) {
+      properties.load(in);
+    }
+    LogLineRule timeouts = null;
+    for (LogLineRule rule : LogLineRule
+        .parse(properties.getProperty("psiprobe.beans.stats.collectors.log.rules"))) {
+      if ("timeouts".equals(rule.getName())) {
+        timeouts = rule;
+      }
+    }
+    Assertions.assertNotNull(timeouts);
+    Assertions.assertTrue(timeouts.matches("java.net.SocketTimeoutException: Read timed out"));
+    Assertions.assertTrue(timeouts.matches("Caused by: java.util.concurrent.TimeoutException"));
+    Assertions.assertTrue(timeouts.matches("SEVERE [pool-1] Connection timed out"));
+    Assertions.assertFalse(timeouts.matches("INFO Connector[HTTP/1.1] connectionTimeout=20000"));
+    Assertions.assertFalse(timeouts.matches("INFO session timeout is 30 minutes"));
+    Assertions.assertFalse(timeouts.matches("DEBUG setting socket.soTimeout to 5000"));
+  }
+
+  /**
+   * Creates a log destination.
+   *
+   * @param file the file
+   * @param appName the app name, null for the server
+   * @return the log destination
+   */
+  private static LogDestination destination(File file, String appName) {
+    FileLogAccessor dest = new FileLogAccessor();
+    dest.setFile(file);
+    if (appName != null) {
+      Application app = new Application();
+      app.setName(appName);
+      dest.setApplication(app);
+    }
+    return dest;
+  }
+
+  /**
+   * Appends text to a file.
+   *
+   * @param file the file
+   * @param text the text
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  private static void append(File file, String text) throws IOException {
+    Files.write(file.toPath(), text.getBytes(StandardCharsets.UTF_8), StandardOpenOption.CREATE,
+        StandardOpenOption.APPEND);
+  }
+
+}
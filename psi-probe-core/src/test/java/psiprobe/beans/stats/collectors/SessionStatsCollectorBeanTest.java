@@ -0,0 +1,180 @@
+/*
+ * Licensed under the GPL License. You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   https://www.gnu.org/licenses/old-licenses/gpl-2.0.html
+ *
+ * THIS PACKAGE IS PROVIDED "AS IS" AND WITHOUT ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING,
+ * WITHOUT LIMITATION, THE IMPLIED WARRANTIES OF MERCHANTIBILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE.
+ */
+package psiprobe.beans.stats.collectors;
+
+import com.codebox.bean.JavaBeanTester;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.catalina.Context;
+import org.apache.catalina.Session;
+import org.apache.catalina.core.StandardContext;
+import org.apache.catalina.session.StandardManager;
+import org.apache.catalina.session.StandardSession;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import psiprobe.beans.SessionSizeEstimatorBean;
+import psiprobe.model.stats.StatsCollection;
+import psiprobe.tools.SessionFixtures;
+
+/**
+ * The Class SessionStatsCollectorBeanTest.
+ */
+class SessionStatsCollectorBeanTest {
+
+  /**
+   * Javabean tester.
+   */
+  @Test
+  void javabeanTester() {
+    JavaBeanTester.builder(SessionStatsCollectorBean.class).loadData().test();
+  }
+
+  /**
+   * Sessions are counted from the counters of the manager and bucketed by idle time and age.
+   *
+   * @throws Exception the exception
+   */
+  @Test
+  void collect() throws Exception {
+    StandardContext context = SessionFixtures.newContext("/app");
+    StandardManager manager = (StandardManager) context.getManager();
+    List<Context> contexts = Collections.singletonList(context);
+
+    StatsCollection statsCollection = new StatsCollection();
+    SessionStatsCollectorBean collector = new SessionStatsCollectorBean();
+    collector.setStatsCollection(statsCollection);
+    collector.setIdleBuckets("1m,5m");
+    collector.setAgeBuckets("10m");
+
+    // the first samples are dropped as for any series
+    long now = System.currentTimeMillis();
+    collector.collect(contexts, now);
+
+    for (int i = 0; i < 4; i++) {
+      Session session = manager.createSession("S" + i);
+      // created i * 3 minutes ago, and not accessed since
+      session.setCreationTime(now - i * 180_000L);
+    }
+    manager.findSession("S3").expire();
+    collector.collect(contexts, now);
+
+    Assertions.assertEquals(3, statsCollection.getLastValueForStat("app.sessions.active./app"));
+    Assertions.assertEquals(4, statsCollection.getLastValueForStat("app.sessions.created./app"));
+    Assertions.assertEquals(1, statsCollection.getLastValueForStat("app.sessions.expired./app"));
+    Assertions.assertEquals(1, statsCollection.getLastValueForStat("app.sessions.idle.0s./app"));
+    Assertions.assertEquals(1, statsCollection.getLastValueForStat("app.sessions.idle.1m./app"));
+    Assertions.assertEquals(1, statsCollection.getLastValueForStat("app.sessions.idle.5m./app"));
+    Assertions.assertEquals(3, statsCollection.getLastValueForStat("app.sessions.age.0s./app"));
+    Assertions.assertEquals(3, statsCollection.getLastValueForStat("total.sessions.active"));
+    Assertions.assertEquals(1, statsCollection.getLastValueForStat("total.sessions.idle.1m"));
+
+    // counters give the sessions created and expired since the previous cycle
+    manager.createSession("S4");
+    collector.collect(contexts, now + 1_200_000L);
+    Assertions.assertEquals(1, statsCollection.getLastValueForStat("app.sessions.created./app"));
+    Assertions.assertEquals(0, statsCollection.getLastValueForStat("app.sessions.expired./app"));
+    Assertions.assertEquals(4, statsCollection.getLastValueForStat("app.sessions.idle.5m./app"));
+    Assertions.assertEquals(4, statsCollection.getLastValueForStat("app.sessions.age.10m./app"));
+  }
+
+  /**
+   * Sessions are bucketed by the size the estimator gives them, once estimated.
+   *
+   * @throws Exception the exception
+   */
+  @Test
+  void sizes() throws Exception {
+    StandardContext context = SessionFixtures.newContext("/app");
+    StandardManager manager = (StandardManager) context.getManager();
+    List<Context> contexts = Collections.singletonList(context);
+    ((StandardSession) manager.createSession("small")).setAttribute("data", "small", false);
+    ((StandardSession) manager.createSession("large")).setAttribute("data", new byte[200_000],
+        false);
+
+    StatsCollection statsCollection = new StatsCollection();
+    SessionSizeEstimatorBean estimator = new SessionSizeEstimatorBean();
+    estimator.setPause(0);
+    SessionStatsCollectorBean collector = new SessionStatsCollectorBean();
+    collector.setStatsCollection(statsCollection);
+    collector.setSessionSizeEstimator(estimator);
+    collector.setSizeBuckets("100KB");
+    Assertions.assertEquals(Arrays.asList("0B", "100KB"), collector.getSizeBucketNames());
+    try {
+      // queues the sessions to the estimator
+      long now = System.currentTimeMillis();
+      collector.collect(contexts, now);
+      long deadline = now + 10_000L;
+      for (Session session : manager.findSessions()) {
+        while (estimator.getEstimate("/app", session) == null) {
+          Assertions.assertTrue(System.currentTimeMillis() < deadline, "Sessions not estimated");
+          Thread.sleep(10);
+        }
+      }
+
+      collector.collect(contexts, now + 60_000L);
+      Assertions.assertEquals(1, statsCollection.getLastValueForStat("app.sessions.size.0B./app"));
+      Assertions.assertEquals(1,
+          statsCollection.getLastValueForStat("app.sessions.size.100KB./app"));
+      Assertions.assertEquals(1, statsCollection.getLastValueForStat("total.sessions.size.100KB"));
+    } finally {
+      estimator.destroy();
+    }
+  }
+
+  /**
+   * Without size buckets no size histogram is collected and no session is queued to the estimator.
+   *
+   * @throws Exception the exception
+   */
+  @Test
+  void sizesOptIn() throws Exception {
+    StandardContext context = SessionFixtures.newContext("/app");
+    context.getManager().createSession("S1");
+
+    StatsCollection statsCollection = new StatsCollection();
+    SessionSizeEstimatorBean estimator = new SessionSizeEstimatorBean();
+    SessionStatsCollectorBean collector = new SessionStatsCollectorBean();
+    collector.setStatsCollection(statsCollection);
+    collector.setSessionSizeEstimator(estimator);
+    Assertions.assertFalse(collector.isSizeHistogramEnabled());
+    Assertions.assertEquals(Collections.emptyList(), collector.getSizeBucketNames());
+    try {
+      long now = System.currentTimeMillis();
+      collector.collect(Collections.singletonList(context), now);
+      collector.collect(Collections.singletonList(context), now + 60_000L);
+      Assertions.assertEquals(0, estimator.getQueueSize());
+      Assertions.assertEquals(1, statsCollection.getLastValueForStat("app.sessions.active./app"));
+      Assertions.assertTrue(statsCollection.getStatsByPrefix("app.sessions.size.").isEmpty());
+    } finally {
+      estimator.destroy();
+    }
+  }
+
+  /**
+   * Buckets are named by their lower bound and labelled by their range.
+   */
+  @Test
+  void buckets() {
+    SessionStatsCollectorBean collector = new SessionStatsCollectorBean();
+    collector.setIdleBuckets("1m, 5m");
+    Assertions.assertEquals(Arrays.asList("0s", "1m", "5m"), collector.getIdleBucketNames());
+    Assertions.assertEquals(Arrays.asList("< 1m", "1m - 5m", "> 5m"),
+        collector.getIdleBucketLabels());
+
+    collector.setAgeBuckets("5m,1m");
+    Assertions.assertEquals(Collections.singletonList("0s"), collector.getAgeBucketNames());
+  }
+
+}
@@ -0,0 +1,129 @@
+/*
+ * Licensed under the GPL License. You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   https://www.gnu.org/licenses/old-licenses/gpl-2.0.html
+ *
+ * THIS PACKAGE IS PROVIDED "AS IS" AND WITHOUT ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING,
+ * WITHOUT LIMITATION, THE IMPLIED WARRANTIES OF MERCHANTIBILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE.
+ */
+package psiprobe.beans.stats.collectors;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * The Class StatsCollectorExecutorTest.
+ */
+class StatsCollectorExecutorTest {
+
+  /**
+   * Test that values are returned in source order without the failing and slow sources.
+   *
+   * @throws Exception the exception
+   */
+  @Test
+  void readAll() throws Exception {
+    StatsCollectorExecutor executor = new StatsCollectorExecutor();
+    executor.setThreadCount(2);
+    executor.setTaskTimeoutExpression("1s");
+    try {
+      Map<String, Integer> values =
+          executor.readAll(Arrays.asList("a", "slow", "bb", "failing", "none", "ccc"), source -> {
+            switch (source) {
+              case "slow":
+                Thread.sleep(60000);
+                return 0;
+              case "failing":
+                throw new IllegalStateException(source);
+              case "none":
+                return null;
+              default:
+                return source.length();
+            }
+          });
+
+      Map<String, Integer> expected = new LinkedHashMap<>();
+      expected.put("a", 1);
+      expected.put("bb", 2);
+      expected.put("ccc", 3);
+      Assertions.assertEquals(expected, values);
+      Assertions.assertEquals(Arrays.asList("a", "bb", "ccc"),
+          Arrays.asList(values.keySet().toArray()));
+    } finally {
+      executor.destroy();
+    }
+  }
+
+  /**
+   * Test that the reads of a cycle share one deadline, and that a source whose read ignored the
+   * cancellation is skipped until the read returns.
+   *
+   * @throws Exception the exception
+   */
+  @Test
+  void readAllStuck() throws Exception {
+    StatsCollectorExecutor executor = new StatsCollectorExecutor();
+    executor.setThreadCount(4);
+    executor.setTaskTimeout(500);
+    AtomicBoolean release = new AtomicBoolean();
+    StatsCollectorExecutor.SourceReader<String, Integer> reader = source -> {
+      if (source.startsWith("stuck")) {
+        // ignores interrupts, as a blocked JMX or JDBC call may
+        while (!release.get()) {
+          LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(10));
+        }
+      }
+      return source.length();
+    };
+    try {
+      long start = System.currentTimeMillis();
+      Map<String, Integer> values =
+          executor.readAll(Arrays.asList("stuck1", "stuck2", "stuck3", "a"), reader);
+      Assertions.assertTrue(System.currentTimeMillis() - start < 1400);
+      Assertions.assertEquals(1, values.size());
+      Assertions.assertEquals(3, executor.getRunningCount());
+
+      // the stuck sources are not read again, the last thread reads the others
+      values = executor.readAll(Arrays.asList("stuck1", "stuck2", "stuck3", "bb"), reader);
+      Assertions.assertEquals(Integer.valueOf(2), values.get("bb"));
+      Assertions.assertEquals(1, values.size());
+      Assertions.assertEquals(3, executor.getRunningCount());
+
+      release.set(true);
+      long deadline = System.currentTimeMillis() + 5000;
+      while (executor.getRunningCount() > 0 && System.currentTimeMillis() < deadline) {
+        Thread.sleep(10);
+      }
+      Assertions.assertEquals(0, executor.getRunningCount());
+    } finally {
+      release.set(true);
+      executor.destroy();
+    }
+  }
+
+  /**
+   * Test that sources are read on the calling thread without threads.
+   *
+   * @throws Exception the exception
+   */
+  @Test
+  void readAllWithoutThreads() throws Exception {
+    StatsCollectorExecutor executor = new StatsCollectorExecutor();
+    executor.setThreadCount(0);
+    Thread caller = Thread.currentThread();
+    Map<String, Boolean> values =
+        executor.readAll(Arrays.asList("a", "b"), source -> Thread.currentThread() == caller);
+    Assertions.assertEquals(2, values.size());
+    Assertions.assertTrue(values.values().stream().allMatch(Boolean::booleanValue));
+  }
+
+}
@@ -12,7 +12,19 @@ package psiprobe.controllers;
 
 import com.codebox.bean.JavaBeanTester;
 
+import java.util.Collections;
+
+import javax.servlet.http.HttpServletResponse;
+
+import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.support.StaticWebApplicationContext;
+
+import psiprobe.beans.stats.providers.StandardSeriesProvider;
+import psiprobe.model.stats.StatsCollection;
+import psiprobe.model.stats.StatsSeries;
 
 /**
  * The Class RenderChartControllerTest.
@@ -28,4 +40,63 @@ class RenderChartControllerTest {
         .skip("applicationContext", "supportedMethods").test();
   }
 
+  /**
+   * Test that unchanged charts are answered with a 304 and re-rendered once data is collected.
+   *
+   * @throws Exception the exception
+   */
+  @Test
+  void notModified() throws Exception {
+    StatsCollection statsCollection = new StatsCollection();
+    StatsSeries stats = statsCollection.newStats("test", 10);
+    statsCollection.addSample("test", stats, 1_600_000_000_000L, 1);
+    statsCollection.addSample("test", stats, 1_600_000_030_000L, 2);
+
+    StandardSeriesProvider provider = new StandardSeriesProvider();
+    provider.setStatNames(Collections.singletonList("test"));
+    StaticWebApplicationContext context = new StaticWebApplicationContext();
+    context.refresh();
+    context.getBeanFactory().registerSingleton("testProvider", provider);
+
+    RenderChartController controller = new RenderChartController();
+    controller.setApplicationContext(context);
+    controller.setStatsCollection(statsCollection);
+
+    MockHttpServletResponse first = render(controller, null);
+    String etag = first.getHeader("ETag");
+    Assertions.assertEquals(HttpServletResponse.SC_OK, first.getStatus());
+    Assertions.assertNotNull(etag);
+    Assertions.assertTrue(first.getContentAsByteArray().length > 0);
+
+    MockHttpServletResponse second = render(controller, etag);
+    Assertions.assertEquals(HttpServletResponse.SC_NOT_MODIFIED, second.getStatus());
+    Assertions.assertEquals(0, second.getContentAsByteArray().length);
+
+    statsCollection.addSample("test", stats, 1_600_000_060_000L, 3);
+    MockHttpServletResponse third = render(controller, etag);
+    Assertions.assertEquals(HttpServletResponse.SC_OK, third.getStatus());
+    Assertions.assertNotEquals(etag, third.getHeader("ETag"));
+  }
+
+  /**
+   * Renders a chart.
+   *
+   * @param controller the controller
+   * @param etag the ETag to revalidate, or null
+   * @return the response
+   * @throws Exception the exception
+   */
+  private static MockHttpServletResponse render(RenderChartController controller, String etag)
+      throws Exception {
+    MockHttpServletRequest request = new MockHttpServletRequest("GET", "/chart.png");
+    request.setParameter("p", "testProvider");
+    request.setParameter("t", Long.toString(System.nanoTime()));
+    if (etag != null) {
+      request.addHeader("If-None-Match", etag);
+    }
+    MockHttpServletResponse response = new MockHttpServletResponse();
+    controller.handleRequest(request, response);
+    return response;
+  }
+
 }
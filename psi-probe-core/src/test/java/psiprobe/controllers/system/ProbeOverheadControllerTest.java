@@ -0,0 +1,92 @@
+/*
+ * Licensed under the GPL License. You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   https://www.gnu.org/licenses/old-licenses/gpl-2.0.html
+ *
+ * THIS PACKAGE IS PROVIDED "AS IS" AND WITHOUT ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING,
+ * WITHOUT LIMITATION, THE IMPLIED WARRANTIES OF MERCHANTIBILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE.
+ */
+package psiprobe.controllers.system;
+
+import com.codebox.bean.JavaBeanTester;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import psiprobe.beans.stats.collectors.AbstractStatsCollectorBean;
+import psiprobe.model.stats.CollectorOverhead;
+import psiprobe.model.stats.StatsCollection;
+import psiprobe.model.stats.StatsSeries;
+
+/**
+ * The Class ProbeOverheadControllerTest.
+ */
+class ProbeOverheadControllerTest {
+
+  /**
+   * Javabean tester.
+   */
+  @Test
+  void javabeanTester() {
+    JavaBeanTester.builder(ProbeOverheadController.class)
+        .skip("applicationContext", "supportedMethods").test();
+  }
+
+  /**
+   * Test that the overhead series are summarized.
+   *
+   * @throws Exception the exception
+   */
+  @Test
+  void overhead() throws Exception {
+    AbstractStatsCollectorBean collector = new AbstractStatsCollectorBean() {
+      @Override
+      public void collect() {
+        // nothing to collect
+      }
+    };
+    collector.setBeanName("runtimeStatsCollector");
+    collector.setPeriod(30000);
+    StatsCollection statsCollection = new StatsCollection();
+    ProbeOverheadController controller = new ProbeOverheadController();
+    controller.setStatsCollection(statsCollection);
+
+    String prefix = AbstractStatsCollectorBean.OVERHEAD_PREFIX;
+    StatsSeries times = statsCollection.newStats(prefix + "time.runtimeStatsCollector", 100);
+    StatsSeries overruns =
+        statsCollection.newStats(prefix + "overruns.runtimeStatsCollector", 100);
+    StatsSeries skipped = statsCollection.newStats(prefix + "skipped.runtimeStatsCollector", 100);
+    // read back from disk and the zero samples of the downtime plunge
+    times.add(1, 500);
+    times.add(2, 0);
+    times.add(3, 0);
+    overruns.add(1, 1);
+    skipped.add(1, 4);
+    Assertions.assertEquals(0, controller.getOverhead(collector).getCycles());
+
+    // the first cycle, with no stats collection to record to
+    collector.execute();
+    long start = collector.getFirstCycleTime();
+    for (int i = 1; i <= 20; i++) {
+      times.add(start + i, 21 - i);
+    }
+    overruns.add(start + 1, 1);
+    skipped.add(start + 1, 2);
+    skipped.add(start + 2, 3);
+
+    CollectorOverhead overhead = controller.getOverhead(collector);
+    Assertions.assertEquals("runtimeStatsCollector", overhead.getName());
+    Assertions.assertEquals(30000, overhead.getPeriod());
+    Assertions.assertEquals(20, overhead.getCycles());
+    Assertions.assertEquals(1, overhead.getLastTime());
+    Assertions.assertEquals(10, overhead.getAverageTime());
+    Assertions.assertEquals(10, overhead.getMedianTime());
+    Assertions.assertEquals(19, overhead.getPercentile95Time());
+    Assertions.assertEquals(20, overhead.getMaxTime());
+    Assertions.assertEquals(1, overhead.getOverruns());
+    Assertions.assertEquals(5, overhead.getSkipped());
+  }
+
+}
@@ -8,13 +8,23 @@
  * WITHOUT LIMITATION, THE IMPLIED WARRANTIES OF MERCHANTIBILITY AND FITNESS FOR A PARTICULAR
  * PURPOSE.
  */
-package psiprobe.rest;
+package psiprobe.model.stats;
+
+import com.codebox.bean.JavaBeanTester;
+
+import org.junit.jupiter.api.Test;
 
 /**
- * The Class Dummy.
+ * The Class CollectorOverheadTest.
  */
-public interface Dummy {
+class CollectorOverheadTest {
 
-  // Future use case and protection from plugins being disabled on no code
+  /**
+   * Javabean tester.
+   */
+  @Test
+  void javabeanTester() {
+    JavaBeanTester.builder(CollectorOverhead.class).loadData().test();
+  }
 
 }
@@ -0,0 +1,177 @@
+/*
+ * Licensed under the GPL License. You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   https://www.gnu.org/licenses/old-licenses/gpl-2.0.html
+ *
+ * THIS PACKAGE IS PROVIDED "AS IS" AND WITHOUT ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING,
+ * WITHOUT LIMITATION, THE IMPLIED WARRANTIES OF MERCHANTIBILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE.
+ */
+package psiprobe.model.stats;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Compares the time collectors take to append samples to {@link StatsCollection} while charts
+ * read it, through the series monitors and the lock-free journal, and through the global monitor
+ * every append and read used to take. Both paths are measured with and without the journal.
+ *
+ * <p>
+ * Run with {@code mvn test -pl psi-probe-core -Dtest=StatsCollectionBenchmark
+ * -Dpsiprobe.benchmark=true}.
+ * </p>
+ */
+@EnabledIfSystemProperty(named = "psiprobe.benchmark", matches = "true")
+class StatsCollectionBenchmark {
+
+  /** The number of collector threads. */
+  private static final int WRITERS = 8;
+
+  /** The number of series of each collector thread. */
+  private static final int SERIES = 50;
+
+  /** The number of samples appended to each series. */
+  private static final int SAMPLES = 2000;
+
+  /** The number of measured iterations. */
+  private static final int ITERATIONS = 5;
+
+  /** The journal segment size. */
+  private static final int SEGMENT_SIZE = 1024 * 1024;
+
+  /** The temp dir. */
+  @TempDir
+  File tempDir;
+
+  /**
+   * Appends samples from concurrent collectors while a chart thread reads the series.
+   *
+   * @throws Exception the exception
+   */
+  @Test
+  void appendUnderContention() throws Exception {
+    for (int i = 0; i < 2; i++) {
+      run(false, 0);
+      run(true, 0);
+      run(false, SEGMENT_SIZE);
+      run(true, SEGMENT_SIZE);
+    }
+    long time = measure(false, 0);
+    long legacyTime = measure(true, 0);
+    long journalTime = measure(false, SEGMENT_SIZE);
+    long legacyJournalTime = measure(true, SEGMENT_SIZE);
+
+    long samples = (long) WRITERS * SERIES * SAMPLES;
+    System.out.printf("Appending %d samples on %d threads, without journal: %.2f ms,"
+        + " global monitor: %.2f ms, speedup x%.1f%n", samples, WRITERS, time / 1e6,
+        legacyTime / 1e6, (double) legacyTime / time);
+    System.out.printf("Appending %d samples on %d threads, with journal: %.2f ms,"
+        + " global monitor: %.2f ms, speedup x%.1f%n", samples, WRITERS, journalTime / 1e6,
+        legacyJournalTime / 1e6, (double) legacyJournalTime / journalTime);
+    System.out.printf("Journal cost per sample: %.0f ns, under the global monitor: %.0f ns%n",
+        (double) (journalTime - time) / samples,
+        (double) (legacyJournalTime - legacyTime) / samples);
+    Assertions.assertTrue(time > 0);
+  }
+
+  /**
+   * Measures the average time of a run.
+   *
+   * @param legacy whether appends and reads take the global monitor
+   * @param segmentSize the journal segment size, 0 without journal
+   * @return the average time in nanoseconds
+   * @throws Exception the exception
+   */
+  private long measure(boolean legacy, int segmentSize) throws Exception {
+    long time = 0;
+    for (int i = 0; i < ITERATIONS; i++) {
+      time += run(legacy, segmentSize);
+    }
+    return time / ITERATIONS;
+  }
+
+  /**
+   * Appends the samples of all collectors to a new stats collection.
+   *
+   * @param legacy whether appends and reads take the global monitor
+   * @param segmentSize the journal segment size, 0 without journal
+   * @return the time the collectors took in nanoseconds
+   * @throws Exception the exception
+   */
+  private long run(boolean legacy, int segmentSize) throws Exception {
+    File dir = new File(tempDir, Long.toString(System.nanoTime()));
+    Assertions.assertTrue(dir.mkdir());
+    StatsCollection statsCollection = new StatsCollection();
+    statsCollection.setStoragePath(dir.getAbsolutePath());
+    statsCollection.setSwapFileName("stats.bin");
+    statsCollection.setJournalSegmentSize(segmentSize);
+    statsCollection.afterPropertiesSet();
+    for (int i = 0; i < WRITERS * SERIES; i++) {
+      statsCollection.newStats("app.requests." + i, SAMPLES);
+    }
+
+    AtomicBoolean running = new AtomicBoolean(true);
+    Thread reader = new Thread(() -> {
+      while (running.get()) {
+        if (legacy) {
+          synchronized (statsCollection) {
+            readAll(statsCollection);
+          }
+        } else {
+          readAll(statsCollection);
+        }
+      }
+    });
+    List<Thread> writers = new ArrayList<>();
+    for (int t = 0; t < WRITERS; t++) {
+      final int first = t * SERIES;
+      writers.add(new Thread(() -> {
+        for (int j = 0; j < SAMPLES; j++) {
+          for (int i = first; i < first + SERIES; i++) {
+            String name = "app.requests." + i;
+            if (legacy) {
+              synchronized (statsCollection) {
+                statsCollection.addSample(name, statsCollection.getStats(name), j, j);
+              }
+            } else {
+              statsCollection.addSample(name, statsCollection.getStats(name), j, j);
+            }
+          }
+        }
+      }));
+    }
+
+    reader.start();
+    long start = System.nanoTime();
+    writers.forEach(Thread::start);
+    for (Thread writer : writers) {
+      writer.join();
+    }
+    long time = System.nanoTime() - start;
+    running.set(false);
+    reader.join();
+    statsCollection.destroy();
+    return time;
+  }
+
+  /**
+   * Copies all series, as charts do.
+   *
+   * @param statsCollection the stats collection
+   */
+  private static void readAll(StatsCollection statsCollection) {
+    for (StatsSeries series : statsCollection.getStatsByPrefix("app.requests.").values()) {
+      series.copy();
+    }
+  }
+
+}
@@ -0,0 +1,145 @@
+/*
+ * Licensed under the GPL License. You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   https://www.gnu.org/licenses/old-licenses/gpl-2.0.html
+ *
+ * THIS PACKAGE IS PROVIDED "AS IS" AND WITHOUT ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING,
+ * WITHOUT LIMITATION, THE IMPLIED WARRANTIES OF MERCHANTIBILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE.
+ */
+package psiprobe.model.stats;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Concurrency test of StatsCollection. Collector threads append samples and chart threads read
+ * series while snapshots are written over and over, as they may now that appends and reads no
+ * longer wait for the snapshots. No sample may be lost or duplicated, in memory nor once read back
+ * from the snapshot and the journal.
+ */
+class StatsCollectionConcurrencyTest {
+
+  /** The number of collector threads. */
+  private static final int WRITERS = 4;
+
+  /** The number of series of each collector thread. */
+  private static final int SERIES = 50;
+
+  /** The number of samples appended to each series. */
+  private static final int SAMPLES = 200;
+
+  /** The temp dir. */
+  @TempDir
+  File tempDir;
+
+  /**
+   * Every sample appended while snapshots are written is kept exactly once.
+   *
+   * @throws Exception the exception
+   */
+  @Test
+  void samplesAreKeptExactlyOnceWhileSerializing() throws Exception {
+    StatsCollection statsCollection = newStatsCollection();
+    for (int i = 0; i < WRITERS * SERIES; i++) {
+      statsCollection.newStats("app.requests." + i, SAMPLES * 2);
+    }
+
+    AtomicBoolean running = new AtomicBoolean(true);
+    AtomicLong serializations = new AtomicLong();
+    List<Thread> writers = new ArrayList<>();
+    List<Thread> threads = new ArrayList<>();
+    for (int t = 0; t < WRITERS; t++) {
+      final int first = t * SERIES;
+      writers.add(new Thread(() -> {
+        for (int j = 0; j < SAMPLES; j++) {
+          for (int i = first; i < first + SERIES; i++) {
+            String name = "app.requests." + i;
+            statsCollection.addSample(name, statsCollection.getStats(name), j, j);
+          }
+        }
+      }));
+      threads.add(new Thread(() -> {
+        while (running.get()) {
+          for (StatsSeries series : statsCollection.getStatsByPrefix("app.requests.").values()) {
+            StatsSeries copy = series.copy();
+            assertSamples(copy, copy.size());
+          }
+        }
+      }));
+    }
+    threads.add(new Thread(() -> {
+      while (running.get()) {
+        statsCollection.serialize();
+        serializations.incrementAndGet();
+      }
+    }));
+
+    List<Throwable> failures = new CopyOnWriteArrayList<>();
+    threads.addAll(writers);
+    threads.forEach(thread -> thread.setUncaughtExceptionHandler((t, e) -> failures.add(e)));
+    threads.forEach(Thread::start);
+    for (Thread writer : writers) {
+      writer.join();
+    }
+    running.set(false);
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    statsCollection.destroy();
+
+    Assertions.assertEquals(new ArrayList<Throwable>(), failures);
+    Assertions.assertTrue(serializations.get() > 0);
+    for (int i = 0; i < WRITERS * SERIES; i++) {
+      assertSamples(statsCollection.getStats("app.requests." + i), SAMPLES);
+    }
+
+    // read back from the last snapshot and the journal, ended by the two samples of the plunge
+    StatsCollection restored = newStatsCollection();
+    Map<String, StatsSeries> series = restored.getStatsByPrefix("app.requests.");
+    Assertions.assertEquals(WRITERS * SERIES, series.size());
+    for (StatsSeries stats : series.values()) {
+      Assertions.assertEquals(SAMPLES + 2, stats.size());
+      assertSamples(stats, SAMPLES);
+    }
+    restored.destroy();
+  }
+
+  /**
+   * Creates a stats collection saved to the temp dir.
+   *
+   * @return the stats collection
+   */
+  private StatsCollection newStatsCollection() {
+    StatsCollection statsCollection = new StatsCollection();
+    statsCollection.setStoragePath(tempDir.getAbsolutePath());
+    statsCollection.setSwapFileName("stats.bin");
+    statsCollection.afterPropertiesSet();
+    return statsCollection;
+  }
+
+  /**
+   * Asserts that the first samples of a series are those appended, in order.
+   *
+   * @param series the series
+   * @param count the number of samples appended
+   */
+  private static void assertSamples(StatsSeries series, int count) {
+    Assertions.assertTrue(series.size() >= count);
+    for (int j = 0; j < count; j++) {
+      Assertions.assertEquals(j, series.getTime(j));
+      Assertions.assertEquals(j, series.getValue(j), 0.0);
+    }
+  }
+
+}
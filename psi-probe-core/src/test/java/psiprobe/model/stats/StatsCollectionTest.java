@@ -0,0 +1,93 @@
+/*
+ * Licensed under the GPL License. You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   https://www.gnu.org/licenses/old-licenses/gpl-2.0.html
+ *
+ * THIS PACKAGE IS PROVIDED "AS IS" AND WITHOUT ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING,
+ * WITHOUT LIMITATION, THE IMPLIED WARRANTIES OF MERCHANTIBILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE.
+ */
+package psiprobe.model.stats;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Map;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * The Class StatsCollectionTest.
+ */
+class StatsCollectionTest {
+
+  /** The temp dir. */
+  @TempDir
+  File tempDir;
+
+  /**
+   * Test get stats by prefix.
+   */
+  @Test
+  void testGetStatsByPrefix() {
+    StatsCollection statsCollection = new StatsCollection();
+    for (String name : Arrays.asList("app.requests.a", "app.requests.b", "app.requests",
+        "app.proc_time.a", "app.requestsx", "memory.pool.Eden", "app.requests.\uffff")) {
+      statsCollection.newStats(name, 10);
+    }
+
+    Map<String, StatsSeries> map = statsCollection.getStatsByPrefix("app.requests.");
+    Assertions.assertEquals(
+        Arrays.asList("app.requests.a", "app.requests.b", "app.requests.\uffff"),
+        new ArrayList<>(map.keySet()));
+    Assertions.assertThrows(UnsupportedOperationException.class,
+        () -> map.remove("app.requests.a"));
+
+    statsCollection.newStats("app.requests.c", 10);
+    Assertions.assertTrue(map.containsKey("app.requests.c"));
+
+    Assertions.assertEquals(1, statsCollection.getStatsByPrefix("app.requests.\uffff").size());
+    Assertions.assertEquals(4, statsCollection.getStatsByPrefix("app.requests.").size());
+    Assertions.assertTrue(statsCollection.getStatsByPrefix("ds.").isEmpty());
+    Assertions.assertEquals(8, statsCollection.getStatsByPrefix("").size());
+  }
+
+  /**
+   * Test that samples feed the configured rollups.
+   *
+   * @throws Exception the exception
+   */
+  @Test
+  void testRollups() throws Exception {
+    StatsCollection statsCollection = new StatsCollection();
+    statsCollection.setStoragePath(tempDir.getAbsolutePath());
+    statsCollection.setSwapFileName("stats.bin");
+    statsCollection.setRollups("1h/1d, 1m/1h");
+    statsCollection.afterPropertiesSet();
+    StatsSeries stats = statsCollection.newStats("app.requests", 10);
+    for (int i = 0; i < 120; i++) {
+      statsCollection.addSample("app.requests", stats, i * 30_000L, i);
+    }
+
+    StatsRollup[] rollups = statsCollection.getRollups("app.requests");
+    Assertions.assertEquals(2, rollups.length);
+    Assertions.assertEquals(60_000L, rollups[0].getResolution());
+    Assertions.assertEquals(60, rollups[0].getCapacity());
+    Assertions.assertEquals(60, rollups[0].size());
+    Assertions.assertEquals(3_600_000L, rollups[1].getResolution());
+    Assertions.assertEquals(1, rollups[1].size());
+    Assertions.assertEquals(120, rollups[1].getCount(0));
+    Assertions.assertEquals(10, stats.size());
+
+    statsCollection.resetStats("app.requests");
+    Assertions.assertEquals(0, rollups[1].size());
+    statsCollection.destroy();
+
+    statsCollection.setRollups("1h");
+    Assertions.assertThrows(IllegalArgumentException.class, statsCollection::afterPropertiesSet);
+  }
+
+}
@@ -0,0 +1,154 @@
+/*
+ * Licensed under the GPL License. You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   https://www.gnu.org/licenses/old-licenses/gpl-2.0.html
+ *
+ * THIS PACKAGE IS PROVIDED "AS IS" AND WITHOUT ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING,
+ * WITHOUT LIMITATION, THE IMPLIED WARRANTIES OF MERCHANTIBILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE.
+ */
+package psiprobe.model.stats;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * The Class StatsJournalTest.
+ */
+class StatsJournalTest {
+
+  /** The temp dir. */
+  @TempDir
+  File tempDir;
+
+  /**
+   * Test that samples spread over rotated segments are replayed.
+   *
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  @Test
+  void testReplayAcrossSegments() throws IOException {
+    StatsJournal journal = new StatsJournal(tempDir, "stats.bin", 256);
+    journal.open();
+    for (int i = 1; i <= 40; i++) {
+      journal.append("app.requests.probe", 100, i, i * 2);
+      journal.append("cpu.usage", 10, i, i / 4.0);
+    }
+    journal.close();
+    Assertions.assertTrue(tempDir.list().length > 1);
+
+    Map<String, StatsSeries> statsData = new TreeMap<>();
+    Assertions.assertEquals(80, new StatsJournal(tempDir, "stats.bin", 256).replay(statsData));
+    StatsSeries requests = statsData.get("app.requests.probe");
+    Assertions.assertEquals(100, requests.getCapacity());
+    Assertions.assertEquals(40, requests.size());
+    Assertions.assertEquals(80, requests.getLastValue());
+    StatsSeries cpu = statsData.get("cpu.usage");
+    Assertions.assertEquals(10, cpu.size());
+    Assertions.assertEquals(10, cpu.getLastValue());
+  }
+
+  /**
+   * Test that samples already covered by a snapshot are skipped and resets are replayed.
+   *
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  @Test
+  void testReplayOverSnapshot() throws IOException {
+    StatsJournal journal = new StatsJournal(tempDir, "stats.bin", 4096);
+    journal.open();
+    journal.append("a", 10, 1, 1);
+    journal.append("a", 10, 2, 2);
+    journal.append("a", 10, 3, 3);
+    journal.reset("b", 10);
+    journal.append("b", 10, 5, 5);
+    journal.close();
+
+    Map<String, StatsSeries> statsData = new TreeMap<>();
+    StatsSeries a = new StatsSeries(10);
+    a.add(1, 1);
+    a.add(2, 2);
+    statsData.put("a", a);
+    StatsSeries b = new StatsSeries(10);
+    b.add(4, 4);
+    statsData.put("b", b);
+
+    Assertions.assertEquals(2, new StatsJournal(tempDir, "stats.bin", 4096).replay(statsData));
+    Assertions.assertEquals(3, a.size());
+    Assertions.assertEquals(1, b.size());
+    Assertions.assertEquals(5, b.getLastTime());
+  }
+
+  /**
+   * Test that segments covered by a snapshot are deleted.
+   *
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  @Test
+  void testDeleteSegmentsBefore() throws IOException {
+    StatsJournal journal = new StatsJournal(tempDir, "stats.bin", 4096);
+    journal.open();
+    journal.append("a", 10, 1, 1);
+    long firstKept = journal.rotate();
+    journal.append("a", 10, 2, 2);
+    journal.deleteSegmentsBefore(firstKept);
+    journal.close();
+
+    Map<String, StatsSeries> statsData = new TreeMap<>();
+    Assertions.assertEquals(1, new StatsJournal(tempDir, "stats.bin", 4096).replay(statsData));
+    Assertions.assertEquals(2, statsData.get("a").getLastTime());
+  }
+
+  /**
+   * Test that segments are unmapped once rotated from, closed or replayed, as listed by the maps of
+   * the process where the system has them.
+   *
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  @Test
+  void testSegmentsUnmapped() throws IOException {
+    Path maps = Paths.get("/proc/self/maps");
+    Assumptions.assumeTrue(Files.isReadable(maps));
+    StatsJournal journal = new StatsJournal(tempDir, "stats.bin", 4096);
+    journal.open();
+    journal.append("a", 10, 1, 1);
+    Assertions.assertTrue(isMapped(maps, "stats.bin.journal.1"));
+    journal.rotate();
+    journal.append("a", 10, 2, 2);
+    Assertions.assertFalse(isMapped(maps, "stats.bin.journal.1"));
+    Assertions.assertTrue(isMapped(maps, "stats.bin.journal.2"));
+    journal.close();
+    Assertions.assertFalse(isMapped(maps, "stats.bin.journal.2"));
+
+    Map<String, StatsSeries> statsData = new TreeMap<>();
+    Assertions.assertEquals(2, new StatsJournal(tempDir, "stats.bin", 4096).replay(statsData));
+    Assertions.assertFalse(isMapped(maps, "stats.bin.journal."));
+  }
+
+  /**
+   * Checks if a segment of the temp dir is mapped.
+   *
+   * @param maps the maps of the process
+   * @param name the segment name, or its prefix
+   * @return true, if it is mapped
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  private boolean isMapped(Path maps, String name) throws IOException {
+    String path = new File(tempDir, name).getAbsolutePath();
+    return Files.readAllLines(maps, StandardCharsets.UTF_8).stream()
+        .anyMatch(line -> line.contains(path));
+  }
+
+}
@@ -0,0 +1,64 @@
+/*
+ * Licensed under the GPL License. You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   https://www.gnu.org/licenses/old-licenses/gpl-2.0.html
+ *
+ * THIS PACKAGE IS PROVIDED "AS IS" AND WITHOUT ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING,
+ * WITHOUT LIMITATION, THE IMPLIED WARRANTIES OF MERCHANTIBILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE.
+ */
+package psiprobe.model.stats;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * The Class StatsRollupTest.
+ */
+class StatsRollupTest {
+
+  /**
+   * Test that samples are aggregated into buckets.
+   */
+  @Test
+  void testAggregation() {
+    StatsRollup rollup = new StatsRollup(1000, 10);
+    rollup.add(1000, 4);
+    rollup.add(1500, 2);
+    rollup.add(1999, 6);
+    rollup.add(3200, 1);
+
+    Assertions.assertEquals(2, rollup.size());
+    Assertions.assertEquals(1000, rollup.getTime(0));
+    Assertions.assertEquals(2, rollup.getMin(0));
+    Assertions.assertEquals(6, rollup.getMax(0));
+    Assertions.assertEquals(12, rollup.getSum(0));
+    Assertions.assertEquals(3, rollup.getCount(0));
+    Assertions.assertEquals(4, rollup.getAverage(0));
+    Assertions.assertEquals(3000, rollup.getTime(1));
+    Assertions.assertEquals(10_000, rollup.getSpan());
+  }
+
+  /**
+   * Test that late samples are ignored and the oldest buckets evicted.
+   */
+  @Test
+  void testEviction() {
+    StatsRollup rollup = new StatsRollup(10, 3);
+    for (long time = 0; time < 100; time += 5) {
+      rollup.add(time, time);
+    }
+    rollup.add(42, 1000);
+
+    Assertions.assertEquals(3, rollup.size());
+    Assertions.assertEquals(70, rollup.getTime(0));
+    Assertions.assertEquals(90, rollup.getTime(2));
+    Assertions.assertEquals(95, rollup.getMax(2));
+    Assertions.assertThrows(IndexOutOfBoundsException.class, () -> rollup.getTime(3));
+
+    rollup.clear();
+    Assertions.assertEquals(0, rollup.size());
+  }
+
+}
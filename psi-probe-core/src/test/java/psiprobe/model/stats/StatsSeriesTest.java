@@ -0,0 +1,104 @@
+/*
+ * Licensed under the GPL License. You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   https://www.gnu.org/licenses/old-licenses/gpl-2.0.html
+ *
+ * THIS PACKAGE IS PROVIDED "AS IS" AND WITHOUT ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING,
+ * WITHOUT LIMITATION, THE IMPLIED WARRANTIES OF MERCHANTIBILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE.
+ */
+package psiprobe.model.stats;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.jfree.data.xy.XYDataItem;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * The Class StatsSeriesTest.
+ */
+class StatsSeriesTest {
+
+  /**
+   * Test append below capacity.
+   */
+  @Test
+  void testAppend() {
+    StatsSeries series = new StatsSeries(3);
+    Assertions.assertTrue(series.isEmpty());
+    series.add(1, 10);
+    series.add(2, 20);
+    Assertions.assertEquals(2, series.size());
+    Assertions.assertEquals(1, series.getTime(0));
+    Assertions.assertEquals(20, series.getValue(1));
+    Assertions.assertEquals(2, series.getLastTime());
+    Assertions.assertEquals(20, series.getLastValue());
+  }
+
+  /**
+   * Test that a full series evicts its oldest samples.
+   */
+  @Test
+  void testEviction() {
+    StatsSeries series = new StatsSeries(3);
+    for (int i = 1; i <= 7; i++) {
+      series.add(i, i * 10);
+    }
+    Assertions.assertEquals(3, series.size());
+    Assertions.assertEquals(5, series.getTime(0));
+    Assertions.assertEquals(6, series.getTime(1));
+    Assertions.assertEquals(70, series.getValue(2));
+    Assertions.assertThrows(IndexOutOfBoundsException.class, () -> series.getTime(3));
+  }
+
+  /**
+   * Test capacity changes keep the most recent samples.
+   */
+  @Test
+  void testSetCapacity() {
+    StatsSeries series = new StatsSeries(4);
+    for (int i = 1; i <= 6; i++) {
+      series.add(i, i);
+    }
+    series.setCapacity(2);
+    Assertions.assertEquals(2, series.size());
+    Assertions.assertEquals(5, series.getTime(0));
+    Assertions.assertEquals(6, series.getTime(1));
+
+    series.setCapacity(5);
+    series.add(7, 7);
+    Assertions.assertEquals(3, series.size());
+    Assertions.assertEquals(5, series.getCapacity());
+    Assertions.assertEquals(7, series.getLastTime());
+  }
+
+  /**
+   * Test clear.
+   */
+  @Test
+  void testClear() {
+    StatsSeries series = new StatsSeries(2);
+    series.add(1, 1);
+    series.clear();
+    Assertions.assertTrue(series.isEmpty());
+    Assertions.assertEquals(0, series.getLastValue());
+  }
+
+  /**
+   * Test conversion from the legacy list format.
+   */
+  @Test
+  void testFromItems() {
+    List<XYDataItem> items = new ArrayList<>();
+    items.add(new XYDataItem(1L, 2L));
+    items.add(new XYDataItem(3L, 4.5));
+    StatsSeries series = StatsSeries.fromItems(items);
+    Assertions.assertEquals(2, series.getCapacity());
+    Assertions.assertEquals(3, series.getLastTime());
+    Assertions.assertEquals(4.5, series.getLastValue());
+  }
+
+}
@@ -0,0 +1,124 @@
+/*
+ * Licensed under the GPL License. You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   https://www.gnu.org/licenses/old-licenses/gpl-2.0.html
+ *
+ * THIS PACKAGE IS PROVIDED "AS IS" AND WITHOUT ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING,
+ * WITHOUT LIMITATION, THE IMPLIED WARRANTIES OF MERCHANTIBILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE.
+ */
+package psiprobe.model.stats;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * The Class StatsSnapshotFormatTest.
+ */
+class StatsSnapshotFormatTest {
+
+  /**
+   * Test that integral and fractional series survive a round trip.
+   *
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  @Test
+  void testRoundTrip() throws IOException {
+    StatsSeries requests = new StatsSeries(4);
+    for (int i = 0; i < 6; i++) {
+      requests.add(1_600_000_000_000L + i * 30_000L, i % 2 == 0 ? i * 1000 : -i);
+    }
+    StatsSeries percentage = new StatsSeries(3);
+    percentage.add(10, 12.5);
+    percentage.add(20, Double.NaN);
+
+    Map<String, StatsSeries> data = new TreeMap<>();
+    data.put("app.requests.probe", requests);
+    data.put("cpu.usage", percentage);
+    data.put("empty", new StatsSeries(2));
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    StatsSnapshotFormat.write(data, out);
+    Map<String, StatsSeries> read =
+        StatsSnapshotFormat.read(new ByteArrayInputStream(out.toByteArray()));
+
+    Assertions.assertEquals(data.keySet(), read.keySet());
+    StatsSeries readRequests = read.get("app.requests.probe");
+    Assertions.assertEquals(4, readRequests.getCapacity());
+    Assertions.assertEquals(requests.size(), readRequests.size());
+    for (int i = 0; i < requests.size(); i++) {
+      Assertions.assertEquals(requests.getTime(i), readRequests.getTime(i));
+      Assertions.assertEquals(requests.getValue(i), readRequests.getValue(i));
+    }
+    Assertions.assertEquals(12.5, read.get("cpu.usage").getValue(0));
+    Assertions.assertTrue(Double.isNaN(read.get("cpu.usage").getLastValue()));
+    Assertions.assertTrue(read.get("empty").isEmpty());
+  }
+
+  /**
+   * Test that rollups survive a round trip.
+   *
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  @Test
+  void testRollupRoundTrip() throws IOException {
+    StatsRollup minutes = new StatsRollup(60_000L, 2);
+    StatsRollup hours = new StatsRollup(3_600_000L, 24);
+    for (int i = 0; i < 10; i++) {
+      minutes.add(1_600_000_000_000L + i * 30_000L, i);
+      hours.add(1_600_000_000_000L + i * 30_000L, i);
+    }
+    Map<String, StatsRollup[]> rollups = new TreeMap<>();
+    rollups.put("app.requests.probe", new StatsRollup[] {minutes, hours});
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    StatsSnapshotFormat.write(new TreeMap<String, StatsSeries>(), rollups, out);
+    Map<String, StatsRollup[]> read = new TreeMap<>();
+    StatsSnapshotFormat.read(new ByteArrayInputStream(out.toByteArray()), read);
+
+    StatsRollup[] tiers = read.get("app.requests.probe");
+    Assertions.assertEquals(2, tiers.length);
+    Assertions.assertEquals(60_000L, tiers[0].getResolution());
+    Assertions.assertEquals(2, tiers[0].getCapacity());
+    Assertions.assertEquals(minutes.size(), tiers[0].size());
+    for (int i = 0; i < minutes.size(); i++) {
+      Assertions.assertEquals(minutes.getTime(i), tiers[0].getTime(i));
+      Assertions.assertEquals(minutes.getMin(i), tiers[0].getMin(i));
+      Assertions.assertEquals(minutes.getMax(i), tiers[0].getMax(i));
+      Assertions.assertEquals(minutes.getSum(i), tiers[0].getSum(i));
+      Assertions.assertEquals(minutes.getCount(i), tiers[0].getCount(i));
+    }
+    Assertions.assertEquals(45.0, tiers[1].getSum(0));
+    Assertions.assertEquals(10, tiers[1].getCount(0));
+  }
+
+  /**
+   * Test snapshot detection.
+   *
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  @Test
+  void testIsSnapshot() throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    StatsSnapshotFormat.write(new TreeMap<String, StatsSeries>(), out);
+    InputStream snapshot = new BufferedInputStream(new ByteArrayInputStream(out.toByteArray()));
+    Assertions.assertTrue(StatsSnapshotFormat.isSnapshot(snapshot));
+    Assertions.assertTrue(StatsSnapshotFormat.read(snapshot).isEmpty());
+
+    InputStream xml = new BufferedInputStream(
+        new ByteArrayInputStream("<tree-map/>".getBytes(StandardCharsets.UTF_8)));
+    Assertions.assertFalse(StatsSnapshotFormat.isSnapshot(xml));
+    Assertions.assertFalse(StatsSnapshotFormat.isSnapshot(new ByteArrayInputStream(new byte[0])));
+  }
+
+}
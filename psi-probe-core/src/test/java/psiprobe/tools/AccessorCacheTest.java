@@ -0,0 +1,98 @@
+/*
+ * Licensed under the GPL License. You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   https://www.gnu.org/licenses/old-licenses/gpl-2.0.html
+ *
+ * THIS PACKAGE IS PROVIDED "AS IS" AND WITHOUT ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING,
+ * WITHOUT LIMITATION, THE IMPLIED WARRANTIES OF MERCHANTIBILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE.
+ */
+package psiprobe.tools;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.logging.Level;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import psiprobe.beans.accessors.DatasourceAccessor;
+import psiprobe.beans.accessors.TomcatJdbcPoolDatasourceAccessor;
+
+/**
+ * The Class AccessorCacheTest.
+ */
+class AccessorCacheTest {
+
+  /**
+   * Methods are invoked with and without arguments, static ones through an instance.
+   *
+   * @throws Exception the exception
+   */
+  @Test
+  void invokeMethod() throws Exception {
+    List<String> list = new ArrayList<>(Arrays.asList("a", "b"));
+    Assertions.assertEquals(2, AccessorCache.invokeMethod(list, "size"));
+    Assertions.assertEquals("b", AccessorCache.invokeMethod(list, "get", 1));
+    Assertions.assertEquals(Boolean.TRUE, AccessorCache.invokeMethod(list, "add", "c"));
+    Assertions.assertNull(AccessorCache.invokeMethod(list, "clear"));
+    Assertions.assertTrue(list.isEmpty());
+    Assertions.assertEquals(Level.FINE, AccessorCache.invokeMethod(Level.INFO, "parse", "FINE"));
+    // the cached handle is reused
+    Assertions.assertEquals(Level.WARNING,
+        AccessorCache.invokeMethod(Level.INFO, "parse", "WARNING"));
+  }
+
+  /**
+   * Failures are reported as by reflection.
+   */
+  @Test
+  void invokeMethodFailures() {
+    Assertions.assertThrows(NoSuchMethodException.class,
+        () -> AccessorCache.invokeMethod(new Object(), "missing"));
+    InvocationTargetException e = Assertions.assertThrows(InvocationTargetException.class,
+        () -> AccessorCache.invokeMethod(new ArrayList<>(), "get", 3));
+    Assertions.assertTrue(e.getCause() instanceof IndexOutOfBoundsException);
+  }
+
+  /**
+   * Fields are read whatever their visibility.
+   *
+   * @throws Exception the exception
+   */
+  @Test
+  void readField() throws Exception {
+    Assertions.assertEquals("hidden", AccessorCache.readField(new Holder(), "secret"));
+    Assertions.assertThrows(IllegalArgumentException.class,
+        () -> AccessorCache.readField(new Holder(), "missing"));
+  }
+
+  /**
+   * Instances are shared.
+   *
+   * @throws Exception the exception
+   */
+  @Test
+  void getInstance() throws Exception {
+    String className = TomcatJdbcPoolDatasourceAccessor.class.getName();
+    DatasourceAccessor accessor = AccessorCache.getInstance(className, DatasourceAccessor.class);
+    Assertions.assertSame(accessor,
+        AccessorCache.getInstance(className, DatasourceAccessor.class));
+    Assertions.assertThrows(ClassNotFoundException.class,
+        () -> AccessorCache.getInstance("psiprobe.Missing", DatasourceAccessor.class));
+  }
+
+  /**
+   * The Class Holder.
+   */
+  static class Holder {
+
+    /** The secret. */
+    @SuppressWarnings("unused")
+    private final String secret = "hidden";
+  }
+
+}
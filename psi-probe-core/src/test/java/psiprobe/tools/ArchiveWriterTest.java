@@ -0,0 +1,264 @@
+/*
+ * Licensed under the GPL License. You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   https://www.gnu.org/licenses/old-licenses/gpl-2.0.html
+ *
+ * THIS PACKAGE IS PROVIDED "AS IS" AND WITHOUT ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING,
+ * WITHOUT LIMITATION, THE IMPLIED WARRANTIES OF MERCHANTIBILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE.
+ */
+package psiprobe.tools;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * The Class ArchiveWriterTest.
+ */
+class ArchiveWriterTest {
+
+  /** The temp dir. */
+  @TempDir
+  File tempDir;
+
+  /** The executor. */
+  ExecutorService executor;
+
+  /** The archive writer, with small blocks so files span many of them. */
+  ArchiveWriter writer;
+
+  /** The files, by entry name. */
+  Map<String, File> files = new LinkedHashMap<>();
+
+  /**
+   * Setup.
+   *
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  @BeforeEach
+  void setup() throws IOException {
+    executor = Executors.newFixedThreadPool(3);
+    writer = new ArchiveWriter(executor, 6, 32 * 1024, 4);
+    files.put("catalina.log", write("catalina.log", logLines(20000)));
+    files.put("empty.log", write("empty.log", new byte[0]));
+    files.put("logs/" + "a-rather-long-directory-name-to-go-past-the-limit-of-tar-names/"
+        + "localhost_access_log.2020-01-31.txt", write("access.txt", logLines(10)));
+  }
+
+  /**
+   * Tear down.
+   */
+  @AfterEach
+  void tearDown() {
+    executor.shutdownNow();
+  }
+
+  /**
+   * Blocks compressed in parallel make up a single deflate stream.
+   *
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  @Test
+  void parallelDeflate() throws IOException {
+    byte[] data = logLines(50000);
+    ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+    try (ParallelDeflaterOutputStream out =
+        new ParallelDeflaterOutputStream(compressed, executor, 6, 32 * 1024, 2)) {
+      // odd sized writes, across blocks
+      for (int i = 0; i < data.length; i += 1000) {
+        out.write(data, i, Math.min(1000, data.length - i));
+      }
+      out.finish();
+      Assertions.assertEquals(data.length, out.getBytesRead());
+      Assertions.assertEquals(compressed.size(), out.getBytesWritten());
+      Assertions.assertTrue(compressed.size() < data.length / 4);
+    }
+    try (InputStream in = new InflaterInputStream(
+        new ByteArrayInputStream(compressed.toByteArray()), new Inflater(true))) {
+      Assertions.assertArrayEquals(data, readAll(in));
+    }
+  }
+
+  /**
+   * ZIP archives are read back, streamed and from their central directory.
+   *
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  @Test
+  void zip() throws IOException {
+    File archive = new File(tempDir, "logs.zip");
+    try (OutputStream out = Files.newOutputStream(archive.toPath())) {
+      writer.writeZip(files, out);
+    }
+
+    try (ZipInputStream zip = new ZipInputStream(Files.newInputStream(archive.toPath()))) {
+      for (Map.Entry<String, File> file : files.entrySet()) {
+        ZipEntry entry = zip.getNextEntry();
+        Assertions.assertEquals(file.getKey(), entry.getName());
+        Assertions.assertArrayEquals(Files.readAllBytes(file.getValue().toPath()), readAll(zip));
+      }
+      Assertions.assertNull(zip.getNextEntry());
+    }
+
+    try (ZipFile zip = new ZipFile(archive)) {
+      Enumeration<? extends ZipEntry> entries = zip.entries();
+      for (Map.Entry<String, File> file : files.entrySet()) {
+        ZipEntry entry = entries.nextElement();
+        Assertions.assertEquals(file.getKey(), entry.getName());
+        Assertions.assertEquals(file.getValue().length(), entry.getSize());
+        try (InputStream in = zip.getInputStream(entry)) {
+          Assertions.assertArrayEquals(Files.readAllBytes(file.getValue().toPath()), readAll(in));
+        }
+      }
+      Assertions.assertFalse(entries.hasMoreElements());
+    }
+  }
+
+  /**
+   * Tar.gz archives are read back.
+   *
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  @Test
+  void tarGz() throws IOException {
+    ByteArrayOutputStream archive = new ByteArrayOutputStream();
+    writer.writeTarGz(files, archive);
+
+    try (DataInputStream tar = new DataInputStream(
+        new GZIPInputStream(new ByteArrayInputStream(archive.toByteArray())))) {
+      byte[] header = new byte[512];
+      for (Map.Entry<String, File> file : files.entrySet()) {
+        tar.readFully(header);
+        String name;
+        if (header[156] == 'L') {
+          byte[] longName = new byte[(int) parseOctal(header, 124, 12)];
+          tar.readFully(longName);
+          tar.readFully(new byte[512 - longName.length % 512]);
+          name = new String(longName, 0, longName.length - 1, StandardCharsets.UTF_8);
+          tar.readFully(header);
+        } else {
+          name = new String(header, 0, 100, StandardCharsets.UTF_8).trim();
+        }
+        Assertions.assertEquals(file.getKey(), name);
+        Assertions.assertEquals("ustar", new String(header, 257, 5, StandardCharsets.US_ASCII));
+        long checksum = 0;
+        for (int i = 0; i < header.length; i++) {
+          checksum += i >= 148 && i < 156 ? ' ' : header[i] & 0xff;
+        }
+        Assertions.assertEquals(checksum, parseOctal(header, 148, 8));
+
+        byte[] content = new byte[(int) parseOctal(header, 124, 12)];
+        tar.readFully(content);
+        Assertions.assertArrayEquals(Files.readAllBytes(file.getValue().toPath()), content);
+        tar.readFully(new byte[(512 - content.length % 512) % 512]);
+      }
+      tar.readFully(header);
+      Assertions.assertArrayEquals(new byte[512], header);
+    }
+  }
+
+  /**
+   * Reads a NUL or space terminated octal number.
+   *
+   * @param header the header
+   * @param offset the offset
+   * @param length the length
+   * @return the number
+   */
+  private static long parseOctal(byte[] header, int offset, int length) {
+    long value = 0;
+    for (int i = offset; i < offset + length && header[i] >= '0' && header[i] <= '7'; i++) {
+      value = value * 8 + header[i] - '0';
+    }
+    return value;
+  }
+
+  /**
+   * Builds log lines, somewhat random so they do not compress too well.
+   *
+   * @param count the number of lines
+   * @return the lines
+   */
+  private static byte[] logLines(int count) {
+    Random random = new Random(count);
+    StringBuilder lines = new StringBuilder();
+    for (int i = 0; i < count; i++) {
+      lines.append("2020-01-31 10:00:").append(i % 60).append(",000 INFO [thread-")
+          .append(random.nextInt(20)).append("] request ").append(random.nextLong())
+          .append(" served\n");
+    }
+    return lines.toString().getBytes(StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Writes a file.
+   *
+   * @param name the name
+   * @param content the content
+   * @return the file
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  private File write(String name, byte[] content) throws IOException {
+    File file = new File(tempDir, name);
+    Files.write(file.toPath(), content);
+    return file;
+  }
+
+  /**
+   * Reads a stream to its end.
+   *
+   * @param in the stream
+   * @return the bytes read
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  private static byte[] readAll(InputStream in) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    byte[] buffer = new byte[8192];
+    int n;
+    while ((n = in.read(buffer)) > 0) {
+      out.write(buffer, 0, n);
+    }
+    return out.toByteArray();
+  }
+
+  /**
+   * The ZIP64 and tar size limits are not reached by the tests, the encodings are checked instead.
+   */
+  @Test
+  void largeSizes() {
+    byte[] header = ArchiveWriter.tarHeader("big.log".getBytes(StandardCharsets.US_ASCII),
+        10L * 1024 * 1024 * 1024, 0, '0');
+    Assertions.assertEquals((byte) 0x80, header[124]);
+    byte[] size = Arrays.copyOfRange(header, 128, 136);
+    Assertions.assertEquals(10L * 1024 * 1024 * 1024, new BigInteger(size).longValue());
+  }
+
+}
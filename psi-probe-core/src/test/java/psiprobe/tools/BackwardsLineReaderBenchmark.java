@@ -0,0 +1,73 @@
+/*
+ * Licensed under the GPL License. You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   https://www.gnu.org/licenses/old-licenses/gpl-2.0.html
+ *
+ * THIS PACKAGE IS PROVIDED "AS IS" AND WITHOUT ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING,
+ * WITHOUT LIMITATION, THE IMPLIED WARRANTIES OF MERCHANTIBILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE.
+ */
+package psiprobe.tools;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.List;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Compares the time to read the last lines of a large log with {@link BackwardsFileStream}, which
+ * reads blocks, and with the stream it replaced, which seeked and read once per byte.
+ *
+ * <p>
+ * Run with {@code mvn test -pl psi-probe-core -Dtest=BackwardsLineReaderBenchmark
+ * -Dpsiprobe.benchmark=true}.
+ * </p>
+ */
+@EnabledIfSystemProperty(named = "psiprobe.benchmark", matches = "true")
+class BackwardsLineReaderBenchmark {
+
+  /** The number of lines read. */
+  private static final int LINES = 10000;
+
+  /** The temp dir. */
+  @TempDir
+  File tempDir;
+
+  /**
+   * Reads the last lines of a 4 MB log.
+   *
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  @Test
+  void readLastLines() throws IOException {
+    File file = new File(tempDir, "benchmark.log");
+    Files.write(file.toPath(), BackwardsLineReaderTest.createLog(4 * 1024 * 1024));
+
+    long start = System.nanoTime();
+    List<String> expected;
+    try (InputStream is = new BackwardsLineReaderTest.ByteByByteStream(file)) {
+      expected = BackwardsLineReaderTest.readLines(new BackwardsLineReader(is), LINES);
+    }
+    long byteByByte = System.nanoTime() - start;
+
+    start = System.nanoTime();
+    List<String> actual;
+    try (InputStream is = new BackwardsFileStream(file)) {
+      actual = BackwardsLineReaderTest.readLines(new BackwardsLineReader(is), LINES);
+    }
+    long blocks = System.nanoTime() - start;
+
+    System.out.printf("Reading the last %d lines of a %d byte log: %.2f ms by blocks,"
+        + " byte by byte: %.2f ms, speedup x%.1f%n", LINES, file.length(), blocks / 1e6,
+        byteByByte / 1e6, (double) byteByByte / blocks);
+    Assertions.assertEquals(expected, actual);
+  }
+
+}
@@ -0,0 +1,197 @@
+/*
+ * Licensed under the GPL License. You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   https://www.gnu.org/licenses/old-licenses/gpl-2.0.html
+ *
+ * THIS PACKAGE IS PROVIDED "AS IS" AND WITHOUT ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING,
+ * WITHOUT LIMITATION, THE IMPLIED WARRANTIES OF MERCHANTIBILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE.
+ */
+package psiprobe.tools;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * The Class BackwardsLineReaderTest.
+ */
+class BackwardsLineReaderTest {
+
+  /** The temp dir. */
+  @TempDir
+  File tempDir;
+
+  /**
+   * Lines are read bottom up, whatever their terminators.
+   *
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  @Test
+  void readLines() throws IOException {
+    Assertions.assertEquals(Arrays.asList("", "three", "two", "one"),
+        readAll(write("one\ntwo\nthree\n".getBytes(StandardCharsets.UTF_8)), 4, "UTF-8"));
+    Assertions.assertEquals(Arrays.asList("", "three", "two", "one"),
+        readAll(write("one\r\ntwo\r\nthree\r\n".getBytes(StandardCharsets.UTF_8)), 3, null));
+    Assertions.assertEquals(Arrays.asList("three", "two", "one"),
+        readAll(write("one\rtwo\rthree".getBytes(StandardCharsets.UTF_8)), 2, null));
+  }
+
+  /**
+   * Lines spanning several blocks are decoded in the requested encoding, multi byte characters
+   * included.
+   *
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  @Test
+  void readLinesAcrossBlocks() throws IOException {
+    String text = "café 日本語\nnaïve\nÿÿ";
+    Assertions.assertEquals(Arrays.asList("ÿÿ", "naïve", "café 日本語"),
+        readAll(write(text.getBytes(StandardCharsets.UTF_8)), 1, "UTF-8"));
+    Assertions.assertEquals(Arrays.asList("ÿÿ", "naïve"), readAll(
+        write("naïve\nÿÿ".getBytes(StandardCharsets.ISO_8859_1)), 5, "ISO-8859-1"));
+  }
+
+  /**
+   * Reading starts at the given position.
+   *
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  @Test
+  void readFromPosition() throws IOException {
+    File file = write("one\ntwo\nthree\n".getBytes(StandardCharsets.UTF_8));
+    try (BackwardsFileStream bfs = new BackwardsFileStream(file, 7)) {
+      BackwardsLineReader br = new BackwardsLineReader(bfs);
+      Assertions.assertEquals("two", br.readLine());
+      Assertions.assertEquals("one", br.readLine());
+      Assertions.assertNull(br.readLine());
+    }
+  }
+
+  /**
+   * The block reader reads the same lines as the former byte by byte stream, over many blocks.
+   *
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  @Test
+  void sameLinesAsByteByByte() throws IOException {
+    File file = write(createLog(256 * 1024));
+    List<String> expected;
+    try (InputStream is = new ByteByByteStream(file)) {
+      expected = readLines(new BackwardsLineReader(is), Integer.MAX_VALUE);
+    }
+    try (InputStream is = new BackwardsFileStream(file)) {
+      Assertions.assertEquals(expected, readLines(new BackwardsLineReader(is), Integer.MAX_VALUE));
+    }
+  }
+
+  /**
+   * Creates the content of a log.
+   *
+   * @param size the size of the log at least
+   * @return the content
+   */
+  static byte[] createLog(int size) {
+    StringBuilder log = new StringBuilder();
+    for (int i = 0; log.length() < size; i++) {
+      log.append("2020-01-01 00:00:00,000 INFO  [http-nio-8080-exec-").append(i % 200)
+          .append("] psiprobe.Sample - request ").append(i).append(" served\n");
+    }
+    return log.toString().getBytes(StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Writes a file.
+   *
+   * @param content the content
+   * @return the file
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  private File write(byte[] content) throws IOException {
+    File file = File.createTempFile("backwards", ".log", tempDir);
+    Files.write(file.toPath(), content);
+    return file;
+  }
+
+  /**
+   * Reads all lines of a file.
+   *
+   * @param file the file
+   * @param blockSize the block size
+   * @param encoding the encoding
+   * @return the lines
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  private static List<String> readAll(File file, int blockSize, String encoding)
+      throws IOException {
+    try (BackwardsFileStream bfs = new BackwardsFileStream(file, file.length(), blockSize)) {
+      return readLines(new BackwardsLineReader(bfs, encoding), Integer.MAX_VALUE);
+    }
+  }
+
+  /**
+   * Reads lines.
+   *
+   * @param br the reader
+   * @param max the maximum number of lines
+   * @return the lines
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  static List<String> readLines(BackwardsLineReader br, int max) throws IOException {
+    List<String> lines = new ArrayList<>();
+    String line;
+    while (lines.size() < max && (line = br.readLine()) != null) {
+      lines.add(line);
+    }
+    return lines;
+  }
+
+  /**
+   * The former BackwardsFileStream, seeking and reading once per byte.
+   */
+  static class ByteByByteStream extends InputStream {
+
+    /** The raf. */
+    private final RandomAccessFile raf;
+
+    /** The seek pos. */
+    private long seekPos;
+
+    /**
+     * Instantiates a new byte by byte stream.
+     *
+     * @param file the file
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    ByteByByteStream(File file) throws IOException {
+      raf = new RandomAccessFile(file, "r");
+      seekPos = raf.length();
+    }
+
+    @Override
+    public int read() throws IOException {
+      if (seekPos > 0) {
+        raf.seek(--seekPos);
+        return raf.read();
+      }
+      return -1;
+    }
+
+    @Override
+    public void close() throws IOException {
+      raf.close();
+    }
+  }
+
+}
@@ -0,0 +1,49 @@
+/*
+ * Licensed under the GPL License. You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   https://www.gnu.org/licenses/old-licenses/gpl-2.0.html
+ *
+ * THIS PACKAGE IS PROVIDED "AS IS" AND WITHOUT ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING,
+ * WITHOUT LIMITATION, THE IMPLIED WARRANTIES OF MERCHANTIBILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE.
+ */
+package psiprobe.tools;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * The Class IdentityObjectSetTest.
+ */
+class IdentityObjectSetTest {
+
+  /**
+   * Objects are compared by identity, across resizes.
+   */
+  @Test
+  void addByIdentity() {
+    IdentityObjectSet set = new IdentityObjectSet(4);
+    List<Object> objects = new ArrayList<>();
+    for (int i = 0; i < 10000; i++) {
+      Object obj = new String("same");
+      objects.add(obj);
+      Assertions.assertTrue(set.add(obj));
+    }
+    Assertions.assertEquals(10000, set.size());
+    for (Object obj : objects) {
+      Assertions.assertTrue(set.contains(obj));
+      Assertions.assertFalse(set.add(obj));
+    }
+    Assertions.assertFalse(set.contains("same"));
+    Assertions.assertEquals(10000, set.size());
+
+    set.clear();
+    Assertions.assertEquals(0, set.size());
+    Assertions.assertFalse(set.contains(objects.get(0)));
+  }
+
+}
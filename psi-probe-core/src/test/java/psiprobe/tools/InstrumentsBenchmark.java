@@ -0,0 +1,346 @@
+/*
+ * Licensed under the GPL License. You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   https://www.gnu.org/licenses/old-licenses/gpl-2.0.html
+ *
+ * THIS PACKAGE IS PROVIDED "AS IS" AND WITHOUT ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING,
+ * WITHOUT LIMITATION, THE IMPLIED WARRANTIES OF MERCHANTIBILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE.
+ */
+package psiprobe.tools;
+
+import java.io.Serializable;
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+/**
+ * Compares the time to size session graphs with {@link Instruments} and with the reflective walk
+ * it replaced, which looked fields up per object and tracked visited objects in a wrapped
+ * {@link HashSet}.
+ *
+ * <p>
+ * Run with {@code mvn test -pl psi-probe-core -Dtest=InstrumentsBenchmark
+ * -Dpsiprobe.benchmark=true}; the reflective walk reads the fields of JDK classes only where their
+ * packages are opened, with --add-opens in argLine.
+ * </p>
+ */
+@EnabledIfSystemProperty(named = "psiprobe.benchmark", matches = "true")
+class InstrumentsBenchmark {
+
+  /** The number of sessions. */
+  private static final int SESSIONS = 500;
+
+  /** The number of measured iterations. */
+  private static final int ITERATIONS = 20;
+
+  /**
+   * Sizes the attributes of sessions, as the session list does with sizes shown.
+   */
+  @Test
+  void sizeSessions() {
+    List<Map<String, Object>> sessions = createSessions();
+
+    long size = 0;
+    long legacySize = 0;
+    for (int i = 0; i < 5; i++) {
+      size = sizeAll(sessions, false);
+      legacySize = sizeAll(sessions, true);
+    }
+    long start = System.nanoTime();
+    for (int i = 0; i < ITERATIONS; i++) {
+      sizeAll(sessions, false);
+    }
+    long time = (System.nanoTime() - start) / ITERATIONS;
+    start = System.nanoTime();
+    for (int i = 0; i < ITERATIONS; i++) {
+      sizeAll(sessions, true);
+    }
+    long legacyTime = (System.nanoTime() - start) / ITERATIONS;
+
+    System.out.printf("Sizing %d sessions: %.2f ms (%d bytes), reflective walk: %.2f ms"
+        + " (%d bytes), speedup x%.1f%n", SESSIONS, time / 1e6, size, legacyTime / 1e6, legacySize,
+        (double) legacyTime / time);
+    Assertions.assertTrue(size > 0);
+  }
+
+  /**
+   * Sizes the attributes of all sessions, the objects of a session being counted once.
+   *
+   * @param sessions the sessions
+   * @param legacy whether to use the reflective walk
+   * @return the size
+   */
+  private static long sizeAll(List<Map<String, Object>> sessions, boolean legacy) {
+    long size = 0;
+    for (Map<String, Object> session : sessions) {
+      if (legacy) {
+        Set<Object> processed = new HashSet<>(1000);
+        for (Map.Entry<String, Object> attribute : session.entrySet()) {
+          size += new LegacySizer(processed).sizeOf(attribute.getKey());
+          size += new LegacySizer(processed).sizeOf(attribute.getValue());
+        }
+      } else {
+        IdentityObjectSet processed = new IdentityObjectSet();
+        for (Map.Entry<String, Object> attribute : session.entrySet()) {
+          size += Instruments.sizeOf(attribute.getKey(), processed);
+          size += Instruments.sizeOf(attribute.getValue(), processed);
+        }
+      }
+    }
+    return size;
+  }
+
+  /**
+   * Creates sessions holding a user, a cart of items, a cache of recent pages, some bytes and
+   * references to objects shared by all sessions.
+   *
+   * @return the attributes of the sessions
+   */
+  private static List<Map<String, Object>> createSessions() {
+    Map<String, String> settings = new HashMap<>();
+    for (int i = 0; i < 50; i++) {
+      settings.put("setting." + i, "value " + i);
+    }
+    List<Map<String, Object>> sessions = new ArrayList<>();
+    for (int s = 0; s < SESSIONS; s++) {
+      Map<String, Object> attributes = new HashMap<>();
+      User user = new User();
+      user.name = "user" + s;
+      user.email = "user" + s + "@example.com";
+      user.lastLogin = new Date();
+      for (int i = 0; i < 10; i++) {
+        user.roles.add("role" + i);
+      }
+      attributes.put("user", user);
+      List<Item> cart = new ArrayList<>();
+      for (int i = 0; i < 30; i++) {
+        Item item = new Item();
+        item.sku = "SKU-" + s + "-" + i;
+        item.price = new BigDecimal("19.99").add(BigDecimal.valueOf(i));
+        item.quantity = i % 3 + 1;
+        item.owner = user;
+        cart.add(item);
+      }
+      attributes.put("cart", cart);
+      Map<String, String> pages = new HashMap<>();
+      for (int i = 0; i < 20; i++) {
+        pages.put("/page/" + i, "<html>page " + i + " of session " + s + "</html>");
+      }
+      attributes.put("pages", pages);
+      attributes.put("token", new byte[1024]);
+      attributes.put("settings", settings);
+      sessions.add(attributes);
+    }
+    return sessions;
+  }
+
+  /**
+   * A user.
+   */
+  static class User implements Serializable {
+
+    /** The Constant serialVersionUID. */
+    private static final long serialVersionUID = 1L;
+
+    /** The name. */
+    String name;
+
+    /** The email. */
+    String email;
+
+    /** The last login. */
+    Date lastLogin;
+
+    /** The roles. */
+    List<String> roles = new ArrayList<>();
+
+  }
+
+  /**
+   * An item of a cart.
+   */
+  static class Item implements Serializable {
+
+    /** The Constant serialVersionUID. */
+    private static final long serialVersionUID = 1L;
+
+    /** The sku. */
+    String sku;
+
+    /** The price. */
+    BigDecimal price;
+
+    /** The quantity. */
+    int quantity;
+
+    /** The owner. */
+    User owner;
+
+  }
+
+  /**
+   * The reflective walk Instruments used before the class layouts were cached.
+   */
+  static class LegacySizer {
+
+    /** The processed objects, wrapped. */
+    private final Set<Object> processed;
+
+    /** The this queue. */
+    private final List<Object> thisQueue = new LinkedList<>();
+
+    /** The next queue. */
+    private final List<Object> nextQueue = new LinkedList<>();
+
+    /**
+     * Instantiates a new legacy sizer.
+     *
+     * @param processed the processed objects
+     */
+    LegacySizer(Set<Object> processed) {
+      this.processed = processed;
+    }
+
+    /**
+     * Size of.
+     *
+     * @param root the root
+     * @return the size
+     */
+    long sizeOf(Object root) {
+      long size = 0;
+      thisQueue.add(root);
+      while (!thisQueue.isEmpty()) {
+        Iterator<Object> it = thisQueue.iterator();
+        while (it.hasNext()) {
+          Object obj = it.next();
+          if (obj != null) {
+            Wrapper ow = new Wrapper(obj);
+            if (!processed.contains(ow)) {
+              if (obj.getClass().isArray()) {
+                size += sizeOfArray(obj);
+              } else {
+                processed.add(ow);
+                size += sizeOfObject(obj);
+              }
+            }
+          }
+          it.remove();
+        }
+        thisQueue.addAll(nextQueue);
+        nextQueue.clear();
+      }
+      return size;
+    }
+
+    /**
+     * Size of object.
+     *
+     * @param obj the obj
+     * @return the size
+     */
+    private long sizeOfObject(Object obj) {
+      long size = 8;
+      for (Class<?> clazz = obj.getClass(); clazz != null; clazz = clazz.getSuperclass()) {
+        for (Field field : clazz.getDeclaredFields()) {
+          if (!Modifier.isStatic(field.getModifiers())) {
+            if (field.getType().isPrimitive()) {
+              size += ObjectLayout.fieldSize(field.getType());
+            } else {
+              Object val = get(obj, field);
+              if (field.getType().isArray()) {
+                size += sizeOfArray(val);
+              } else {
+                size += 8;
+                nextQueue.add(val);
+              }
+            }
+          }
+        }
+      }
+      return size;
+    }
+
+    /**
+     * Size of array.
+     *
+     * @param obj the obj
+     * @return the size
+     */
+    private long sizeOfArray(Object obj) {
+      if (obj != null) {
+        Class<?> ct = obj.getClass().getComponentType();
+        if (ct.isPrimitive()) {
+          return Array.getLength(obj) * (long) ObjectLayout.fieldSize(ct);
+        }
+        for (int i = 0; i < Array.getLength(obj); i++) {
+          nextQueue.add(Array.get(obj, i));
+        }
+      }
+      return 0;
+    }
+
+    /**
+     * Gets a field as the simple accessor did, null if it is not accessible.
+     *
+     * @param obj the obj
+     * @param field the field
+     * @return the value
+     */
+    private static Object get(Object obj, Field field) {
+      try {
+        field.setAccessible(true);
+        return field.get(obj);
+      } catch (IllegalAccessException | RuntimeException e) {
+        return null;
+      }
+    }
+
+  }
+
+  /**
+   * The identity wrapper the visited objects were stored in.
+   */
+  static class Wrapper {
+
+    /** The object. */
+    private final Object obj;
+
+    /**
+     * Instantiates a new wrapper.
+     *
+     * @param obj the obj
+     */
+    Wrapper(Object obj) {
+      this.obj = obj;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      return other instanceof Wrapper && ((Wrapper) other).obj == obj;
+    }
+
+    @Override
+    public int hashCode() {
+      return System.identityHashCode(obj);
+    }
+
+  }
+
+}
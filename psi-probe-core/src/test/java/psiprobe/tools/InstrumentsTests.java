@@ -10,6 +10,11 @@
  */
 package psiprobe.tools;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
@@ -25,7 +30,7 @@ class InstrumentsTests {
   void testObject() {
     Object o = new Object();
     long objectSize = Instruments.sizeOf(o);
-    Assertions.assertEquals(Instruments.SIZE_OBJECT, objectSize);
+    Assertions.assertEquals(ObjectLayout.align(Instruments.SIZE_OBJECT), objectSize);
   }
 
   /**
@@ -34,8 +39,9 @@ class InstrumentsTests {
   @Test
   void testBoolean() {
     boolean b = false;
-    long booleanSize = Instruments.sizeOf(Boolean.valueOf(b)) - Instruments.SIZE_OBJECT;
-    Assertions.assertEquals(Instruments.SIZE_BOOLEAN, booleanSize);
+    long booleanSize = Instruments.sizeOf(Boolean.valueOf(b));
+    Assertions.assertEquals(ObjectLayout.align(Instruments.SIZE_OBJECT + Instruments.SIZE_BOOLEAN),
+        booleanSize);
   }
 
   /**
@@ -44,8 +50,9 @@ class InstrumentsTests {
   @Test
   void testByte() {
     byte b = 0x00;
-    long byteSize = Instruments.sizeOf(Byte.valueOf(b)) - Instruments.SIZE_OBJECT;
-    Assertions.assertEquals(Instruments.SIZE_BYTE, byteSize);
+    long byteSize = Instruments.sizeOf(Byte.valueOf(b));
+    Assertions.assertEquals(ObjectLayout.align(Instruments.SIZE_OBJECT + Instruments.SIZE_BYTE),
+        byteSize);
   }
 
   /**
@@ -54,8 +61,9 @@ class InstrumentsTests {
   @Test
   void testChar() {
     char c = '\0';
-    long charSize = Instruments.sizeOf(Character.valueOf(c)) - Instruments.SIZE_OBJECT;
-    Assertions.assertEquals(Instruments.SIZE_CHAR, charSize);
+    long charSize = Instruments.sizeOf(Character.valueOf(c));
+    Assertions.assertEquals(ObjectLayout.align(Instruments.SIZE_OBJECT + Instruments.SIZE_CHAR),
+        charSize);
   }
 
   /**
@@ -64,8 +72,9 @@ class InstrumentsTests {
   @Test
   void testShort() {
     short s = 0;
-    long shortSize = Instruments.sizeOf(Short.valueOf(s)) - Instruments.SIZE_OBJECT;
-    Assertions.assertEquals(Instruments.SIZE_SHORT, shortSize);
+    long shortSize = Instruments.sizeOf(Short.valueOf(s));
+    Assertions.assertEquals(ObjectLayout.align(Instruments.SIZE_OBJECT + Instruments.SIZE_SHORT),
+        shortSize);
   }
 
   /**
@@ -74,8 +83,9 @@ class InstrumentsTests {
   @Test
   void testInt() {
     int i = 0;
-    long intSize = Instruments.sizeOf(Integer.valueOf(i)) - Instruments.SIZE_OBJECT;
-    Assertions.assertEquals(Instruments.SIZE_INT, intSize);
+    long intSize = Instruments.sizeOf(Integer.valueOf(i));
+    Assertions.assertEquals(ObjectLayout.align(Instruments.SIZE_OBJECT + Instruments.SIZE_INT),
+        intSize);
   }
 
   /**
@@ -84,8 +94,9 @@ class InstrumentsTests {
   @Test
   void testLong() {
     long l = 0;
-    long longSize = Instruments.sizeOf(Long.valueOf(l)) - Instruments.SIZE_OBJECT;
-    Assertions.assertEquals(Instruments.SIZE_LONG, longSize);
+    long longSize = Instruments.sizeOf(Long.valueOf(l));
+    Assertions.assertEquals(ObjectLayout.align(Instruments.SIZE_OBJECT + Instruments.SIZE_LONG),
+        longSize);
   }
 
   /**
@@ -94,8 +105,9 @@ class InstrumentsTests {
   @Test
   void testFloat() {
     float f = 0.0f;
-    long floatSize = Instruments.sizeOf(Float.valueOf(f)) - Instruments.SIZE_OBJECT;
-    Assertions.assertEquals(Instruments.SIZE_FLOAT, floatSize);
+    long floatSize = Instruments.sizeOf(Float.valueOf(f));
+    Assertions.assertEquals(ObjectLayout.align(Instruments.SIZE_OBJECT + Instruments.SIZE_FLOAT),
+        floatSize);
   }
 
   /**
@@ -104,8 +116,48 @@ class InstrumentsTests {
   @Test
   void testDouble() {
     double d = 0.0;
-    long doubleSize = Instruments.sizeOf(Double.valueOf(d)) - Instruments.SIZE_OBJECT;
-    Assertions.assertEquals(Instruments.SIZE_DOUBLE, doubleSize);
+    long doubleSize = Instruments.sizeOf(Double.valueOf(d));
+    Assertions.assertEquals(ObjectLayout.align(Instruments.SIZE_OBJECT + Instruments.SIZE_DOUBLE),
+        doubleSize);
+  }
+
+  /**
+   * Arrays are sized from their length, objects shared or referenced in cycles are counted once.
+   */
+  @Test
+  void testGraph() {
+    long[] longs = new long[10];
+    Assertions.assertEquals(ObjectLayout.align(ObjectLayout.forClass(long[].class).getShallowSize()
+        + 10 * Instruments.SIZE_LONG), Instruments.sizeOf(longs));
+
+    Object shared = new Object();
+    Object[] pair = {shared, shared};
+    long pairSize = ObjectLayout.forClass(Object[].class).sizeOf(pair);
+    Assertions.assertEquals(pairSize + ObjectLayout.align(Instruments.SIZE_OBJECT),
+        Instruments.sizeOf(pair));
+
+    Object[] cycle = new Object[1];
+    cycle[0] = cycle;
+    Assertions.assertEquals(ObjectLayout.forClass(Object[].class).sizeOf(cycle),
+        Instruments.sizeOf(cycle));
+  }
+
+  /**
+   * Objects processed already, like objects shared by session attributes, are not counted again.
+   */
+  @Test
+  void testProcessedObjects() {
+    List<String> shared = new ArrayList<>();
+    shared.add("value");
+    Map<String, Object> first = Collections.singletonMap("a", shared);
+    Map<String, Object> second = Collections.singletonMap("b", shared);
+
+    IdentityObjectSet processed = new IdentityObjectSet();
+    long firstSize = Instruments.sizeOf(first, processed);
+    long secondSize = Instruments.sizeOf(second, processed);
+    Assertions.assertEquals(Instruments.sizeOf(first), firstSize);
+    Assertions.assertTrue(secondSize < firstSize);
+    Assertions.assertEquals(0, Instruments.sizeOf(first, processed));
   }
 
 }
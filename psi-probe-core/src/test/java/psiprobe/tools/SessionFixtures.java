@@ -0,0 +1,73 @@
+/*
+ * Licensed under the GPL License. You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   https://www.gnu.org/licenses/old-licenses/gpl-2.0.html
+ *
+ * THIS PACKAGE IS PROVIDED "AS IS" AND WITHOUT ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING,
+ * WITHOUT LIMITATION, THE IMPLIED WARRANTIES OF MERCHANTIBILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE.
+ */
+package psiprobe.tools;
+
+import org.apache.catalina.core.StandardContext;
+import org.apache.catalina.session.StandardManager;
+import org.apache.catalina.session.StandardSession;
+
+/**
+ * Builds the contexts and sessions tests look sessions up in, without starting them.
+ */
+public final class SessionFixtures {
+
+  /**
+   * Prevent Instantiation.
+   */
+  private SessionFixtures() {
+    // Prevent Instantiation
+  }
+
+  /**
+   * Creates a context with a standard manager.
+   *
+   * @param name the context name
+   * @return the context
+   */
+  public static StandardContext newContext(String name) {
+    StandardContext context = new StandardContext();
+    context.setName(name);
+    setNewManager(context);
+    return context;
+  }
+
+  /**
+   * Gives a context a new standard manager, without any session.
+   *
+   * @param context the context
+   * @return the manager
+   */
+  public static StandardManager setNewManager(StandardContext context) {
+    StandardManager manager = new StandardManager();
+    manager.setContext(context);
+    context.setManager(manager);
+    return manager;
+  }
+
+  /**
+   * Adds a valid session to the manager of a context.
+   *
+   * @param context the context
+   * @param id the session ID
+   * @param creationTime the creation time, also the last access time
+   * @return the session
+   */
+  public static StandardSession addSession(StandardContext context, String id,
+      long creationTime) {
+    StandardSession session = new StandardSession(context.getManager());
+    session.setValid(true);
+    session.setCreationTime(creationTime);
+    session.setId(id, false);
+    context.getManager().add(session);
+    return session;
+  }
+
+}
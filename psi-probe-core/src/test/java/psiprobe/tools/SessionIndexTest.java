@@ -0,0 +1,198 @@
+/*
+ * Licensed under the GPL License. You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   https://www.gnu.org/licenses/old-licenses/gpl-2.0.html
+ *
+ * THIS PACKAGE IS PROVIDED "AS IS" AND WITHOUT ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING,
+ * WITHOUT LIMITATION, THE IMPLIED WARRANTIES OF MERCHANTIBILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE.
+ */
+package psiprobe.tools;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import javax.servlet.http.HttpSession;
+
+import org.apache.catalina.Session;
+import org.apache.catalina.core.StandardContext;
+import org.apache.catalina.session.StandardManager;
+import org.apache.catalina.session.StandardSession;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import psiprobe.model.ApplicationSession;
+import psiprobe.model.SessionSearchInfo;
+
+/**
+ * The Class SessionIndexTest.
+ */
+class SessionIndexTest {
+
+  /** The context. */
+  private StandardContext context;
+
+  /** The manager. */
+  private StandardManager manager;
+
+  /** The time the sessions are searched at. */
+  private long now;
+
+  /**
+   * Sets up sessions S0 to S9, created and last accessed i minutes ago, from 192.168.0.i, the even
+   * ones holding a cart.
+   */
+  @BeforeEach
+  void setUp() {
+    context = SessionFixtures.newContext("/app");
+    manager = (StandardManager) context.getManager();
+    now = System.currentTimeMillis();
+    for (int i = 0; i < 10; i++) {
+      StandardSession session = SessionFixtures.addSession(context, "S" + i, now - i * 60_000L);
+      session.setAttribute("user", "user" + i, false);
+      if (i % 2 == 0) {
+        session.setAttribute("cart", "cart" + i, false);
+      }
+      session.setAttribute(ApplicationSession.LAST_ACCESSED_BY_IP, "192.168.0." + i, false);
+    }
+  }
+
+  /**
+   * Sessions are found by attribute names, last IP, age and idle time.
+   */
+  @Test
+  void search() {
+    SessionIndex index = SessionIndex.forContext(context);
+    Assertions.assertSame(index, SessionIndex.forContext(context));
+
+    SessionSearchInfo searchInfo = searchInfo();
+    searchInfo.setAttrName("cart,us.*");
+    Assertions.assertEquals(ids("S0", "S2", "S4", "S6", "S8"), search(searchInfo));
+    Assertions.assertEquals(10, index.size());
+
+    searchInfo.setLastIp("0.4");
+    Assertions.assertEquals(ids("S4"), search(searchInfo));
+
+    searchInfo = searchInfo();
+    searchInfo.setAgeFrom("120");
+    searchInfo.setAgeTo("300");
+    Assertions.assertEquals(ids("S2", "S3", "S4", "S5"), search(searchInfo));
+
+    searchInfo = searchInfo();
+    searchInfo.setIdleTimeTo("60");
+    Assertions.assertEquals(ids("S0", "S1"), search(searchInfo));
+
+    searchInfo = searchInfo();
+    searchInfo.setAttrName("missing");
+    Assertions.assertEquals(Collections.emptySet(), search(searchInfo));
+  }
+
+  /**
+   * Once listening, the index follows the sessions created, destroyed and renamed, and their
+   * attributes set and removed, without reading the sessions again.
+   *
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  @Test
+  void events() throws IOException {
+    SessionSearchInfo searchInfo = searchInfo();
+    searchInfo.setAttrName("cart");
+    Assertions.assertEquals(ids("S0", "S2", "S4", "S6", "S8"), search(searchInfo));
+
+    Session created = manager.createSession("N1");
+    created.getSession().setAttribute("cart", "cartN1");
+    session("S0").removeAttribute("cart");
+    session("S1").setAttribute("cart", "cart1");
+    manager.findSession("S2").expire();
+    manager.changeSessionId(manager.findSession("S4"), "S4B");
+    Assertions.assertEquals(ids("N1", "S1", "S4B", "S6", "S8"), search(searchInfo));
+    Assertions.assertEquals(10, SessionIndex.forContext(context).size());
+
+    searchInfo = searchInfo();
+    searchInfo.setLastIp("10.1.");
+    session("S6").setAttribute(ApplicationSession.LAST_ACCESSED_BY_IP, "10.1.0.6");
+    Assertions.assertEquals(ids("S6"), search(searchInfo));
+    session("S6").removeAttribute(ApplicationSession.LAST_ACCESSED_BY_IP);
+    Assertions.assertEquals(Collections.emptySet(), search(searchInfo));
+  }
+
+  /**
+   * The sessions are read again once the context dropped the listeners, as it does when reloaded,
+   * or was given another manager.
+   *
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  @Test
+  void listenersDropped() throws IOException {
+    SessionSearchInfo searchInfo = searchInfo();
+    searchInfo.setAttrName("cart");
+    Assertions.assertEquals(ids("S0", "S2", "S4", "S6", "S8"), search(searchInfo));
+
+    // not notified, the index does not know of it until the sessions are read again
+    ((StandardSession) manager.findSession("S1")).setAttribute("cart", "cart1", false);
+    Assertions.assertEquals(ids("S0", "S2", "S4", "S6", "S8"), search(searchInfo));
+    context.setApplicationEventListeners(new Object[0]);
+    Assertions.assertEquals(ids("S0", "S1", "S2", "S4", "S6", "S8"), search(searchInfo));
+
+    manager = SessionFixtures.setNewManager(context);
+    Assertions.assertEquals(Collections.emptySet(), search(searchInfo));
+    Assertions.assertEquals(0, SessionIndex.forContext(context).size());
+
+    SessionIndex.detachAll();
+    Assertions.assertEquals(0, context.getApplicationEventListeners().length);
+    Assertions.assertEquals(0, context.getApplicationLifecycleListeners().length);
+    Assertions.assertEquals(0, context.findContainerListeners().length);
+  }
+
+  /**
+   * Makes search info of a search applied.
+   *
+   * @return the search info
+   */
+  private static SessionSearchInfo searchInfo() {
+    SessionSearchInfo searchInfo = new SessionSearchInfo();
+    searchInfo.setSearchAction(SessionSearchInfo.ACTION_APPLY);
+    return searchInfo;
+  }
+
+  /**
+   * Searches the index of the context.
+   *
+   * @param searchInfo the search info
+   * @return the IDs of the sessions found
+   */
+  private Set<String> search(SessionSearchInfo searchInfo) {
+    Assertions.assertTrue(SessionIndex.isIndexed(searchInfo));
+    return SessionIndex.forContext(context).search(context, searchInfo, now);
+  }
+
+  /**
+   * Gets a session of the manager.
+   *
+   * @param id the ID
+   * @return the session
+   */
+  private HttpSession session(String id) {
+    try {
+      return manager.findSession(id).getSession();
+    } catch (IOException e) {
+      throw new AssertionError(e);
+    }
+  }
+
+  /**
+   * Makes a set of IDs.
+   *
+   * @param ids the IDs
+   * @return the set
+   */
+  private static Set<String> ids(String... ids) {
+    return new HashSet<>(Arrays.asList(ids));
+  }
+
+}
@@ -0,0 +1,148 @@
+/*
+ * Licensed under the GPL License. You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   https://www.gnu.org/licenses/old-licenses/gpl-2.0.html
+ *
+ * THIS PACKAGE IS PROVIDED "AS IS" AND WITHOUT ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING,
+ * WITHOUT LIMITATION, THE IMPLIED WARRANTIES OF MERCHANTIBILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE.
+ */
+package psiprobe.tools;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.catalina.Context;
+import org.apache.catalina.core.StandardContext;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import psiprobe.model.ApplicationSession;
+
+/**
+ * The Class SessionPagerTest.
+ */
+class SessionPagerTest {
+
+  /** The contexts. */
+  private List<Context> contexts;
+
+  /**
+   * Sets up two applications of 25 sessions, the session i of an application being created i
+   * minutes ago and last accessed from 10.0.0.(i % 7).
+   */
+  @BeforeEach
+  void setUp() {
+    long now = System.currentTimeMillis();
+    contexts = new ArrayList<>();
+    for (String name : new String[] {"/app1", "/app2"}) {
+      StandardContext context = SessionFixtures.newContext(name);
+      for (int i = 0; i < 25; i++) {
+        SessionFixtures.addSession(context, String.format("S%02d", i), now - i * 60_000L)
+            .setAttribute(ApplicationSession.LAST_ACCESSED_BY_IP, "10.0.0." + i % 7, false);
+      }
+      contexts.add(context);
+    }
+  }
+
+  /**
+   * Pages follow each other by their cursors, forwards and backwards, without overlap.
+   */
+  @Test
+  void pageByAge() {
+    SessionPager pager = new SessionPager();
+    pager.setSort(SessionPager.SORT_AGE);
+    pager.setPageSize(20);
+
+    SessionPager.Page first = pager.read(contexts, null, false, false);
+    Assertions.assertEquals(50, first.getTotal());
+    Assertions.assertEquals(0, first.getOffset());
+    Assertions.assertFalse(first.isPreviousAvailable());
+    Assertions.assertTrue(first.isNextAvailable());
+    Assertions.assertEquals(ids("/app1:S00", "/app2:S00", "/app1:S01", "/app2:S01"),
+        ids(first.getSessions().subList(0, 4)));
+
+    pager.setAfter(first.getLastCursor());
+    SessionPager.Page second = pager.read(contexts, null, false, false);
+    Assertions.assertEquals(20, second.getOffset());
+    Assertions.assertEquals(ids("/app1:S10", "/app2:S10"),
+        ids(second.getSessions().subList(0, 2)));
+
+    pager.setAfter(second.getLastCursor());
+    SessionPager.Page third = pager.read(contexts, null, false, false);
+    Assertions.assertEquals(10, third.getSessions().size());
+    Assertions.assertFalse(third.isNextAvailable());
+    Assertions.assertEquals("/app2:S24", ids(third.getSessions()).get(9));
+
+    pager.setAfter(null);
+    pager.setBefore(third.getFirstCursor());
+    SessionPager.Page back = pager.read(contexts, null, false, false);
+    Assertions.assertEquals(20, back.getOffset());
+    Assertions.assertEquals(ids(second.getSessions()), ids(back.getSessions()));
+
+    // paging back past the start reads the full first page
+    pager.setBefore(null);
+    pager.setPageSize(5);
+    String fifth = pager.read(contexts, null, false, false).getLastCursor();
+    pager.setPageSize(20);
+    pager.setBefore(fifth);
+    SessionPager.Page start = pager.read(contexts, null, false, false);
+    Assertions.assertEquals(0, start.getOffset());
+    Assertions.assertEquals(20, start.getSessions().size());
+  }
+
+  /**
+   * Sessions are sorted by last IP, descending, and filtered on their entries.
+   */
+  @Test
+  void sortByIpAndFilter() {
+    SessionPager pager = new SessionPager();
+    pager.setSort(SessionPager.SORT_LAST_IP);
+    pager.setDescending(true);
+    pager.setPageSize(100);
+
+    SessionPager.Page page = pager.read(contexts,
+        entry -> entry.getAge() >= 10 * 60_000L && !"/app2".equals(entry.applicationName), false,
+        false);
+    Assertions.assertEquals(15, page.getTotal());
+    List<String> ips = new ArrayList<>();
+    for (ApplicationSession session : page.getSessions()) {
+      Assertions.assertEquals("/app1", session.getApplicationName());
+      ips.add(session.getLastAccessedIp());
+    }
+    List<String> sorted = new ArrayList<>(ips);
+    sorted.sort(Collections.reverseOrder());
+    Assertions.assertEquals(sorted, ips);
+    Assertions.assertEquals("10.0.0.6", ips.get(0));
+  }
+
+  /**
+   * Gets the application names and IDs of sessions.
+   *
+   * @param sessions the sessions
+   * @return the application names and IDs
+   */
+  private static List<String> ids(List<ApplicationSession> sessions) {
+    List<String> ids = new ArrayList<>();
+    for (ApplicationSession session : sessions) {
+      ids.add(session.getApplicationName() + ":" + session.getId());
+    }
+    return ids;
+  }
+
+  /**
+   * Lists application names and IDs.
+   *
+   * @param ids the application names and IDs
+   * @return the list
+   */
+  private static List<String> ids(String... ids) {
+    List<String> list = new ArrayList<>();
+    Collections.addAll(list, ids);
+    return list;
+  }
+
+}
@@ -0,0 +1,226 @@
+/*
+ * Licensed under the GPL License. You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   https://www.gnu.org/licenses/old-licenses/gpl-2.0.html
+ *
+ * THIS PACKAGE IS PROVIDED "AS IS" AND WITHOUT ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING,
+ * WITHOUT LIMITATION, THE IMPLIED WARRANTIES OF MERCHANTIBILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE.
+ */
+package psiprobe.tools.logging;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import psiprobe.tools.BackwardsFileStream;
+import psiprobe.tools.BackwardsLineReader;
+
+/**
+ * The Class CompressedLogIndexTest.
+ */
+class CompressedLogIndexTest {
+
+  /** The temp dir. */
+  @TempDir
+  File tempDir;
+
+  /**
+   * Tear down.
+   */
+  @AfterEach
+  void tearDown() {
+    CompressedLogIndex.clearCache();
+  }
+
+  /**
+   * Reads across spans, at any position.
+   *
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  @Test
+  void readAcrossSpans() throws IOException {
+    byte[] content = logLines(2000);
+    CompressedLogIndex index = CompressedLogIndex.build(new ByteArrayInputStream(content), 4096);
+    Assertions.assertEquals(content.length, index.getLength());
+    Assertions.assertEquals((content.length + 4095) / 4096, index.getSpanCount());
+    Assertions.assertTrue(index.getCompressedSize() < content.length);
+
+    try (LogReader reader = new CompressedLogReader(index)) {
+      byte[] read = new byte[content.length];
+      int count = 0;
+      for (int n; (n = reader.read(count, read, count, 1000)) > 0;) {
+        count += n;
+      }
+      Assertions.assertArrayEquals(content, read);
+
+      byte[] b = new byte[10];
+      Assertions.assertEquals(10, reader.read(5000, b, 0, 10));
+      Assertions.assertEquals(new String(content, 5000, 10, StandardCharsets.UTF_8),
+          new String(b, StandardCharsets.UTF_8));
+      Assertions.assertEquals(-1, reader.read(content.length, b, 0, 10));
+    }
+  }
+
+  /**
+   * Reads the last lines of a gzipped file backwards, as the follow view does.
+   *
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  @Test
+  void tailGzipFile() throws IOException {
+    byte[] content = logLines(50000);
+    File file = new File(tempDir, "catalina.2020-01-31.log.gz");
+    try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(file.toPath()))) {
+      out.write(content);
+    }
+    Assertions.assertTrue(LogFiles.isCompressed(file));
+    Assertions.assertEquals(content.length, LogFiles.getLength(file));
+    Assertions.assertTrue(CompressedLogIndex.isCached(file));
+
+    LogReader reader = LogFiles.openReader(file);
+    try (BackwardsFileStream bfs = new BackwardsFileStream(reader, reader.length())) {
+      // dropped from the cache, still held by the reader
+      CompressedLogIndex.clearCache();
+      BackwardsLineReader lines = new BackwardsLineReader(bfs, "UTF-8");
+      // the empty line after the last line break
+      Assertions.assertEquals("", lines.readLine());
+      for (int i = 49999; i > 49990; i--) {
+        Assertions.assertEquals(line(i), lines.readLine());
+      }
+    }
+    Assertions.assertFalse(CompressedLogIndex.isCached(file));
+  }
+
+  /**
+   * The length of the content of a file whose index is over the cache size is cached still, until
+   * the file changes.
+   *
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  @Test
+  void lengthCachedOverCacheSize() throws IOException {
+    byte[] content = logLines(1000);
+    File file = new File(tempDir, "catalina.2020-01-30.log.gz");
+    try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(file.toPath()))) {
+      out.write(content);
+    }
+    long maxCacheSize = CompressedLogIndex.getMaxCacheSize();
+    CompressedLogIndex.setMaxCacheSize(0);
+    try {
+      Assertions.assertEquals(content.length, LogFiles.getLength(file));
+      Assertions.assertFalse(CompressedLogIndex.isCached(file));
+
+      // not read again while its length and modification time are the same
+      long lastModified = file.lastModified();
+      Files.write(file.toPath(), new byte[(int) file.length()]);
+      Assertions.assertTrue(file.setLastModified(lastModified));
+      Assertions.assertEquals(content.length, LogFiles.getLength(file));
+
+      Assertions.assertTrue(file.setLastModified(lastModified - 10_000L));
+      Assertions.assertThrows(IOException.class, () -> LogFiles.getLength(file));
+    } finally {
+      CompressedLogIndex.setMaxCacheSize(maxCacheSize);
+    }
+  }
+
+  /**
+   * Reads the first file of a ZIP file.
+   *
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  @Test
+  void zipFile() throws IOException {
+    byte[] content = logLines(100);
+    File file = new File(tempDir, "app.log.1.zip");
+    try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(file.toPath()))) {
+      out.putNextEntry(new ZipEntry("logs/"));
+      out.closeEntry();
+      out.putNextEntry(new ZipEntry("logs/app.log.1"));
+      out.write(content);
+      out.closeEntry();
+    }
+    try (InputStream in = LogFiles.openStream(file)) {
+      Assertions.assertArrayEquals(content, readAll(in));
+    }
+    try (LogReader reader = LogFiles.openReader(file)) {
+      Assertions.assertEquals(content.length, reader.length());
+    }
+  }
+
+  /**
+   * Plain files are read as they are.
+   *
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  @Test
+  void plainFile() throws IOException {
+    byte[] content = logLines(10);
+    File file = new File(tempDir, "app.log");
+    Files.write(file.toPath(), content);
+    Assertions.assertFalse(LogFiles.isCompressed(file));
+    try (LogReader reader = LogFiles.openReader(file)) {
+      Assertions.assertTrue(reader instanceof FileLogReader);
+      byte[] b = new byte[content.length];
+      Assertions.assertEquals(content.length, reader.read(0, b, 0, b.length));
+      Assertions.assertArrayEquals(content, b);
+    }
+    Assertions.assertEquals(file, LogFiles.findRotatedFile(new File(tempDir, "app"), "app.log"));
+    Assertions.assertNull(LogFiles.findRotatedFile(new File(tempDir, "app"), "other.log"));
+  }
+
+  /**
+   * Builds a log line.
+   *
+   * @param i the line number
+   * @return the line
+   */
+  private static String line(int i) {
+    return "2020-01-31 10:00:00,000 INFO line " + i;
+  }
+
+  /**
+   * Builds log lines.
+   *
+   * @param count the number of lines
+   * @return the lines
+   */
+  private static byte[] logLines(int count) {
+    StringBuilder lines = new StringBuilder();
+    for (int i = 0; i < count; i++) {
+      lines.append(line(i)).append('\n');
+    }
+    return lines.toString().getBytes(StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Reads a stream to its end.
+   *
+   * @param in the stream
+   * @return the bytes read
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  private static byte[] readAll(InputStream in) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    byte[] buffer = new byte[8192];
+    for (int n; (n = in.read(buffer)) > 0;) {
+      out.write(buffer, 0, n);
+    }
+    return out.toByteArray();
+  }
+
+}
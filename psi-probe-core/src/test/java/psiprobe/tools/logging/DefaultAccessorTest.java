@@ -12,6 +12,7 @@ package psiprobe.tools.logging;
 
 import com.codebox.bean.JavaBeanTester;
 
+import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
 /**
@@ -27,4 +28,19 @@ class DefaultAccessorTest {
     JavaBeanTester.builder(DefaultAccessor.class).loadData().test();
   }
 
+  /**
+   * Properties which cannot be read give the default value rather than an exception.
+   */
+  @Test
+  void propertyDefault() {
+    DefaultAccessor accessor = new DefaultAccessor();
+    Object target = new Object() {
+      @SuppressWarnings("unused")
+      private final String name = "target";
+    };
+    Assertions.assertEquals("target", accessor.getProperty(target, "name", "default", true));
+    Assertions.assertEquals("default", accessor.getProperty(target, "missing", "default", true));
+    Assertions.assertEquals("default", accessor.getProperty(target, "missing", "default"));
+  }
+
 }
@@ -0,0 +1,171 @@
+/*
+ * Licensed under the GPL License. You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   https://www.gnu.org/licenses/old-licenses/gpl-2.0.html
+ *
+ * THIS PACKAGE IS PROVIDED "AS IS" AND WITHOUT ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING,
+ * WITHOUT LIMITATION, THE IMPLIED WARRANTIES OF MERCHANTIBILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE.
+ */
+package psiprobe.tools.logging;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * The Class LogLineIndexTest.
+ */
+class LogLineIndexTest {
+
+  /** The temp dir. */
+  @TempDir
+  File tempDir;
+
+  /**
+   * Tear down.
+   */
+  @AfterEach
+  void tearDown() {
+    LogLineIndex.clearCache();
+  }
+
+  /**
+   * Pages are read from any line, through the checkpoints.
+   *
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  @Test
+  void findLine() throws IOException {
+    File file = new File(tempDir, "app.log");
+    append(file, 0, 3000);
+    LogLineIndex index = new LogLineIndex(4096, null);
+    try (LogReader reader = new FileLogReader(file)) {
+      index.update(reader);
+      Assertions.assertEquals(3000, index.getLineCount());
+      Assertions.assertTrue(index.getCheckpointCount() > 10);
+
+      LogLineIndex.Page page =
+          LogLineIndex.readPage(reader, index.findLine(reader, 1234), 3, StandardCharsets.UTF_8);
+      Assertions.assertEquals(1234, page.getFirstLine());
+      Assertions.assertEquals(line(1233), page.getLines().get(0));
+      Assertions.assertEquals(line(1235), page.getLines().get(2));
+
+      LogLineIndex.Page next = LogLineIndex.readPage(reader,
+          new LogLineIndex.Position(page.getEndOffset(), 1237), 1, StandardCharsets.UTF_8);
+      Assertions.assertEquals(line(1236), next.getLines().get(0));
+
+      // lines past the end are the end
+      LogLineIndex.Position end = index.findLine(reader, 5000);
+      Assertions.assertEquals(3001, end.getLine());
+      Assertions.assertEquals(file.length(), end.getOffset());
+      Assertions.assertEquals(0, index.findLine(reader, -1).getOffset());
+    }
+  }
+
+  /**
+   * Pages are read from the first line logged at or after a time, lines without a timestamp being
+   * skipped.
+   *
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  @Test
+  void findTime() throws IOException {
+    File file = new File(tempDir, "app.log");
+    append(file, 0, 3000);
+    try (LogReader reader = new FileLogReader(file)) {
+      LogLineIndex index = LogLineIndex.forFile(file, reader, null);
+      Assertions.assertNotNull(index.getTimestampFormat());
+
+      LogLineIndex.Position position =
+          index.findTime(reader, LocalDateTime.of(2020, 1, 31, 10, 30));
+      // the line of minute 30 is the 1801st line, the stack trace lines preceding it being skipped
+      LogLineIndex.Page page = LogLineIndex.readPage(reader, position, 1, StandardCharsets.UTF_8);
+      Assertions.assertEquals(1801, page.getFirstLine());
+      Assertions.assertEquals(line(1800), page.getLines().get(0));
+
+      Assertions.assertEquals(file.length(),
+          index.findTime(reader, LocalDateTime.of(2021, 1, 1, 0, 0)).getOffset());
+      Assertions.assertEquals(0,
+          index.findTime(reader, LocalDateTime.of(2019, 1, 1, 0, 0)).getOffset());
+    }
+  }
+
+  /**
+   * Appending extends the index, a line being indexed once terminated, and truncating rebuilds it.
+   *
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  @Test
+  void updateIncrementally() throws IOException {
+    File file = new File(tempDir, "app.log");
+    append(file, 0, 1000);
+    try (LogReader reader = new FileLogReader(file)) {
+      LogLineIndex index = LogLineIndex.forFile(file, reader, null);
+      Assertions.assertEquals(1000, index.getLineCount());
+    }
+
+    append(file, 1000, 1000);
+    Files.write(file.toPath(), "not terminated".getBytes(StandardCharsets.UTF_8),
+        StandardOpenOption.APPEND);
+    try (LogReader reader = new FileLogReader(file)) {
+      LogLineIndex index = LogLineIndex.forFile(file, reader, null);
+      Assertions.assertEquals(2000, index.getLineCount());
+      LogLineIndex.Page page =
+          LogLineIndex.readPage(reader, index.findLine(reader, 1999), 10, StandardCharsets.UTF_8);
+      Assertions.assertEquals(3, page.getLines().size());
+      Assertions.assertEquals(line(1999), page.getLines().get(1));
+      Assertions.assertEquals("not terminated", page.getLines().get(2));
+    }
+
+    Files.write(file.toPath(), new byte[0], StandardOpenOption.TRUNCATE_EXISTING);
+    append(file, 0, 10);
+    try (LogReader reader = new FileLogReader(file)) {
+      LogLineIndex index = LogLineIndex.forFile(file, reader, null);
+      Assertions.assertEquals(10, index.getLineCount());
+      Assertions.assertEquals(1, index.getCheckpointCount());
+    }
+  }
+
+  /**
+   * Appends lines to a file.
+   *
+   * @param file the file
+   * @param from the index of the first line
+   * @param count the number of lines
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  private static void append(File file, int from, int count) throws IOException {
+    StringBuilder lines = new StringBuilder();
+    for (int i = from; i < from + count; i++) {
+      lines.append(line(i)).append('\n');
+    }
+    Files.write(file.toPath(), lines.toString().getBytes(StandardCharsets.UTF_8),
+        StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+  }
+
+  /**
+   * Gets a line, the line i being logged at 10:00:00 plus i seconds; the last three lines of every
+   * minute are stack trace lines, without timestamp.
+   *
+   * @param i the index of the line
+   * @return the line
+   */
+  private static String line(int i) {
+    if (i % 60 >= 57) {
+      return "\tat psiprobe.Example.method(Example.java:" + i + ")";
+    }
+    return String.format("2020-01-31 %02d:%02d:%02d,000 INFO  [main] line %d", 10 + i / 3600,
+        i / 60 % 60, i % 60, i);
+  }
+
+}
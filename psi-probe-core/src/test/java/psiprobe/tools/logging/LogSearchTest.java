@@ -0,0 +1,180 @@
+/*
+ * Licensed under the GPL License. You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   https://www.gnu.org/licenses/old-licenses/gpl-2.0.html
+ *
+ * THIS PACKAGE IS PROVIDED "AS IS" AND WITHOUT ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING,
+ * WITHOUT LIMITATION, THE IMPLIED WARRANTIES OF MERCHANTIBILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE.
+ */
+package psiprobe.tools.logging;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.regex.Pattern;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * The Class LogSearchTest.
+ */
+class LogSearchTest {
+
+  /** The temp dir. */
+  @TempDir
+  File tempDir;
+
+  /** The executor. */
+  ExecutorService executor;
+
+  /** The log file. */
+  File file;
+
+  /**
+   * Setup.
+   *
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  @BeforeEach
+  void setup() throws IOException {
+    executor = Executors.newFixedThreadPool(2);
+    file = write("app.log",
+        "2020-01-31 10:00:00,000 INFO start\n"
+            + "2020-01-31 11:00:00,000 ERROR failed\n"
+            + "\tat Foo.bar(Foo.java:1)\n"
+            + "2020-01-31 12:00:00,000 INFO running\n"
+            + "2020-01-31 13:00:00,000 ERROR failed again\n"
+            + "2020-01-31 14:00:00,000 INFO stop\n");
+  }
+
+  /**
+   * Tear down.
+   */
+  @AfterEach
+  void tearDown() {
+    executor.shutdownNow();
+  }
+
+  /**
+   * Matching lines are written with their context, grep style.
+   *
+   * @throws Exception the exception
+   */
+  @Test
+  void context() throws Exception {
+    LogSearch search = new LogSearch(Pattern.compile("ERROR", Pattern.LITERAL));
+    search.setContextLines(1);
+    String out = search(search, file);
+    Assertions.assertEquals("app.log-1-2020-01-31 10:00:00,000 INFO start\n"
+        + "app.log:2:2020-01-31 11:00:00,000 ERROR failed\n"
+        + "app.log-3-\tat Foo.bar(Foo.java:1)\n"
+        + "--\n"
+        + "app.log-4-2020-01-31 12:00:00,000 INFO running\n"
+        + "app.log:5:2020-01-31 13:00:00,000 ERROR failed again\n"
+        + "app.log-6-2020-01-31 14:00:00,000 INFO stop\n"
+        + "--\n", out);
+    Assertions.assertEquals(2, search.getMatchCount());
+    Assertions.assertFalse(search.isLimitReached());
+  }
+
+  /**
+   * Lines out of the time range are not matched, continuation lines going with their entry.
+   *
+   * @throws Exception the exception
+   */
+  @Test
+  void timeRange() throws Exception {
+    LogSearch search = new LogSearch(Pattern.compile("Foo|again"));
+    search.setContextLines(0);
+    search.setTimestampFormat(
+        LogTimestampFormat.forConversionPattern("%d{yyyy-MM-dd HH:mm:ss,SSS} %-5p %m%n"));
+    search.setTimeRange(LocalDateTime.of(2020, 1, 31, 10, 30), LocalDateTime.of(2020, 1, 31, 12, 0));
+    Assertions.assertEquals("app.log:3:\tat Foo.bar(Foo.java:1)\n--\n", search(search, file));
+
+    // detected from the file
+    search = new LogSearch(Pattern.compile("Foo|again"));
+    search.setContextLines(0);
+    search.setTimeRange(LocalDateTime.of(2020, 1, 31, 12, 30), null);
+    Assertions.assertEquals("app.log:5:2020-01-31 13:00:00,000 ERROR failed again\n--\n",
+        search(search, file));
+  }
+
+  /**
+   * The search stops at the maximum number of matches, across files.
+   *
+   * @throws Exception the exception
+   */
+  @Test
+  void maxMatches() throws Exception {
+    File rotated = write("app.log.1", "2020-01-30 10:00:00,000 INFO start\n");
+    LogSearch search = new LogSearch(Pattern.compile("INFO", Pattern.LITERAL));
+    search.setContextLines(0);
+    search.setMaxMatches(2);
+    StringWriter out = new StringWriter();
+    Assertions.assertEquals(2,
+        search.search(Arrays.asList(file, rotated), executor, new PrintWriter(out)));
+    Assertions.assertTrue(search.isLimitReached());
+    Assertions.assertEquals(2, out.toString().split("INFO").length - 1);
+  }
+
+  /**
+   * Rotated files are found next to the log file.
+   *
+   * @throws Exception the exception
+   */
+  @Test
+  void rotatedFiles() throws Exception {
+    write("app.log.1", "");
+    write("app.log.2020-01-30", "");
+    write("other.log", "");
+    Assertions.assertEquals(3, LogFiles.withRotatedFiles(file).size());
+
+    File daily = write("localhost.2020-01-31.log", "");
+    write("localhost.2020-01-30.log", "");
+    write("catalina.2020-01-30.log", "");
+    Assertions.assertEquals(Arrays.asList(new File(tempDir, "localhost.2020-01-30.log")),
+        LogFiles.findRotatedFiles(daily));
+  }
+
+  /**
+   * Searches a file.
+   *
+   * @param search the search
+   * @param file the file
+   * @return the output
+   * @throws InterruptedException the interrupted exception
+   */
+  private String search(LogSearch search, File file) throws InterruptedException {
+    StringWriter out = new StringWriter();
+    search.search(Arrays.asList(file), executor, new PrintWriter(out));
+    return out.toString();
+  }
+
+  /**
+   * Writes a file.
+   *
+   * @param name the name
+   * @param content the content
+   * @return the file
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  private File write(String name, String content) throws IOException {
+    File log = new File(tempDir, name);
+    Files.write(log.toPath(), content.getBytes(StandardCharsets.UTF_8));
+    return log;
+  }
+
+}
@@ -0,0 +1,89 @@
+/*
+ * Licensed under the GPL License. You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   https://www.gnu.org/licenses/old-licenses/gpl-2.0.html
+ *
+ * THIS PACKAGE IS PROVIDED "AS IS" AND WITHOUT ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING,
+ * WITHOUT LIMITATION, THE IMPLIED WARRANTIES OF MERCHANTIBILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE.
+ */
+package psiprobe.tools.logging;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * The Class LogTimestampFormatTest.
+ */
+class LogTimestampFormatTest {
+
+  /**
+   * Timestamps laid out by a conversion pattern are read as sortable keys.
+   */
+  @Test
+  void conversionPattern() {
+    LogTimestampFormat format =
+        LogTimestampFormat.forConversionPattern("[%d{yyyy-MM-dd HH:mm:ss.SSS}] %-5p %c - %m%n");
+    Assertions.assertNotNull(format);
+    long key = format.parse("[2020-01-31 13:45:10.250] INFO  foo - bar");
+    Assertions.assertEquals(format.toKey(LocalDateTime.of(2020, 1, 31, 13, 45, 10, 250000000)),
+        key);
+    Assertions.assertTrue(key < format.parse("[2020-02-01 00:00:00.000] INFO  foo - bar"));
+    Assertions.assertEquals(-1, format.parse("\tat foo.Bar.baz(Bar.java:12)"));
+    Assertions.assertEquals(-1, format.parse("[2020-01-31"));
+  }
+
+  /**
+   * Named date options and the default option.
+   */
+  @Test
+  void namedOptions() {
+    Assertions.assertTrue(LogTimestampFormat.forConversionPattern("%d %m%n")
+        .parse("2020-01-31 13:45:10,250 message") >= 0);
+    Assertions.assertTrue(LogTimestampFormat.forConversionPattern("%date{ISO8601} %m%n")
+        .parse("2020-01-31 13:45:10,250 message") >= 0);
+    Assertions.assertTrue(LogTimestampFormat.forConversionPattern("%d{DATE} %m%n")
+        .parse("31 Jan 2020 13:45:10,250 message") >= 0);
+    Assertions.assertNull(LogTimestampFormat.forConversionPattern("%d{ABSOLUTE} %m%n"));
+  }
+
+  /**
+   * Patterns whose timestamp is not at a fixed offset, or without a date, are not supported.
+   */
+  @Test
+  void unsupportedPatterns() {
+    Assertions.assertNull(LogTimestampFormat.forConversionPattern(null));
+    Assertions.assertNull(LogTimestampFormat.forConversionPattern("%-5p %d %m%n"));
+    Assertions.assertNull(LogTimestampFormat.forConversionPattern("%m%n"));
+    Assertions.assertNull(LogTimestampFormat.forConversionPattern("%d{HH:mm:ss} %m%n"));
+    Assertions.assertNull(LogTimestampFormat.forConversionPattern("%d{d MMMM yyyy} %m%n"));
+  }
+
+  /**
+   * The format of Tomcat log lines is detected.
+   */
+  @Test
+  void detect() {
+    LogTimestampFormat format = LogTimestampFormat.detect(Arrays.asList("",
+        "31-Jan-2020 13:45:10.250 INFO [main] org.apache.catalina.startup.Catalina.start"));
+    Assertions.assertNotNull(format);
+    Assertions.assertEquals(format.toKey(LocalDateTime.of(2020, 1, 31, 13, 45, 10, 250000000)),
+        format.parse("31-Jan-2020 13:45:10.250 INFO [main]"));
+    Assertions.assertNull(LogTimestampFormat.detect(Arrays.asList("no", "timestamp")));
+  }
+
+  /**
+   * Keys of times are truncated to the precision of the timestamps.
+   */
+  @Test
+  void keyPrecision() {
+    LogTimestampFormat format = LogTimestampFormat.forDatePattern("", "yyyy-MM-dd HH:mm");
+    Assertions.assertEquals(format.parse("2020-01-31 13:45"),
+        format.toKey(LocalDateTime.of(2020, 1, 31, 13, 45, 59)));
+  }
+
+}
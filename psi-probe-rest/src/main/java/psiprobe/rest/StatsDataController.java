@@ -0,0 +1,186 @@
+/*
+ * Licensed under the GPL License. You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   https://www.gnu.org/licenses/old-licenses/gpl-2.0.html
+ *
+ * THIS PACKAGE IS PROVIDED "AS IS" AND WITHOUT ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING,
+ * WITHOUT LIMITATION, THE IMPLIED WARRANTIES OF MERCHANTIBILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE.
+ */
+package psiprobe.rest;
+
+import java.io.PrintWriter;
+import java.util.Map;
+import java.util.TreeMap;
+
+import javax.inject.Inject;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.commons.text.StringEscapeUtils;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.ServletRequestUtils;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.servlet.ModelAndView;
+import org.springframework.web.servlet.mvc.AbstractController;
+
+import psiprobe.model.stats.StatsCollection;
+import psiprobe.model.stats.StatsSeries;
+
+/**
+ * Serves series of the "statsCollection" bean as JSON, for charts rendered by the browser. It is
+ * customizable using these request parameters:
+ * <ul>
+ * <li>name - name of a series, may be repeated</li>
+ * <li>prefix - prefix of the names of the series, e.g. "app.requests."</li>
+ * <li>since - only samples collected after this time in milliseconds are served, typically the
+ * last time of the previous response</li>
+ * </ul>
+ *
+ * <p>
+ * Series are written column by column as they are read, so the response is streamed without being
+ * built in memory:
+ * </p>
+ *
+ * <pre>
+ * {"time":1600000060000,"series":[{"name":"app.requests.probe","t":[1600000030000,1600000060000],
+ * "v":[12,15]}]}
+ * </pre>
+ */
+@Controller
+public class StatsDataController extends AbstractController {
+
+  /** The stats collection. */
+  @Inject
+  private StatsCollection statsCollection;
+
+  /**
+   * Gets the stats collection.
+   *
+   * @return the stats collection
+   */
+  public StatsCollection getStatsCollection() {
+    return statsCollection;
+  }
+
+  /**
+   * Sets the stats collection.
+   *
+   * @param statsCollection the new stats collection
+   */
+  public void setStatsCollection(StatsCollection statsCollection) {
+    this.statsCollection = statsCollection;
+  }
+
+  @RequestMapping(path = "/stats")
+  @Override
+  public ModelAndView handleRequest(HttpServletRequest request, HttpServletResponse response)
+      throws Exception {
+    return super.handleRequest(request, response);
+  }
+
+  @Override
+  protected ModelAndView handleRequestInternal(HttpServletRequest request,
+      HttpServletResponse response) throws Exception {
+
+    String[] names = ServletRequestUtils.getStringParameters(request, "name");
+    String prefix = ServletRequestUtils.getStringParameter(request, "prefix", null);
+    long since = ServletRequestUtils.getLongParameter(request, "since", Long.MIN_VALUE);
+
+    if (names.length == 0 && prefix == null) {
+      response.sendError(HttpServletResponse.SC_BAD_REQUEST, "name or prefix is required");
+      return null;
+    }
+
+    Map<String, StatsSeries> selected = new TreeMap<>();
+    if (prefix != null) {
+      selected.putAll(statsCollection.getStatsByPrefix(prefix));
+    }
+    for (String name : names) {
+      StatsSeries stats = statsCollection.getStats(name);
+      if (stats != null) {
+        selected.put(name, stats);
+      }
+    }
+
+    response.setContentType("application/json;charset=UTF-8");
+    response.setHeader("Cache-Control", "no-cache");
+    PrintWriter out = response.getWriter();
+    out.write("{\"time\":");
+    out.print(System.currentTimeMillis());
+    out.write(",\"series\":[");
+    boolean first = true;
+    for (Map.Entry<String, StatsSeries> entry : selected.entrySet()) {
+      if (!first) {
+        out.write(',');
+      }
+      first = false;
+      writeSeries(out, entry.getKey(), entry.getValue(), since);
+    }
+    out.write("]}");
+    out.flush();
+    return null;
+  }
+
+  /**
+   * Writes the samples of a series collected after a given time. The samples are copied while the
+   * series is locked and written afterwards, so that a slow client never holds up collectors.
+   *
+   * @param out the writer
+   * @param name the name
+   * @param stats the stats
+   * @param since the time samples must be collected after
+   */
+  private static void writeSeries(PrintWriter out, String name, StatsSeries stats, long since) {
+    long[] times;
+    double[] values;
+    synchronized (stats) {
+      int from = stats.size();
+      while (from > 0 && stats.getTime(from - 1) > since) {
+        from--;
+      }
+      times = new long[stats.size() - from];
+      values = new double[times.length];
+      for (int i = 0; i < times.length; i++) {
+        times[i] = stats.getTime(from + i);
+        values[i] = stats.getValue(from + i);
+      }
+    }
+
+    out.write("{\"name\":\"");
+    out.write(StringEscapeUtils.escapeJson(name));
+    out.write("\",\"t\":[");
+    for (int i = 0; i < times.length; i++) {
+      if (i > 0) {
+        out.write(',');
+      }
+      out.print(times[i]);
+    }
+    out.write("],\"v\":[");
+    for (int i = 0; i < values.length; i++) {
+      if (i > 0) {
+        out.write(',');
+      }
+      writeValue(out, values[i]);
+    }
+    out.write("]}");
+  }
+
+  /**
+   * Writes a value, integral values without a fraction and values JSON cannot represent as null.
+   *
+   * @param out the writer
+   * @param value the value
+   */
+  private static void writeValue(PrintWriter out, double value) {
+    if (Double.isNaN(value) || Double.isInfinite(value)) {
+      out.write("null");
+    } else if (value == (long) value) {
+      out.print((long) value);
+    } else {
+      out.print(value);
+    }
+  }
+
+}
@@ -0,0 +1,93 @@
+/*
+ * Licensed under the GPL License. You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   https://www.gnu.org/licenses/old-licenses/gpl-2.0.html
+ *
+ * THIS PACKAGE IS PROVIDED "AS IS" AND WITHOUT ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING,
+ * WITHOUT LIMITATION, THE IMPLIED WARRANTIES OF MERCHANTIBILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE.
+ */
+package psiprobe.rest;
+
+import com.codebox.bean.JavaBeanTester;
+
+import javax.servlet.http.HttpServletResponse;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import psiprobe.model.stats.StatsCollection;
+import psiprobe.model.stats.StatsSeries;
+
+/**
+ * The Class StatsDataControllerTest.
+ */
+class StatsDataControllerTest {
+
+  /**
+   * Javabean tester.
+   */
+  @Test
+  void javabeanTester() {
+    JavaBeanTester.builder(StatsDataController.class)
+        .skip("applicationContext", "supportedMethods").test();
+  }
+
+  /**
+   * Test that series are served by name and prefix, incrementally with since.
+   *
+   * @throws Exception the exception
+   */
+  @Test
+  void stats() throws Exception {
+    StatsCollection statsCollection = new StatsCollection();
+    StatsSeries requests = statsCollection.newStats("app.requests.probe", 10);
+    requests.add(1000, 1);
+    requests.add(2000, 2.5);
+    requests.add(3000, Double.NaN);
+    statsCollection.newStats("app.requests.\"other\"", 10).add(1000, 7);
+    statsCollection.newStats("memory.pool.Eden", 10).add(1000, 3);
+
+    StatsDataController controller = new StatsDataController();
+    controller.setStatsCollection(statsCollection);
+
+    MockHttpServletRequest request = new MockHttpServletRequest("GET", "/rest/stats");
+    request.setParameter("prefix", "app.requests.");
+    request.setParameter("since", "1000");
+    String json = get(controller, request).getContentAsString();
+    Assertions.assertTrue(json.startsWith("{\"time\":"));
+    Assertions.assertTrue(json.endsWith(",\"series\":["
+        + "{\"name\":\"app.requests.\\\"other\\\"\",\"t\":[],\"v\":[]},"
+        + "{\"name\":\"app.requests.probe\",\"t\":[2000,3000],\"v\":[2.5,null]}]}"), json);
+
+    request = new MockHttpServletRequest("GET", "/rest/stats");
+    request.addParameter("name", "memory.pool.Eden", "missing");
+    json = get(controller, request).getContentAsString();
+    Assertions.assertTrue(
+        json.endsWith("\"series\":[{\"name\":\"memory.pool.Eden\",\"t\":[1000],\"v\":[3]}]}"),
+        json);
+
+    MockHttpServletResponse response =
+        get(controller, new MockHttpServletRequest("GET", "/rest/stats"));
+    Assertions.assertEquals(HttpServletResponse.SC_BAD_REQUEST, response.getStatus());
+  }
+
+  /**
+   * Gets a response.
+   *
+   * @param controller the controller
+   * @param request the request
+   * @return the response
+   * @throws Exception the exception
+   */
+  private static MockHttpServletResponse get(StatsDataController controller,
+      MockHttpServletRequest request) throws Exception {
+    MockHttpServletResponse response = new MockHttpServletResponse();
+    controller.handleRequest(request, response);
+    return response;
+  }
+
+}
@@ -15,7 +15,7 @@
 <%@ taglib uri="https://github.com/psi-probe/psi-probe/jsp/tags" prefix="probe" %>
 
 <p>
-	<spring:message code="probe.jsp.followed_file_info.fileName"/>&#160;<span class="value">${log.file.absolutePath}</span>
-	<spring:message code="probe.jsp.followed_file_info.size"/>&#160;<span class="value"><probe:volume value="${log.size}"/></span>
-	<spring:message code="probe.jsp.followed_file_info.lastModified"/>&#160;<span class="value">${log.lastModified}</span>
+	<spring:message code="probe.jsp.followed_file_info.fileName"/>&#160;<span class="value">${file.absolutePath}</span>
+	<spring:message code="probe.jsp.followed_file_info.size"/>&#160;<span class="value"><probe:volume value="${size}"/></span>
+	<spring:message code="probe.jsp.followed_file_info.lastModified"/>&#160;<span class="value">${lastModified}</span>
 </p>
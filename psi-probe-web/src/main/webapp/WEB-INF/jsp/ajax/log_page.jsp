@@ -0,0 +1,35 @@
+<%--
+
+    Licensed under the GPL License. You may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+      https://www.gnu.org/licenses/old-licenses/gpl-2.0.html
+
+    THIS PACKAGE IS PROVIDED "AS IS" AND WITHOUT ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING,
+    WITHOUT LIMITATION, THE IMPLIED WARRANTIES OF MERCHANTIBILITY AND FITNESS FOR A PARTICULAR
+    PURPOSE.
+
+--%>
+<%@ page contentType="text/html;charset=UTF-8" language="java" session="false"%>
+<%@ taglib uri="http://java.sun.com/jsp/jstl/core" prefix="c" %>
+<%@ taglib uri="http://java.sun.com/jsp/jstl/functions" prefix="fn" %>
+<%@ taglib uri="http://www.springframework.org/tags" prefix="spring" %>
+
+<%-- An AJAX HTML bit, representing a page of log file lines. --%>
+<c:choose>
+	<c:when test="${timeUnsupported}">
+		<div class="pageInfo">
+			<spring:message code="probe.jsp.follow.page.timeUnsupported"/>
+		</div>
+	</c:when>
+	<c:otherwise>
+		<div id="pageInfo" class="pageInfo" data-first-line="${page.firstLine}"
+				data-line-count="${lineCount}" data-page-size="${pageSize}">
+			<spring:message code="probe.jsp.follow.page.info"
+					arguments="${page.firstLine},${page.firstLine + fn:length(page.lines) - 1},${lineCount}"/>
+		</div>
+		<c:forEach items="${page.lines}" var="line">
+			<div class="line"><c:out value="${line}" escapeXml="true" /></div>
+		</c:forEach>
+	</c:otherwise>
+</c:choose>
@@ -33,6 +33,8 @@
 		<div id="charts" class="embeddedBlockContainer">
 			<h3><spring:message code="probe.jsp.allappstats.h3.charts"/></h3>
 
+			<%@ include file="charttimewindow.jspf" %>
+
 			<c:set var="chartWidth" value="345"/>
 			<c:set var="chartHeight" value="250"/>
 			<c:set var="fullChartWidth" value="700"/>
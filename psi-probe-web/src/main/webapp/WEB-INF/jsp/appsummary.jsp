@@ -144,6 +144,8 @@
 					<div id="charts" class="embeddedBlockContainer">
 						<h3><spring:message code="probe.jsp.app.summary.h3.charts"/></h3>
 
+						<%@ include file="charttimewindow.jspf" %>
+
 						<c:set var="chartWidth" value="345"/>
 						<c:set var="chartHeight" value="250"/>
 						<c:set var="fullChartWidth" value="700"/>
@@ -192,6 +194,98 @@
 							</c:param>
 						</c:url>
 
+						<c:url value="/chart.png" var="log_url">
+							<c:param name="p" value="app_log"/>
+							<c:param name="sp" value="${param.webapp}"/>
+							<c:param name="xz" value="${chartWidth}"/>
+							<c:param name="yz" value="${chartHeight}"/>
+							<c:param name="l" value="false"/>
+						</c:url>
+
+						<c:url value="/chart.png" var="log_url_full">
+							<c:param name="p" value="app_log"/>
+							<c:param name="sp" value="${param.webapp}"/>
+							<c:param name="xz" value="${fullChartWidth}"/>
+							<c:param name="yz" value="${fullChartHeight}"/>
+						</c:url>
+
+						<c:url value="/chart.png" var="sessions_url">
+							<c:param name="ct" value="line"/>
+							<c:param name="p" value="app_sessions"/>
+							<c:param name="sp" value="${param.webapp}"/>
+							<c:param name="xz" value="${chartWidth}"/>
+							<c:param name="yz" value="${chartHeight}"/>
+							<c:param name="l" value="false"/>
+						</c:url>
+
+						<c:url value="/chart.png" var="sessions_url_full">
+							<c:param name="ct" value="line"/>
+							<c:param name="p" value="app_sessions"/>
+							<c:param name="sp" value="${param.webapp}"/>
+							<c:param name="xz" value="${fullChartWidth}"/>
+							<c:param name="yz" value="${fullChartHeight}"/>
+							<c:param name="s1l">
+								<spring:message code="probe.jsp.app.summary.charts.sessions.active.legend"/>
+							</c:param>
+							<c:param name="s2l">
+								<spring:message code="probe.jsp.app.summary.charts.sessions.created.legend"/>
+							</c:param>
+							<c:param name="s3l">
+								<spring:message code="probe.jsp.app.summary.charts.sessions.expired.legend"/>
+							</c:param>
+						</c:url>
+
+						<c:url value="/chart.png" var="session_idle_url">
+							<c:param name="ct" value="stacked"/>
+							<c:param name="p" value="app_session_idle"/>
+							<c:param name="sp" value="${param.webapp}"/>
+							<c:param name="xz" value="${chartWidth}"/>
+							<c:param name="yz" value="${chartHeight}"/>
+							<c:param name="l" value="false"/>
+						</c:url>
+
+						<c:url value="/chart.png" var="session_idle_url_full">
+							<c:param name="ct" value="stacked"/>
+							<c:param name="p" value="app_session_idle"/>
+							<c:param name="sp" value="${param.webapp}"/>
+							<c:param name="xz" value="${fullChartWidth}"/>
+							<c:param name="yz" value="${fullChartHeight}"/>
+						</c:url>
+
+						<c:url value="/chart.png" var="session_age_url">
+							<c:param name="ct" value="stacked"/>
+							<c:param name="p" value="app_session_age"/>
+							<c:param name="sp" value="${param.webapp}"/>
+							<c:param name="xz" value="${chartWidth}"/>
+							<c:param name="yz" value="${chartHeight}"/>
+							<c:param name="l" value="false"/>
+						</c:url>
+
+						<c:url value="/chart.png" var="session_age_url_full">
+							<c:param name="ct" value="stacked"/>
+							<c:param name="p" value="app_session_age"/>
+							<c:param name="sp" value="${param.webapp}"/>
+							<c:param name="xz" value="${fullChartWidth}"/>
+							<c:param name="yz" value="${fullChartHeight}"/>
+						</c:url>
+
+						<c:url value="/chart.png" var="session_size_url">
+							<c:param name="ct" value="stacked"/>
+							<c:param name="p" value="app_session_size"/>
+							<c:param name="sp" value="${param.webapp}"/>
+							<c:param name="xz" value="${chartWidth}"/>
+							<c:param name="yz" value="${chartHeight}"/>
+							<c:param name="l" value="false"/>
+						</c:url>
+
+						<c:url value="/chart.png" var="session_size_url_full">
+							<c:param name="ct" value="stacked"/>
+							<c:param name="p" value="app_session_size"/>
+							<c:param name="sp" value="${param.webapp}"/>
+							<c:param name="xz" value="${fullChartWidth}"/>
+							<c:param name="yz" value="${fullChartHeight}"/>
+						</c:url>
+
 						<div id="chart_group">
 							<div class="chartContainer">
 								<dl>
@@ -216,6 +310,53 @@
 									</dd>
 								</dl>
 							</div>
+
+							<div class="chartContainer">
+								<dl>
+									<dt><spring:message code="probe.jsp.app.summary.charts.logLines.title"/></dt>
+									<dd class="image">
+										<img id="log_chart" border="0" src="${log_url}" width="${chartWidth}" height="${chartHeight}" alt="+"/>
+									</dd>
+								</dl>
+							</div>
+
+							<div class="chartContainer">
+								<dl>
+									<dt><spring:message code="probe.jsp.app.summary.charts.sessions.title"/></dt>
+									<dd class="image">
+										<img id="sessions_chart" border="0" src="${sessions_url}" width="${chartWidth}" height="${chartHeight}" alt="+"/>
+									</dd>
+								</dl>
+							</div>
+
+							<div class="chartContainer">
+								<dl>
+									<dt><spring:message code="probe.jsp.app.summary.charts.sessionIdle.title"/></dt>
+									<dd class="image">
+										<img id="session_idle_chart" border="0" src="${session_idle_url}" width="${chartWidth}" height="${chartHeight}" alt="+"/>
+									</dd>
+								</dl>
+							</div>
+
+							<div class="chartContainer">
+								<dl>
+									<dt><spring:message code="probe.jsp.app.summary.charts.sessionAge.title"/></dt>
+									<dd class="image">
+										<img id="session_age_chart" border="0" src="${session_age_url}" width="${chartWidth}" height="${chartHeight}" alt="+"/>
+									</dd>
+								</dl>
+							</div>
+
+							<c:if test="${sessionSizeStats}">
+								<div class="chartContainer">
+									<dl>
+										<dt><spring:message code="probe.jsp.app.summary.charts.sessionSize.title"/></dt>
+										<dd class="image">
+											<img id="session_size_chart" border="0" src="${session_size_url}" width="${chartWidth}" height="${chartHeight}" alt="+"/>
+										</dd>
+									</dl>
+								</div>
+							</c:if>
 						</div>
 
 						<div id="full_chart" class="chartContainer" style="display: none;">
@@ -273,6 +414,31 @@
 									zoomIn('${avg_proc_time_url_full}', '<spring:message code="probe.jsp.app.summary.charts.avgProcTime.title"/>');
 								}
 							},
+							'#log_chart': function(element) {
+								element.onclick = function() {
+									zoomIn('${log_url_full}', '<spring:message code="probe.jsp.app.summary.charts.logLines.title"/>');
+								}
+							},
+							'#sessions_chart': function(element) {
+								element.onclick = function() {
+									zoomIn('${sessions_url_full}', '<spring:message code="probe.jsp.app.summary.charts.sessions.title"/>');
+								}
+							},
+							'#session_idle_chart': function(element) {
+								element.onclick = function() {
+									zoomIn('${session_idle_url_full}', '<spring:message code="probe.jsp.app.summary.charts.sessionIdle.title"/>');
+								}
+							},
+							'#session_age_chart': function(element) {
+								element.onclick = function() {
+									zoomIn('${session_age_url_full}', '<spring:message code="probe.jsp.app.summary.charts.sessionAge.title"/>');
+								}
+							},
+							'#session_size_chart': function(element) {
+								element.onclick = function() {
+									zoomIn('${session_size_url_full}', '<spring:message code="probe.jsp.app.summary.charts.sessionSize.title"/>');
+								}
+							},
 							'#full_chart': function(element) {
 								element.onclick = function() {
 									zoomOut();
@@ -284,6 +450,13 @@
 
 						imageUpdaters[0] = new Ajax.ImgUpdater('req_chart', '${probe:max(collectionPeriod, 5)}');
 						imageUpdaters[1] = new Ajax.ImgUpdater('avg_proc_time_chart', '${probe:max(collectionPeriod, 5)}');
+						imageUpdaters[2] = new Ajax.ImgUpdater('log_chart', '${probe:max(collectionPeriod, 5)}');
+						imageUpdaters[3] = new Ajax.ImgUpdater('sessions_chart', '${probe:max(collectionPeriod, 5)}');
+						imageUpdaters[4] = new Ajax.ImgUpdater('session_idle_chart', '${probe:max(collectionPeriod, 5)}');
+						imageUpdaters[5] = new Ajax.ImgUpdater('session_age_chart', '${probe:max(collectionPeriod, 5)}');
+						<c:if test="${sessionSizeStats}">
+							imageUpdaters[6] = new Ajax.ImgUpdater('session_size_chart', '${probe:max(collectionPeriod, 5)}');
+						</c:if>
 						new Ajax.PeriodicalUpdater('dd-req', '<c:url value="/appreqdetails.ajax"><c:param name="webapp" value="${app.name}" /></c:url>', {method:'get', frequency: 3});
 						new Ajax.PeriodicalUpdater('dd-proc_time', '<c:url value="/appprocdetails.ajax"><c:param name="webapp" value="${app.name}" /></c:url>', {method:'get', frequency: 3});
 					</script>
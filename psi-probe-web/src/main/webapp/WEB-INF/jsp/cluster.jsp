@@ -98,6 +98,8 @@
 						</div>
 					</div>
 
+					<%@ include file="charttimewindow.jspf" %>
+
 					<div>
 						<div class="chartContainer">
 							<dl>
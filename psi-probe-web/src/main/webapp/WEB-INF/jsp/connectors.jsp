@@ -51,6 +51,8 @@
 			</div>
 
 
+			<%@ include file="charttimewindow.jspf" %>
+
 			<c:forEach items="${connectors}" var="connector">
 
 				<c:set var="protocolHandler" value="${connector.protocolHandler}" />
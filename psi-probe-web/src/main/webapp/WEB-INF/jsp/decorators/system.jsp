@@ -50,6 +50,11 @@
 				<spring:message code="probe.jsp.decorator.system.wrapper"/>
 			</a>
 		</li>
+		<li>
+			<a class="${systemTabOverhead}" href="<c:url value='/overhead.htm'/>">
+				<spring:message code="probe.jsp.decorator.system.overhead"/>
+			</a>
+		</li>
 		<li>
 			<a class="${systemTabTrustStore}" href="<c:url value='/truststore.htm'/>">
 				<spring:message code="probe.jsp.decorator.system.truststore"/>
@@ -95,6 +95,9 @@
 					<c:if test="${log.index != null}">
 						<c:param name="logIndex" value="${log.index}"/>
 					</c:if>
+					<c:if test="${not empty param.rotatedFile}">
+						<c:param name="rotatedFile" value="${param.rotatedFile}"/>
+					</c:if>
 				</c:url>
 				<a href="${downloadUrl}">
 					<spring:message code="probe.jsp.follow.menu.download"/>
@@ -106,6 +109,39 @@
 		<div class="blockContainer">
 			<h3><spring:message code="probe.jsp.follow.h3.fileInfo"/></h3>
 
+			<c:if test="${not empty rotatedFiles}">
+				<form action="<c:url value='/logs/follow.htm'/>" method="get" id="rotatedFileForm">
+					<input type="hidden" name="logType" value="<c:out value='${log.logType}'/>"/>
+					<c:if test="${log.application != null}">
+						<input type="hidden" name="webapp" value="<c:out value='${log.application.name}'/>"/>
+						<c:if test="${log.context}">
+							<input type="hidden" name="context" value="${log.context}"/>
+						</c:if>
+					</c:if>
+					<c:if test="${!log.context || log.logType == 'log4j2'}">
+						<c:choose>
+							<c:when test="${log.root}">
+								<input type="hidden" name="root" value="${log.root}"/>
+							</c:when>
+							<c:otherwise>
+								<input type="hidden" name="logName" value="<c:out value='${log.name}'/>"/>
+							</c:otherwise>
+						</c:choose>
+					</c:if>
+					<c:if test="${log.index != null}">
+						<input type="hidden" name="logIndex" value="<c:out value='${log.index}'/>"/>
+					</c:if>
+					<label><spring:message code="probe.jsp.follow.rotatedFile"/>
+						<select name="rotatedFile" onchange="this.form.submit();">
+							<option value=""><spring:message code="probe.jsp.follow.rotatedFile.current"/></option>
+							<c:forEach items="${rotatedFiles}" var="rotatedFile">
+								<option value="<c:out value='${rotatedFile.name}'/>" ${rotatedFile.name == param.rotatedFile ? 'selected="selected"' : ''}><c:out value="${rotatedFile.name}"/></option>
+							</c:forEach>
+						</select>
+					</label>
+				</form>
+			</c:if>
+
 			<div class="shadow">
 				<div id="info" class="info">
 					<div class="ajax_activity"></div>
@@ -120,6 +156,91 @@
 				</div>
 			</div>
 
+			<form action="#" id="pageForm">
+				<label><spring:message code="probe.jsp.follow.page.line"/>
+					<input id="pageLine" type="text" class="txtInput" size="10"/></label>
+				<label><spring:message code="probe.jsp.follow.page.time"/>
+					<input id="pageTime" type="text" class="txtInput" size="20" placeholder="yyyy-MM-dd HH:mm:ss"/></label>
+				<input type="submit" value="<spring:message code='probe.jsp.follow.page.submit'/>"/>
+				<a href="#" id="previousPage"><spring:message code="probe.jsp.follow.page.previous"/></a>
+				<a href="#" id="nextPage"><spring:message code="probe.jsp.follow.page.next"/></a>
+			</form>
+
+			<h3><spring:message code="probe.jsp.follow.h3.search"/></h3>
+
+			<form action="<c:url value='/logs/search'/>" method="get" target="_blank" id="searchForm">
+				<input type="hidden" name="logType" value="<c:out value='${log.logType}'/>"/>
+				<c:if test="${log.application != null}">
+					<input type="hidden" name="webapp" value="<c:out value='${log.application.name}'/>"/>
+					<c:if test="${log.context}">
+						<input type="hidden" name="context" value="${log.context}"/>
+					</c:if>
+				</c:if>
+				<c:if test="${!log.context || log.logType == 'log4j2'}">
+					<c:choose>
+						<c:when test="${log.root}">
+							<input type="hidden" name="root" value="${log.root}"/>
+						</c:when>
+						<c:otherwise>
+							<input type="hidden" name="logName" value="<c:out value='${log.name}'/>"/>
+						</c:otherwise>
+					</c:choose>
+				</c:if>
+				<c:if test="${log.index != null}">
+					<input type="hidden" name="logIndex" value="<c:out value='${log.index}'/>"/>
+				</c:if>
+				<table id="searchFormTable">
+					<tr>
+						<td class="labelCell">
+							<spring:message code="probe.jsp.follow.search.text"/>
+						</td>
+						<td class="inputCell" colspan="3">
+							<input name="q" type="text" class="txtInput" size="60"/>
+							<label><input name="regex" type="checkbox" value="true"/>
+								<spring:message code="probe.jsp.follow.search.regex"/></label>
+							<label><input name="ignoreCase" type="checkbox" value="true"/>
+								<spring:message code="probe.jsp.follow.search.ignoreCase"/></label>
+						</td>
+					</tr>
+					<tr>
+						<td class="labelCell">
+							<spring:message code="probe.jsp.follow.search.from"/>
+						</td>
+						<td class="inputCell">
+							<input name="from" type="text" class="txtInput" size="20" placeholder="yyyy-MM-dd HH:mm:ss"/>
+						</td>
+						<td class="labelCell">
+							<spring:message code="probe.jsp.follow.search.to"/>
+						</td>
+						<td class="inputCell">
+							<input name="to" type="text" class="txtInput" size="20" placeholder="yyyy-MM-dd HH:mm:ss"/>
+						</td>
+					</tr>
+					<tr>
+						<td class="labelCell">
+							<spring:message code="probe.jsp.follow.search.contextLines"/>
+						</td>
+						<td class="inputCell">
+							<input name="contextLines" type="text" class="txtInput" size="5" value="2"/>
+						</td>
+						<td class="labelCell">
+							<spring:message code="probe.jsp.follow.search.maxMatches"/>
+						</td>
+						<td class="inputCell">
+							<input name="maxMatches" type="text" class="txtInput" size="5" value="1000"/>
+						</td>
+					</tr>
+					<tr>
+						<td class="labelCell"></td>
+						<td class="inputCell" colspan="3">
+							<label><input name="rotated" type="checkbox" value="true"/>
+								<spring:message code="probe.jsp.follow.search.rotated"/></label>
+							<input type="submit" value="<spring:message code='probe.jsp.follow.search.submit'/>"/>
+						</td>
+					</tr>
+				</table>
+			</form>
+
 			<h3><spring:message code="probe.jsp.follow.h3.sources"/></h3>
 
 			<display:table name="sources" class="genericTbl" style="border-spacing:0;border-collapse:separate;" uid="logsource" requestURI="">
@@ -220,13 +341,18 @@
 			var initialLines = 250;
 			var lastLogSize = -1;
 			var logSizeRegex = /<span title="(\d*)">/;
+			var rotatedFile = '${probe:escapeJS(param.rotatedFile)}';
+			// rotated files do not grow, they are read once rather than streamed
+			var streaming = !!window.EventSource && rotatedFile == '';
+			var eventSource = null;
+			var lastEventId = undefined;
 
 			function logSize(responseText) {
 				var captures = logSizeRegex.exec(responseText);
 				return captures.length > 1 ? captures[1] : lastLogSize;
 			}
 
-			var infoUpdater = new Ajax.PeriodicalUpdater('info', '<c:url value="/logs/ff_info.ajax"/>', {
+			var infoOptions = {
 				method:'get',
 				parameters: {
 					logType: '${probe:escapeJS(log.logType)}',
@@ -234,11 +360,12 @@
 					context: '${log.context}',
 					root: '${log.root}',
 					logName: '${probe:escapeJS(log.name)}',
-					logIndex: '${probe:escapeJS(log.index)}'
+					logIndex: '${probe:escapeJS(log.index)}',
+					rotatedFile: rotatedFile
 				},
 				frequency: 3,
 				onSuccess: function(response) {
-					if (tailingEnabled) {
+					if (tailingEnabled && !streaming) {
 						var currentLogSize = logSize(response.responseText);
 						if (lastLogSize != currentLogSize) {
 							followLog(currentLogSize);
@@ -246,7 +373,11 @@
 						}
 					}
 				}
-			});
+			};
+			// rotated files do not change, their info is read once rather than polled
+			var infoUpdater = rotatedFile == ''
+					? new Ajax.PeriodicalUpdater('info', '<c:url value="/logs/ff_info.ajax"/>', infoOptions)
+					: new Ajax.Updater('info', '<c:url value="/logs/ff_info.ajax"/>', infoOptions);
 
 			function followLog(currentLogSize) {
 				new Ajax.Updater(file_content_div, '<c:url value="/logs/follow.ajax"/>', {
@@ -258,6 +389,7 @@
 						root: '${log.root}',
 						logName: '${probe:escapeJS(log.name)}',
 						logIndex: '${probe:escapeJS(log.index)}',
+						rotatedFile: rotatedFile,
 						lastKnownLength: (lastLogSize == -1 ? 0 : lastLogSize),
 						currentLength: currentLogSize,
 						maxReadLines: (lastLogSize == -1 ? initialLines : undefined)
@@ -293,6 +425,100 @@
 				});
 			}
 
+			//
+			// browsers supporting server-sent events are pushed the lines appended to the log,
+			// the others poll for them
+			//
+			function streamLog(lastKnownLength) {
+				var parameters = $H({
+					logType: '${probe:escapeJS(log.logType)}',
+					webapp: '<c:out value="${param.webapp}" />',
+					context: '${log.context}',
+					root: '${log.root}',
+					logName: '${probe:escapeJS(log.name)}',
+					logIndex: '${probe:escapeJS(log.index)}',
+					maxReadLines: initialLines
+				});
+				if (lastKnownLength !== undefined) {
+					parameters.set('lastKnownLength', lastKnownLength);
+				}
+				eventSource = new EventSource('<c:url value="/logs/stream.ajax"/>?' + parameters.toQueryString());
+				eventSource.onmessage = function(event) {
+					lastEventId = event.lastEventId;
+					appendLines(event.data.split('\n'));
+				};
+				eventSource.addEventListener('truncated', function() {
+					appendLines([' ------------- THE FILE HAS BEEN TRUNCATED --------------']);
+				});
+				eventSource.onerror = function() {
+					if (eventSource.readyState == EventSource.CLOSED) {
+						// the server cannot stream, fall back to polling
+						eventSource = null;
+						streaming = false;
+					}
+				};
+			}
+
+			function stopStreaming() {
+				if (eventSource != null) {
+					eventSource.close();
+					eventSource = null;
+				}
+			}
+
+			function appendLines(lines) {
+				var objDiv = document.getElementById(file_content_div);
+				var scrolledDown = objDiv.scrollTop + objDiv.clientHeight == objDiv.scrollHeight;
+				for (var i = 0; i < lines.length; i++) {
+					objDiv.appendChild(new Element('div', {'class': 'line'}).update(lines[i].escapeHTML()));
+				}
+				var children = $(objDiv).childElements();
+				for (var i = 0; i < children.length - maxLines; i++) {
+					children[i].remove();
+				}
+				if (scrolledDown) {
+					objDiv.scrollTop = objDiv.scrollHeight;
+				}
+			}
+
+			if (streaming) {
+				streamLog(undefined);
+			}
+
+			//
+			// pages are read through the line index of the file, from a line or a time,
+			// tailing being paused while they are shown
+			//
+			var pageFirstLine = -1;
+			var pageSize = 100;
+
+			function showPage(parameters) {
+				tailingEnabled = false;
+				stopStreaming();
+				Element.hide('pause');
+				Element.show('resume');
+				new Ajax.Updater(file_content_div, '<c:url value="/logs/page.ajax"/>', {
+					method:'get',
+					parameters: $H({
+						logType: '${probe:escapeJS(log.logType)}',
+						webapp: '<c:out value="${param.webapp}" />',
+						context: '${log.context}',
+						root: '${log.root}',
+						logName: '${probe:escapeJS(log.name)}',
+						logIndex: '${probe:escapeJS(log.index)}',
+						rotatedFile: rotatedFile,
+						lines: pageSize
+					}).merge(parameters).toObject(),
+					onComplete: function() {
+						var info = $('pageInfo');
+						if (info) {
+							pageFirstLine = parseInt(info.readAttribute('data-first-line'));
+						}
+						document.getElementById(file_content_div).scrollTop = 0;
+					}
+				});
+			}
+
 			//
 			// unfortunately it is not possible to set the size of "file_content" div in percent.
 			// i'm not sure why, but most likely it is a browser bug.
@@ -300,7 +526,7 @@
 			// hence this hook:
 			//
 			window.onresize = function() {
-				var h = (getWindowHeight() - 390) + 'px';
+				var h = (getWindowHeight() - 420) + 'px';
 				Element.setStyle(file_content_div, {height: h});
 			}
 
@@ -316,6 +542,7 @@
 				'#pause' : function (element) {
 					element.onclick = function () {
 						tailingEnabled = false;
+						stopStreaming();
 						Element.hide('pause');
 						Element.show('resume');
 						return false;
@@ -323,7 +550,17 @@
 				},
 				'#resume': function (element) {
 					element.onclick = function () {
+						if (pageFirstLine != -1) {
+							// back from paging, the tail of the file is read again
+							pageFirstLine = -1;
+							$(file_content_div).update();
+							lastLogSize = -1;
+							lastEventId = undefined;
+						}
 						tailingEnabled = true;
+						if (streaming) {
+							streamLog(lastEventId);
+						}
 						Element.hide('resume');
 						Element.show('pause');
 						return false;
@@ -371,10 +608,40 @@
 						return false;
 					}
 				},
+				'#pageForm': function(element) {
+					element.onsubmit = function() {
+						var time = $F('pageTime').strip();
+						showPage(time != '' ? {time: time} : {line: $F('pageLine').strip()});
+						return false;
+					}
+				},
+				'#previousPage': function(element) {
+					element.onclick = function() {
+						if (pageFirstLine == -1) {
+							showPage({});
+						} else {
+							showPage({line: Math.max(1, pageFirstLine - pageSize)});
+						}
+						return false;
+					}
+				},
+				'#nextPage': function(element) {
+					element.onclick = function() {
+						if (pageFirstLine != -1) {
+							showPage({line: pageFirstLine + pageSize});
+						}
+						return false;
+					}
+				},
 				'#clear': function(element) {
 					element.onclick = function() {
 						$(file_content_div).update();
-						followLog(undefined);
+						if (streaming) {
+							stopStreaming();
+							streamLog(undefined);
+						} else {
+							followLog(undefined);
+						}
 						return false;
 					}
 				}
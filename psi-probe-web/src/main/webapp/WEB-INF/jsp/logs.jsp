@@ -24,13 +24,47 @@
 		<title>
 			<spring:message code="probe.jsp.title.logs"/>
 		</title>
+		<script type="text/javascript">
+			function toggleLogFiles() {
+				const files = document.getElementsByName('file');
+				for (let i = 0; i < files.length; i++) {
+					files[i].checked = !files[i].checked;
+				}
+				return false;
+			}
+		</script>
 	</head>
 
 	<c:set var="navTabLogs" value="active" scope="request"/>
 
 	<body>
 
+		<form action="<c:url value='/logs/archive'/>" method="post" name="archiveForm" id="archiveForm">
+
+		<input type="hidden" name="format" id="archiveFormat" value="zip"/>
+
 		<ul class="options">
+			<li id="toggle">
+				<a href="#" onclick="return toggleLogFiles();">
+					<spring:message code="probe.jsp.logs.menu.toggle"/>
+				</a>
+			</li>
+			<li id="archiveZip">
+				<a href="#" onclick="document.getElementById('archiveFormat').value = 'zip'; archiveForm.submit(); return false;">
+					<spring:message code="probe.jsp.logs.menu.archiveZip"/>
+				</a>
+			</li>
+			<li id="archiveTgz">
+				<a href="#" onclick="document.getElementById('archiveFormat').value = 'tgz'; archiveForm.submit(); return false;">
+					<spring:message code="probe.jsp.logs.menu.archiveTgz"/>
+				</a>
+			</li>
+			<li id="archiveRotated">
+				<label>
+					<input type="checkbox" name="rotated" value="true"/>
+					<spring:message code="probe.jsp.logs.menu.archiveRotated"/>
+				</label>
+			</li>
 			<c:choose>
 				<c:when test="${param.apps}">
 					<li id="showapps">
@@ -47,16 +81,33 @@
 					</li>
 				</c:otherwise>
 			</c:choose>
+			<li id="refresh">
+				<c:url value="" var="refreshUrl">
+					<c:if test="${param.apps}">
+						<c:param name="apps" value="true"/>
+					</c:if>
+					<c:param name="refresh" value="true"/>
+				</c:url>
+				<a href="${refreshUrl}">
+					<spring:message code="probe.jsp.logs.refresh"/>
+				</a>
+			</li>
 		</ul>
 
 		<div class="blockContainer">
 			<display:table name="logs" class="genericTbl" style="border-spacing:0;border-collapse:separate;" uid="log" requestURI="">
 
+				<display:column title="&#160;" class="leftmost">
+					<c:if test="${log.file != 'stdout' && !fn:startsWith(log.file, 'mailto:')}">
+						<input type="checkbox" name="file" value="<c:out value='${log.file}'/>"/>
+					</c:if>
+				</display:column>
+
 				<c:choose>
 
 					<c:when test="${param.apps}">
 
-						<display:column titleKey="probe.jsp.logs.col.app" sortable="true" class="leftmost">
+						<display:column titleKey="probe.jsp.logs.col.app" sortable="true">
 							${log.application.name}
 						</display:column>
 
@@ -65,7 +116,7 @@
 					</c:when>
 
 					<c:otherwise>
-						<display:column titleKey="probe.jsp.logs.col.type" sortable="true" property="logType" class="leftmost"/>
+						<display:column titleKey="probe.jsp.logs.col.type" sortable="true" property="logType"/>
 					</c:otherwise>
 
 				</c:choose>
@@ -149,5 +200,7 @@
 				<display:column titleKey="probe.jsp.logs.col.class" sortable="true" property="targetClass"/>
 			</display:table>
 		</div>
+
+		</form>
 	</body>
 </html>
@@ -73,6 +73,8 @@
 
 				<h3><spring:message code="probe.jsp.memory.h3.charts"/></h3>
 
+				<%@ include file="charttimewindow.jspf" %>
+
 				<div id="memChartGroup">
 
 					<c:forEach items="${pools}" var="pool" varStatus="status">
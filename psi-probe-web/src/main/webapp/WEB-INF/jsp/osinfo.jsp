@@ -139,6 +139,8 @@
 					<div id="chart_group" style="width: 99%;">
 						<h3><spring:message code="probe.jsp.os.h3.charts"/></h3>
 
+						<%@ include file="charttimewindow.jspf" %>
+
 						<div class="chartContainer">
 							<dl>
 								<dt><spring:message code="probe.jsp.os.chart.cpu"/></dt>
@@ -0,0 +1,62 @@
+<%--
+
+    Licensed under the GPL License. You may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+      https://www.gnu.org/licenses/old-licenses/gpl-2.0.html
+
+    THIS PACKAGE IS PROVIDED "AS IS" AND WITHOUT ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING,
+    WITHOUT LIMITATION, THE IMPLIED WARRANTIES OF MERCHANTIBILITY AND FITNESS FOR A PARTICULAR
+    PURPOSE.
+
+<%@ page contentType="text/html;charset=UTF-8" language="java" session="false" %>
+<%@ taglib uri="http://java.sun.com/jsp/jstl/core" prefix="c" %>
+<%@ taglib uri="http://www.springframework.org/tags" prefix="spring" %>
+<%@ taglib uri="http://displaytag.sf.net" prefix="display" %>
+
+<%-- Displays the overhead of the stats collectors. --%>
+
+<html>
+	<head>
+		<title><spring:message code="probe.jsp.title.overhead"/></title>
+	</head>
+
+	<c:set var="navTabSystem" value="active" scope="request"/>
+	<c:set var="systemTabOverhead" value="active" scope="request"/>
+	<c:set var="use_decorator" value="system" scope="request"/>
+
+	<body>
+
+		<div id="overhead">
+			<display:table name="overheads" uid="overhead" class="genericTbl" style="border-spacing:0;border-collapse:separate;" requestURI="" defaultsort="1" defaultorder="ascending">
+				<display:column property="name"             sortable="true" titleKey="probe.jsp.overhead.col.name"        class="leftmost"/>
+				<display:column property="period"           sortable="true" titleKey="probe.jsp.overhead.col.period"/>
+				<display:column property="cycles"           sortable="true" titleKey="probe.jsp.overhead.col.cycles"/>
+				<display:column property="lastTime"         sortable="true" titleKey="probe.jsp.overhead.col.lastTime"/>
+				<display:column property="averageTime"      sortable="true" titleKey="probe.jsp.overhead.col.averageTime"/>
+				<display:column property="medianTime"       sortable="true" titleKey="probe.jsp.overhead.col.medianTime"/>
+				<display:column property="percentile95Time" sortable="true" titleKey="probe.jsp.overhead.col.percentile95Time"/>
+				<display:column property="maxTime"          sortable="true" titleKey="probe.jsp.overhead.col.maxTime"/>
+				<display:column property="overruns"         sortable="true" titleKey="probe.jsp.overhead.col.overruns"/>
+				<display:column property="skipped"          sortable="true" titleKey="probe.jsp.overhead.col.skipped"/>
+				<display:column property="seriesCount"      sortable="true" titleKey="probe.jsp.overhead.col.seriesCount"/>
+			</display:table>
+
+			<c:url value="/chart.png" var="collector_time_url">
+				<c:param name="ct" value="line"/>
+				<c:param name="p" value="collector_time"/>
+				<c:param name="xz" value="700"/>
+				<c:param name="yz" value="320"/>
+			</c:url>
+
+			<div class="chartContainer">
+				<dl>
+					<dt><spring:message code="probe.jsp.overhead.chart.time"/></dt>
+					<dd class="image">
+						<img border="0" src="${collector_time_url}" width="700" height="320" alt="+"/>
+					</dd>
+				</dl>
+			</div>
+		</div>
+	</body>
+</html>
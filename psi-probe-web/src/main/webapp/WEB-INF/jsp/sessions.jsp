@@ -194,7 +194,59 @@
 						<c:if test="${! searchInfo.apply}">
 							<h3><spring:message code="probe.jsp.sessions.h3"/></h3>
 						</c:if>
-						<display:table name="sessions" class="genericTbl" uid="session" style="border-spacing:0;border-collapse:separate;" pagesize="50"
+						<%-- sessions are sorted and paged by the server, the pages following cursors --%>
+						<div class="sessionPaging">
+							<spring:message code="probe.jsp.sessions.paging.sort"/>
+							<c:forEach items="${sortNames}" var="sortName">
+								<c:url value="/sessions.htm" var="sortUrl">
+									<c:if test="${not empty param.webapp}">
+										<c:param name="webapp" value="${param.webapp}"/>
+									</c:if>
+									<c:param name="size" value="${param.size}"/>
+									<c:param name="sort" value="${sortName}"/>
+									<c:param name="desc" value="${sortName == sessionPager.sort && !sessionPager.descending}"/>
+								</c:url>
+								<a href="${sortUrl}" class="${sortName == sessionPager.sort ? (sessionPager.descending ? 'sortedDesc' : 'sortedAsc') : ''}"><spring:message code="probe.jsp.sessions.paging.sort.${sortName}"/></a>
+							</c:forEach>
+							&#160;|&#160;
+							<spring:message code="probe.jsp.sessions.paging.info"
+									arguments="${sessionPage.offset + 1},${sessionPage.offset + fn:length(sessions)},${sessionPage.total}"/>
+							<c:if test="${sessionPage.previousAvailable}">
+								<c:url value="/sessions.htm" var="firstPageUrl">
+									<c:if test="${not empty param.webapp}">
+										<c:param name="webapp" value="${param.webapp}"/>
+									</c:if>
+									<c:param name="size" value="${param.size}"/>
+									<c:param name="sort" value="${sessionPager.sort}"/>
+									<c:param name="desc" value="${sessionPager.descending}"/>
+								</c:url>
+								<c:url value="/sessions.htm" var="previousPageUrl">
+									<c:if test="${not empty param.webapp}">
+										<c:param name="webapp" value="${param.webapp}"/>
+									</c:if>
+									<c:param name="size" value="${param.size}"/>
+									<c:param name="sort" value="${sessionPager.sort}"/>
+									<c:param name="desc" value="${sessionPager.descending}"/>
+									<c:param name="before" value="${sessionPage.firstCursor}"/>
+								</c:url>
+								<a href="${firstPageUrl}"><spring:message code="probe.jsp.sessions.paging.first"/></a>
+								<a href="${previousPageUrl}"><spring:message code="probe.jsp.sessions.paging.previous"/></a>
+							</c:if>
+							<c:if test="${sessionPage.nextAvailable}">
+								<c:url value="/sessions.htm" var="nextPageUrl">
+									<c:if test="${not empty param.webapp}">
+										<c:param name="webapp" value="${param.webapp}"/>
+									</c:if>
+									<c:param name="size" value="${param.size}"/>
+									<c:param name="sort" value="${sessionPager.sort}"/>
+									<c:param name="desc" value="${sessionPager.descending}"/>
+									<c:param name="after" value="${sessionPage.lastCursor}"/>
+								</c:url>
+								<a href="${nextPageUrl}"><spring:message code="probe.jsp.sessions.paging.next"/></a>
+							</c:if>
+						</div>
+
+						<display:table name="sessions" class="genericTbl" uid="session" style="border-spacing:0;border-collapse:separate;"
 								requestURI="">
 
 							<display:column class="leftmost" title="&#160;">
@@ -202,8 +254,7 @@
 							</display:column>
 
 							<c:if test="${empty param.webapp}">
-								<display:column sortProperty="applicationName" sortable="true"
-										titleKey="probe.jsp.sessions.col.applicationName">
+								<display:column titleKey="probe.jsp.sessions.col.applicationName">
 									<a href="<c:url value='/appsummary.htm'><c:param name='webapp' value='${session.applicationName}'/></c:url>">
 										${session.applicationName}
 									</a>&#160;
@@ -216,7 +267,7 @@
 								</a>
 							</display:column>
 
-							<display:column titleKey="probe.jsp.sessions.col.lastIp" sortProperty="lastAccessedIp" sortable="true">
+							<display:column titleKey="probe.jsp.sessions.col.lastIp">
 								<c:choose>
 									<c:when test="${! empty session.lastAccessedIp}">
 										<a id='ip_${session_rowNum}' href="#">${session.lastAccessedIp}</a>
@@ -244,28 +295,38 @@
 								</c:choose>
 							</display:column>
 
-							<display:column sortable="true" sortProperty="idleTime" titleKey="probe.jsp.sessions.col.idleTime">
+							<display:column titleKey="probe.jsp.sessions.col.idleTime">
 								<probe:duration value="${session.idleTime}"/>
 							</display:column>
 
-							<display:column sortable="true" sortProperty="age" titleKey="probe.jsp.sessions.col.age">
+							<display:column titleKey="probe.jsp.sessions.col.age">
 								<probe:duration value="${session.age}"/>
 							</display:column>
 
-							<display:column property="expiryTime" sortable="true" nulls="false"
+							<display:column property="expiryTime" nulls="false"
 									titleKey="probe.jsp.sessions.col.expiryTime" style="white-space:nowrap;"/>
-							<display:column property="objectCount" sortable="true"
+							<display:column property="objectCount"
 									titleKey="probe.jsp.sessions.col.objectCount"/>
 
 							<c:if test="${param.size}">
-								<display:column sortProperty="size" sortable="true" titleKey="probe.jsp.sessions.col.size"
+								<display:column titleKey="probe.jsp.sessions.col.size"
 										class="highlighted">
-									<probe:volume value="${session.size}"/>
+									<c:choose>
+										<c:when test="${session.size < 0}">
+											<%-- estimated in the background, filled in by updateSessionSizes() --%>
+											<span id="size_${session_rowNum}" class="sizePending"
+													data-session="<c:out value='${session.id};${session.applicationName}'/>">
+												<spring:message code="probe.jsp.sessions.size.estimating"/>
+											</span>
+										</c:when>
+										<c:otherwise>
+											<probe:volume value="${session.size}"/>
+										</c:otherwise>
+									</c:choose>
 								</display:column>
 							</c:if>
 
-							<display:column sortable="true" sortProperty="serializable"
-									titleKey="probe.jsp.sessions.col.serializable">
+							<display:column titleKey="probe.jsp.sessions.col.serializable">
 								<c:choose>
 									<c:when test="${session.serializable}">
 										<span class="okValue"><spring:message code="probe.jsp.sessions.status.yes"/></span>
@@ -340,6 +401,38 @@
 
 			setupHelpToggle('<c:url value="/help/sessionsearch.ajax"/>');
 
+			var sizeDelay = 1;
+
+			function updateSessionSizes() {
+				var pending = $$('span.sizePending');
+				if (pending.length == 0) {
+					return;
+				}
+				var keys = [];
+				var rows = [];
+				pending.each(function(span) {
+					keys.push(span.readAttribute('data-session'));
+					rows.push(span.id.substring(5));
+				});
+				new Ajax.Request('<c:url value="/sessionsizes.ajax"/>', {
+					method: 'post',
+					parameters: {sid_webapp: keys, row: rows},
+					onSuccess: function(response) {
+						var sizes = new Element('div').update(response.responseText);
+						sizes.select('span.sessionSize').each(function(size) {
+							var span = $('size_' + size.readAttribute('data-row'));
+							if (span && !size.innerHTML.blank()) {
+								span.update(size.innerHTML).removeClassName('sizePending');
+							}
+						});
+						sizeDelay = Math.min(sizeDelay * 1.5, 10);
+						setTimeout(updateSessionSizes, sizeDelay * 1000);
+					}
+				});
+			}
+
+			setTimeout(updateSessionSizes, 1000);
+
 			function showSearch() {
 				Element.hide('showSearch');
 				Element.show('applySearch');
@@ -67,6 +67,8 @@
 				</div>
 			</div>
 
+			<%@ include file="charttimewindow.jspf" %>
+
 			<div id="sliderContainer">
 				<div id="track">
 					<div id="handle"><img src="${pageContext.request.contextPath}<spring:theme code='slider.gif'/>" alt=""/></div>
@@ -39,22 +39,49 @@ Ajax.ImgUpdater.prototype = {
 			this.src = this.img.src;
 		}
 		this.timeout = timeout;
+		var img = this.img;
+		Ajax.ImgUpdater.updaters = Ajax.ImgUpdater.updaters.reject(function(updater) {
+			return updater.img == img;
+		});
+		Ajax.ImgUpdater.updaters.push(this);
 		this.start();
 	},
 
 	start: function() {
 		var now = new Date();
-		this.img.src = this.src + '&t=' + now.getTime();
+		var timeWindow = Ajax.ImgUpdater.timeWindow;
+		this.img.src = this.src + '&t=' + now.getTime() + (timeWindow ? '&tw=' + timeWindow : '');
 		this.timer = setTimeout(this.start.bind(this), this.timeout * 1000);
 	},
 
 	stop: function() {
 		if (this.timer) {
 			clearTimeout(this.timer);
+			this.timer = null;
 		}
 	}
 }
 
+/**
+ * The time window (tw) charts are drawn for, e.g. "7d", empty for the recent samples.
+ */
+Ajax.ImgUpdater.timeWindow = '';
+
+Ajax.ImgUpdater.updaters = [];
+
+/**
+ * Draws the charts of the page for another time window, redrawing the ones being updated now.
+ */
+function setChartTimeWindow(timeWindow) {
+	Ajax.ImgUpdater.timeWindow = timeWindow;
+	Ajax.ImgUpdater.updaters.each(function(updater) {
+		if (updater.timer) {
+			updater.stop();
+			updater.start();
+		}
+	});
+}
+
 function togglePanel(container, remember_url) {
 	if (Element.getStyle(container, "display") == 'none') {
 		if (remember_url) {